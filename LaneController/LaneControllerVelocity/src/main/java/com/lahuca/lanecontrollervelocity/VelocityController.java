@@ -26,10 +26,15 @@ import com.lahuca.lane.connection.packet.QueueCancelledPacket;
 import com.lahuca.lane.connection.request.ResponsePacket;
 import com.lahuca.lane.connection.request.ResponseErrorException;
 import com.lahuca.lane.connection.socket.server.ServerSocketConnection;
+import com.lahuca.lane.data.DataMutation;
+import com.lahuca.lane.data.DataObjectType;
+import com.lahuca.lane.data.leaderboard.Leaderboard;
 import com.lahuca.lane.data.manager.DataManager;
 import com.lahuca.lane.data.manager.FileDataManager;
+import com.lahuca.lane.data.manager.LogDataManager;
 import com.lahuca.lane.data.manager.MySQLDataManager;
 import com.lahuca.lane.data.selector.DataFilter;
+import com.lahuca.lane.data.selector.DataOrderType;
 import com.lahuca.lane.events.LaneEvent;
 import com.lahuca.lane.queue.*;
 import com.lahuca.lanecontroller.Controller;
@@ -103,7 +108,7 @@ public class VelocityController {
             .build().populator().apply(
                     new GsonBuilder()
                             .disableHtmlEscaping() // to be consistent with vanilla
-            ).registerTypeAdapterFactory(DataFilter.FACTORY).create();
+            ).registerTypeAdapterFactory(DataFilter.FACTORY).registerTypeAdapterFactory(DataMutation.FACTORY).create();
     public static final boolean useSSL = false;
 
     private final ProxyServer server;
@@ -192,13 +197,27 @@ public class VelocityController {
         // Data Manager
         DataManager dataManager = null;
         if(configuration.getDataManager().getType() == VelocityControllerConfiguration.DataManager.Type.FILE) {
+            VelocityControllerConfiguration.DataManager.File fileConfig = configuration.getDataManager().getFile();
             try {
-                dataManager = new FileDataManager(gson, new File(dataDirectory.toFile(), configuration.getDataManager().getFile().getName()));
+                FileDataManager fileDataManager = new FileDataManager(gson, new File(dataDirectory.toFile(), fileConfig.getName()));
+                fileDataManager.setFlushDelay(Math.max(0, fileConfig.getFlushDelay()));
+                dataManager = fileDataManager;
             } catch (FileNotFoundException e) {
                 // We cannot start
                 // TODO Log this!
                 return;
             }
+        } else if(configuration.getDataManager().getType() == VelocityControllerConfiguration.DataManager.Type.LOG) {
+            VelocityControllerConfiguration.DataManager.Log logConfig = configuration.getDataManager().getLog();
+            try {
+                LogDataManager logDataManager = new LogDataManager(gson, new File(dataDirectory.toFile(), logConfig.getName()));
+                logDataManager.setSegmentSize(logConfig.getSegmentSize() * 1024L * 1024L);
+                logDataManager.setCommitInterval(logConfig.getCommitInterval());
+                dataManager = logDataManager;
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warning("Could not open the log data manager: " + e.getMessage());
+                return;
+            }
         } else if(configuration.getDataManager().getType() == VelocityControllerConfiguration.DataManager.Type.MYSQL) {
             VelocityControllerConfiguration.DataManager.MySQL mysqlConfig = configuration.getDataManager().getMysql();
             HikariConfig config = new HikariConfig();
@@ -219,7 +238,18 @@ public class VelocityController {
             config.addDataSourceProperty("cachePrepStmts", "true");
             config.addDataSourceProperty("prepStmtCacheSize", "250");
             config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-            dataManager = new MySQLDataManager(gson, new HikariDataSource(config), mysqlConfig.getPrefix());
+            MySQLDataManager mysqlDataManager = new MySQLDataManager(gson, new HikariDataSource(config), mysqlConfig.getPrefix());
+            mysqlDataManager.setAutoIndexThreshold(mysqlConfig.getAutoIndexThreshold());
+            if(mysqlConfig.getIndexes() != null) {
+                for(VelocityControllerConfiguration.DataManager.MySQL.Index index : mysqlConfig.getIndexes()) {
+                    DataObjectType cast = index.getCast() == null || index.getCast().isEmpty() ? null : DataObjectType.valueOf(index.getCast());
+                    mysqlDataManager.declareIndex(index.getType(), index.getPath(), cast).exceptionally(ex -> {
+                        logger.warning("Could not create index on " + index.getPath() + " of " + index.getType() + ": " + ex.getMessage());
+                        return null;
+                    });
+                }
+            }
+            dataManager = mysqlDataManager;
         }
 
         if(connection == null || dataManager == null) {
@@ -232,6 +262,29 @@ public class VelocityController {
             //TODO: Handle that exception
             e.printStackTrace();
         }
+        if(controller != null) {
+            VelocityControllerConfiguration.DataManager.Expiry expiryConfig = configuration.getDataManager().getExpiry();
+            try {
+                controller.getExpirySweeper().setInterval(expiryConfig.getInterval() * 1000);
+                controller.getExpirySweeper().setBatchSize(expiryConfig.getBatchSize());
+                controller.getExpirySweeper().setMaxBatches(expiryConfig.getMaxBatches());
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid expiry settings: " + e.getMessage());
+            }
+        }
+        if(controller != null && configuration.getDataManager().getLeaderboards() != null) {
+            for(VelocityControllerConfiguration.DataManager.Leaderboard leaderboard : configuration.getDataManager().getLeaderboards()) {
+                try {
+                    DataOrderType order = leaderboard.getOrder() == null || leaderboard.getOrder().isEmpty() ? DataOrderType.DESCENDING : DataOrderType.valueOf(leaderboard.getOrder());
+                    controller.getDataManager().registerLeaderboard(new Leaderboard(leaderboard.getName(), leaderboard.getType(), leaderboard.getId(), leaderboard.getPath(), order)).exceptionally(ex -> {
+                        logger.warning("Could not build leaderboard " + leaderboard.getName() + ": " + ex.getMessage());
+                        return null;
+                    });
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    logger.warning("Invalid leaderboard " + leaderboard.getName() + ": " + e.getMessage());
+                }
+            }
+        }
 
         CommandManager commandManager = server.getCommandManager();
         if(configuration.getCommands().isFriend()) {
@@ -1,5 +1,6 @@
 package com.lahuca.lanecontrollervelocity;
 
+import java.util.List;
 import java.util.Locale;
 
 public class VelocityControllerConfiguration {
@@ -82,12 +83,18 @@ public class VelocityControllerConfiguration {
 
         private final Type type;
         private final File file;
+        private final Log log;
         private final MySQL mysql;
+        private final Expiry expiry;
+        private final List<Leaderboard> leaderboards;
 
         public DataManager() {
             type = Type.FILE;
             file = new File();
+            log = new Log();
             mysql = new MySQL();
+            expiry = new Expiry();
+            leaderboards = List.of();
         }
 
         public Type getType() {
@@ -98,28 +105,136 @@ public class VelocityControllerConfiguration {
             return file;
         }
 
+        public Log getLog() {
+            return log;
+        }
+
         public MySQL getMysql() {
             return mysql;
         }
 
+        public Expiry getExpiry() {
+            return expiry;
+        }
+
+        public List<Leaderboard> getLeaderboards() {
+            return leaderboards;
+        }
+
         public enum Type {
 
-            FILE, MYSQL
+            FILE, LOG, MYSQL
+
+        }
+
+        public static class Expiry {
+
+            private final long interval;
+            private final int batchSize;
+            private final int maxBatches;
+
+            public Expiry() {
+                interval = 60;
+                batchSize = 500;
+                maxBatches = 10;
+            }
+
+            public long getInterval() {
+                return interval;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public int getMaxBatches() {
+                return maxBatches;
+            }
+
+        }
+
+        public static class Leaderboard {
+
+            private final String name;
+            private final String type;
+            private final String id;
+            private final String path;
+            private final String order;
+
+            public Leaderboard() {
+                name = null;
+                type = null;
+                id = null;
+                path = "$";
+                order = "DESCENDING";
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public String getType() {
+                return type;
+            }
+
+            public String getId() {
+                return id;
+            }
+
+            public String getPath() {
+                return path;
+            }
+
+            public String getOrder() {
+                return order;
+            }
 
         }
 
         public static class File {
 
             private final String name;
+            private final long flushDelay;
 
             public File() {
                 name = "data";
+                flushDelay = 10;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public long getFlushDelay() {
+                return flushDelay;
+            }
+
+        }
+
+        public static class Log {
+
+            private final String name;
+            private final int segmentSize;
+            private final long commitInterval;
+
+            public Log() {
+                name = "log";
+                segmentSize = 64;
+                commitInterval = 2;
             }
 
             public String getName() {
                 return name;
             }
 
+            public int getSegmentSize() {
+                return segmentSize;
+            }
+
+            public long getCommitInterval() {
+                return commitInterval;
+            }
+
         }
 
         public static class MySQL {
@@ -130,6 +245,8 @@ public class VelocityControllerConfiguration {
             private final String password;
             private final String database;
             private final String prefix;
+            private final int autoIndexThreshold;
+            private final List<Index> indexes;
 
             public MySQL() {
                 host = "localhost";
@@ -138,6 +255,8 @@ public class VelocityControllerConfiguration {
                 password = "password";
                 database = "database";
                 prefix = "lane";
+                autoIndexThreshold = 0;
+                indexes = List.of();
             }
 
             public String getHost() {
@@ -164,6 +283,40 @@ public class VelocityControllerConfiguration {
                 return prefix;
             }
 
+            public int getAutoIndexThreshold() {
+                return autoIndexThreshold;
+            }
+
+            public List<Index> getIndexes() {
+                return indexes;
+            }
+
+            public static class Index {
+
+                private final String type;
+                private final String path;
+                private final String cast;
+
+                public Index() {
+                    type = null;
+                    path = "$";
+                    cast = "DOUBLE";
+                }
+
+                public String getType() {
+                    return type;
+                }
+
+                public String getPath() {
+                    return path;
+                }
+
+                public String getCast() {
+                    return cast;
+                }
+
+            }
+
         }
 
     }
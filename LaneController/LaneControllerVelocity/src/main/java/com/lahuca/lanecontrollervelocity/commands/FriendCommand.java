@@ -17,6 +17,7 @@ import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.proxy.Player;
 import net.kyori.adventure.text.Component;
 
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -103,25 +104,28 @@ public class FriendCommand {
                         }
                         player.sendPlainMessage("Friends:");
                         // TODO We might want to filter out the friends that are online first!
+                        ArrayList<UUID> others = new ArrayList<>();
                         for(RelationshipRecord friendship : friendships) {
                             Optional<UUID> other = friendship.players().stream().filter(uuid -> !uuid.equals(player.getUniqueId())).findFirst();
                             if(other.isEmpty())
                                 continue; // TODO Whut. Do not send "Friends:" if we only have invalid data
-                            // Check whether player with given UUID is online.
-                            Optional<ControllerPlayer> friend = controller.getPlayerManager().getPlayer(other.get());
-                            if(friend.isPresent()) {
-                                // Player is online
-                                ControllerPlayer friendPlayer = friend.get();
-                                player.sendPlainMessage(friendPlayer.getUsername() + " is online");
-                                // TODO Add if they are in a game, etc.
-                            } else {
-                                // Player is offline, fetch last username
-                                controller.getPlayerManager().getPlayerUsername(other.get()).whenComplete((username, usernameEx) -> {
-                                    if(usernameEx != null || username.isEmpty()) return; // TODO Message?
-                                    player.sendPlainMessage(username.get() + " is offline");
-                                });
-                            }
+                            others.add(other.get());
                         }
+                        // Fetch the last usernames of all friends at once
+                        controller.getPlayerManager().resolveUsernames(others).whenComplete((usernames, usernamesEx) -> {
+                            if(usernamesEx != null) return; // TODO Message?
+                            for(UUID other : others) {
+                                String username = usernames.get(other);
+                                if(username == null) continue; // TODO Message?
+                                // Check whether player with given UUID is online.
+                                if(controller.getPlayerManager().getPlayer(other).isPresent()) {
+                                    player.sendPlainMessage(username + " is online");
+                                    // TODO Add if they are in a game, etc.
+                                } else {
+                                    player.sendPlainMessage(username + " is offline");
+                                }
+                            }
+                        });
 
                     });
                     return Command.SINGLE_SUCCESS;
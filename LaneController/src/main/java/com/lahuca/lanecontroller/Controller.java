@@ -18,8 +18,13 @@ package com.lahuca.lanecontroller;
 import com.google.gson.Gson;
 import com.lahuca.lane.connection.Connection;
 import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.local.LocalServerConnection;
+import com.lahuca.lane.connection.metrics.JmxMetricsSink;
+import com.lahuca.lane.connection.metrics.MetricsSink;
 import com.lahuca.lane.connection.packet.*;
+import com.lahuca.lane.connection.request.RequestHandler;
 import com.lahuca.lane.connection.socket.server.ServerSocketConnection;
+import com.lahuca.lane.data.manager.DataExpirySweeper;
 import com.lahuca.lane.data.manager.DataManager;
 import com.lahuca.lane.events.LaneEvent;
 import com.lahuca.lanecontroller.events.InstanceUnregisterEvent;
@@ -28,6 +33,8 @@ import net.kyori.adventure.text.Component;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * This is the main class for operations on the controller side of the Lane system.
@@ -63,14 +70,16 @@ public abstract class Controller {
 
     private final Connection connection;
     private final DataManager dataManager;
+    private final DataExpirySweeper expirySweeper;
 
     private final ControllerDataManager controllerDataManager;
     private final ControllerPlayerManager playerManager;
     private final ControllerPartyManager partyManager;
     private final ControllerFriendshipManager friendshipManager;
 
-    private final HashMap<Long, ControllerGame> games = new HashMap<>(); // Games are only registered because of instances
-    private final HashMap<String, ControllerLaneInstance> instances = new HashMap<>(); // Additional data for the instances
+    private final ConcurrentHashMap<Long, ControllerGame> games = new ConcurrentHashMap<>(); // Games are only registered because of instances
+    private final ConcurrentHashMap<String, ControllerLaneInstance> instances = new ConcurrentHashMap<>(); // Additional data for the instances
+    private final ControllerDispatcher dispatcher;
 
 
     public Controller(Gson gson, Connection connection, DataManager dataManager) throws IOException {
@@ -78,27 +87,43 @@ public abstract class Controller {
         this.gson = gson;
         this.connection = connection;
         this.dataManager = dataManager;
+        expirySweeper = new DataExpirySweeper(dataManager);
         controllerDataManager = new ControllerDataManager(this, dataManager, gson);
+        // Data objects that the data manager removes by itself have to be invalidated just like removals through the controller
+        dataManager.setExpiryListener(controllerDataManager::dataObjectRemoved);
         playerManager = new ControllerPlayerManager(this, dataManager);
         partyManager = new ControllerPartyManager(this, dataManager);
         friendshipManager = new ControllerFriendshipManager(this, dataManager, gson);
 
         Packet.registerPackets();
 
+        Consumer<String> onClientRemove = id -> {
+            if(id == null) return; // The client never announced itself
+            ControllerLaneInstance old = instances.remove(id);
+            if(old != null) handleControllerEvent(new InstanceUnregisterEvent(old));
+            controllerDataManager.unsubscribeWatches(id);
+            // Kick players.
+            // TODO Maybe run some other stuff when it is done? Like kicking players. Remove the instance!
+        };
         if (connection instanceof ServerSocketConnection serverSocketConnection) {
             // TODO Definitely change the type!
-            serverSocketConnection.setOnClientRemove(id -> {
-                ControllerLaneInstance old = instances.remove(id);
-                if(old != null) handleControllerEvent(new InstanceUnregisterEvent(old));
-                // Kick players.
-                // TODO Maybe run some other stuff when it is done? Like kicking players. Remove the instance!
-            });
+            serverSocketConnection.setOnClientRemove(onClientRemove);
+        } else if (connection instanceof LocalServerConnection localServerConnection) {
+            localServerConnection.setOnClientRemove(onClientRemove);
         }
-        connection.initialise(new ControllerInputPacket(this, dataManager, games, instances));
+        if (connection instanceof RequestHandler handler && handler.getMetricsSink() == MetricsSink.NONE) {
+            handler.setMetricsSink(new JmxMetricsSink(MetricsSink.CONTROLLER));
+        }
+        dispatcher = new ControllerDispatcher(new ControllerInputPacket(this, dataManager, games, instances));
+        connection.initialise(dispatcher);
+        expirySweeper.start();
     }
 
     public void shutdown() {
         connection.close();
+        dispatcher.shutdown(5);
+        if (connection instanceof RequestHandler handler && handler.getMetricsSink() instanceof JmxMetricsSink sink) sink.unregister();
+        expirySweeper.stop();
         dataManager.shutdown();
         // TODO Probably more
     }
@@ -107,10 +132,27 @@ public abstract class Controller {
         return connection;
     }
 
+    /**
+     * Returns the dispatcher that handles the incoming packets, it provides the queue depths of the handling.
+     * @return the dispatcher
+     */
+    public ControllerDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     private DataManager dataManager() {
         return dataManager;
     }
 
+    /**
+     * Returns the sweeper that periodically removes the expired data objects of the data manager.
+     * Its settings take effect from the next sweep.
+     * @return the expiry sweeper
+     */
+    public DataExpirySweeper getExpirySweeper() {
+        return expirySweeper;
+    }
+
     public ControllerDataManager getDataManager() {
         return controllerDataManager;
     }
@@ -128,6 +170,7 @@ public abstract class Controller {
     }
 
     public Optional<ControllerLaneInstance> getInstance(String id) {
+        if(id == null) return Optional.empty();
         return Optional.ofNullable(instances.get(id));
     } // TODO Really public?
 
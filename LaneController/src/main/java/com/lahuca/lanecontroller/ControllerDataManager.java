@@ -1,23 +1,36 @@
 package com.lahuca.lanecontroller;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.lahuca.lane.connection.request.ResponseErrorException;
+import com.lahuca.lane.data.DataMutation;
 import com.lahuca.lane.data.DataObject;
 import com.lahuca.lane.data.DataObjectId;
 import com.lahuca.lane.data.PermissionKey;
 import com.lahuca.lane.data.RelationalId;
+import com.lahuca.lane.data.leaderboard.Leaderboard;
 import com.lahuca.lane.data.manager.DataManager;
 import com.lahuca.lane.data.manager.PermissionFailedException;
 import com.lahuca.lane.data.profile.ProfileData;
 import com.lahuca.lane.data.profile.ProfileType;
+import com.lahuca.lane.data.selector.DataPage;
 import com.lahuca.lane.data.selector.DataSelector;
+import com.lahuca.lane.data.watch.DataObjectChange;
+import com.lahuca.lane.data.watch.DataWatch;
+import com.lahuca.lane.data.watch.DataWatchKey;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class ControllerDataManager {
@@ -25,11 +38,17 @@ public class ControllerDataManager {
     private final Controller controller;
     private final DataManager dataManager;
     private final Gson gson;
+    private final ConcurrentHashMap<String, ControllerLeaderboard> leaderboards = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, BiFunction<DataObject, JsonElement, Boolean>> updaters = new ConcurrentHashMap<>();
+    private final ControllerDataObjectHolders holders;
+    private final ControllerDataWatchers watchers;
 
     public ControllerDataManager(Controller controller, DataManager dataManager, Gson gson) {
         this.controller = controller;
         this.dataManager = dataManager;
         this.gson = gson;
+        holders = new ControllerDataObjectHolders(controller.getConnection());
+        watchers = new ControllerDataWatchers(controller.getConnection(), dataManager);
     }
 
     /**
@@ -65,7 +84,7 @@ public class ControllerDataManager {
         if(!permissionKey.isIndividual()) {
             return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
         }
-        return dataManager.writeDataObject(permissionKey, object);
+        return dataManager.writeDataObject(permissionKey, object).thenRun(() -> dataObjectWritten(object));
         // TODO We should check we do not overwrite info we reserve in defaultData.md
     }
 
@@ -82,7 +101,29 @@ public class ControllerDataManager {
         if(!permissionKey.isIndividual()) {
             return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
         }
-        return dataManager.removeDataObject(permissionKey, id);
+        return dataManager.removeDataObject(permissionKey, id).thenRun(() -> dataObjectRemoved(id));
+    }
+
+    /**
+     * Writes the data object at the given id with the given permission key, but only when the stored revision matches the expected revision.
+     * When the expected revision is null, the data object is only written when no data object exists at the given id yet.
+     * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
+     * If the permission key is not an individual key, the completable future is thrown with an {@link IllegalArgumentException}.
+     *
+     * @param permissionKey    the permission key to use while writing
+     * @param object           the data object to write
+     * @param expectedRevision the revision the stored data object is expected to have, null if it is expected to not exist
+     * @return a completable future with the status as boolean: true if it has been written, false if the revision did not match
+     * @see DataManager#compareAndSetDataObject(PermissionKey, DataObject, Long)
+     */
+    public CompletableFuture<Boolean> compareAndSetDataObject(PermissionKey permissionKey, DataObject object, Long expectedRevision) {
+        if(!permissionKey.isIndividual()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
+        }
+        return dataManager.compareAndSetDataObject(permissionKey, object, expectedRevision).thenApply(written -> {
+            if(written) dataObjectWritten(object);
+            return written;
+        });
     }
 
     /**
@@ -104,7 +145,125 @@ public class ControllerDataManager {
         if(!permissionKey.isIndividual()) {
             return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
         }
-        return dataManager.updateDataObject(permissionKey, id, updater);
+        return dataManager.updateDataObject(permissionKey, id, updater).thenApply(status -> {
+            if(status) dataObjectChanged(id);
+            return status;
+        });
+    }
+
+    /**
+     * Updates the data object at the given id with the given permission key, and retrieves the data object after the update.
+     * This works like {@link #updateDataObject(PermissionKey, DataObjectId, Function)},
+     * but the resulting data object is given instead of the status, with its new version when it has been written.
+     * When the updater has returned false, the data object as it was read is given.
+     * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
+     * If the permission key is not an individual key, the completable future is thrown with an {@link IllegalArgumentException}.
+     *
+     * @param permissionKey the permission key to use while reading and writing
+     * @param id            the id of the data object to update
+     * @param updater       the updater consumer that handles the update
+     * @return a completable future with an optional with the updated data object, the optional is empty when the data object did not exist
+     */
+    public CompletableFuture<Optional<DataObject>> updateAndGetDataObject(PermissionKey permissionKey, DataObjectId id, Function<DataObject, Boolean> updater) {
+        if(!permissionKey.isIndividual()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
+        }
+        // The updater can be run multiple times, only the last run is the one that has been written
+        AtomicReference<DataObject> result = new AtomicReference<>();
+        AtomicBoolean written = new AtomicBoolean();
+        return dataManager.updateDataObject(permissionKey, id, object -> {
+            boolean write = updater.apply(object);
+            result.set(object);
+            written.set(write);
+            return write;
+        }).thenApply(status -> {
+            if(!status) return Optional.empty();
+            if(written.get()) dataObjectChanged(id);
+            return Optional.ofNullable(result.get());
+        });
+    }
+
+    /**
+     * Updates the data object at the given id with the updater that has been registered with the given name.
+     *
+     * @param permissionKey the permission key to use while reading and writing
+     * @param id            the id of the data object to update
+     * @param updater       the name of the registered updater
+     * @param argument      the argument that is given to the updater, can be null
+     * @return a completable future with an optional with the updated data object, the optional is empty when the data object did not exist.
+     * When no updater has been registered with the name, the completable future is thrown with an {@link IllegalArgumentException}.
+     * @see #registerUpdater(String, BiFunction)
+     * @see #updateAndGetDataObject(PermissionKey, DataObjectId, Function)
+     */
+    public CompletableFuture<Optional<DataObject>> updateAndGetDataObject(PermissionKey permissionKey, DataObjectId id, @NotNull String updater, JsonElement argument) {
+        BiFunction<DataObject, JsonElement, Boolean> function = updaters.get(updater);
+        if(function == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("No updater has been registered with the name " + updater));
+        }
+        return updateAndGetDataObject(permissionKey, id, object -> function.apply(object, argument));
+    }
+
+    /**
+     * Applies the mutation to the data object at the given id, and retrieves the data object after the mutation.
+     *
+     * @param permissionKey the permission key to use while reading and writing
+     * @param id            the id of the data object to mutate
+     * @param mutation      the mutation to apply
+     * @return a completable future with an optional with the mutated data object, the optional is empty when the data object did not exist.
+     * When the mutation cannot be applied to the value, an {@link IllegalArgumentException} is thrown in the {@link CompletableFuture}.
+     * @see #updateAndGetDataObject(PermissionKey, DataObjectId, Function)
+     */
+    public CompletableFuture<Optional<DataObject>> updateAndGetDataObject(PermissionKey permissionKey, DataObjectId id, @NotNull DataMutation mutation) {
+        return updateAndGetDataObject(permissionKey, id, object -> {
+            mutation.apply(object);
+            return true;
+        });
+    }
+
+    /**
+     * Registers an updater, so that instances can update data objects with it in a single request.
+     * The updater receives the data object that has been read and the argument given by the instance, and returns whether the data object is to be written.
+     * The updater can be run multiple times for one update, when the data object is concurrently modified.
+     * When an updater with the same name already exists, it is replaced.
+     *
+     * @param name    the name of the updater
+     * @param updater the updater
+     */
+    public void registerUpdater(@NotNull String name, @NotNull BiFunction<DataObject, JsonElement, Boolean> updater) {
+        Objects.requireNonNull(name, "name cannot be null");
+        Objects.requireNonNull(updater, "updater cannot be null");
+        updaters.put(name, updater);
+    }
+
+    /**
+     * Unregisters the updater with the given name.
+     *
+     * @param name the name of the updater
+     * @return true if an updater has been unregistered
+     */
+    public boolean unregisterUpdater(@NotNull String name) {
+        return updaters.remove(name) != null;
+    }
+
+    /**
+     * Mutates the value of the data object at the given id with the given permission key, without reading and writing the whole value.
+     * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
+     * If the permission key is not an individual key, the completable future is thrown with an {@link IllegalArgumentException}.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to mutate
+     * @param mutation      the mutation to apply
+     * @return a completable future with the status as boolean: true if mutated successfully, false when the data object did not exist.
+     * @see DataManager#mutateDataObject(PermissionKey, DataObjectId, DataMutation)
+     */
+    public CompletableFuture<Boolean> mutateDataObject(PermissionKey permissionKey, DataObjectId id, DataMutation mutation) {
+        if(!permissionKey.isIndividual()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
+        }
+        return dataManager.mutateDataObject(permissionKey, id, mutation).thenApply(status -> {
+            if(status) dataObjectChanged(id);
+            return status;
+        });
     }
 
     /**
@@ -138,7 +297,7 @@ public class ControllerDataManager {
         if(!permissionKey.isIndividual()) {
             return CompletableFuture.failedFuture(new IllegalArgumentException("Permission key is not an individual permission key"));
         }
-        return dataManager.copyDataObject(permissionKey, sourceId, targetId);
+        return dataManager.copyDataObject(permissionKey, sourceId, targetId).thenRun(() -> dataObjectChanged(targetId));
     }
 
     /**
@@ -151,6 +310,197 @@ public class ControllerDataManager {
         return dataManager.selectDataObjects(permissionKey, selector);
     }
 
+    /**
+     * Selects a page of data objects from the data manager based on the given selector.
+     * @param permissionKey the permission key to use while reading
+     * @param selector the selector to use, its continuation determines the page
+     * @return a {@link CompletableFuture} with the page of found data objects
+     */
+    CompletableFuture<DataPage> selectDataObjectsPage(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        return dataManager.selectDataObjectsPage(permissionKey, selector);
+    }
+
+    /**
+     * Registers the leaderboard, after which it is built by scanning the data manager.
+     * From then on, it is updated by the writes that go through this data manager.
+     * When a leaderboard with the same name already exists, it is replaced.
+     *
+     * @param leaderboard the leaderboard definition
+     * @return a {@link CompletableFuture} with the leaderboard once it has been built
+     */
+    public CompletableFuture<ControllerLeaderboard> registerLeaderboard(@NotNull Leaderboard leaderboard) {
+        Objects.requireNonNull(leaderboard, "leaderboard cannot be null");
+        ControllerLeaderboard controllerLeaderboard = new ControllerLeaderboard(leaderboard);
+        leaderboards.put(leaderboard.name(), controllerLeaderboard);
+        return controllerLeaderboard.rebuild(dataManager).thenApply(none -> controllerLeaderboard);
+    }
+
+    /**
+     * Unregisters the leaderboard with the given name.
+     *
+     * @param name the name of the leaderboard
+     * @return true if the leaderboard existed
+     */
+    public boolean unregisterLeaderboard(@NotNull String name) {
+        return leaderboards.remove(name) != null;
+    }
+
+    /**
+     * Retrieves the leaderboard with the given name.
+     *
+     * @param name the name of the leaderboard
+     * @return an optional with the leaderboard, empty if it has not been registered
+     */
+    public Optional<ControllerLeaderboard> getLeaderboard(@NotNull String name) {
+        return Optional.ofNullable(leaderboards.get(name));
+    }
+
+    /**
+     * Watches the data object at the given id, the listener is called after it has been changed through the controller.
+     * Changes that follow each other quickly are coalesced into one change with the latest state.
+     * The changed data object is read with the given permission key, so that only the information it has access to is given.
+     * The listener is called on a single thread that is shared between all watches, so it should not block.
+     *
+     * @param id            the id of the data object to watch
+     * @param permissionKey the permission key to read the changed data object with
+     * @param listener      the listener for the changes
+     * @return the watch, which can be cancelled
+     */
+    public DataWatch watchDataObject(@NotNull DataObjectId id, @NotNull PermissionKey permissionKey, @NotNull Consumer<DataObjectChange> listener) {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(id.id(), "id's id cannot be null");
+        return watch(new DataWatchKey(id, false, permissionKey), listener);
+    }
+
+    /**
+     * Watches all data objects of the relational ID whose ID starts with the given prefix, see {@link #watchDataObject(DataObjectId, PermissionKey, Consumer)}.
+     * When the data objects of the relational ID are changed in bulk, such as when a profile is reset,
+     * the listener receives a change without data object whose ID has a null ID, see {@link DataObjectChange#isRelational()}.
+     *
+     * @param prefix        the relational ID with the prefix of the IDs, a null ID watches all data objects of the relational ID
+     * @param permissionKey the permission key to read the changed data objects with
+     * @param listener      the listener for the changes
+     * @return the watch, which can be cancelled
+     */
+    public DataWatch watchDataObjects(@NotNull DataObjectId prefix, @NotNull PermissionKey permissionKey, @NotNull Consumer<DataObjectChange> listener) {
+        Objects.requireNonNull(prefix, "prefix cannot be null");
+        return watch(new DataWatchKey(prefix, true, permissionKey), listener);
+    }
+
+    private DataWatch watch(DataWatchKey key, Consumer<DataObjectChange> listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        if(!key.permissionKey().isFormattedCorrectly()) {
+            throw new IllegalArgumentException("Permission key is not formatted correctly");
+        }
+        return watchers.watch(key, listener);
+    }
+
+    /**
+     * Subscribes the given instance to the changes of the watched data objects.
+     *
+     * @param instance the instance's ID
+     * @param key      what to watch
+     */
+    void subscribeWatch(String instance, DataWatchKey key) {
+        watchers.subscribe(instance, key);
+    }
+
+    /**
+     * Unsubscribes the given instance from the changes of the watched data objects.
+     *
+     * @param instance the instance's ID
+     * @param key      what was watched
+     */
+    void unsubscribeWatch(String instance, DataWatchKey key) {
+        watchers.unsubscribe(instance, key);
+    }
+
+    /**
+     * Unsubscribes the given instance from everything it watches, as it has been removed.
+     *
+     * @param instance the instance's ID
+     */
+    void unsubscribeWatches(String instance) {
+        watchers.unsubscribeAll(instance);
+    }
+
+    /**
+     * Registers that the given instance caches the data object that it is about to read, so that it is told when it changes.
+     *
+     * @param instance      the instance's ID
+     * @param id            the data object's ID
+     * @param cacheDuration the number of milliseconds the instance caches the data object, 0 if it is not cached
+     */
+    void dataObjectCached(String instance, DataObjectId id, long cacheDuration) {
+        holders.hold(instance, id, cacheDuration);
+    }
+
+    /**
+     * Updates the leaderboards, the instance caches and the watchers with the data object that has just been written.
+     *
+     * @param object the written data object
+     */
+    void dataObjectWritten(DataObject object) {
+        if(object == null) return;
+        holders.invalidate(object.getId());
+        watchers.changed(object.getId());
+        if(leaderboards.isEmpty()) return;
+        for(ControllerLeaderboard leaderboard : leaderboards.values()) {
+            leaderboard.update(object);
+        }
+    }
+
+    /**
+     * Updates the leaderboards, the instance caches and the watchers with the data object that has just been removed.
+     *
+     * @param id the removed data object's ID
+     */
+    void dataObjectRemoved(DataObjectId id) {
+        if(id == null) return;
+        holders.invalidate(id);
+        watchers.changed(id);
+        if(leaderboards.isEmpty()) return;
+        for(ControllerLeaderboard leaderboard : leaderboards.values()) {
+            if(leaderboard.getLeaderboard().matches(id)) leaderboard.update(id.relationalId().id(), null);
+        }
+    }
+
+    /**
+     * Updates the leaderboards, the instance caches and the watchers with the data object that has just been changed without knowing its value.
+     * The leaderboards read the data object for its new value.
+     *
+     * @param id the changed data object's ID
+     */
+    void dataObjectChanged(DataObjectId id) {
+        if(id == null) return;
+        holders.invalidate(id);
+        watchers.changed(id);
+        if(leaderboards.isEmpty()) return;
+        if(leaderboards.values().stream().noneMatch(leaderboard -> leaderboard.getLeaderboard().matches(id))) return;
+        dataManager.readDataObject(PermissionKey.CONTROLLER, id).thenAccept(object -> {
+            if(object.isPresent()) dataObjectWritten(object.get());
+            else dataObjectRemoved(id);
+        });
+    }
+
+    /**
+     * Updates the leaderboards, the instance caches and the watchers with the data objects of the relational ID that have just been changed in bulk.
+     * The leaderboards read the data objects for their new values.
+     *
+     * @param relationalId the changed relational ID
+     */
+    void relationalChanged(RelationalId relationalId) {
+        if(relationalId == null) return;
+        holders.invalidate(relationalId);
+        watchers.changed(new DataObjectId(relationalId, null));
+        if(leaderboards.isEmpty()) return;
+        for(ControllerLeaderboard leaderboard : leaderboards.values()) {
+            if(leaderboard.getLeaderboard().type().equals(relationalId.type())) {
+                dataObjectChanged(new DataObjectId(relationalId, leaderboard.getLeaderboard().id()));
+            }
+        }
+    }
+
     /**
      * Retrieves the profile data of the profile identified by the given UUID.
      *
@@ -163,6 +513,21 @@ public class ControllerDataManager {
                 .thenApply(optDataObj -> optDataObj.flatMap(dataObj -> dataObj.getValueAsJson(gson, ControllerProfileData.class)));
     }
 
+    /**
+     * Updates the profile data at the given id with the controller's permission key.
+     * Instances that have cached the profile data and watchers are notified when it has been updated.
+     *
+     * @param id      the id of the profile data
+     * @param updater the updater that handles the update
+     * @return a {@link CompletableFuture} with the status as boolean: true if updated successfully, false when the profile data did not exist
+     */
+    private CompletableFuture<Boolean> updateProfileData(DataObjectId id, Function<DataObject, Boolean> updater) {
+        return dataManager.updateDataObject(PermissionKey.CONTROLLER, id, updater).thenApply(status -> {
+            if(status) dataObjectChanged(id);
+            return status;
+        });
+    }
+
     /**
      * Creates a new profile given the profile type.
      * This stores the profile information at a new profile UUID.
@@ -179,7 +544,10 @@ public class ControllerDataManager {
             // TODO This can still cause troubles! We should do reservation: write into reservation array somewhere, even before getProfileData!
             ControllerProfileData newData = new ControllerProfileData(uuid, type);
             DataObject dataObject = new DataObject(newData.getDataObjectId(), PermissionKey.CONTROLLER, gson, newData);
-            return dataManager.writeDataObject(PermissionKey.CONTROLLER, dataObject).thenApply(none -> newData);
+            return dataManager.writeDataObject(PermissionKey.CONTROLLER, dataObject).thenApply(none -> {
+                dataObjectWritten(dataObject);
+                return newData;
+            });
         });
     }
 
@@ -239,7 +607,7 @@ public class ControllerDataManager {
         }
 
         // First we update the sub profile so that it holds the super profile.
-        return dataManager.updateDataObject(PermissionKey.CONTROLLER, subProfile.getDataObjectId(), obj -> {
+        return updateProfileData(subProfile.getDataObjectId(), obj -> {
             subProfile.addSuperProfile(current.getId());
             obj.setValue(gson, subProfile);
             return true;
@@ -248,7 +616,7 @@ public class ControllerDataManager {
                 return CompletableFuture.failedFuture(new IllegalStateException("Profile data of sub profile did not exist"));
             }
             // We know we updated the sub profile, now update the current one.
-            return dataManager.updateDataObject(PermissionKey.CONTROLLER, current.getDataObjectId(), obj -> {
+            return updateProfileData(current.getDataObjectId(), obj -> {
                 current.addSubProfile(subProfile.getId(), name, active);
                 obj.setValue(gson, current);
                 return true;
@@ -274,7 +642,7 @@ public class ControllerDataManager {
         Objects.requireNonNull(subProfile, "subProfile cannot be null");
 
         // First we update the super profile so that it does not hold the sub profile.
-        return dataManager.updateDataObject(PermissionKey.CONTROLLER, current.getDataObjectId(), obj -> {
+        return updateProfileData(current.getDataObjectId(), obj -> {
             current.removeSubProfile(subProfile.getId(), name);
             obj.setValue(gson, current);
             return true;
@@ -285,7 +653,7 @@ public class ControllerDataManager {
                 // We do not need to update, it is still a super profile
                 return CompletableFuture.completedFuture(true);
             }
-            return dataManager.updateDataObject(PermissionKey.CONTROLLER, subProfile.getDataObjectId(), obj -> {
+            return updateProfileData(subProfile.getDataObjectId(), obj -> {
                 subProfile.removeSuperProfile(current.getId());
                 obj.setValue(gson, subProfile);
                 return true;
@@ -307,17 +675,9 @@ public class ControllerDataManager {
         if(delete && (!current.getSuperProfiles().isEmpty() || !current.getSubProfiles().isEmpty())) {
             return CompletableFuture.failedFuture(new IllegalStateException("Cannot delete profile with sub or super profiles"));
         }
-        return dataManager.listDataObjectIds(new DataObjectId(RelationalId.Profiles(current.getId()), null)).thenCompose(dataObjectIds -> {
-            if(!delete)
-                dataObjectIds.remove(current.getDataObjectId()); // Remove the data object information if deleting
-            // Create futures that remove every one of them
-            CompletableFuture<?>[] futures = new CompletableFuture[dataObjectIds.size()];
-            for(int i = 0; i < dataObjectIds.size(); i++) {
-                futures[i] = dataManager.removeDataObject(PermissionKey.CONTROLLER, dataObjectIds.get(i));
-            }
-            // Combine the futures into one that only accepts if all of them do
-            return CompletableFuture.allOf(futures);
-        }).exceptionally(val -> {
+        RelationalId relationalId = RelationalId.Profiles(current.getId());
+        Set<String> exceptIds = delete ? Set.of() : Set.of(current.getDataObjectId().id()); // Keep the data object information if resetting
+        return dataManager.removeRelational(PermissionKey.CONTROLLER, relationalId, exceptIds).thenRun(() -> relationalChanged(relationalId)).exceptionally(val -> {
             val.printStackTrace();
             return null;
         });
@@ -333,19 +693,10 @@ public class ControllerDataManager {
     public CompletableFuture<Void> copyProfile(ControllerProfileData current, ProfileData from) {
         Objects.requireNonNull(current, "current cannot be null");
         Objects.requireNonNull(from, "from cannot be null");
-        return dataManager.listDataObjectIds(new DataObjectId(RelationalId.Profiles(from.getId()), null)).thenCompose(dataObjectIds -> {
-            dataObjectIds.remove(from.getDataObjectId()); // Remove the data object information
-            // Create futures that copy every one of them
-            CompletableFuture<?>[] futures = new CompletableFuture[dataObjectIds.size()];
-            for(int i = 0; i < dataObjectIds.size(); i++) {
-                DataObjectId fromDataObject = dataObjectIds.get(i);
-                DataObjectId toDataObject = new DataObjectId(RelationalId.Profiles(current.getId()), fromDataObject.id());
-                System.out.println("Copying " + fromDataObject + " to " + toDataObject);
-                futures[i] = dataManager.copyDataObject(PermissionKey.CONTROLLER, fromDataObject, toDataObject);
-            }
-            // Combine the futures into one that only accepts if all of them do
-            return CompletableFuture.allOf(futures);
-        });
+        RelationalId to = RelationalId.Profiles(current.getId());
+        // Do not copy the data object information
+        return dataManager.copyRelational(PermissionKey.CONTROLLER, RelationalId.Profiles(from.getId()), to.id(), Set.of(from.getDataObjectId().id()))
+                .thenRun(() -> relationalChanged(to));
     }
 
     /**
@@ -368,7 +719,7 @@ public class ControllerDataManager {
         // Retrieve old profile
         return player.getNetworkProfile().thenCompose(oldProfile -> {
             // Update profiles, first we update the sub profile so that it holds the super profile.
-            return dataManager.updateDataObject(PermissionKey.CONTROLLER, profile.getDataObjectId(), obj -> {
+            return updateProfileData(profile.getDataObjectId(), obj -> {
                 // TODO What if we could not continue, this would be set. And the sub profile has multiple super profiles!!!!
                 //  Check this at all locations.
                 profile.addSuperProfile(player.getUuid());
@@ -380,7 +731,7 @@ public class ControllerDataManager {
                     return DefaultDataObjects.setPlayersNetworkProfile(dataManager, player.getUuid(), profile.getId())
                             .thenCompose(data -> {
                                 // We can remove the super profile from the original one
-                                return dataManager.updateDataObject(PermissionKey.CONTROLLER, oldProfile.getDataObjectId(), obj -> {
+                                return updateProfileData(oldProfile.getDataObjectId(), obj -> {
                                     oldProfile.removeSuperProfile(player.getUuid());
                                     obj.setValue(gson, oldProfile);
                                     return true;
@@ -412,7 +763,7 @@ public class ControllerDataManager {
             return CompletableFuture.failedFuture(new IllegalStateException("Can only set a network profile with no super profiles"));
         }
         // Update profiles, first we update the sub profile so that it holds the super profile.
-        return dataManager.updateDataObject(PermissionKey.CONTROLLER, profile.getDataObjectId(), obj -> {
+        return updateProfileData(profile.getDataObjectId(), obj -> {
             // TODO What if we could not continue, this would be set. And the sub profile has multiple super profiles!!!!
             //  Check this at all locations.
             profile.addSuperProfile(player);
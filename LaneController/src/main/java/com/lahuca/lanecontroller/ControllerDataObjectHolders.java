@@ -0,0 +1,114 @@
+package com.lahuca.lanecontroller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.lahuca.lane.connection.Connection;
+import com.lahuca.lane.connection.packet.data.DataObjectInvalidatePacket;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.RelationalId;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the instances that have cached data objects, so that only those are told when a data object changes.
+ * An instance holds a data object for the cache duration it has read it with, after which it has been removed from its cache anyway.
+ * Every change removes the holders, as the instances have to read the data object again to cache it again.
+ */
+class ControllerDataObjectHolders {
+
+    private final Connection connection;
+    private final Cache<DataObjectId, Map<String, Long>> holders; // The instances with the time at which their cache expires
+
+    ControllerDataObjectHolders(Connection connection) {
+        this.connection = connection;
+        holders = Caffeine.newBuilder().expireAfter(new Expiry<DataObjectId, Map<String, Long>>() {
+            @Override
+            public long expireAfterCreate(DataObjectId key, Map<String, Long> value, long currentTime) {
+                return remaining(value);
+            }
+
+            @Override
+            public long expireAfterUpdate(DataObjectId key, Map<String, Long> value, long currentTime, long currentDuration) {
+                return remaining(value);
+            }
+
+            @Override
+            public long expireAfterRead(DataObjectId key, Map<String, Long> value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        }).build();
+    }
+
+    private static long remaining(Map<String, Long> holders) {
+        long expiresAt = Long.MIN_VALUE;
+        for(long current : holders.values()) {
+            expiresAt = Math.max(expiresAt, current);
+        }
+        return Math.max(0, expiresAt - System.nanoTime());
+    }
+
+    /**
+     * Registers that the given instance caches the data object.
+     * This must be called before the data object is read for the instance, so that no change is missed.
+     *
+     * @param instance      the instance's ID
+     * @param id            the data object's ID
+     * @param cacheDuration the number of milliseconds the instance caches the data object
+     */
+    void hold(String instance, DataObjectId id, long cacheDuration) {
+        if(instance == null || id == null || cacheDuration <= 0) return;
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cacheDuration);
+        holders.asMap().compute(id, (key, current) -> {
+            // The maps are never modified after they have been put, as the expiry reads them
+            HashMap<String, Long> updated = current == null ? new HashMap<>() : new HashMap<>(current);
+            updated.merge(instance, expiresAt, Math::max);
+            return updated;
+        });
+    }
+
+    /**
+     * Tells the instances that hold the data object that it has been changed.
+     *
+     * @param id the changed data object's ID
+     */
+    void invalidate(DataObjectId id) {
+        if(id == null) return;
+        Map<String, Long> removed = holders.asMap().remove(id);
+        if(removed == null) return;
+        Set<String> instances = new HashSet<>();
+        collect(removed, instances);
+        if(!instances.isEmpty()) connection.sendPacket(instances, new DataObjectInvalidatePacket(id));
+    }
+
+    /**
+     * Tells the instances that hold any data object of the relational ID that they have been changed.
+     *
+     * @param relationalId the changed relational ID
+     */
+    void invalidate(RelationalId relationalId) {
+        if(relationalId == null) return;
+        Set<String> instances = new HashSet<>();
+        Iterator<Map.Entry<DataObjectId, Map<String, Long>>> iterator = holders.asMap().entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<DataObjectId, Map<String, Long>> entry = iterator.next();
+            if(!relationalId.equals(entry.getKey().relationalId())) continue;
+            iterator.remove();
+            collect(entry.getValue(), instances);
+        }
+        if(!instances.isEmpty()) connection.sendPacket(instances, new DataObjectInvalidatePacket(new DataObjectId(relationalId, null)));
+    }
+
+    private static void collect(Map<String, Long> holders, Set<String> instances) {
+        long now = System.nanoTime();
+        holders.forEach((instance, expiresAt) -> {
+            if(expiresAt - now > 0) instances.add(instance);
+        });
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.lahuca.lanecontroller;
+
+import com.lahuca.lane.connection.Connection;
+import com.lahuca.lane.connection.packet.data.DataObjectWatchPacket;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.RelationalId;
+import com.lahuca.lane.data.manager.DataManager;
+import com.lahuca.lane.data.watch.DataObjectChange;
+import com.lahuca.lane.data.watch.DataWatch;
+import com.lahuca.lane.data.watch.DataWatchKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the watched data objects, and sends their changes to the watching instances and listeners.
+ * Changes are coalesced: a changed data object is only marked, after a short delay all marked data objects are read once
+ * and their latest state is sent, no matter how often they have been changed in the meantime.
+ * The marked data objects are read in bulk without blocking, one batch after another, and their changes are sent on a single thread,
+ * so that the watchers receive them in order.
+ */
+class ControllerDataWatchers {
+
+    static final long COALESCE_DELAY = 50;
+    private static final RelationalId SINGULAR = new RelationalId(null, null); // As the maps do not allow null keys
+
+    private static final class Watchers {
+
+        private final Set<String> instances = ConcurrentHashMap.newKeySet();
+        private final CopyOnWriteArrayList<Consumer<DataObjectChange>> listeners = new CopyOnWriteArrayList<>();
+
+        private boolean isEmpty() {
+            return instances.isEmpty() && listeners.isEmpty();
+        }
+
+    }
+
+    private final Connection connection;
+    private final DataManager dataManager;
+    private final ConcurrentHashMap<RelationalId, ConcurrentHashMap<DataWatchKey, Watchers>> watches = new ConcurrentHashMap<>();
+    private final Set<DataObjectId> marked = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    private CompletableFuture<Void> flushing = CompletableFuture.completedFuture(null); // Only used on the watch thread
+
+    ControllerDataWatchers(Connection connection, DataManager dataManager) {
+        this.connection = connection;
+        this.dataManager = dataManager;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lane-Data-Watch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static RelationalId group(RelationalId relationalId) {
+        return relationalId == null ? SINGULAR : relationalId;
+    }
+
+    private synchronized void add(DataWatchKey key, Consumer<Watchers> adder) {
+        adder.accept(watches.computeIfAbsent(group(key.id().relationalId()), group -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, current -> new Watchers()));
+    }
+
+    private synchronized void remove(DataWatchKey key, Consumer<Watchers> remover) {
+        RelationalId group = group(key.id().relationalId());
+        ConcurrentHashMap<DataWatchKey, Watchers> current = watches.get(group);
+        if(current == null) return;
+        Watchers watchers = current.get(key);
+        if(watchers == null) return;
+        remover.accept(watchers);
+        if(watchers.isEmpty()) current.remove(key);
+        if(current.isEmpty()) watches.remove(group);
+    }
+
+    /**
+     * Registers a listener on this controller for the changes of the watched data objects.
+     *
+     * @param key      what to watch
+     * @param listener the listener
+     * @return the watch, which can be cancelled
+     */
+    DataWatch watch(DataWatchKey key, Consumer<DataObjectChange> listener) {
+        add(key, watchers -> watchers.listeners.add(listener));
+        return new DataWatch() {
+            @Override
+            public DataWatchKey getKey() {
+                return key;
+            }
+
+            @Override
+            public void cancel() {
+                remove(key, watchers -> watchers.listeners.remove(listener));
+            }
+        };
+    }
+
+    /**
+     * Subscribes an instance to the changes of the watched data objects.
+     *
+     * @param instance the instance's ID
+     * @param key      what to watch
+     */
+    void subscribe(String instance, DataWatchKey key) {
+        add(key, watchers -> watchers.instances.add(instance));
+    }
+
+    /**
+     * Unsubscribes an instance from the changes of the watched data objects.
+     *
+     * @param instance the instance's ID
+     * @param key      what was watched
+     */
+    void unsubscribe(String instance, DataWatchKey key) {
+        remove(key, watchers -> watchers.instances.remove(instance));
+    }
+
+    /**
+     * Unsubscribes an instance from everything it watches, as it has been removed.
+     *
+     * @param instance the instance's ID
+     */
+    synchronized void unsubscribeAll(String instance) {
+        List<DataWatchKey> keys = new ArrayList<>();
+        watches.values().forEach(current -> keys.addAll(current.keySet()));
+        keys.forEach(key -> unsubscribe(instance, key));
+    }
+
+    /**
+     * Marks the data object as changed, when it is watched its latest state is sent after the coalesce delay.
+     * When the ID of the data object ID is null, all data objects of its relational ID are marked as changed.
+     *
+     * @param id the changed data object's ID
+     */
+    void changed(DataObjectId id) {
+        if(id == null) return;
+        ConcurrentHashMap<DataWatchKey, Watchers> current = watches.get(group(id.relationalId()));
+        if(current == null || current.keySet().stream().noneMatch(key -> key.matches(id))) return;
+        marked.add(id);
+        if(scheduled.compareAndSet(false, true)) executor.schedule(this::flushMarked, COALESCE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushMarked() {
+        scheduled.set(false);
+        // Every data object is unmarked before it is read, so a change that comes in later marks it again
+        List<DataObjectId> ids = new ArrayList<>();
+        Iterator<DataObjectId> iterator = marked.iterator();
+        while(iterator.hasNext()) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        if(ids.isEmpty()) return;
+        // A batch is only read once the previous one has been sent, so that an older state is never sent after a newer one
+        flushing = flushing.thenComposeAsync(none -> flush(ids), executor).exceptionally(e -> {
+            e.printStackTrace(); // TODO Probably log?
+            return null;
+        });
+    }
+
+    /**
+     * Reads the changed data objects without blocking, and sends their latest state on the watch thread.
+     * The data objects are read at once for every permission key that watches them.
+     *
+     * @param ids the changed data objects' IDs, with a null ID for all data objects of the relational ID
+     * @return the future that completes once all changes have been sent
+     */
+    private CompletableFuture<Void> flush(List<DataObjectId> ids) {
+        Map<PermissionKey, Map<DataObjectId, Set<DataWatchKey>>> reads = new HashMap<>();
+        for(DataObjectId id : ids) {
+            ConcurrentHashMap<DataWatchKey, Watchers> current = watches.get(group(id.relationalId()));
+            if(current == null) continue;
+            for(DataWatchKey key : current.keySet()) {
+                if(id.id() == null) {
+                    // We do not know which data objects have been changed, so the prefixes are told to read again
+                    if(key.prefix()) send(key, new DataObjectChange(id, null));
+                    else addRead(reads, key.id(), key);
+                } else if(key.matches(id)) {
+                    addRead(reads, id, key);
+                }
+            }
+        }
+        List<CompletableFuture<Void>> sends = new ArrayList<>();
+        reads.forEach((permissionKey, watched) -> sends.add(dataManager.readDataObjects(permissionKey, watched.keySet()).handleAsync((objects, exception) -> {
+            if(exception != null) {
+                exception.printStackTrace(); // TODO Probably log?
+                return null;
+            }
+            watched.forEach((id, keys) -> {
+                DataObjectChange change = new DataObjectChange(id, objects.get(id));
+                keys.forEach(key -> send(key, change));
+            });
+            return null;
+        }, executor)));
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]));
+    }
+
+    private static void addRead(Map<PermissionKey, Map<DataObjectId, Set<DataWatchKey>>> reads, DataObjectId id, DataWatchKey key) {
+        reads.computeIfAbsent(key.permissionKey(), permissionKey -> new HashMap<>()).computeIfAbsent(id, current -> new HashSet<>()).add(key);
+    }
+
+    private void send(DataWatchKey key, DataObjectChange change) {
+        ConcurrentHashMap<DataWatchKey, Watchers> current = watches.get(group(key.id().relationalId()));
+        Watchers watchers = current == null ? null : current.get(key);
+        if(watchers == null) return;
+        if(!watchers.instances.isEmpty()) {
+            connection.sendPacket(new HashSet<>(watchers.instances), new DataObjectWatchPacket.Change(key, change));
+        }
+        for(Consumer<DataObjectChange> listener : watchers.listeners) {
+            try {
+                listener.accept(change);
+            } catch(RuntimeException e) {
+                e.printStackTrace(); // TODO Probably log?
+            }
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.lahuca.lanecontroller;
+
+import com.lahuca.lane.connection.InputPacket;
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.packet.PartyPacket;
+import com.lahuca.lane.connection.packet.RequestInformationPacket;
+import com.lahuca.lane.connection.packet.SetInformationPacket;
+import com.lahuca.lane.connection.packet.data.*;
+import com.lahuca.lane.connection.request.ResponsePacket;
+import com.lahuca.lane.data.DataObjectId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The dispatch stage between the connection and the {@link ControllerInputPacket}.
+ * Every incoming packet is routed to a mailbox keyed by what it touches.
+ * The mailboxes are drained by a shared pool of workers, so that packets of the same mailbox are handled in order,
+ * while packets of different mailboxes are handled in parallel, and a slow handler does not stall the read thread of the connection.
+ * The players, parties, games and instances refer to each other, so all packets that change them share the single state mailbox:
+ * they are handled one at a time, in the order in which they have been received, also per connection.
+ * Packets that only read one player, party, game, instance or leaderboard are handled in the mailbox of that entity,
+ * and packets that read many of them or query the data manager are handled in the mailbox of their connection.
+ * These reads run in parallel with the state mailbox, and may therefore overtake earlier state packets of the same connection:
+ * a connection that has to read its own change waits for the response to that change first, which is sent once it has been applied.
+ * A nickname only changes the player itself, so it is handled in the mailbox of that player.
+ * Packets that only touch a single data object are handled in the mailbox of that data object, as the data manager is thread-safe.
+ * Responses are completed immediately on the read thread, as handlers might be waiting for them.
+ */
+public class ControllerDispatcher implements Consumer<InputPacket> {
+
+    /**
+     * The number of packets a worker handles of one mailbox before it gives other mailboxes a turn.
+     */
+    private static final int BATCH_SIZE = 32;
+
+    public enum EntityType {
+        STATE, PLAYER, PARTY, GAME, INSTANCE, LEADERBOARD, CONNECTION, DATA_OBJECT
+    }
+
+    /**
+     * The key of a mailbox.
+     * @param type the type of the entity
+     * @param id the ID of the entity
+     */
+    public record EntityKey(EntityType type, Object id) {
+    }
+
+    private static final EntityKey STATE = new EntityKey(EntityType.STATE, null);
+
+    private final class Mailbox implements Runnable {
+
+        private final EntityKey key;
+        private final ConcurrentLinkedQueue<InputPacket> queue = new ConcurrentLinkedQueue<>();
+        private int pending = 0; // Only modified within the compute of the mailboxes map
+
+        private Mailbox(EntityKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            int handled = 0;
+            InputPacket input;
+            while(handled < BATCH_SIZE && (input = queue.poll()) != null) {
+                try {
+                    handler.accept(input);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                handled++;
+            }
+            int done = handled;
+            queuedPackets.addAndGet(-done);
+            boolean[] reschedule = {false};
+            mailboxes.compute(key, (k, mailbox) -> {
+                pending -= done;
+                if(pending <= 0) return null;
+                reschedule[0] = true;
+                return mailbox;
+            });
+            if(reschedule[0]) execute(this);
+        }
+
+        /**
+         * Discards the queued packets, as the workers have stopped.
+         */
+        private void discard() {
+            boolean[] removed = {false};
+            mailboxes.compute(key, (k, mailbox) -> {
+                if(mailbox != this) return mailbox;
+                removed[0] = true;
+                return null;
+            });
+            if(!removed[0]) return;
+            int discarded = 0;
+            while(queue.poll() != null) discarded++;
+            queuedPackets.addAndGet(-discarded);
+        }
+
+    }
+
+    private final Consumer<InputPacket> handler;
+    private final ExecutorService workers;
+    private final ConcurrentHashMap<EntityKey, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong queuedPackets = new AtomicLong();
+    private final AtomicLong dispatchedPackets = new AtomicLong();
+
+    public ControllerDispatcher(Consumer<InputPacket> handler) {
+        this(handler, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs the dispatcher.
+     * @param handler the handler of the packets
+     * @param workers the number of worker threads
+     */
+    public ControllerDispatcher(Consumer<InputPacket> handler, int workers) {
+        this.handler = handler;
+        if(workers <= 0) workers = 1;
+        AtomicInteger threadId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "Lane-Dispatch-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void accept(InputPacket input) {
+        if(input.packet() instanceof ResponsePacket<?>) {
+            handler.accept(input);
+            return;
+        }
+        EntityKey key = getEntityKey(input);
+        boolean[] schedule = {false};
+        Mailbox target = mailboxes.compute(key, (k, mailbox) -> {
+            if(mailbox == null) mailbox = new Mailbox(k);
+            mailbox.queue.add(input);
+            if(mailbox.pending++ == 0) schedule[0] = true;
+            return mailbox;
+        });
+        queuedPackets.incrementAndGet();
+        dispatchedPackets.incrementAndGet();
+        if(schedule[0]) execute(target);
+    }
+
+    /**
+     * Schedules the mailbox to be drained by a worker.
+     * When the workers have been shut down, the packets of the mailbox are discarded.
+     * @param mailbox the mailbox
+     */
+    private void execute(Mailbox mailbox) {
+        try {
+            workers.execute(mailbox);
+        } catch (RejectedExecutionException e) {
+            mailbox.discard();
+        }
+    }
+
+    /**
+     * Determines the entity that the given packet touches.
+     * @param input the input packet
+     * @return the key of the mailbox to handle the packet in
+     */
+    public static EntityKey getEntityKey(InputPacket input) {
+        Packet packet = input.packet();
+        return switch(packet) {
+            case RequestInformationPacket.Player read -> new EntityKey(EntityType.PLAYER, read.uuid());
+            case RequestInformationPacket.PlayerUsername read -> new EntityKey(EntityType.PLAYER, read.uuid());
+            case RequestInformationPacket.PlayerNetworkProfile read -> new EntityKey(EntityType.PLAYER, read.uuid());
+            case SetInformationPacket.PlayerSetNickname nickname -> new EntityKey(EntityType.PLAYER, nickname.uuid());
+            case PartyPacket.Retrieve.Request read -> new EntityKey(EntityType.PARTY, read.partyId());
+            case RequestInformationPacket.Game read -> new EntityKey(EntityType.GAME, read.gameId());
+            case RequestInformationPacket.Instance read -> new EntityKey(EntityType.INSTANCE, read.id());
+            case LeaderboardPacket.Top read -> new EntityKey(EntityType.LEADERBOARD, read.leaderboard());
+            case LeaderboardPacket.Rank read -> new EntityKey(EntityType.LEADERBOARD, read.leaderboard());
+            case LeaderboardPacket.Around read -> new EntityKey(EntityType.LEADERBOARD, read.leaderboard());
+            case RequestInformationPacket.Players ignored -> connection(input);
+            case RequestInformationPacket.Games ignored -> connection(input);
+            case RequestInformationPacket.Instances ignored -> connection(input);
+            case RequestInformationPacket.PlayerUuid ignored -> connection(input);
+            case DataObjectListIdsPacket ignored -> connection(input);
+            case DataObjectsListPacket ignored -> connection(input);
+            case DataObjectsSelectPacket ignored -> connection(input);
+            case DataObjectsSelectPagePacket ignored -> connection(input);
+            case DataObjectReadPacket read -> dataObject(read.id());
+            case DataObjectWritePacket write when write.object() != null -> dataObject(write.object().getId());
+            case DataObjectRemovePacket remove -> dataObject(remove.id());
+            case DataObjectUpdatePacket update -> dataObject(update.id());
+            default -> STATE;
+        };
+    }
+
+    private static EntityKey connection(InputPacket input) {
+        return new EntityKey(EntityType.CONNECTION, input.from());
+    }
+
+    private static EntityKey dataObject(DataObjectId id) {
+        return new EntityKey(EntityType.DATA_OBJECT, id);
+    }
+
+    /**
+     * Returns the number of packets that are waiting to be handled, or are being handled.
+     * @return the total queue depth
+     */
+    public long getQueueDepth() {
+        return queuedPackets.get();
+    }
+
+    /**
+     * Returns the number of packets that have been dispatched to a mailbox since the start.
+     * @return the number of dispatched packets
+     */
+    public long getDispatchedPackets() {
+        return dispatchedPackets.get();
+    }
+
+    /**
+     * Returns the number of mailboxes that have packets waiting to be handled.
+     * @return the number of active mailboxes
+     */
+    public int getActiveMailboxes() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Returns the queue depth per entity type.
+     * @return the number of queued packets per entity type
+     */
+    public Map<EntityType, Integer> getQueueDepthPerType() {
+        HashMap<EntityType, Integer> depths = new HashMap<>();
+        mailboxes.forEach((key, mailbox) -> depths.merge(key.type(), mailbox.queue.size(), Integer::sum));
+        return depths;
+    }
+
+    /**
+     * Stops the workers, it waits a maximum of the given number of seconds for the queued packets to be handled.
+     * @param timeoutSeconds the number of seconds to wait
+     */
+    public void shutdown(int timeoutSeconds) {
+        workers.shutdown();
+        try {
+            if(!workers.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) workers.shutdownNow();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+        }
+    }
+
+}
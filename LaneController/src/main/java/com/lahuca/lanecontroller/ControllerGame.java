@@ -6,6 +6,7 @@ import com.lahuca.lane.records.RecordConverterApplier;
 import com.lahuca.lane.records.StatePropertyRecord;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author _Neko1
@@ -19,10 +20,10 @@ public class ControllerGame implements RecordConverterApplier<GameRecord>, LaneG
     private String gameMode;
     private String gameMap;
 
-    private final HashSet<UUID> reserved = new HashSet<>();
-    private final HashSet<UUID> online = new HashSet<>();
-    private final HashSet<UUID> players = new HashSet<>();
-    private final HashSet<UUID> playing = new HashSet<>();
+    private final Set<UUID> reserved = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> players = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> playing = ConcurrentHashMap.newKeySet();
     private boolean onlineJoinable;
     private boolean playersJoinable;
     private boolean playingJoinable;
@@ -148,17 +149,18 @@ public class ControllerGame implements RecordConverterApplier<GameRecord>, LaneG
         return properties;
     }
 
+    // Synchronized with applying records, as records are also converted by reads outside of the state mailbox
     @Override
-    public GameRecord convertRecord() {
+    public synchronized GameRecord convertRecord() {
         HashMap<String, StatePropertyRecord> propertyRecords = new HashMap<>();
         properties.forEach((k, v) -> propertyRecords.put(k, v.convertRecord()));
-        return new GameRecord(gameId, instanceId, gameType, gameMode, gameMap, reserved, online, players, playing,
+        return new GameRecord(gameId, instanceId, gameType, gameMode, gameMap, new HashSet<>(reserved), new HashSet<>(online), new HashSet<>(players), new HashSet<>(playing),
                 onlineJoinable, playersJoinable, playingJoinable, maxOnlineSlots, maxPlayersSlots, maxPlayingSlots,
                 onlineKickable, playersKickable, playingKickable, isPrivate, state, propertyRecords);
     }
 
     @Override
-    public void applyRecord(GameRecord record) {
+    public synchronized void applyRecord(GameRecord record) {
         gameType = record.gameType();
         gameMode = record.gameMode();
         gameMap = record.gameMap();
@@ -12,6 +12,7 @@ import com.lahuca.lane.connection.request.ResponseError;
 import com.lahuca.lane.connection.request.ResponsePacket;
 import com.lahuca.lane.connection.request.ResponseErrorException;
 import com.lahuca.lane.connection.request.result.*;
+import com.lahuca.lane.data.DataObject;
 import com.lahuca.lane.data.manager.DataManager;
 import com.lahuca.lane.data.manager.PermissionFailedException;
 import com.lahuca.lane.data.profile.ProfileData;
@@ -30,6 +31,7 @@ import net.kyori.adventure.text.Component;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public class ControllerInputPacket implements Consumer<InputPacket> {
@@ -37,13 +39,13 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
     private final Controller controller;
     private final DataManager dataManager;
 
-    private final HashMap<Long, ControllerGame> games; // Games are only registered because of instances
-    private final HashMap<String, ControllerLaneInstance> instances; // Additional data for the instances
+    private final ConcurrentHashMap<Long, ControllerGame> games; // Games are only registered because of instances
+    private final ConcurrentHashMap<String, ControllerLaneInstance> instances; // Additional data for the instances
 
     public ControllerInputPacket(Controller controller,
                                  DataManager dataManager,
-                                 HashMap<Long, ControllerGame> games,
-                                 HashMap<String, ControllerLaneInstance> instances) {
+                                 ConcurrentHashMap<Long, ControllerGame> games,
+                                 ConcurrentHashMap<String, ControllerLaneInstance> instances) {
         this.controller = controller;
         this.dataManager = dataManager;
         this.games = games;
@@ -170,6 +172,75 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
                 }
                 instances.get(record.id()).applyRecord(record);
             }
+            case InstanceResyncPacket.Request packet -> {
+                InstanceRecord record = packet.record();
+                if (record == null || packet.games() == null || !input.from().equals(record.id())) {
+                    getConnection().sendPacket(new InstanceResyncPacket.Response(packet.getRequestId(), ResponseError.INSUFFICIENT_RIGHTS), input.from());
+                    return;
+                }
+                // The dispatcher handles all state packets in the single state mailbox, so no other state change is applied halfway
+                ControllerLaneInstance instance = instances.get(record.id());
+                if (instance != null && packet.generation() <= instance.getGeneration()) {
+                    // An older resynchronization, a newer one has already been applied
+                    getConnection().sendPacket(new InstanceResyncPacket.Response(packet.getRequestId(), ResponseError.ILLEGAL_STATE), input.from());
+                    return;
+                }
+                boolean registered = instance == null;
+                if (registered) {
+                    instance = new ControllerLaneInstance(record);
+                    instances.put(record.id(), instance);
+                } else {
+                    instance.applyRecord(record);
+                }
+                instance.setGeneration(packet.generation());
+                // Games
+                ArrayList<Long> rejected = new ArrayList<>();
+                HashMap<Long, GameRecord> retained = new HashMap<>();
+                for (GameRecord game : packet.games()) {
+                    ControllerGame current = games.get(game.gameId());
+                    if (!input.from().equals(game.instanceId()) || (current != null && !current.getInstanceId().equals(input.from()))) {
+                        rejected.add(game.gameId());
+                        continue;
+                    }
+                    if (current == null) games.put(game.gameId(), new ControllerGame(game));
+                    else current.applyRecord(game);
+                    retained.put(game.gameId(), game);
+                }
+                // The games we still have of the instance, that it does not have anymore
+                HashSet<Long> removed = new HashSet<>();
+                games.values().removeIf(game -> {
+                    if (!game.getInstanceId().equals(input.from()) || retained.containsKey(game.getGameId())) return false;
+                    removed.add(game.getGameId());
+                    return true;
+                });
+                // Players, fill in what we have lost and clear what the instance does not have anymore
+                ArrayList<UUID> cleared = new ArrayList<>();
+                for (ControllerPlayer player : getPlayerManager().getPlayers()) {
+                    UUID uuid = player.getUuid();
+                    boolean online = record.online().contains(uuid);
+                    boolean clear = false;
+                    if (online && player.getInstanceId().isEmpty()) player.setInstanceId(input.from());
+                    boolean onInstance = player.getInstanceId().map(input.from()::equals).orElse(false);
+                    if (onInstance && !online && !record.reserved().contains(uuid)) {
+                        // Reserved players are still joining, so only the others are gone
+                        player.setInstanceId(null);
+                        clear = true;
+                    }
+                    Optional<Long> gameId = player.getGameId();
+                    if (gameId.isPresent()) {
+                        GameRecord game = retained.get(gameId.get());
+                        if (removed.contains(gameId.get()) || (game != null && (clear || !game.online().contains(uuid) && !game.reserved().contains(uuid)))) {
+                            player.setGameId(null);
+                            clear = true;
+                        }
+                    } else if (onInstance && online) {
+                        retained.values().stream().filter(game -> game.online().contains(uuid)).findFirst().ifPresent(game -> player.setGameId(game.gameId()));
+                    }
+                    if (clear) cleared.add(uuid);
+                }
+                if (registered) handleControllerEvent(new InstanceRegisterEvent(instance));
+                getConnection().sendPacket(new InstanceResyncPacket.Response(packet.getRequestId(), new InstanceResyncPacket.Corrections(rejected, cleared)), input.from());
+            }
 
             case PartyPacket.Retrieve.Request packet ->
                     getPartyManager().getParty(packet.partyId()).ifPresentOrElse(
@@ -319,6 +390,8 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
                 if (!packet.permissionKey().isIndividual()) {
                     getConnection().sendPacket(new DataObjectResultPacket(packet.getRequestId(), ResponseError.ILLEGAL_ARGUMENT), input.from());
                 }
+                // Register the cache before reading, so that changes during the read are sent
+                controller.getDataManager().dataObjectCached(input.from(), packet.id(), packet.cacheDuration());
                 dataManager.readDataObject(packet.permissionKey(), packet.id()).whenComplete((object, ex) -> {
                     if (ex != null) {
                         getConnection().sendPacket(new DataObjectResultPacket(packet.getRequestId(), new ResponseError(ex)), input.from());
@@ -335,6 +408,7 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
                     if (ex != null) {
                         getConnection().sendPacket(new VoidResultPacket(packet.getRequestId(), new ResponseError(ex)), input.from());
                     } else {
+                        controller.getDataManager().dataObjectWritten(packet.object());
                         getConnection().sendPacket(new VoidResultPacket(packet.getRequestId()), input.from());
                     }
                 });
@@ -347,10 +421,29 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
                     if (ex != null) {
                         getConnection().sendPacket(new VoidResultPacket(packet.getRequestId(), new ResponseError(ex)), input.from());
                     } else {
+                        controller.getDataManager().dataObjectRemoved(packet.id());
                         getConnection().sendPacket(new VoidResultPacket(packet.getRequestId()), input.from());
                     }
                 });
             }
+            case DataObjectUpdatePacket packet -> {
+                if (!packet.permissionKey().isIndividual() || (packet.mutation() == null) == (packet.updater() == null)) {
+                    getConnection().sendPacket(new DataObjectResultPacket(packet.getRequestId(), ResponseError.ILLEGAL_ARGUMENT), input.from());
+                    return;
+                }
+                // The controller's data manager informs the caches and watchers itself
+                ControllerDataManager data = controller.getDataManager();
+                CompletableFuture<Optional<DataObject>> result = packet.mutation() != null
+                        ? data.updateAndGetDataObject(packet.permissionKey(), packet.id(), packet.mutation())
+                        : data.updateAndGetDataObject(packet.permissionKey(), packet.id(), packet.updater(), packet.argument());
+                result.whenComplete((object, ex) -> {
+                    if (ex != null) {
+                        getConnection().sendPacket(new DataObjectResultPacket(packet.getRequestId(), new ResponseError(ex)), input.from());
+                    } else {
+                        getConnection().sendPacket(new DataObjectResultPacket(packet.getRequestId(), object.orElse(null)), input.from());
+                    }
+                });
+            }
             case DataObjectListIdsPacket packet -> {
                 dataManager.listDataObjectIds(packet.prefix()).whenComplete((object, ex) -> {
                     if (ex != null) {
@@ -381,6 +474,7 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
                     if (ex != null) {
                         getConnection().sendPacket(new VoidResultPacket(packet.getRequestId(), new ResponseError(ex)), input.from());
                     } else {
+                        controller.getDataManager().dataObjectChanged(packet.targetId());
                         getConnection().sendPacket(new VoidResultPacket(packet.getRequestId()), input.from());
                     }
                 });
@@ -398,6 +492,37 @@ public class ControllerInputPacket implements Consumer<InputPacket> {
                         });
             }
 
+            case DataObjectsSelectPagePacket packet -> {
+                dataManager.selectDataObjectsPage(packet.permissionKey(), packet.selector())
+                        .whenComplete((page, ex) -> {
+                            if (ex != null) {
+                                getConnection().sendPacket(new DataPageResultPacket(packet.getRequestId(), new ResponseError(ex)), input.from());
+                            } else {
+                                getConnection().sendPacket(new DataPageResultPacket(packet.getRequestId(), page), input.from());
+                            }
+                        });
+            }
+
+            case DataObjectWatchPacket.Subscribe packet -> {
+                if (packet.key() != null && packet.key().permissionKey().isIndividual()) {
+                    getDataManager().subscribeWatch(input.from(), packet.key());
+                }
+            }
+            case DataObjectWatchPacket.Unsubscribe packet -> {
+                if (packet.key() != null) getDataManager().unsubscribeWatch(input.from(), packet.key());
+            }
+
+            case LeaderboardPacket.Top packet -> controller.getDataManager().getLeaderboard(packet.leaderboard()).ifPresentOrElse(
+                    leaderboard -> getConnection().sendPacket(new LeaderboardPacket.Response(packet.getRequestId(), leaderboard.getTop(packet.count())), input.from()),
+                    () -> getConnection().sendPacket(new LeaderboardPacket.Response(packet.getRequestId(), ResponseError.INVALID_ID), input.from()));
+            case LeaderboardPacket.Rank packet -> controller.getDataManager().getLeaderboard(packet.leaderboard()).ifPresentOrElse(
+                    leaderboard -> getConnection().sendPacket(new LeaderboardPacket.Response(packet.getRequestId(),
+                            leaderboard.getRank(packet.relationalId()).map(entry -> new ArrayList<>(List.of(entry))).orElseGet(ArrayList::new)), input.from()),
+                    () -> getConnection().sendPacket(new LeaderboardPacket.Response(packet.getRequestId(), ResponseError.INVALID_ID), input.from()));
+            case LeaderboardPacket.Around packet -> controller.getDataManager().getLeaderboard(packet.leaderboard()).ifPresentOrElse(
+                    leaderboard -> getConnection().sendPacket(new LeaderboardPacket.Response(packet.getRequestId(), leaderboard.getAround(packet.relationalId(), packet.radius())), input.from()),
+                    () -> getConnection().sendPacket(new LeaderboardPacket.Response(packet.getRequestId(), ResponseError.INVALID_ID), input.from()));
+
             case RequestInformationPacket.Player packet ->
                     getConnection().sendPacket(new RequestInformationPacket.PlayerResponse(packet.getRequestId(), null, getPlayer(packet.uuid()).map(ControllerPlayer::convertRecord).orElse(null)), input.from());
             case RequestInformationPacket.Players packet -> {
@@ -21,6 +21,7 @@ import com.lahuca.lane.records.RecordConverterApplier;
 
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class ControllerLaneInstance implements RecordConverterApplier<InstanceRecord>, Slottable {
 
@@ -28,10 +29,10 @@ public final class ControllerLaneInstance implements RecordConverterApplier<Inst
     private final InetSocketAddress gameAddress;
     private String type;
 
-    private final HashSet<UUID> reserved = new HashSet<>();
-    private final HashSet<UUID> online = new HashSet<>();
-    private final HashSet<UUID> players = new HashSet<>();
-    private final HashSet<UUID> playing = new HashSet<>();
+    private final Set<UUID> reserved = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> players = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> playing = ConcurrentHashMap.newKeySet();
     private boolean onlineJoinable;
     private boolean playersJoinable;
     private boolean playingJoinable;
@@ -42,6 +43,7 @@ public final class ControllerLaneInstance implements RecordConverterApplier<Inst
     private boolean playersKickable;
     private boolean playingKickable;
     private boolean isPrivate;
+    private long generation; // The generation of the last applied resynchronization
 
     ControllerLaneInstance(InstanceRecord record) {
         this.id = record.id();
@@ -131,15 +133,28 @@ public final class ControllerLaneInstance implements RecordConverterApplier<Inst
         return isPrivate;
     }
 
+    // Synchronized with applying records, as records are also converted by reads outside of the state mailbox
     @Override
-    public InstanceRecord convertRecord() {
-        return new InstanceRecord(id, gameAddress.getHostString(), gameAddress.getPort(), type, reserved, online, players, playing, onlineJoinable, playersJoinable,
+    public synchronized InstanceRecord convertRecord() {
+        return new InstanceRecord(id, gameAddress.getHostString(), gameAddress.getPort(), type, new HashSet<>(reserved), new HashSet<>(online), new HashSet<>(players), new HashSet<>(playing), onlineJoinable, playersJoinable,
                 playingJoinable, maxOnlineSlots, maxPlayersSlots, maxPlayingSlots, onlineKickable, playersKickable,
                 playingKickable,isPrivate);
     }
 
+    /**
+     * Gets the generation of the last resynchronization of this instance that has been applied.
+     * @return the generation, 0 if it has not been resynchronized
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
     @Override
-    public void applyRecord(InstanceRecord record) {
+    public synchronized void applyRecord(InstanceRecord record) {
         type = record.type();
         reserved.clear();
         reserved.addAll(record.reserved());
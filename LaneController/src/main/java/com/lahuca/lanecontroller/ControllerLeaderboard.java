@@ -0,0 +1,316 @@
+package com.lahuca.lanecontroller;
+
+import com.lahuca.lane.data.DataObject;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.DataObjectType;
+import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.RelationalId;
+import com.lahuca.lane.data.leaderboard.Leaderboard;
+import com.lahuca.lane.data.leaderboard.LeaderboardEntry;
+import com.lahuca.lane.data.manager.DataManager;
+import com.lahuca.lane.data.selector.DataContinuation;
+import com.lahuca.lane.data.selector.DataIdOperation;
+import com.lahuca.lane.data.selector.DataOrder;
+import com.lahuca.lane.data.selector.DataOrderType;
+import com.lahuca.lane.data.selector.DataSelector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The in-memory index of a {@link Leaderboard}.
+ * The entries are kept in an order statistic tree (a treap whose nodes know the size of their subtree),
+ * so that the top, the rank of an entry and the neighborhood of an entry are retrieved in logarithmic time.
+ * The index is built by scanning the data manager, after which it is kept up to date by the writes that go through the {@link ControllerDataManager}.
+ * Writes can finish in another order than they have been stored, so every entry keeps the revision of the data object it has been taken from,
+ * and updates from older revisions are ignored.
+ */
+public class ControllerLeaderboard {
+
+    private static final long SCAN_PAGE_SIZE = 1000;
+
+    private final Leaderboard leaderboard;
+    private final DataOrder scoreOrder;
+    private final boolean descending;
+
+    private Node root;
+    private final HashMap<String, Double> scores = new HashMap<>();
+    private final HashMap<String, Long> revisions = new HashMap<>();
+    private HashMap<String, Double> pending; // Updates during a rebuild, null values are removals
+
+    ControllerLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+        scoreOrder = new DataOrder(leaderboard.path(), DataObjectType.DOUBLE, leaderboard.order());
+        descending = leaderboard.order() == DataOrderType.DESCENDING;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Returns the number of ranked entries.
+     *
+     * @return the size of the leaderboard
+     */
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * Retrieves the entries with the best scores.
+     *
+     * @param count the maximum number of entries
+     * @return the entries, ordered by rank
+     */
+    public ArrayList<LeaderboardEntry> getTop(int count) {
+        return getRange(1, count);
+    }
+
+    /**
+     * Retrieves the entries starting at the given rank.
+     *
+     * @param fromRank the rank of the first entry, starting at 1
+     * @param count    the maximum number of entries
+     * @return the entries, ordered by rank
+     */
+    public synchronized ArrayList<LeaderboardEntry> getRange(long fromRank, int count) {
+        ArrayList<LeaderboardEntry> entries = new ArrayList<>();
+        if(fromRank < 1 || count <= 0 || fromRank > size(root)) return entries;
+        collect(root, fromRank - 1, count, 1, entries);
+        return entries;
+    }
+
+    /**
+     * Retrieves the entry of the given relational ID.
+     *
+     * @param relationalId the relational ID
+     * @return an optional with the entry, empty if the relational ID is not ranked
+     */
+    public synchronized Optional<LeaderboardEntry> getRank(String relationalId) {
+        Double score = scores.get(relationalId);
+        if(score == null) return Optional.empty();
+        return Optional.of(new LeaderboardEntry(relationalId, score, rank(score, relationalId)));
+    }
+
+    /**
+     * Retrieves the entries around the entry of the given relational ID.
+     *
+     * @param relationalId the relational ID
+     * @param radius       the number of entries before and after the entry
+     * @return the entries, ordered by rank; empty if the relational ID is not ranked
+     */
+    public synchronized ArrayList<LeaderboardEntry> getAround(String relationalId, int radius) {
+        Double score = scores.get(relationalId);
+        if(score == null || radius < 0) return new ArrayList<>();
+        long rank = rank(score, relationalId);
+        long from = Math.max(1, rank - radius);
+        return getRange(from, (int) Math.min(Integer.MAX_VALUE, rank + radius - from + 1));
+    }
+
+    /**
+     * Updates the entry of the given data object after it has been written or read.
+     * The update is ignored when the entry has already been taken from the same or a newer revision of the data object.
+     *
+     * @param object the data object, with a readable value
+     */
+    void update(DataObject object) {
+        if(!leaderboard.matches(object.getId())) return;
+        Object value = object.getValue().isPresent() ? DataContinuation.extractValue(scoreOrder, object) : null;
+        String relationalId = object.getId().relationalId().id();
+        Double score = value instanceof Number number ? number.doubleValue() : null;
+        Long revision = object.getRevision().orElse(null);
+        synchronized(this) {
+            if(revision != null) {
+                Long stored = revisions.get(relationalId);
+                if(stored != null && stored >= revision) return;
+            }
+            update(relationalId, score);
+            if(revision != null) revisions.put(relationalId, revision);
+        }
+    }
+
+    /**
+     * Updates the entry of the given relational ID.
+     * A removal also forgets the revision of the entry, as a data object that is created again starts at the first revision.
+     *
+     * @param relationalId the relational ID
+     * @param score        the new score, or null to remove the entry
+     */
+    synchronized void update(String relationalId, Double score) {
+        if(score == null) revisions.remove(relationalId);
+        if(pending != null) pending.put(relationalId, score);
+        Double previous = score == null ? scores.remove(relationalId) : scores.put(relationalId, score);
+        if(previous != null) {
+            if(previous.equals(score)) return;
+            root = remove(root, previous, relationalId);
+        }
+        if(score != null) root = insert(root, new Node(relationalId, score));
+    }
+
+    /**
+     * Rebuilds the index by scanning all data objects of the leaderboard in pages.
+     * Updates that happen during the scan take precedence over the scanned values.
+     *
+     * @param dataManager the data manager to scan
+     * @return a {@link CompletableFuture} with the void type to signify success: it has been rebuilt
+     */
+    CompletableFuture<Void> rebuild(DataManager dataManager) {
+        synchronized(this) {
+            pending = new HashMap<>();
+        }
+        DataSelector selector = DataSelector.builder(new DataObjectId(new RelationalId(leaderboard.type(), ""), leaderboard.id()))
+                .relationalIdOperation(DataIdOperation.ANY).idOperation(DataIdOperation.EXACT).limit(SCAN_PAGE_SIZE).build();
+        HashMap<String, Double> scanned = new HashMap<>();
+        HashMap<String, Long> scannedRevisions = new HashMap<>();
+        return scan(dataManager, selector, scanned, scannedRevisions).whenComplete((none, ex) -> {
+            synchronized(this) {
+                HashMap<String, Double> updates = pending;
+                pending = null;
+                if(ex != null) return;
+                scanned.putAll(updates);
+                // The revisions of the updates during the scan are already known, the others are taken from the scan
+                revisions.keySet().retainAll(updates.keySet());
+                scannedRevisions.forEach((relationalId, revision) -> {
+                    if(!updates.containsKey(relationalId)) revisions.put(relationalId, revision);
+                });
+                root = null;
+                scores.clear();
+                scanned.forEach((relationalId, score) -> {
+                    if(score != null) update(relationalId, score);
+                });
+            }
+        });
+    }
+
+    private CompletableFuture<Void> scan(DataManager dataManager, DataSelector selector, Map<String, Double> scanned, Map<String, Long> scannedRevisions) {
+        return dataManager.selectDataObjectsPage(PermissionKey.CONTROLLER, selector).thenCompose(page -> {
+            for(DataObject object : page.objects()) {
+                if(!leaderboard.matches(object.getId()) || object.getValue().isEmpty()) continue;
+                Object value = DataContinuation.extractValue(scoreOrder, object);
+                if(!(value instanceof Number score)) continue;
+                scanned.put(object.getId().relationalId().id(), score.doubleValue());
+                object.getRevision().ifPresent(revision -> scannedRevisions.put(object.getId().relationalId().id(), revision));
+            }
+            if(!page.hasNext()) return CompletableFuture.completedFuture(null);
+            return scan(dataManager, selector.continueAfter(page.continuation()), scanned, scannedRevisions);
+        });
+    }
+
+    // Order statistic tree
+
+    private static final class Node {
+
+        private final String key;
+        private final double score;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node left, right;
+        private int size = 1;
+
+        private Node(String key, double score) {
+            this.key = key;
+            this.score = score;
+        }
+
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private int compare(double score1, String key1, double score2, String key2) {
+        int compare = descending ? Double.compare(score2, score1) : Double.compare(score1, score2);
+        return compare != 0 ? compare : key1.compareTo(key2);
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = update(node);
+        return update(left);
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = update(node);
+        return update(right);
+    }
+
+    private Node insert(Node node, Node inserted) {
+        if(node == null) return inserted;
+        if(compare(inserted.score, inserted.key, node.score, node.key) < 0) {
+            node.left = insert(node.left, inserted);
+            if(node.left.priority > node.priority) return rotateRight(node);
+        } else {
+            node.right = insert(node.right, inserted);
+            if(node.right.priority > node.priority) return rotateLeft(node);
+        }
+        return update(node);
+    }
+
+    private Node remove(Node node, double score, String key) {
+        if(node == null) return null;
+        int compare = compare(score, key, node.score, node.key);
+        if(compare < 0) {
+            node.left = remove(node.left, score, key);
+        } else if(compare > 0) {
+            node.right = remove(node.right, score, key);
+        } else {
+            if(node.left == null) return node.right;
+            if(node.right == null) return node.left;
+            if(node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = remove(node.right, score, key);
+            } else {
+                node = rotateLeft(node);
+                node.left = remove(node.left, score, key);
+            }
+        }
+        return update(node);
+    }
+
+    private long rank(double score, String key) {
+        long rank = 1;
+        Node node = root;
+        while(node != null) {
+            int compare = compare(score, key, node.score, node.key);
+            if(compare < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left);
+                if(compare == 0) return rank;
+                rank++;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Collects the entries in order, skipping the first entries of the subtree.
+     *
+     * @return the number of entries that still have to be collected
+     */
+    private int collect(Node node, long skip, int count, long firstRank, ArrayList<LeaderboardEntry> entries) {
+        if(node == null || count <= 0) return count;
+        int leftSize = size(node.left);
+        if(skip < leftSize) count = collect(node.left, skip, count, firstRank, entries);
+        if(count > 0 && skip <= leftSize) {
+            entries.add(new LeaderboardEntry(node.key, node.score, firstRank + leftSize));
+            count--;
+        }
+        if(count > 0) count = collect(node.right, Math.max(0, skip - leftSize - 1), count, firstRank + leftSize + 1, entries);
+        return count;
+    }
+
+}
@@ -13,6 +13,7 @@ import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,14 +26,14 @@ public class ControllerParty implements LaneParty, AuthoritativeObject<Long, Par
 
     private final long partyId;
     private UUID owner;
-    private final HashSet<UUID> players = new HashSet<>();
+    private final Set<UUID> players = ConcurrentHashMap.newKeySet();
     private boolean invitationsOnly = true;
     private Integer playerLimit = null;
 
     private final Cache<@NotNull UUID, String> invitations;
     private final long creationTimestamp;
 
-    private final HashSet<String> replicatedSubscribers = new HashSet<>();
+    private final Set<String> replicatedSubscribers = ConcurrentHashMap.newKeySet();
 
     ControllerParty(long partyId, ControllerPlayer owner) {
         Objects.requireNonNull(owner, "owner is null");
@@ -140,7 +141,7 @@ public class ControllerParty implements LaneParty, AuthoritativeObject<Long, Par
 
     @Override
     public PartyRecord convertRecord() {
-        return new PartyRecord(partyId, owner, players, invitationsOnly, playerLimit, creationTimestamp, getUnmodifiableInvitations());
+        return new PartyRecord(partyId, owner, new HashSet<>(players), invitationsOnly, playerLimit, creationTimestamp, getUnmodifiableInvitations());
     }
 
     @Override
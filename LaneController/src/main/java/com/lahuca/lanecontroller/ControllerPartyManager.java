@@ -5,16 +5,18 @@ import com.lahuca.lane.data.manager.DataManager;
 import com.lahuca.lanecontroller.events.party.PartyCreateEvent;
 import com.lahuca.lanecontroller.events.party.PartyDisbandEvent;
 
-import java.util.HashMap;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ControllerPartyManager {
 
     private final Controller controller;
     private final DataManager dataManager;
 
-    private final HashMap<Long, ControllerParty> parties = new HashMap<>();
+    private final ConcurrentHashMap<Long, ControllerParty> parties = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
 
     public ControllerPartyManager(Controller controller, DataManager dataManager) {
         this.controller = controller;
@@ -22,11 +24,8 @@ public class ControllerPartyManager {
     }
 
     public long newId() {
-        long newId;
-        do {
-            newId = System.currentTimeMillis();
-        } while (parties.containsKey(newId));
-        return newId;
+        // Unique across concurrent calls, while staying close to the creation time
+        return lastId.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
     }
 
     /**
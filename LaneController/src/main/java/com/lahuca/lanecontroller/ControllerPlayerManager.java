@@ -15,6 +15,7 @@ public class ControllerPlayerManager {
 
     private final Controller controller;
     private final DataManager dataManager;
+    private final ControllerUsernameCache usernames;
 
     private final ConcurrentHashMap<UUID, ControllerPlayer> players = new ConcurrentHashMap<>();
     private final Cache<UUID, Long> networkProcessing = Caffeine.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES) // TODO Change the time
@@ -27,6 +28,7 @@ public class ControllerPlayerManager {
     public ControllerPlayerManager(Controller controller, DataManager dataManager) {
         this.controller = controller;
         this.dataManager = dataManager;
+        usernames = new ControllerUsernameCache(dataManager);
     }
 
     /**
@@ -62,6 +64,7 @@ public class ControllerPlayerManager {
         if (players.containsKey(player.getUuid())) return null;
         players.put(player.getUuid(), player);
         // Store info: last used username, username to UUID
+        usernames.put(player.getUuid(), username);
         DefaultDataObjects.setPlayersUsername(dataManager, player.getUuid(), username);
         DefaultDataObjects.setUsernamesUuid(dataManager, username, player.getUuid());
         applySavedLocale(player.getUuid(), networkProfileUuid, defaultLocale); // TODO Check result?
@@ -173,8 +176,7 @@ public class ControllerPlayerManager {
         if (optional.isPresent()) {
             return CompletableFuture.completedFuture(optional);
         }
-        // TODO Probably we want to cache!
-        return DefaultDataObjects.getPlayersUsername(dataManager, uuid);
+        return usernames.getUsername(uuid);
     }
 
     /**
@@ -192,8 +194,49 @@ public class ControllerPlayerManager {
         if (optional.isPresent()) {
             return CompletableFuture.completedFuture(optional);
         }
-        // TODO Probably we want to caache!
-        return DefaultDataObjects.getUsernamesUuid(dataManager, username);
+        return usernames.getUuid(username);
+    }
+
+    /**
+     * Gets the last known usernames of the players with the given UUIDs.
+     * They are taken immediately for online players and cached players, the others are read from the data manager at once.
+     *
+     * @param uuids the players' UUIDs
+     * @return a {@link CompletableFuture} with a map with the usernames of the players of whom one is known
+     */
+    public CompletableFuture<HashMap<UUID, String>> resolveUsernames(Collection<UUID> uuids) {
+        Objects.requireNonNull(uuids, "uuids cannot be null");
+        HashMap<UUID, String> online = new HashMap<>();
+        ArrayList<UUID> offline = new ArrayList<>();
+        for(UUID uuid : uuids) {
+            getPlayer(uuid).ifPresentOrElse(player -> online.put(uuid, player.getUsername()), () -> offline.add(uuid));
+        }
+        if(offline.isEmpty()) return CompletableFuture.completedFuture(online);
+        return usernames.getUsernames(offline).thenApply(found -> {
+            found.putAll(online);
+            return found;
+        });
+    }
+
+    /**
+     * Gets the last known UUIDs of the players with the given usernames.
+     * They are taken immediately for online players and cached usernames, the others are read from the data manager at once.
+     *
+     * @param names the usernames
+     * @return a {@link CompletableFuture} with a map with the UUIDs of the usernames of which one is known
+     */
+    public CompletableFuture<HashMap<String, UUID>> resolveUuids(Collection<String> names) {
+        Objects.requireNonNull(names, "names cannot be null");
+        HashMap<String, UUID> online = new HashMap<>();
+        ArrayList<String> offline = new ArrayList<>();
+        for(String username : names) {
+            getPlayerByUsername(username, false).ifPresentOrElse(player -> online.put(username, player.getUuid()), () -> offline.add(username));
+        }
+        if(offline.isEmpty()) return CompletableFuture.completedFuture(online);
+        return usernames.getUuids(offline).thenApply(found -> {
+            found.putAll(online);
+            return found;
+        });
     }
 
     /**
@@ -237,9 +280,8 @@ public class ControllerPlayerManager {
      * @return a {@link CompletableFuture} that retrieves an optional that has the username or is empty when no one with the given UUID was online at least once.
      */
     public CompletableFuture<Optional<String>> getOfflinePlayerName(UUID uuid) {
-        // TODO Cache?
         Objects.requireNonNull(uuid, "uuid cannot be null");
-        return DefaultDataObjects.getPlayersUsername(dataManager, uuid);
+        return usernames.getUsername(uuid);
     }
 
     /**
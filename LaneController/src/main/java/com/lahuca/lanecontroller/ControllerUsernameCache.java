@@ -0,0 +1,153 @@
+package com.lahuca.lanecontroller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.lahuca.lane.data.manager.DataManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the last known usernames of players and the UUIDs of usernames, in both directions.
+ * Lookups that did not find anything are cached as well, but shorter, so that misspelled usernames do not reach the data manager every time.
+ * The cache is filled when players log in, at the same time their username is written to the data manager.
+ * Misses of bulk lookups are read from the data manager at once.
+ */
+class ControllerUsernameCache {
+
+    static final long CACHE_SIZE = 50_000;
+    static final long PRESENT_DURATION = TimeUnit.MINUTES.toNanos(30);
+    static final long ABSENT_DURATION = TimeUnit.MINUTES.toNanos(1);
+
+    private final DataManager dataManager;
+    private final Cache<String, Optional<UUID>> uuids = build();
+    private final Cache<UUID, Optional<String>> usernames = build();
+
+    ControllerUsernameCache(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    private static <K, V> Cache<K, Optional<V>> build() {
+        return Caffeine.newBuilder().maximumSize(CACHE_SIZE).expireAfter(new Expiry<K, Optional<V>>() {
+            @Override
+            public long expireAfterCreate(K key, Optional<V> value, long currentTime) {
+                return value.isPresent() ? PRESENT_DURATION : ABSENT_DURATION;
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, Optional<V> value, long currentTime, long currentDuration) {
+                return value.isPresent() ? PRESENT_DURATION : ABSENT_DURATION;
+            }
+
+            @Override
+            public long expireAfterRead(K key, Optional<V> value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        }).build();
+    }
+
+    /**
+     * Stores that the player currently has the given username, this is done while the username is written to the data manager.
+     * When the player had another username before, the UUID of that username is read again the next time.
+     *
+     * @param uuid     the player's UUID
+     * @param username the player's username
+     */
+    void put(UUID uuid, String username) {
+        Optional<String> previous = usernames.getIfPresent(uuid);
+        if(previous != null && previous.isPresent() && !previous.get().equals(username)) uuids.invalidate(previous.get());
+        usernames.put(uuid, Optional.of(username));
+        uuids.put(username, Optional.of(uuid));
+    }
+
+    /**
+     * Gets the last known username of the player with the given UUID.
+     *
+     * @param uuid the player's UUID
+     * @return a {@link CompletableFuture} with an {@link Optional} with the username, empty when the player has never been online
+     */
+    CompletableFuture<Optional<String>> getUsername(UUID uuid) {
+        Optional<String> cached = usernames.getIfPresent(uuid);
+        if(cached != null) return CompletableFuture.completedFuture(cached);
+        return DefaultDataObjects.getPlayersUsername(dataManager, uuid).thenApply(username -> {
+            // Do not overwrite a username that has been put while reading
+            Optional<String> current = usernames.asMap().putIfAbsent(uuid, username);
+            return current == null ? username : current;
+        });
+    }
+
+    /**
+     * Gets the UUID of the player that has last used the given username.
+     *
+     * @param username the username
+     * @return a {@link CompletableFuture} with an {@link Optional} with the UUID, empty when no player has used the username
+     */
+    CompletableFuture<Optional<UUID>> getUuid(String username) {
+        Optional<UUID> cached = uuids.getIfPresent(username);
+        if(cached != null) return CompletableFuture.completedFuture(cached);
+        return DefaultDataObjects.getUsernamesUuid(dataManager, username).thenApply(uuid -> {
+            // Do not overwrite a UUID that has been put while reading
+            Optional<UUID> current = uuids.asMap().putIfAbsent(username, uuid);
+            return current == null ? uuid : current;
+        });
+    }
+
+    /**
+     * Gets the last known usernames of the players with the given UUIDs.
+     * The players that are not cached are read from the data manager at once.
+     *
+     * @param players the players' UUIDs
+     * @return a {@link CompletableFuture} with a map with the usernames of the players that have one
+     */
+    CompletableFuture<HashMap<UUID, String>> getUsernames(Collection<UUID> players) {
+        HashMap<UUID, String> result = new HashMap<>();
+        ArrayList<UUID> misses = new ArrayList<>();
+        for(UUID uuid : players) {
+            Optional<String> cached = usernames.getIfPresent(uuid);
+            if(cached == null) misses.add(uuid);
+            else cached.ifPresent(username -> result.put(uuid, username));
+        }
+        if(misses.isEmpty()) return CompletableFuture.completedFuture(result);
+        return DefaultDataObjects.getPlayersUsernames(dataManager, misses).thenApply(found -> {
+            for(UUID uuid : misses) {
+                Optional<String> username = Optional.ofNullable(found.get(uuid));
+                Optional<String> current = usernames.asMap().putIfAbsent(uuid, username);
+                (current == null ? username : current).ifPresent(value -> result.put(uuid, value));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Gets the UUIDs of the players that have last used the given usernames.
+     * The usernames that are not cached are read from the data manager at once.
+     *
+     * @param names the usernames
+     * @return a {@link CompletableFuture} with a map with the UUIDs of the usernames that have been used
+     */
+    CompletableFuture<HashMap<String, UUID>> getUuids(Collection<String> names) {
+        HashMap<String, UUID> result = new HashMap<>();
+        ArrayList<String> misses = new ArrayList<>();
+        for(String username : names) {
+            Optional<UUID> cached = uuids.getIfPresent(username);
+            if(cached == null) misses.add(username);
+            else cached.ifPresent(uuid -> result.put(username, uuid));
+        }
+        if(misses.isEmpty()) return CompletableFuture.completedFuture(result);
+        return DefaultDataObjects.getUsernamesUuids(dataManager, misses).thenApply(found -> {
+            for(String username : misses) {
+                Optional<UUID> uuid = Optional.ofNullable(found.get(username));
+                Optional<UUID> current = uuids.asMap().putIfAbsent(username, uuid);
+                (current == null ? uuid : current).ifPresent(value -> result.put(username, value));
+            }
+            return result;
+        });
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.lahuca.lanecontroller;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
 import com.lahuca.lane.data.*;
 import com.lahuca.lane.data.manager.DataManager;
 import com.lahuca.lane.records.RelationshipRecord;
@@ -14,6 +15,33 @@ import java.util.concurrent.CompletableFuture;
  */
 class DefaultDataObjects {
 
+    /**
+     * Updates the leaderboards and the instance caches after a default data object has been written.
+     *
+     * @param object the written data object
+     */
+    private static void written(DataObject object) {
+        Controller.getInstance().getDataManager().dataObjectWritten(object);
+    }
+
+    /**
+     * Updates the leaderboards and the instance caches after a default data object has been removed.
+     *
+     * @param id the removed data object's ID
+     */
+    private static void removed(DataObjectId id) {
+        Controller.getInstance().getDataManager().dataObjectRemoved(id);
+    }
+
+    /**
+     * Updates the leaderboards and the instance caches after a default data object has been changed in place.
+     *
+     * @param id the changed data object's ID
+     */
+    private static void changed(DataObjectId id) {
+        Controller.getInstance().getDataManager().dataObjectChanged(id);
+    }
+
     private static DataObjectId getPlayersUsernameId(UUID player) {
         return new DataObjectId(RelationalId.Players(player), "username");
     }
@@ -30,6 +58,23 @@ class DefaultDataObjects {
                 .thenApply(opt -> opt.flatMap(DataObject::getValue));
     }
 
+    /**
+     * Gets the usernames from multiple players at once.
+     *
+     * @param dataManager the data manager
+     * @param players     the players' UUIDs
+     * @return a {@link CompletableFuture} with a map with the usernames of the players that have one
+     */
+    static CompletableFuture<HashMap<UUID, String>> getPlayersUsernames(DataManager dataManager, Collection<UUID> players) {
+        HashMap<DataObjectId, UUID> ids = new HashMap<>();
+        players.forEach(player -> ids.put(getPlayersUsernameId(player), player));
+        return dataManager.readDataObjects(PermissionKey.CONTROLLER, ids.keySet()).thenApply(objects -> {
+            HashMap<UUID, String> usernames = new HashMap<>();
+            objects.forEach((id, object) -> object.getValue().ifPresent(username -> usernames.put(ids.get(id), username)));
+            return usernames;
+        });
+    }
+
     /**
      * Retrieves player's name based on the given NetworkProfileUUID
      *
@@ -62,7 +107,7 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setPlayersUsername(DataManager dataManager, UUID player, String username) {
         DataObject object = new DataObject(getPlayersUsernameId(player), PermissionKey.CONTROLLER, DataObjectType.STRING, username);
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
     private static DataObjectId getPlayersProfileId(UUID player) {
@@ -91,7 +136,7 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setPlayersNetworkProfile(DataManager dataManager, UUID player, UUID profile) {
         DataObject object = new DataObject(getPlayersProfileId(player), PermissionKey.CONTROLLER, DataObjectType.STRING, profile.toString());
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
     private static DataObjectId getNetworkProfilesLocaleId(UUID profile) {
@@ -120,7 +165,7 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setNetworkProfilesLocale(DataManager dataManager, UUID profile, Locale locale) {
         DataObject object = new DataObject(getNetworkProfilesLocaleId(profile), PermissionKey.CONTROLLER, DataObjectType.STRING, locale.toLanguageTag());
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
     private static DataObjectId getNetworkProfilesNicknameId(UUID profile) {
@@ -149,10 +194,10 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setNetworkProfilesNickname(DataManager dataManager, UUID profile, String nickname) {
         if(nickname == null) {
-            return dataManager.removeDataObject(PermissionKey.CONTROLLER, getNetworkProfilesNicknameId(profile));
+            return dataManager.removeDataObject(PermissionKey.CONTROLLER, getNetworkProfilesNicknameId(profile)).thenRun(() -> removed(getNetworkProfilesNicknameId(profile)));
         }
         DataObject object = new DataObject(getNetworkProfilesNicknameId(profile), PermissionKey.CONTROLLER, DataObjectType.STRING, nickname);
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
     private static DataObjectId getNetworkProfilesFriendsId(UUID profile) {
@@ -182,10 +227,10 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setNetworkProfilesFriends(DataManager dataManager, UUID profile, List<Long> friendshipIds) {
         if(friendshipIds == null || friendshipIds.isEmpty()) {
-            return dataManager.removeDataObject(PermissionKey.CONTROLLER, getNetworkProfilesFriendsId(profile));
+            return dataManager.removeDataObject(PermissionKey.CONTROLLER, getNetworkProfilesFriendsId(profile)).thenRun(() -> removed(getNetworkProfilesFriendsId(profile)));
         }
         DataObject object = new DataObject(getNetworkProfilesFriendsId(profile), PermissionKey.CONTROLLER, DataObjectType.ARRAY, friendshipIds);
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
     /**
@@ -198,18 +243,15 @@ class DefaultDataObjects {
      * @return a {@link CompletableFuture} with a void to signify success: it has been added
      */
     static CompletableFuture<Void> addNetworkProfilesFriends(DataManager dataManager, Gson gson, UUID profile, long friendshipId) {
-        return dataManager.updateDataObject(PermissionKey.CONTROLLER, getNetworkProfilesFriendsId(profile), obj -> {
-            List<Long> ids = obj.getValueAsLongArray(gson).orElseGet(ArrayList::new);
-            ids.add(friendshipId);
-            obj.setValue(gson, ids);
-            return true;
-        }).thenCompose(status -> {
+        return dataManager.arrayAppend(PermissionKey.CONTROLLER, getNetworkProfilesFriendsId(profile), "$", new JsonPrimitive(friendshipId)).thenCompose(status -> {
             if(!status) {
-                return dataManager.writeDataObject(PermissionKey.CONTROLLER,
-                        new DataObject(getNetworkProfilesFriendsId(profile), PermissionKey.CONTROLLER, DataObjectType.ARRAY, List.of(friendshipId)));
+                // Only create it when nobody else has created it in the meantime, otherwise add it to theirs.
+                return dataManager.compareAndSetDataObject(PermissionKey.CONTROLLER,
+                        new DataObject(getNetworkProfilesFriendsId(profile), PermissionKey.CONTROLLER, DataObjectType.ARRAY, List.of(friendshipId)), null)
+                        .thenCompose(created -> created ? CompletableFuture.completedFuture(null) : addNetworkProfilesFriends(dataManager, gson, profile, friendshipId));
             }
             return CompletableFuture.completedFuture(null);
-        });
+        }).thenRun(() -> changed(getNetworkProfilesFriendsId(profile)));
     }
 
     /**
@@ -222,12 +264,8 @@ class DefaultDataObjects {
      * @return a {@link CompletableFuture} with a void to signify success: it has been removed
      */
     static CompletableFuture<Void> removeNetworkProfilesFriends(DataManager dataManager, Gson gson, UUID profile, long friendshipId) {
-        return dataManager.updateDataObject(PermissionKey.CONTROLLER, getNetworkProfilesFriendsId(profile), obj -> {
-            List<Long> ids = obj.getValueAsLongArray(gson).orElseGet(ArrayList::new);
-            ids.remove(friendshipId);
-            obj.setValue(gson, ids);
-            return true;
-        }).thenAccept(status -> {
+        return dataManager.arrayRemove(PermissionKey.CONTROLLER, getNetworkProfilesFriendsId(profile), "$", new JsonPrimitive(friendshipId)).thenAccept(status -> {
+            if(status) changed(getNetworkProfilesFriendsId(profile));
         });
     }
 
@@ -247,6 +285,23 @@ class DefaultDataObjects {
                 .thenApply(opt -> opt.flatMap(DataObject::getValue).map(UUID::fromString));
     }
 
+    /**
+     * Gets the UUIDs from multiple usernames at once.
+     *
+     * @param dataManager the data manager
+     * @param usernames   the usernames
+     * @return a {@link CompletableFuture} with a map with the UUIDs of the usernames that have one
+     */
+    static CompletableFuture<HashMap<String, UUID>> getUsernamesUuids(DataManager dataManager, Collection<String> usernames) {
+        HashMap<DataObjectId, String> ids = new HashMap<>();
+        usernames.forEach(username -> ids.put(getUsernamesUuidId(username), username));
+        return dataManager.readDataObjects(PermissionKey.CONTROLLER, ids.keySet()).thenApply(objects -> {
+            HashMap<String, UUID> uuids = new HashMap<>();
+            objects.forEach((id, object) -> object.getValue().ifPresent(uuid -> uuids.put(ids.get(id), UUID.fromString(uuid))));
+            return uuids;
+        });
+    }
+
     /**
      * Sets the UUID for a username.
      *
@@ -257,7 +312,7 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setUsernamesUuid(DataManager dataManager, String username, UUID uuid) {
         DataObject object = new DataObject(getUsernamesUuidId(username), PermissionKey.CONTROLLER, DataObjectType.STRING, uuid.toString());
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
     private static DataObjectId getFriendshipsDataId(long friendshipId) {
@@ -288,7 +343,7 @@ class DefaultDataObjects {
      */
     static CompletableFuture<Void> setFriendshipsData(DataManager dataManager, Gson gson, long friendshipId, RelationshipRecord data) {
         DataObject object = new DataObject(getFriendshipsDataId(friendshipId), PermissionKey.CONTROLLER, gson, data);
-        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object);
+        return dataManager.writeDataObject(PermissionKey.CONTROLLER, object).thenRun(() -> written(object));
     }
 
 }
@@ -19,6 +19,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.lahuca.lane.ReconnectConnection;
 import com.lahuca.lane.connection.socket.client.ClientSocketConnection;
+import com.lahuca.lane.data.DataMutation;
 import com.lahuca.lane.data.ordered.OrderedData;
 import com.lahuca.lane.data.ordered.OrderedDataComponents;
 import com.lahuca.lane.data.selector.DataFilter;
@@ -71,7 +72,7 @@ public class LaneInstancePaper extends JavaPlugin implements Listener {
             .build().populator().apply(
                     new GsonBuilder()
                             .disableHtmlEscaping() // to be consistent with vanilla
-            ).registerTypeAdapterFactory(DataFilter.FACTORY).create();
+            ).registerTypeAdapterFactory(DataFilter.FACTORY).registerTypeAdapterFactory(DataMutation.FACTORY).create();
     private static final Logger log = LoggerFactory.getLogger(LaneInstancePaper.class);
 //    public static final boolean joinable = true;
 //    public static final boolean nonPlayable = false;
@@ -5,8 +5,8 @@
 
 package com.lahuca.laneinstancepaper.scoreboard;
 
-import com.lahuca.lane.data.ordered.OrderedData;
 import com.lahuca.laneinstance.scoreboard.PlayerScoreboard;
+import com.lahuca.laneinstance.scoreboard.ScoreboardRenderer;
 import io.papermc.paper.scoreboard.numbers.NumberFormat;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
@@ -20,6 +20,7 @@ import java.util.Objects;
 public class PaperPlayerScoreboard extends PlayerScoreboard {
 
     private final Player player;
+    private final ScoreboardRenderer renderer = new ScoreboardRenderer();
     private Scoreboard scoreboard;
     private Objective sideBarObjective;
 
@@ -37,13 +38,14 @@ public class PaperPlayerScoreboard extends PlayerScoreboard {
     }
 
     /**
-     * Render all rows to the scoreboard.
+     * Render the rows to the scoreboard, only the rows that have changed since the last render are updated.
      */
     public void render() {
         if(!Objects.equals(player.getScoreboard(), scoreboard)) {
             // Scoreboard not even at player
             this.scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
             player.setScoreboard(scoreboard);
+            renderer.reset();
         }
 
         if(!Objects.equals(player.getScoreboard().getObjective(DisplaySlot.SIDEBAR), sideBarObjective)) {
@@ -51,13 +53,24 @@ public class PaperPlayerScoreboard extends PlayerScoreboard {
             this.sideBarObjective = scoreboard.registerNewObjective("lane", Criteria.DUMMY, title.asComponent());
             this.sideBarObjective.setDisplaySlot(DisplaySlot.SIDEBAR);
             this.sideBarObjective.numberFormat(NumberFormat.blank());
+            renderer.reset();
         }
 
-        scoreboard.getEntries().forEach(scoreboard::resetScores);
-        for(OrderedData<Component> row : getRows().sort()) {
-            Score s = sideBarObjective.getScore(row.getId());
-            s.customName(row.getData());
-            s.setScore(row.getOrdering());
-        }
+        renderer.render(getRows().sort(), new ScoreboardRenderer.Operations() {
+            @Override
+            public void setText(String id, Component text) {
+                sideBarObjective.getScore(id).customName(text);
+            }
+
+            @Override
+            public void setScore(String id, int score) {
+                sideBarObjective.getScore(id).setScore(score);
+            }
+
+            @Override
+            public void remove(String id) {
+                scoreboard.resetScores(id);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ repositories {
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testImplementation("net.kyori:adventure-api:4.19.0")
     implementation("com.google.code.gson:gson:2.14.0")
     implementation("com.google.code.gson:gson-extras:2.13.2-rc1")
     api(project(":"))
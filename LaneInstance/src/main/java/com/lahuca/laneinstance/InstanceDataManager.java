@@ -1,15 +1,26 @@
 package com.lahuca.laneinstance;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.gson.JsonElement;
 import com.lahuca.lane.connection.Connection;
 import com.lahuca.lane.connection.packet.ProfilePacket;
 import com.lahuca.lane.connection.packet.data.*;
 import com.lahuca.lane.connection.request.ResponseError;
+import com.lahuca.lane.connection.request.ResponseErrorException;
+import com.lahuca.lane.data.DataMutation;
 import com.lahuca.lane.data.DataObject;
 import com.lahuca.lane.data.DataObjectId;
 import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.RelationalId;
+import com.lahuca.lane.data.leaderboard.LeaderboardEntry;
 import com.lahuca.lane.data.profile.ProfileData;
 import com.lahuca.lane.data.profile.ProfileType;
+import com.lahuca.lane.data.selector.DataPage;
 import com.lahuca.lane.data.selector.DataSelector;
+import com.lahuca.lane.data.watch.DataObjectChange;
+import com.lahuca.lane.data.watch.DataWatch;
+import com.lahuca.lane.data.watch.DataWatchKey;
 import com.lahuca.lane.records.ProfileRecord;
 import org.jetbrains.annotations.NotNull;
 
@@ -18,10 +29,23 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class InstanceDataManager {
 
+    public static final long CACHE_DURATION = TimeUnit.MINUTES.toMillis(5);
+    public static final long CACHE_SIZE = 10_000;
+
     private final LaneInstance instance;
+    // The read data objects per permission key, the controller tells us when they have been changed
+    private final Cache<DataObjectId, ConcurrentHashMap<PermissionKey, CompletableFuture<Optional<DataObject>>>> cache = Caffeine.newBuilder()
+            .expireAfterWrite(CACHE_DURATION, TimeUnit.MILLISECONDS)
+            .maximumSize(CACHE_SIZE)
+            .build();
+    private final ConcurrentHashMap<DataWatchKey, CopyOnWriteArrayList<Consumer<DataObjectChange>>> watches = new ConcurrentHashMap<>();
 
     // TODO id() == null check everywhere!
 
@@ -39,6 +63,8 @@ public class InstanceDataManager {
 
     /**
      * Reads a data object at the given id with the provided permission key.
+     * The data object is cached, the controller tells this instance when it has been changed so that it is read again.
+     * Every call receives its own copy of the data object, so it can be modified freely.
      *
      * @param id            the id of the data object
      * @param permissionKey the permission key that wants to retrieve the data object, this must be an individual key
@@ -47,7 +73,137 @@ public class InstanceDataManager {
     public CompletableFuture<Optional<DataObject>> readDataObject(DataObjectId id, PermissionKey permissionKey) {
         if (id() == null || id == null || permissionKey == null || !permissionKey.isFormattedCorrectly())
             return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
-        return connection().<DataObject>sendRequestPacket(requestId -> new DataObjectReadPacket(requestId, id, permissionKey), null).getResult().thenApply(Optional::ofNullable);
+        ConcurrentHashMap<PermissionKey, CompletableFuture<Optional<DataObject>>> cached = cache.get(id, key -> new ConcurrentHashMap<>());
+        CompletableFuture<Optional<DataObject>> result = cached.get(permissionKey);
+        if (result == null) {
+            CompletableFuture<Optional<DataObject>> loading = new CompletableFuture<>();
+            result = cached.putIfAbsent(permissionKey, loading);
+            if (result == null) {
+                result = loading;
+                connection().<DataObject>sendHedgedRequestPacket(requestId -> new DataObjectReadPacket(requestId, id, permissionKey, CACHE_DURATION), null).getResult()
+                        .whenComplete((object, ex) -> {
+                            if (ex != null) {
+                                // Do not cache failures
+                                cached.remove(permissionKey, loading);
+                                loading.completeExceptionally(ex);
+                            } else {
+                                loading.complete(Optional.ofNullable(object));
+                            }
+                        });
+            }
+        }
+        // Data objects are mutable, so everyone gets their own copy
+        return result.thenApply(object -> object.map(value -> value.shallowCopy(value.getId(), true, true)));
+    }
+
+    /**
+     * Removes the data object from the cache, so that it is read from the controller the next time.
+     * When the ID of the data object ID is null, all data objects of its relational ID are removed.
+     *
+     * @param id the id of the data object
+     */
+    public void invalidateDataObject(DataObjectId id) {
+        if (id == null) return;
+        if (id.id() != null) {
+            cache.invalidate(id);
+            return;
+        }
+        RelationalId relationalId = id.relationalId();
+        cache.asMap().keySet().removeIf(key -> Objects.equals(relationalId, key.relationalId()));
+    }
+
+    /**
+     * Watches the data object at the given id, the listener is called after it has been changed through the controller.
+     * Changes that follow each other quickly are coalesced by the controller into one change with the latest state.
+     * The changed data object is read with the given permission key, so that only the information it has access to is given.
+     *
+     * @param id            the id of the data object to watch
+     * @param permissionKey the permission key to read the changed data object with, this must be an individual key
+     * @param listener      the listener for the changes
+     * @return the watch, which can be cancelled
+     */
+    public DataWatch watchDataObject(@NotNull DataObjectId id, @NotNull PermissionKey permissionKey, @NotNull Consumer<DataObjectChange> listener) {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(id.id(), "id's id cannot be null");
+        return watch(new DataWatchKey(id, false, permissionKey), listener);
+    }
+
+    /**
+     * Watches all data objects of the relational ID whose ID starts with the given prefix, see {@link #watchDataObject(DataObjectId, PermissionKey, Consumer)}.
+     * When the data objects of the relational ID are changed in bulk, such as when a profile is reset,
+     * the listener receives a change without data object whose ID has a null ID, see {@link DataObjectChange#isRelational()}.
+     *
+     * @param prefix        the relational ID with the prefix of the IDs, a null ID watches all data objects of the relational ID
+     * @param permissionKey the permission key to read the changed data objects with, this must be an individual key
+     * @param listener      the listener for the changes
+     * @return the watch, which can be cancelled
+     */
+    public DataWatch watchDataObjects(@NotNull DataObjectId prefix, @NotNull PermissionKey permissionKey, @NotNull Consumer<DataObjectChange> listener) {
+        Objects.requireNonNull(prefix, "prefix cannot be null");
+        return watch(new DataWatchKey(prefix, true, permissionKey), listener);
+    }
+
+    private synchronized DataWatch watch(DataWatchKey key, Consumer<DataObjectChange> listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        if (!key.permissionKey().isIndividual()) {
+            throw new IllegalArgumentException("Permission key is not an individual permission key");
+        }
+        CopyOnWriteArrayList<Consumer<DataObjectChange>> listeners = watches.computeIfAbsent(key, current -> new CopyOnWriteArrayList<>());
+        // Only the first listener subscribes at the controller
+        if (listeners.isEmpty()) connection().sendPacket(new DataObjectWatchPacket.Subscribe(key), null);
+        listeners.add(listener);
+        return new DataWatch() {
+            @Override
+            public DataWatchKey getKey() {
+                return key;
+            }
+
+            @Override
+            public void cancel() {
+                unwatch(key, listener);
+            }
+        };
+    }
+
+    private synchronized void unwatch(DataWatchKey key, Consumer<DataObjectChange> listener) {
+        CopyOnWriteArrayList<Consumer<DataObjectChange>> listeners = watches.get(key);
+        if (listeners == null || !listeners.remove(listener) || !listeners.isEmpty()) return;
+        watches.remove(key);
+        connection().sendPacket(new DataObjectWatchPacket.Unsubscribe(key), null);
+    }
+
+    /**
+     * Calls the listeners of the watch with the change that has been sent by the controller.
+     *
+     * @param key    what is being watched
+     * @param change the change
+     */
+    void dataObjectWatched(DataWatchKey key, DataObjectChange change) {
+        CopyOnWriteArrayList<Consumer<DataObjectChange>> listeners = watches.get(key);
+        if (listeners == null) return;
+        for (Consumer<DataObjectChange> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // TODO Probably log?
+            }
+        }
+    }
+
+    /**
+     * Subscribes to all watches at the controller again.
+     * This is done after reconnecting, as the controller removes the subscriptions of instances that disconnect.
+     */
+    synchronized void resubscribeWatches() {
+        watches.keySet().forEach(key -> connection().sendPacket(new DataObjectWatchPacket.Subscribe(key), null));
+    }
+
+    /**
+     * Removes all data objects from the cache.
+     * This is done after reconnecting, as the changes that happened in the meantime have not been received.
+     */
+    public void invalidateCache() {
+        cache.invalidateAll();
     }
 
     /**
@@ -61,7 +217,8 @@ public class InstanceDataManager {
     public CompletableFuture<Void> writeDataObject(DataObject object, PermissionKey permissionKey) {
         if (id() == null || object == null || permissionKey == null || !permissionKey.isFormattedCorrectly())
             return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
-        return connection().<Void>sendRequestPacket(requestId -> new DataObjectWritePacket(requestId, object, permissionKey), null).getResult();
+        return connection().<Void>sendRequestPacket(requestId -> new DataObjectWritePacket(requestId, object, permissionKey), null).getResult()
+                .whenComplete((none, ex) -> invalidateDataObject(object.getId()));
     }
 
     /**
@@ -74,10 +231,46 @@ public class InstanceDataManager {
     public CompletableFuture<Void> removeDataObject(DataObjectId id, PermissionKey permissionKey) {
         if (id() == null || id == null || permissionKey == null || !permissionKey.isFormattedCorrectly())
             return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
-        return connection().<Void>sendRequestPacket(requestId -> new DataObjectRemovePacket(requestId, id, permissionKey), null).getResult();
+        return connection().<Void>sendRequestPacket(requestId -> new DataObjectRemovePacket(requestId, id, permissionKey), null).getResult()
+                .whenComplete((none, ex) -> invalidateDataObject(id));
     }
 
-    // TODO updateDataObject
+    /**
+     * Updates a data object at the given id by applying the mutation on the controller.
+     * The data object is read, mutated and written by the controller atomically, so this takes a single request and cannot race with other writes.
+     *
+     * @param id            the id of the data object
+     * @param permissionKey the permission key that wants to update the data object, this must be an individual key
+     * @param mutation      the mutation to apply
+     * @return a {@link CompletableFuture} with an optional with the data object after the update, the optional is empty when it did not exist
+     */
+    public CompletableFuture<Optional<DataObject>> updateDataObject(DataObjectId id, PermissionKey permissionKey, DataMutation mutation) {
+        if (mutation == null) return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        return updateDataObject(id, permissionKey, mutation, null, null);
+    }
+
+    /**
+     * Updates a data object at the given id by running the updater that has been registered on the controller with the given name.
+     * The data object is read, updated and written by the controller atomically, so this takes a single request and cannot race with other writes.
+     *
+     * @param id            the id of the data object
+     * @param permissionKey the permission key that wants to update the data object, this must be an individual key
+     * @param updater       the name of the updater registered on the controller
+     * @param argument      the argument given to the updater, can be null
+     * @return a {@link CompletableFuture} with an optional with the data object after the update, the optional is empty when it did not exist
+     */
+    public CompletableFuture<Optional<DataObject>> updateDataObject(DataObjectId id, PermissionKey permissionKey, String updater, JsonElement argument) {
+        if (updater == null) return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        return updateDataObject(id, permissionKey, null, updater, argument);
+    }
+
+    private CompletableFuture<Optional<DataObject>> updateDataObject(DataObjectId id, PermissionKey permissionKey, DataMutation mutation, String updater, JsonElement argument) {
+        if (id() == null || id == null || permissionKey == null || !permissionKey.isFormattedCorrectly())
+            return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        return connection().<DataObject>sendRequestPacket(requestId -> new DataObjectUpdatePacket(requestId, id, permissionKey, mutation, updater, argument), null).getResult()
+                .thenApply(Optional::ofNullable)
+                .whenComplete((object, ex) -> invalidateDataObject(id));
+    }
 
     /**
      * Retrieves a list of data object IDs whose key has the same prefix from the provided ID (case sensitive).
@@ -124,7 +317,8 @@ public class InstanceDataManager {
         if (id() == null || permissionKey == null || !permissionKey.isFormattedCorrectly() || sourceId == null || targetId == null) {
             return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
         }
-        return connection().<Void>sendRequestPacket(requestId -> new DataObjectCopyPacket(requestId, permissionKey, sourceId, targetId), null).getResult();
+        return connection().<Void>sendRequestPacket(requestId -> new DataObjectCopyPacket(requestId, permissionKey, sourceId, targetId), null).getResult()
+                .whenComplete((none, ex) -> invalidateDataObject(targetId));
     }
 
     /**
@@ -140,6 +334,64 @@ public class InstanceDataManager {
         return connection().<ArrayList<DataObject>>sendRequestPacket(requestId -> new DataObjectsSelectPacket(requestId, permissionKey, selector), null).getResult();
     }
 
+    /**
+     * Selects a page of data objects from the data manager based on the given selector.
+     * The next page is selected by passing the continuation of the page to {@link DataSelector#continueAfter(String)}.
+     * @param permissionKey the permission key to use while reading
+     * @param selector the selector to use
+     * @return a {@link CompletableFuture} with the page of found data objects
+     */
+    public CompletableFuture<DataPage> selectDataObjectsPage(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        if (id() == null || permissionKey == null || !permissionKey.isFormattedCorrectly() || selector == null) {
+            return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        }
+        return connection().<DataPage>sendRequestPacket(requestId -> new DataObjectsSelectPagePacket(requestId, permissionKey, selector), null).getResult();
+    }
+
+    /**
+     * Retrieves the best entries of the leaderboard with the given name, which is held by the controller.
+     * When the leaderboard does not exist, a {@link ResponseErrorException} with {@link ResponseError#INVALID_ID} is thrown in the {@link CompletableFuture}.
+     * @param leaderboard the name of the leaderboard
+     * @param count the maximum number of entries
+     * @return a {@link CompletableFuture} with the entries, ordered by rank
+     */
+    public CompletableFuture<ArrayList<LeaderboardEntry>> getLeaderboardTop(@NotNull String leaderboard, int count) {
+        if (id() == null || leaderboard == null || count <= 0) {
+            return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        }
+        return connection().<ArrayList<LeaderboardEntry>>sendHedgedRequestPacket(requestId -> new LeaderboardPacket.Top(requestId, leaderboard, count), null).getResult();
+    }
+
+    /**
+     * Retrieves the entry of the given relational ID in the leaderboard with the given name, which is held by the controller.
+     * When the leaderboard does not exist, a {@link ResponseErrorException} with {@link ResponseError#INVALID_ID} is thrown in the {@link CompletableFuture}.
+     * @param leaderboard the name of the leaderboard
+     * @param relationalId the relational ID, for example the player's UUID
+     * @return a {@link CompletableFuture} with an optional with the entry, empty if the relational ID is not ranked
+     */
+    public CompletableFuture<Optional<LeaderboardEntry>> getLeaderboardRank(@NotNull String leaderboard, @NotNull String relationalId) {
+        if (id() == null || leaderboard == null || relationalId == null) {
+            return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        }
+        return connection().<ArrayList<LeaderboardEntry>>sendHedgedRequestPacket(requestId -> new LeaderboardPacket.Rank(requestId, leaderboard, relationalId), null).getResult()
+                .thenApply(entries -> entries.stream().findFirst());
+    }
+
+    /**
+     * Retrieves the entries around the entry of the given relational ID in the leaderboard with the given name, which is held by the controller.
+     * When the leaderboard does not exist, a {@link ResponseErrorException} with {@link ResponseError#INVALID_ID} is thrown in the {@link CompletableFuture}.
+     * @param leaderboard the name of the leaderboard
+     * @param relationalId the relational ID, for example the player's UUID
+     * @param radius the number of entries before and after the entry
+     * @return a {@link CompletableFuture} with the entries, ordered by rank; empty if the relational ID is not ranked
+     */
+    public CompletableFuture<ArrayList<LeaderboardEntry>> getLeaderboardAround(@NotNull String leaderboard, @NotNull String relationalId, int radius) {
+        if (id() == null || leaderboard == null || relationalId == null || radius < 0) {
+            return ResponseError.ILLEGAL_ARGUMENT.failedFuture();
+        }
+        return connection().<ArrayList<LeaderboardEntry>>sendHedgedRequestPacket(requestId -> new LeaderboardPacket.Around(requestId, leaderboard, relationalId, radius), null).getResult();
+    }
+
     /**
      * Retrieves the profile data of the profile identified by the given UUID.
      * @param uuid the profile's UUID
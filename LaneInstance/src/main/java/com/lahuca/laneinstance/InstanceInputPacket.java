@@ -5,10 +5,15 @@ import com.lahuca.lane.LanePlayer;
 import com.lahuca.lane.ReconnectConnection;
 import com.lahuca.lane.connection.InputPacket;
 import com.lahuca.lane.connection.packet.*;
+import com.lahuca.lane.connection.packet.data.DataObjectInvalidatePacket;
+import com.lahuca.lane.connection.packet.data.DataObjectWatchPacket;
 import com.lahuca.lane.connection.request.RequestPacket;
 import com.lahuca.lane.connection.request.ResponseError;
 import com.lahuca.lane.connection.request.ResponsePacket;
 import com.lahuca.lane.connection.request.result.VoidResultPacket;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.watch.DataObjectChange;
+import com.lahuca.lane.data.watch.DataWatchKey;
 import com.lahuca.lane.events.LaneEvent;
 import com.lahuca.lane.queue.QueueRequest;
 import com.lahuca.lane.records.PartyRecord;
@@ -235,6 +240,8 @@ public class InstanceInputPacket implements Consumer<InputPacket> {
             case QueueCancelledPacket(UUID player, QueueRequest queue, boolean disconnected) ->
                     getPlayerManager().getInstancePlayer(player).ifPresent(current ->
                             handleInstanceEvent(new QueueCancelledEvent(current, queue, disconnected)));
+            case DataObjectInvalidatePacket(DataObjectId id) -> instance.getDataManager().invalidateDataObject(id);
+            case DataObjectWatchPacket.Change(DataWatchKey key, DataObjectChange value) -> instance.getDataManager().dataObjectWatched(key, value);
             case ResponsePacket<?> response -> {
                 if (!getConnection().retrieveResponse(response.getRequestId(), response.toObjectResponsePacket())) {
                     // TODO Handle output: failed response
@@ -2,6 +2,7 @@ package com.lahuca.laneinstance;
 
 import com.lahuca.lane.connection.packet.*;
 import com.lahuca.lane.connection.packet.data.SavedLocalePacket;
+import com.lahuca.lane.connection.request.ResponseError;
 import com.lahuca.lane.connection.request.ResponseErrorException;
 import com.lahuca.lane.data.profile.ProfileType;
 import com.lahuca.lane.game.Slottable;
@@ -15,10 +16,9 @@ import com.lahuca.laneinstance.game.InstanceGame;
 import net.kyori.adventure.text.Component;
 
 import java.util.*;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 
 public class InstancePlayerManager implements Slottable {
@@ -84,7 +84,7 @@ public class InstancePlayerManager implements Slottable {
      */
     public CompletableFuture<Optional<PlayerRecord>> getPlayerRecord(UUID uuid) {
         Objects.requireNonNull(uuid, "uuid must not be null");
-        return instance.getConnection().<PlayerRecord>sendRequestPacket(id -> new RequestInformationPacket.Player(id, uuid), null).getResult()
+        return instance.getConnection().<PlayerRecord>sendHedgedRequestPacket(id -> new RequestInformationPacket.Player(id, uuid), null).getResult()
                 .thenApply(Optional::ofNullable);
     }
 
@@ -135,7 +135,7 @@ public class InstancePlayerManager implements Slottable {
      * @return a {@link CompletableFuture} with the player records
      */
     public CompletableFuture<ArrayList<PlayerRecord>> getAllPlayerRecords() {
-        return instance.getConnection().<ArrayList<PlayerRecord>>sendRequestPacket(RequestInformationPacket.Players::new, null).getResult();
+        return instance.getConnection().<ArrayList<PlayerRecord>>sendHedgedRequestPacket(RequestInformationPacket.Players::new, null).getResult();
     }
 
     /**
@@ -147,7 +147,7 @@ public class InstancePlayerManager implements Slottable {
      */
     public CompletableFuture<Optional<String>> getPlayerUsername(UUID uuid) {
         Objects.requireNonNull(uuid, "uuid cannot be null");
-        return instance.getConnection().<String>sendRequestPacket(id -> new RequestInformationPacket.PlayerUsername(id, uuid), null)
+        return instance.getConnection().<String>sendHedgedRequestPacket(id -> new RequestInformationPacket.PlayerUsername(id, uuid), null)
                 .getResult().thenApply(Optional::ofNullable);
     }
 
@@ -160,7 +160,7 @@ public class InstancePlayerManager implements Slottable {
      */
     public CompletableFuture<Optional<UUID>> getPlayerUuid(String username) {
         Objects.requireNonNull(username, "username cannot be null");
-        return instance.getConnection().<String>sendRequestPacket(id -> new RequestInformationPacket.PlayerUuid(id, username), null)
+        return instance.getConnection().<String>sendHedgedRequestPacket(id -> new RequestInformationPacket.PlayerUuid(id, username), null)
                 .getResult().thenApply(val -> val == null ? Optional.empty() : Optional.of(UUID.fromString(val)));
     }
 
@@ -173,7 +173,7 @@ public class InstancePlayerManager implements Slottable {
      */
     public CompletableFuture<Optional<InstanceProfileData>> getPlayerNetworkProfile(UUID uuid) {
         Objects.requireNonNull(uuid, "uuid cannot be null");
-        return instance.getConnection().<ProfileRecord>sendRequestPacket(id -> new RequestInformationPacket.PlayerNetworkProfile(id, uuid), null)
+        return instance.getConnection().<ProfileRecord>sendHedgedRequestPacket(id -> new RequestInformationPacket.PlayerNetworkProfile(id, uuid), null)
                 .getResult().thenApply(val -> val == null ? Optional.empty() : Optional.of(new InstanceProfileData(val)));
     }
 
@@ -240,98 +240,157 @@ public class InstancePlayerManager implements Slottable {
     /**
      * This method is to be called when a player joins the instance.
      * This will transfer the player to the correct game, if applicable.
+     * The join is checked against the reservation that has been registered when the controller announced the transfer,
+     * so that no information has to be retrieved while the player is joining.
+     * The controller is told that the queue has finished without waiting for it, the join is applied on the main thread once it has responded.
      *
      * @param uuid the player's uuid
+     * @return a {@link CompletableFuture} that completes once the join has been applied, or completes exceptionally if the player has been disconnected
      */
-    public void joinInstance(UUID uuid) {
-        getInstancePlayer(uuid).ifPresentOrElse(player -> {
-            // Okay, we should allow the join, as it has been reserved
-            Optional<InstanceGame> game = player.getRegisterData().getGameId().flatMap(instance::getInstanceGame);
-            // When game is present, then the player tries to join a game, otherwise this instance.
-            // First check whether if it has a reservation
-            if(!containsReserved(uuid) || (game.isPresent() && !game.get().containsReserved(uuid))) {
-                disconnectPlayer(uuid, Component.text("Got no reservation")); // TODO Translate
+    public CompletableFuture<Void> joinInstance(UUID uuid) {
+        InstancePlayer player = getInstancePlayer(uuid).orElse(null);
+        if(player == null) {
+            // We do not have the details about this player. Controller did not send it.
+            // Disconnect player, as we are unaware if this is correct.
+            disconnectPlayer(uuid, Component.text("Incorrect state.")); // TODO Translateable
+            return ResponseError.INVALID_PLAYER.failedFuture();
+        }
+        // Okay, we should allow the join, as it has been reserved
+        InstancePlayer.RegisterData registerData = player.getRegisterData();
+        Optional<InstanceGame> game = registerData.getGameId().flatMap(instance::getInstanceGame);
+        // When game is present, then the player tries to join a game, otherwise this instance.
+        // First check whether if it has a reservation
+        if(!containsReserved(uuid) || (game.isPresent() && !game.get().containsReserved(uuid))) {
+            disconnectPlayer(uuid, Component.text("Got no reservation")); // TODO Translate
+            return ResponseError.ILLEGAL_STATE.failedFuture();
+        }
+        // We have a reservation, so we can proceed, first get the current queue types and then send the queue finished packet
+        Optional<InstanceGame> oldGame = player.getGame();
+        PendingJoin join = new PendingJoin(player, registerData, game, oldGame,
+                player.getInstanceId().map(id -> !id.equals(instance.getId())).orElse(true),
+                oldGame.map(obj -> registerData.getGameId().map(id -> obj.getGameId() != id).orElse(true)).orElse(true),
+                getInstancePlayerListType(uuid),
+                oldGame.map(obj -> obj.getGamePlayerListType(uuid)).orElse(InstancePlayerListType.NONE));
+        CompletableFuture<Void> joined = new CompletableFuture<>();
+        instance.getConnection().<Void>sendRequestPacket(id -> new QueueFinishedPacket(id, uuid, game.map(InstanceGame::getGameId).orElse(null)), null).getResult().whenComplete((data, ex) -> {
+            if(ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if(cause instanceof ResponseErrorException) {
+                    disconnectPlayer(uuid, Component.text("Queue not finished")); // TODO Translate
+                } else {
+                    disconnectPlayer(uuid, Component.text("Could not process queue")); // TODO Translate
+                }
+                joined.completeExceptionally(cause);
                 return;
             }
-            // We have a reservation, so we can proceed, first get the current queue types and then send the queue finished packet
-            QueueType queueType = player.getRegisterData().queueType();
-            QueueRequestParameter parameter = player.getRegisterData().parameter();
-            boolean instanceSwitched = player.getInstanceId().map(id -> !id.equals(instance.getId())).orElse(true);
-            boolean gameSwitched = player.getGame().map(obj -> player.getRegisterData().getGameId().map(id -> obj.getGameId() != id).orElse(true)).orElse(true);
-            Optional<InstanceGame> oldGame = player.getGame();
-            InstancePlayerListType oldInstanceListType = getInstancePlayerListType(player.getUuid());
-            InstancePlayerListType oldGameListType = oldGame.map(obj -> obj.getGamePlayerListType(player.getUuid())).orElse(InstancePlayerListType.NONE);
-            InstancePlayerListType newListType = InstancePlayerListType.fromQueueType(queueType);
-            try {
-                instance.getConnection().<Void>sendRequestPacket(id -> new QueueFinishedPacket(id, uuid, game.map(InstanceGame::getGameId).orElse(null)), null).getFutureResult().get();
-                // Now apply the queue type
-                applyQueueType(uuid, game.orElse(null), queueType);
-                // First check if we are joining a game or not
-                if(game.isPresent()) {
-                    // We try to join a game
-                    if(!instanceSwitched) {
-                        // We were already on this instance
-                        if(oldGame.isPresent() && gameSwitched) {
-                            // We switched game, but we were already playing on one. Quit first
-                            oldGame.get().onQuit(player);
-                            oldGame.get().removeReserved(uuid);
-                            instance.handleInstanceEvent(new InstanceQuitGameEvent(player, oldGame.get()));
-                        }
-                        if(oldInstanceListType != newListType) {
-                            // Okay so we switched queue type of the instance
-                            instance.handleInstanceEvent(new InstanceSwitchQueueTypeEvent(player, oldInstanceListType, queueType));
-                        }
-                        if(!gameSwitched) {
-                            // We were already on the same game
-                            if(oldGameListType != newListType) {
-                                // Okay so we switched queue type of the game
-                                game.get().onSwitchQueueType(player, oldGameListType, queueType, parameter);
-                                instance.handleInstanceEvent(new InstanceSwitchGameQueueTypeEvent(player, game.get(), oldGameListType, queueType));
-                                return;
-                            }
-                            // Same game, same queue type, we are done
-                            return;
-                        }
-                        // We join a different game
-                        game.get().onJoin(player, queueType, parameter);
-                        instance.handleInstanceEvent(new InstanceJoinGameEvent(player, game.get(), queueType));
-                    } else {
-                        // We were not yet on this instance
-                        instance.handleInstanceEvent(new InstanceJoinEvent(player, queueType));
-                        game.get().onJoin(player, queueType, parameter);
-                        instance.handleInstanceEvent(new InstanceJoinGameEvent(player, game.get(), queueType));
+            instance.runOnMainThread(() -> {
+                try {
+                    // The player might have quit or been registered again while the controller responded, that join is handled on its own
+                    if(getInstancePlayer(uuid).orElse(null) != player || player.getRegisterData() != registerData) {
+                        joined.complete(null);
+                        return;
                     }
-                } else {
-                    // We try to join the instance only, check whether we just joined new
-                    if(!instanceSwitched) {
-                        // Ahh, so we were already on here
-                        // If we were in a game, go out of it
-                        if(oldGame.isPresent()) {
-                            oldGame.get().onQuit(player);
-                            oldGame.get().removeReserved(uuid);
-                            instance.handleInstanceEvent(new InstanceQuitGameEvent(player, oldGame.get()));
-                        }
-                        if(oldInstanceListType != newListType) {
-                            // Different queue type
-                            instance.handleInstanceEvent(new InstanceSwitchQueueTypeEvent(player, oldInstanceListType, queueType));
-                            return;
-                        }
-                        // Same instance, same queue type, we are done
+                    applyJoin(join);
+                    joined.complete(null);
+                } catch(Throwable e) {
+                    joined.completeExceptionally(e);
+                }
+            });
+        });
+        return joined;
+    }
+
+    /**
+     * The state of a player at the moment it joins, before the controller has finished the queue and updated the player.
+     *
+     * @param player              the player
+     * @param registerData        the register data of the join
+     * @param game                the game the player joins, if any
+     * @param oldGame             the game the player was in before the join, if any
+     * @param instanceSwitched    whether the player was not on this instance before the join
+     * @param gameSwitched        whether the player was not in the joined game before the join
+     * @param oldInstanceListType the list type of the player on the instance before the join
+     * @param oldGameListType     the list type of the player in its previous game before the join
+     */
+    private record PendingJoin(InstancePlayer player, InstancePlayer.RegisterData registerData, Optional<InstanceGame> game, Optional<InstanceGame> oldGame,
+                               boolean instanceSwitched, boolean gameSwitched, InstancePlayerListType oldInstanceListType, InstancePlayerListType oldGameListType) {
+    }
+
+    /**
+     * Applies the join of the player, after the controller has finished the queue.
+     *
+     * @param join the state of the player at the moment it joined
+     */
+    private void applyJoin(PendingJoin join) {
+        InstancePlayer player = join.player();
+        UUID uuid = player.getUuid();
+        QueueType queueType = join.registerData().queueType();
+        QueueRequestParameter parameter = join.registerData().parameter();
+        Optional<InstanceGame> game = join.game();
+        Optional<InstanceGame> oldGame = join.oldGame();
+        boolean instanceSwitched = join.instanceSwitched();
+        boolean gameSwitched = join.gameSwitched();
+        InstancePlayerListType oldInstanceListType = join.oldInstanceListType();
+        InstancePlayerListType oldGameListType = join.oldGameListType();
+        InstancePlayerListType newListType = InstancePlayerListType.fromQueueType(queueType);
+        // Now apply the queue type
+        applyQueueType(uuid, game.orElse(null), queueType);
+        // First check if we are joining a game or not
+        if(game.isPresent()) {
+            // We try to join a game
+            if(!instanceSwitched) {
+                // We were already on this instance
+                if(oldGame.isPresent() && gameSwitched) {
+                    // We switched game, but we were already playing on one. Quit first
+                    oldGame.get().onQuit(player);
+                    oldGame.get().removeReserved(uuid);
+                    instance.handleInstanceEvent(new InstanceQuitGameEvent(player, oldGame.get()));
+                }
+                if(oldInstanceListType != newListType) {
+                    // Okay so we switched queue type of the instance
+                    instance.handleInstanceEvent(new InstanceSwitchQueueTypeEvent(player, oldInstanceListType, queueType));
+                }
+                if(!gameSwitched) {
+                    // We were already on the same game
+                    if(oldGameListType != newListType) {
+                        // Okay so we switched queue type of the game
+                        game.get().onSwitchQueueType(player, oldGameListType, queueType, parameter);
+                        instance.handleInstanceEvent(new InstanceSwitchGameQueueTypeEvent(player, game.get(), oldGameListType, queueType));
                         return;
                     }
-                    // We switched, normal join
-                    instance.handleInstanceEvent(new InstanceJoinEvent(player, queueType));
+                    // Same game, same queue type, we are done
+                    return;
                 }
-            } catch(ResponseErrorException e) {
-                disconnectPlayer(uuid, Component.text("Queue not finished")); // TODO Translate
-            } catch(InterruptedException | ExecutionException | CancellationException e) {
-                disconnectPlayer(uuid, Component.text("Could not process queue")); // TODO Translate
+                // We join a different game
+                game.get().onJoin(player, queueType, parameter);
+                instance.handleInstanceEvent(new InstanceJoinGameEvent(player, game.get(), queueType));
+            } else {
+                // We were not yet on this instance
+                instance.handleInstanceEvent(new InstanceJoinEvent(player, queueType));
+                game.get().onJoin(player, queueType, parameter);
+                instance.handleInstanceEvent(new InstanceJoinGameEvent(player, game.get(), queueType));
             }
-        }, () -> {
-            // We do not have the details about this player. Controller did not send it.
-            // Disconnect player, as we are unaware if this is correct.
-            disconnectPlayer(uuid, Component.text("Incorrect state.")); // TODO Translateable
-        });
+        } else {
+            // We try to join the instance only, check whether we just joined new
+            if(!instanceSwitched) {
+                // Ahh, so we were already on here
+                // If we were in a game, go out of it
+                if(oldGame.isPresent()) {
+                    oldGame.get().onQuit(player);
+                    oldGame.get().removeReserved(uuid);
+                    instance.handleInstanceEvent(new InstanceQuitGameEvent(player, oldGame.get()));
+                }
+                if(oldInstanceListType != newListType) {
+                    // Different queue type
+                    instance.handleInstanceEvent(new InstanceSwitchQueueTypeEvent(player, oldInstanceListType, queueType));
+                    return;
+                }
+                // Same instance, same queue type, we are done
+                return;
+            }
+            // We switched, normal join
+            instance.handleInstanceEvent(new InstanceJoinEvent(player, queueType));
+        }
     }
 
     /**
@@ -0,0 +1,109 @@
+package com.lahuca.laneinstance;
+
+import com.lahuca.lane.connection.packet.GameStatusUpdatePacket;
+import com.lahuca.lane.connection.packet.InstanceStatusUpdatePacket;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the status of the instance and its games to the controller.
+ * Changes only mark the instance or game as dirty, all changes within the status delay are sent as one update per instance and game.
+ * The records are converted and sent on the main thread, as that is where the state is changed.
+ */
+class InstanceStatusPublisher {
+
+    private final LaneInstance instance;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean instanceDirty = new AtomicBoolean();
+    private final Set<Long> dirtyGames = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long delay = 50;
+
+    InstanceStatusPublisher(LaneInstance instance) {
+        this.instance = instance;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lane-Status-Publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the time changes are collected before they are sent to the controller.
+     *
+     * @param delay the delay in milliseconds, 0 sends the changes at the next run of the main thread
+     */
+    void setDelay(long delay) {
+        if (delay < 0) throw new IllegalArgumentException("Status delay cannot be negative");
+        this.delay = delay;
+    }
+
+    long getDelay() {
+        return delay;
+    }
+
+    void markInstance() {
+        instanceDirty.set(true);
+        schedule();
+    }
+
+    void markGame(long gameId) {
+        dirtyGames.add(gameId);
+        schedule();
+    }
+
+    /**
+     * Forgets the pending update of the given game, as the game is not on this instance anymore.
+     *
+     * @param gameId the game's ID
+     */
+    void forgetGame(long gameId) {
+        dirtyGames.remove(gameId);
+    }
+
+    /**
+     * Forgets all pending updates, as the complete state is sent to the controller otherwise.
+     */
+    void forgetAll() {
+        instanceDirty.set(false);
+        dirtyGames.clear();
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) return;
+        long delay = this.delay;
+        if (delay == 0) {
+            instance.runOnMainThread(this::flush);
+            return;
+        }
+        scheduler.schedule(() -> instance.runOnMainThread(this::flush), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the pending updates to the controller immediately, on the calling thread.
+     */
+    void flush() {
+        // Reset before taking the changes, so that changes made during the flush are scheduled again
+        scheduled.set(false);
+        if (instanceDirty.getAndSet(false)) {
+            instance.sendController(new InstanceStatusUpdatePacket(instance.convertRecord()));
+        }
+        for (Iterator<Long> iterator = dirtyGames.iterator(); iterator.hasNext(); ) {
+            long gameId = iterator.next();
+            iterator.remove();
+            // Games that are not registered (anymore) are sent with their registration
+            instance.getInstanceGame(gameId).ifPresent(game -> instance.getConnection().sendRequestPacket(id -> new GameStatusUpdatePacket(id, game.convertRecord()), null)); // TODO Handle error?
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+}
@@ -21,7 +21,10 @@ import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.lahuca.lane.ReconnectConnection;
 import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.metrics.JmxMetricsSink;
+import com.lahuca.lane.connection.metrics.MetricsSink;
 import com.lahuca.lane.connection.packet.*;
+import com.lahuca.lane.connection.request.RequestHandler;
 import com.lahuca.lane.connection.request.ResponseError;
 import com.lahuca.lane.connection.request.ResponsePacket;
 import com.lahuca.lane.connection.request.ResponseErrorException;
@@ -37,6 +40,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -59,8 +63,10 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
     private final InstanceDataManager dataManager;
     private final InstancePlayerManager playerManager;
     private final InstanceFriendshipManager friendshipManager;
+    private final InstanceStatusPublisher statusPublisher;
 
     private final HashMap<Long, InstanceGame> games = new HashMap<>();
+    private final AtomicLong resyncGeneration = new AtomicLong(); // Based on the current time, see resynchronize()
 
     private final Cache<Long, InstanceParty> partyReplicas = Caffeine.newBuilder()
             .weakValues()
@@ -85,28 +91,24 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
         Packet.registerPackets();
 
         this.connection = connection;
+        if (connection instanceof RequestHandler handler && handler.getMetricsSink() == MetricsSink.NONE) {
+            handler.setMetricsSink(new JmxMetricsSink(id));
+        }
 
+        statusPublisher = new InstanceStatusPublisher(this);
         dataManager = new InstanceDataManager(this);
         playerManager = new InstancePlayerManager(this, this::sendInstanceStatus, onlineJoinable, playersJoinable, playingJoinable, maxOnlineSlots, maxPlayersSlots, maxPlayingSlots, onlineKickable, playersKickable, playingKickable, isPrivate);
         friendshipManager = new InstanceFriendshipManager(this);
 
         connection.setOnReconnect(() -> {
-            sendInstanceStatus();
-            Collection<InstanceGame> gamesCopy = new ArrayList<>(getInstanceGames());
-            gamesCopy.forEach(game -> {
-                // Try to update the game to the controller
-                connection.<Void>sendRequestPacket(requestId -> new GameStatusUpdatePacket(requestId, game.convertRecord()), null).getResult().whenComplete((data, ex) -> {
-                    if (ex != null) {
-                        // Oh, the update isn't sent, remove the game
-                        unregisterGame(game.getGameId());
-                        return;
-                    }
-                    // Update sent, we are done
-                }).join(); // TODO sync?
-            });
+            // We might have missed changes to cached data objects, and our watches have been removed
+            dataManager.invalidateCache();
+            dataManager.resubscribeWatches();
+            resynchronize();
         });
         connection.initialise(new InstanceInputPacket(this, partyReplicas));
         sendInstanceStatus();
+        flushStatus();
     }
 
     public String getId() {
@@ -126,8 +128,11 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
         HashSet<Long> gamesSet = new HashSet<>(games.keySet());
         gamesSet.forEach(gameId -> futures.add(unregisterGame(gameId)));
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        flushStatus();
+        statusPublisher.shutdown();
         connection.disableReconnect();
         connection.close();
+        if (connection instanceof RequestHandler handler && handler.getMetricsSink() instanceof JmxMetricsSink sink) sink.unregister();
         // TODO Probably other stuff?
     }
 
@@ -163,7 +168,76 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
     }
 
     private void sendInstanceStatus() {
-        sendController(new InstanceStatusUpdatePacket(convertRecord()));
+        statusPublisher.markInstance();
+    }
+
+    /**
+     * Marks the status of the game with the given ID to be sent to the controller.
+     * All changes within the status delay are sent as one update, use {@link #flushStatus()} to send them immediately.
+     *
+     * @param gameId the game's ID
+     */
+    public void sendGameStatus(long gameId) {
+        statusPublisher.markGame(gameId);
+    }
+
+    /**
+     * Sends the pending status updates of this instance and its games to the controller immediately, on the calling thread.
+     * This should be called from the main thread, when the controller needs to know the changes before anything else happens.
+     */
+    public void flushStatus() {
+        statusPublisher.flush();
+    }
+
+    /**
+     * Sets the time status changes of this instance and its games are collected before they are sent to the controller.
+     *
+     * @param statusDelay the delay in milliseconds, 0 sends the changes at the next run of the main thread
+     */
+    public void setStatusDelay(long statusDelay) {
+        statusPublisher.setDelay(statusDelay);
+    }
+
+    public long getStatusDelay() {
+        return statusPublisher.getDelay();
+    }
+
+    /**
+     * Sends the complete state of this instance and its games to the controller in a single request, after reconnecting.
+     * The games that the controller does not accept are unregistered.
+     * The controller clears the players it had on this instance or its games that are not in the state, when some of them have joined since, the state is sent again.
+     * The generation is based on the current time, so that it also increases when the instance has been restarted.
+     */
+    private void resynchronize() {
+        // The complete state is sent, so the pending updates are not needed anymore
+        statusPublisher.forgetAll();
+        ArrayList<GameRecord> records = new ArrayList<>();
+        getInstanceGames().forEach(game -> records.add(game.convertRecord()));
+        long generation = resyncGeneration.updateAndGet(previous -> Math.max(previous + 1, System.currentTimeMillis()));
+        connection.<InstanceResyncPacket.Corrections>sendRequestPacket(requestId -> new InstanceResyncPacket.Request(requestId, generation, convertRecord(), records), null).getResult().whenComplete((corrections, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (cause instanceof ResponseErrorException responseEx && ResponseError.ILLEGAL_STATE.equals(responseEx.getResponseError())
+                        && generation < resyncGeneration.get()) {
+                    // A newer resynchronization of ours has already been applied
+                    return;
+                }
+                // We are disconnected again and resynchronize after reconnecting, or the controller has applied a newer generation than ours
+                ex.printStackTrace(); // TODO Probably log?
+                return;
+            }
+            if (corrections == null) return;
+            if (corrections.rejectedGames() != null) {
+                corrections.rejectedGames().forEach(gameId -> {
+                    // The controller does not accept the game, so remove it
+                    if (games.containsKey(gameId)) unregisterGame(gameId);
+                });
+            }
+            if (corrections.clearedPlayers() != null && corrections.clearedPlayers().stream().anyMatch(uuid -> playerManager.getInstancePlayer(uuid).isPresent())) {
+                // Players joined after the state was taken, but the controller cleared them, so send the state again
+                runOnMainThread(this::resynchronize);
+            }
+        });
     }
 
     private CompletableFuture<Long> requestId(RequestIdPacket.Type idType) {
@@ -222,6 +296,7 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
         }
         handleInstanceEvent(new InstanceShutdownGameEvent(game));
         games.remove(gameId);
+        statusPublisher.forgetGame(gameId);
         return connection.<Void>sendRequestPacket(id -> new GameShutdownPacket(id, gameId), null).getResult(); // TODO What if failed??
     }
 
@@ -255,7 +330,7 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
      * @return a {@link CompletableFuture} with a {@link Optional} whose value will be the {@link GameRecord} if present
      */
     public CompletableFuture<Optional<GameRecord>> getGameRecord(long gameId) {
-        return connection.<Optional<GameRecord>>sendRequestPacket(id -> new RequestInformationPacket.Game(id, gameId), null).getResult();
+        return connection.<Optional<GameRecord>>sendHedgedRequestPacket(id -> new RequestInformationPacket.Game(id, gameId), null).getResult();
     }
 
     /**
@@ -264,7 +339,7 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
      * @return a {@link CompletableFuture} with the game records
      */
     public CompletableFuture<ArrayList<GameRecord>> getAllGameRecords() {
-        return connection.<ArrayList<GameRecord>>sendRequestPacket(RequestInformationPacket.Games::new, null).getResult();
+        return connection.<ArrayList<GameRecord>>sendHedgedRequestPacket(RequestInformationPacket.Games::new, null).getResult();
     }
 
     /**
@@ -276,7 +351,7 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
      */
     public CompletableFuture<Optional<InstanceRecord>> getInstanceRecord(String id) {
         Objects.requireNonNull(id, "id cannot be null");
-        return connection.<InstanceRecord>sendRequestPacket(requestId -> new RequestInformationPacket.Instance(requestId, id), null).getResult().thenApply(Optional::ofNullable);
+        return connection.<InstanceRecord>sendHedgedRequestPacket(requestId -> new RequestInformationPacket.Instance(requestId, id), null).getResult().thenApply(Optional::ofNullable);
     }
 
     /**
@@ -285,7 +360,7 @@ public abstract class LaneInstance implements RecordConverter<InstanceRecord> {
      * @return a {@link CompletableFuture} with the instance records
      */
     public CompletableFuture<ArrayList<InstanceRecord>> getAllInstanceRecords() {
-        return connection.<ArrayList<InstanceRecord>>sendRequestPacket(RequestInformationPacket.Instances::new, null).getResult();
+        return connection.<ArrayList<InstanceRecord>>sendHedgedRequestPacket(RequestInformationPacket.Instances::new, null).getResult();
     }
 
     @Override
@@ -1,6 +1,5 @@
 package com.lahuca.laneinstance.game;
 
-import com.lahuca.lane.connection.packet.GameStatusUpdatePacket;
 import com.lahuca.lane.game.LaneGame;
 import com.lahuca.lane.queue.QueueType;
 import com.lahuca.lane.records.GameRecord;
@@ -109,9 +108,10 @@ public interface InstanceGame extends GameLifecycle, LaneGame, RecordConverter<G
 
     /**
      * Send the current game data to the Controller.
+     * Changes within the status delay are sent as one update, use {@link LaneInstance#flushStatus()} to send them immediately.
      */
     default void sendGameStatus() {
-        LaneInstance.getInstance().getConnection().sendRequestPacket(id -> new GameStatusUpdatePacket(id, convertRecord()), null); // TODO Handle error?
+        LaneInstance.getInstance().sendGameStatus(getGameId());
     }
 
 }
@@ -7,11 +7,13 @@ package com.lahuca.laneinstance.scoreboard;
 
 import com.lahuca.lane.data.ordered.OrderedData;
 import com.lahuca.lane.data.ordered.OrderedDataComponents;
+import com.lahuca.laneinstance.LaneInstance;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -19,6 +21,7 @@ public abstract class PlayerScoreboard {
 
     protected ComponentLike title;
     private final LineBuilder rows = new LineBuilder();
+    private final AtomicBoolean renderRequested = new AtomicBoolean();
 
     public PlayerScoreboard(ComponentLike title) {
         this.title = title;
@@ -30,9 +33,11 @@ public abstract class PlayerScoreboard {
 
     /**
      * Set rows via LineBuilder consumer.
+     * The scoreboard is rendered at the next run of the main thread.
      */
     public void setRows(@NotNull Consumer<LineBuilder> consumer) {
         consumer.accept(rows);
+        requestRender();
     }
 
     public LineBuilder getRows() {
@@ -40,7 +45,20 @@ public abstract class PlayerScoreboard {
     }
 
     /**
-     * Render scoreboard according to implementation (Paper, etc.)
+     * Requests the scoreboard to be rendered at the next run of the main thread.
+     * All requests until then are rendered at once, so that the scoreboard is rendered at most once per tick.
+     */
+    public void requestRender() {
+        if(!renderRequested.compareAndSet(false, true)) return;
+        LaneInstance.getInstance().runOnMainThread(() -> {
+            renderRequested.set(false);
+            render();
+        });
+    }
+
+    /**
+     * Render scoreboard according to implementation (Paper, etc.) immediately.
+     * Prefer {@link #requestRender()}, which renders at most once per tick.
      */
     public abstract void render();
 
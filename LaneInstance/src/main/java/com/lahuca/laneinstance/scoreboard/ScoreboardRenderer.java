@@ -0,0 +1,99 @@
+package com.lahuca.laneinstance.scoreboard;
+
+import com.lahuca.lane.data.ordered.OrderedData;
+import net.kyori.adventure.text.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Renders the lines of a scoreboard by only applying the differences with the lines that have been rendered before.
+ * Each line is identified by its ID, its text and score are only set when they have changed, and lines that are gone are removed.
+ * One renderer belongs to one scoreboard of one player.
+ */
+public class ScoreboardRenderer {
+
+    /**
+     * The operations that apply the lines to the actual scoreboard.
+     */
+    public interface Operations {
+
+        /**
+         * Sets the text of the line, this is also the first operation on a new line.
+         *
+         * @param id   the line's ID
+         * @param text the text
+         */
+        void setText(String id, Component text);
+
+        /**
+         * Sets the score of the line, which determines its position.
+         *
+         * @param id    the line's ID
+         * @param score the score
+         */
+        void setScore(String id, int score);
+
+        /**
+         * Removes the line.
+         *
+         * @param id the line's ID
+         */
+        void remove(String id);
+
+    }
+
+    private record Line(Component text, int score) {
+    }
+
+    private final HashMap<String, Line> rendered = new HashMap<>();
+
+    /**
+     * Applies the differences between the given lines and the lines rendered before.
+     * Lines that are gone are removed first, so that the scoreboard never holds more lines than are rendered.
+     *
+     * @param lines      the lines to render, with the ordering as score
+     * @param operations the operations to apply the differences with
+     * @return the number of operations that have been applied
+     */
+    public int render(Collection<OrderedData<Component>> lines, Operations operations) {
+        int count = 0;
+        HashSet<String> ids = new HashSet<>();
+        for(OrderedData<Component> line : lines) ids.add(line.getId());
+        for(Iterator<String> iterator = rendered.keySet().iterator(); iterator.hasNext(); ) {
+            String id = iterator.next();
+            if(ids.contains(id)) continue;
+            iterator.remove();
+            operations.remove(id);
+            count++;
+        }
+        for(OrderedData<Component> line : lines) {
+            Line previous = rendered.get(line.getId());
+            Component text = line.getData();
+            int score = line.getOrdering();
+            if(previous != null && Objects.equals(previous.text(), text) && previous.score() == score) continue;
+            if(previous == null || !Objects.equals(previous.text(), text)) {
+                operations.setText(line.getId(), text);
+                count++;
+            }
+            if(previous == null || previous.score() != score) {
+                operations.setScore(line.getId(), score);
+                count++;
+            }
+            rendered.put(line.getId(), new Line(text, score));
+        }
+        return count;
+    }
+
+    /**
+     * Forgets the rendered lines, so that all lines are set again at the next render.
+     * This is to be done when the actual scoreboard has been replaced.
+     */
+    public void reset() {
+        rendered.clear();
+    }
+
+}
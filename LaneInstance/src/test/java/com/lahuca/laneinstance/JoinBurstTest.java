@@ -0,0 +1,134 @@
+package com.lahuca.laneinstance;
+
+import com.lahuca.lane.connection.InputPacket;
+import com.lahuca.lane.connection.local.LocalClientConnection;
+import com.lahuca.lane.connection.local.LocalServerConnection;
+import com.lahuca.lane.connection.packet.QueueFinishedPacket;
+import com.lahuca.lane.connection.request.RequestPacket;
+import com.lahuca.lane.connection.request.result.VoidResultPacket;
+import com.lahuca.lane.events.LaneEvent;
+import com.lahuca.lane.queue.QueueType;
+import com.lahuca.lane.records.PlayerRecord;
+import com.lahuca.lane.records.PlayerStateRecord;
+import com.lahuca.laneinstance.events.InstanceJoinEvent;
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Joins 200 players at once against a controller on a local connection.
+ * The controller holds back its responses to the queue finished packets until all of them have arrived,
+ * so the joins only complete when none of them blocks the main thread while waiting for the controller.
+ */
+class JoinBurstTest {
+
+    private static final int PLAYERS = 200;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final ExecutorService MAIN_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Main-Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static class TestInstance extends LaneInstance {
+
+        private final AtomicInteger joinEvents = new AtomicInteger();
+
+        TestInstance(LocalClientConnection connection) throws IOException, InstanceInstantiationException {
+            super(connection.getId(), "localhost", 25565, connection, "test", true, true, true, PLAYERS, PLAYERS, PLAYERS, false, false, false, false);
+        }
+
+        @Override
+        public void disconnectPlayer(UUID player, Component message) {
+            fail("Player " + player + " has been disconnected");
+        }
+
+        @Override
+        public <E extends LaneEvent> CompletableFuture<E> handleInstanceEvent(E event) {
+            if (event instanceof InstanceJoinEvent) joinEvents.incrementAndGet();
+            return CompletableFuture.completedFuture(event);
+        }
+
+        @Override
+        public void runOnMainThread(Runnable runnable) {
+            MAIN_THREAD.execute(runnable);
+        }
+
+        @Override
+        public void updatePlayerListName(UUID uuid) {
+        }
+
+    }
+
+    @Test
+    void joinsDoNotWaitForTheController() throws Exception {
+        CountDownLatch requested = new CountDownLatch(PLAYERS);
+        List<InputPacket> held = new ArrayList<>();
+        LocalServerConnection controller = new LocalServerConnection();
+        controller.initialise(input -> {
+            if (!(input.packet() instanceof RequestPacket request)) return;
+            if (request instanceof QueueFinishedPacket) {
+                synchronized (held) {
+                    held.add(input);
+                }
+                requested.countDown();
+                return;
+            }
+            controller.sendPacket(new VoidResultPacket(request.getRequestId()), input.from());
+        });
+        TestInstance instance = new TestInstance(new LocalClientConnection("instance", controller));
+        InstancePlayerManager playerManager = instance.getPlayerManager();
+
+        ArrayList<UUID> uuids = new ArrayList<>();
+        CompletableFuture<Void> registered = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < PLAYERS; i++) {
+                UUID uuid = UUID.randomUUID();
+                uuids.add(uuid);
+                playerManager.registerPlayer(new PlayerRecord(uuid, "Player" + i, uuid, null, null, null, null, new PlayerStateRecord("queued", new HashMap<>()), null, 0),
+                        new InstancePlayer.RegisterData(QueueType.ONLINE, null, null));
+            }
+        }, MAIN_THREAD);
+        registered.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // All joins are started within one run of the main thread, just like a burst of connecting players
+        long start = System.nanoTime();
+        ArrayList<CompletableFuture<Void>> joins = new ArrayList<>();
+        long mainThread = CompletableFuture.supplyAsync(() -> {
+            for (UUID uuid : uuids) joins.add(playerManager.joinInstance(uuid));
+            return System.nanoTime() - start;
+        }, MAIN_THREAD).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue(requested.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Not all queue finished packets reached the controller");
+        long allRequested = System.nanoTime() - start;
+
+        synchronized (held) {
+            for (InputPacket input : held) {
+                controller.sendPacket(new VoidResultPacket(((RequestPacket) input.packet()).getRequestId()), input.from());
+            }
+        }
+        CompletableFuture.allOf(joins.toArray(new CompletableFuture[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long allJoined = System.nanoTime() - start;
+
+        int online = CompletableFuture.supplyAsync(() -> playerManager.getOnline().size(), MAIN_THREAD).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(PLAYERS, online);
+        assertEquals(PLAYERS, instance.joinEvents.get());
+
+        System.out.printf("%d joins: main thread busy for %.2f ms (%.1f us per join), all requested after %.2f ms, all joined after %.2f ms%n",
+                PLAYERS, mainThread / 1e6, mainThread / 1e3 / PLAYERS, allRequested / 1e6, allJoined / 1e6);
+        instance.shutdown();
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.lahuca.laneinstance.scoreboard;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the {@link ScoreboardRenderer} only applies the operations for the lines that have changed.
+ * Lines are rendered from the bottom up, as they are sorted by their score.
+ */
+class ScoreboardRendererTest {
+
+    private static class RecordingOperations implements ScoreboardRenderer.Operations {
+
+        private final List<String> texts = new ArrayList<>();
+        private final List<String> scores = new ArrayList<>();
+        private final List<String> removals = new ArrayList<>();
+
+        @Override
+        public void setText(String id, Component text) {
+            texts.add(id);
+        }
+
+        @Override
+        public void setScore(String id, int score) {
+            scores.add(id);
+        }
+
+        @Override
+        public void remove(String id) {
+            removals.add(id);
+        }
+
+        private void clear() {
+            texts.clear();
+            scores.clear();
+            removals.clear();
+        }
+
+    }
+
+    private final ScoreboardRenderer renderer = new ScoreboardRenderer();
+    private final RecordingOperations operations = new RecordingOperations();
+
+    private int render(PlayerScoreboard.LineBuilder lines) {
+        operations.clear();
+        return renderer.render(lines.sort(), operations);
+    }
+
+    private static PlayerScoreboard.LineBuilder lines(String... ids) {
+        PlayerScoreboard.LineBuilder lines = new PlayerScoreboard.LineBuilder();
+        for (String id : ids) lines.add(id, Component.text(id), all -> true);
+        return lines;
+    }
+
+    @Test
+    void firstRenderSetsTextAndScoreOfAllLines() {
+        PlayerScoreboard.LineBuilder lines = lines("title", "timer", "footer");
+        lines.add();
+
+        assertEquals(8, render(lines));
+        assertEquals(List.of("e-3.0", "footer", "timer", "title"), operations.texts);
+        assertEquals(List.of("e-3.0", "footer", "timer", "title"), operations.scores);
+        assertEquals(List.of(), operations.removals);
+    }
+
+    @Test
+    void unchangedLinesAreNotRenderedAgain() {
+        render(lines("title", "timer", "footer"));
+
+        assertEquals(0, render(lines("title", "timer", "footer")));
+    }
+
+    @Test
+    void textChangeOnlySetsTheText() {
+        render(lines("title", "timer", "footer"));
+        PlayerScoreboard.LineBuilder lines = new PlayerScoreboard.LineBuilder()
+                .add("title", Component.text("title"), all -> true)
+                .add("timer", Component.text("Time: 1"), all -> true)
+                .add("footer", Component.text("footer"), all -> true);
+
+        assertEquals(1, render(lines));
+        assertEquals(List.of("timer"), operations.texts);
+        assertEquals(List.of(), operations.scores);
+        assertEquals(List.of(), operations.removals);
+    }
+
+    @Test
+    void addedLineSetsItsTextAndScoreAndMovesTheLinesBelow() {
+        render(lines("title", "footer"));
+
+        assertEquals(3, render(lines("title", "event", "footer")));
+        assertEquals(List.of("event"), operations.texts);
+        assertEquals(List.of("footer", "event"), operations.scores);
+        assertEquals(List.of(), operations.removals);
+    }
+
+    @Test
+    void removedLastLineIsOnlyRemoved() {
+        render(lines("title", "footer", "event"));
+
+        assertEquals(1, render(lines("title", "footer")));
+        assertEquals(List.of(), operations.texts);
+        assertEquals(List.of(), operations.scores);
+        assertEquals(List.of("event"), operations.removals);
+    }
+
+    @Test
+    void removedLineMovesTheLinesBelow() {
+        render(lines("title", "event", "timer", "footer"));
+
+        assertEquals(3, render(lines("title", "timer", "footer")));
+        assertEquals(List.of(), operations.texts);
+        assertEquals(List.of("footer", "timer"), operations.scores);
+        assertEquals(List.of("event"), operations.removals);
+    }
+
+    @Test
+    void movedLinesOnlySetTheirScores() {
+        render(lines("title", "timer", "players", "footer"));
+
+        assertEquals(2, render(lines("title", "players", "timer", "footer")));
+        assertEquals(List.of(), operations.texts);
+        assertEquals(List.of("timer", "players"), operations.scores);
+        assertEquals(List.of(), operations.removals);
+    }
+
+    @Test
+    void resetRendersAllLinesAgain() {
+        render(lines("title", "timer", "footer"));
+        renderer.reset();
+
+        assertEquals(6, render(lines("title", "timer", "footer")));
+        assertEquals(List.of(), operations.removals);
+    }
+
+}
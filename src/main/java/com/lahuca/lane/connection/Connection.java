@@ -24,6 +24,11 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -120,6 +125,60 @@ public interface Connection {
      */
     <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser, int timeoutSeconds);
 
+    /**
+     * Sends an idempotent request packet to the given destination, and it handles the response.
+     * When no response has been received within the hedge delay of the destination and packet type, the request is sent once more with a new request ID.
+     * The first response to arrive completes the returned request; a timeout of one of them only fails it when the other has failed as well.
+     * Both requests time out after the adaptive timeout of the destination and packet type, see {@link Request#setAdaptiveTimeout(boolean)}.
+     * This must only be used for requests that can safely be handled twice and that are cheap to handle,
+     * like reads of single records or of single data objects by their ID;
+     * queries that list or select many data objects from the storage should not be hedged.
+     *
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param destination        the destination of the packet, null meaning the controller.
+     * @param <T>                the type of the expected result.
+     * @return the request with the future and request ID of the first request bundled within it.
+     */
+    default <T> Request<T> sendHedgedRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination) {
+        Request<T> first = sendRequestPacket(packetConstruction, destination);
+        if (first == null) return null;
+        first.setAdaptiveTimeout(true);
+        long delay = getHedgeDelayMillis(destination, first.getPacketType());
+        if (delay < 0 || first.getResult().isDone()) return first;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        BiConsumer<T, Throwable> complete = (value, exception) -> {
+            if (exception == null) result.complete(value);
+            else if (!(exception instanceof CancellationException) || outstanding.decrementAndGet() == 0) result.completeExceptionally(exception);
+        };
+        first.getResult().whenComplete(complete);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) return;
+            outstanding.incrementAndGet();
+            Request<T> hedge = sendRequestPacket(packetConstruction, destination);
+            if (hedge == null) {
+                complete.accept(null, new CancellationException());
+                return;
+            }
+            hedge.setAdaptiveTimeout(true);
+            hedge.getResult().whenComplete(complete);
+        });
+        Request<T> request = new Request<>(first.getRequestId(), first.getScheduledAt(), result);
+        request.setDestination(destination);
+        return request;
+    }
+
+    /**
+     * Returns the delay after which an idempotent request to the given destination is sent again when it has not been answered yet.
+     *
+     * @param destination the destination, null meaning the controller
+     * @param packetType  the packet ID of the request packet
+     * @return the delay in milliseconds, -1 when requests should not be hedged
+     */
+    default long getHedgeDelayMillis(String destination, String packetType) {
+        return -1;
+    }
+
     /**
      * Sends the retrieved response into the requests' future.
      *
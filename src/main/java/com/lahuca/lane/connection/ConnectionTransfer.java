@@ -15,4 +15,33 @@
  */
 package com.lahuca.lane.connection;
 
-public record ConnectionTransfer(String typeId, String data, String from, String to, long sentAt) { }
+/**
+ * The wire format of a packet sent over a socket.
+ * @param typeId the packet type
+ * @param data the serialized packet
+ * @param from the sender, null meaning the controller
+ * @param to the destination, null meaning the controller
+ * @param sentAt the time at which it was sent
+ * @param sequence the sequence number within the session of this direction, 0 when it is not sequenced
+ * @param acknowledged the highest sequence number received from the other direction
+ */
+public record ConnectionTransfer(String typeId, String data, String from, String to, long sentAt, long sequence, long acknowledged) {
+
+    public ConnectionTransfer(String typeId, String data, String from, String to, long sentAt) {
+        this(typeId, data, from, to, sentAt, 0, 0);
+    }
+
+    public boolean isSequenced() {
+        return sequence > 0;
+    }
+
+    /**
+     * Returns a copy of this transfer to be sent again, with an updated acknowledgement.
+     * @param acknowledged the highest sequence number received from the other direction
+     * @return the transfer to resend
+     */
+    public ConnectionTransfer resend(long acknowledged) {
+        return new ConnectionTransfer(typeId, data, from, to, sentAt, sequence, acknowledged);
+    }
+
+}
@@ -16,10 +16,12 @@
 package com.lahuca.lane.connection;
 
 import com.lahuca.lane.connection.packet.*;
+import com.lahuca.lane.connection.packet.connection.ConnectionAckPacket;
 import com.lahuca.lane.connection.packet.connection.ConnectionClosePacket;
 import com.lahuca.lane.connection.packet.connection.ConnectionConnectPacket;
 import com.lahuca.lane.connection.packet.connection.ConnectionKeepAlivePacket;
 import com.lahuca.lane.connection.packet.connection.ConnectionKeepAliveResultPacket;
+import com.lahuca.lane.connection.packet.connection.ConnectionSessionPacket;
 import com.lahuca.lane.connection.packet.data.*;
 import com.lahuca.lane.connection.request.result.*;
 
@@ -49,6 +51,8 @@ public interface Packet {
 		Packet.registerPacket(InstanceDisconnectPacket.packetId, InstanceDisconnectPacket.class);
 		Packet.registerPacket(InstanceJoinPacket.packetId, InstanceJoinPacket.class);
 		Packet.registerPacket(InstanceStatusUpdatePacket.packetId, InstanceStatusUpdatePacket.class);
+		Packet.registerPacket(InstanceResyncPacket.Request.packetId, InstanceResyncPacket.Request.class);
+		Packet.registerPacket(InstanceResyncPacket.Response.packetId, InstanceResyncPacket.Response.class);
 		Packet.registerPacket(InstanceUpdatePlayerPacket.packetId, InstanceUpdatePlayerPacket.class);
 
 		Packet.registerPacket(QueueRequestPacket.packetId, QueueRequestPacket.class);
@@ -61,6 +65,12 @@ public interface Packet {
         Packet.registerPacket(DataObjectsResultPacket.packetId, DataObjectsResultPacket.class); //TODO keep it?
 		Packet.registerPacket(DataObjectResultPacket.packetId, DataObjectResultPacket.class);
 		Packet.registerPacket(DataObjectsSelectPacket.packetId, DataObjectsSelectPacket.class);
+		Packet.registerPacket(DataObjectsSelectPagePacket.packetId, DataObjectsSelectPagePacket.class);
+		Packet.registerPacket(DataPageResultPacket.packetId, DataPageResultPacket.class);
+		Packet.registerPacket(LeaderboardPacket.Top.packetId, LeaderboardPacket.Top.class);
+		Packet.registerPacket(LeaderboardPacket.Rank.packetId, LeaderboardPacket.Rank.class);
+		Packet.registerPacket(LeaderboardPacket.Around.packetId, LeaderboardPacket.Around.class);
+		Packet.registerPacket(LeaderboardPacket.Response.packetId, LeaderboardPacket.Response.class);
 		Packet.registerPacket(ProfileRecordResultPacket.packetId, ProfileRecordResultPacket.class);
 
 		Packet.registerPacket(QueueFinishedPacket.packetId, QueueFinishedPacket.class);
@@ -68,11 +78,18 @@ public interface Packet {
 		Packet.registerPacket(ConnectionClosePacket.packetId, ConnectionClosePacket.class);
 		Packet.registerPacket(ConnectionKeepAlivePacket.packetId, ConnectionKeepAlivePacket.class);
 		Packet.registerPacket(ConnectionKeepAliveResultPacket.packetId, ConnectionKeepAliveResultPacket.class);
+		Packet.registerPacket(ConnectionSessionPacket.packetId, ConnectionSessionPacket.class);
+		Packet.registerPacket(ConnectionAckPacket.packetId, ConnectionAckPacket.class);
 		Packet.registerPacket(RequestIdPacket.packetId, RequestIdPacket.class);
 
 		Packet.registerPacket(DataObjectReadPacket.packetId, DataObjectReadPacket.class);
+		Packet.registerPacket(DataObjectInvalidatePacket.packetId, DataObjectInvalidatePacket.class);
+		Packet.registerPacket(DataObjectWatchPacket.Subscribe.packetId, DataObjectWatchPacket.Subscribe.class);
+		Packet.registerPacket(DataObjectWatchPacket.Unsubscribe.packetId, DataObjectWatchPacket.Unsubscribe.class);
+		Packet.registerPacket(DataObjectWatchPacket.Change.packetId, DataObjectWatchPacket.Change.class);
 		Packet.registerPacket(DataObjectWritePacket.packetId, DataObjectWritePacket.class);
 		Packet.registerPacket(DataObjectRemovePacket.packetId, DataObjectRemovePacket.class);
+		Packet.registerPacket(DataObjectUpdatePacket.packetId, DataObjectUpdatePacket.class);
         Packet.registerPacket(DataObjectListIdsPacket.packetId, DataObjectListIdsPacket.class);
         Packet.registerPacket(DataObjectsListPacket.packetId, DataObjectsListPacket.class);
         Packet.registerPacket(DataObjectCopyPacket.packetId, DataObjectCopyPacket.class);
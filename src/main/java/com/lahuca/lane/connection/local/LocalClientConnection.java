@@ -0,0 +1,259 @@
+package com.lahuca.lane.connection.local;
+
+import com.google.gson.Gson;
+import com.lahuca.lane.ReconnectConnection;
+import com.lahuca.lane.connection.InputPacket;
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The instance side of an in-process connection, connecting to a {@link LocalServerConnection} within the same JVM.
+ * This is a drop-in replacement of the client socket connection for co-located instances:
+ * requests, responses and their timeouts behave identically, only the transport is a bounded queue instead of a socket.
+ */
+public class LocalClientConnection extends RequestHandler implements ReconnectConnection {
+
+    private final String id;
+    private final LocalServerConnection server;
+    private final LocalMailbox inbox;
+    private Consumer<InputPacket> input = null;
+    private volatile boolean connected = false;
+
+    // Reconnect upon close
+    private volatile boolean reconnect;
+    private int secondsBetweenReconnections;
+    private Runnable onReconnect;
+
+    public LocalClientConnection(String id, LocalServerConnection server) {
+        this(id, server, LocalServerConnection.DEFAULT_CAPACITY, LocalServerConnection.DEFAULT_OFFER_TIMEOUT_MILLIS, null, true, 1);
+    }
+
+    /**
+     * Constructs the instance side of an in-process connection.
+     * @param id the ID of this instance
+     * @param server the controller side to connect to
+     * @param capacity the maximum number of queued packets towards this instance
+     * @param offerTimeoutMillis the number of milliseconds a sender waits for space in a full queue before the packet is dropped
+     * @param serializeCheck the Gson instance to round-trip every packet with, null to disable the serialize check
+     * @param reconnect whether to reconnect when the connection is closed by the controller
+     * @param secondsBetweenReconnections the number of seconds between reconnect attempts
+     */
+    public LocalClientConnection(String id, LocalServerConnection server, int capacity, long offerTimeoutMillis, Gson serializeCheck, boolean reconnect, int secondsBetweenReconnections) {
+        if(capacity <= 0) capacity = LocalServerConnection.DEFAULT_CAPACITY;
+        if(offerTimeoutMillis < 0) offerTimeoutMillis = LocalServerConnection.DEFAULT_OFFER_TIMEOUT_MILLIS;
+        if(secondsBetweenReconnections <= 0) secondsBetweenReconnections = 1;
+        this.id = id;
+        this.server = server;
+        this.inbox = new LocalMailbox("Lane-Local-Controller-" + id, capacity, offerTimeoutMillis, serializeCheck, this);
+        this.reconnect = reconnect;
+        this.secondsBetweenReconnections = secondsBetweenReconnections;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if(connected) return;
+        inbox.start(input);
+        try {
+            server.assign(this);
+        } catch (IOException e) {
+            inbox.stop();
+            throw e;
+        }
+        startTask();
+        connected = true;
+    }
+
+    @Override
+    public void initialise(Consumer<InputPacket> input) throws IOException {
+        this.input = input;
+        connect();
+    }
+
+    /**
+     * Queues a packet that is sent to this instance.
+     * @param packet the packet
+     * @param from the ID of the sender, null meaning the controller
+     */
+    void deliver(Packet packet, String from) {
+        inbox.offer(packet, from, id, server.getMetricsSink());
+    }
+
+    /**
+     * Send a packet over the connection identified by the given destination.
+     * @param packet The packet to send.
+     * @param destination The destination of the packet, null meaning the controller.
+     */
+    @Override
+    public void sendPacket(Packet packet, String destination) {
+        if(!isConnected()) return;
+        if(destination != null && destination.equals(id)) return; // TODO Sending to itself?
+        server.route(id, packet, destination);
+    }
+
+    private static <T> Request<T> disconnectedRequest() {
+        return new Request<>(ResponseError.CONTROLLER_DISCONNECTED.exception());
+    }
+
+    /**
+     * Sends a request packet to the given destination, and it handles the response.
+     * A request ID is generated that is being used to construct the request packet.
+     * The future in the request retrieves the response, by default it timeouts after the default timeout.
+     * Any generic results are cast by default.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @return the request with the future and request ID bundled within it.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination) {
+        if(!isConnected()) return disconnectedRequest();
+        Request<T> request = request();
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        server.route(id, packet, destination);
+        return request;
+    }
+
+    /**
+     * Sends a request packet to the given destination, and it handles the response.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param timeoutSeconds the number of seconds to wait for the response.
+     * @return the request with the future and request ID bundled within it.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, int timeoutSeconds) {
+        if(!isConnected()) return disconnectedRequest();
+        Request<T> request = request(timeoutSeconds);
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        server.route(id, packet, destination);
+        return request;
+    }
+
+    /**
+     * Sends a request packet to the given destination, and it handles the response.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param resultParser the generic-to-specific result parser.
+     * @return the request with the future and request ID bundled within it.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser) {
+        if(!isConnected()) return disconnectedRequest();
+        Request<T> request = request(resultParser);
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        server.route(id, packet, destination);
+        return request;
+    }
+
+    /**
+     * Sends a request packet to the given destination, and it handles the response.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param resultParser the generic-to-specific result parser.
+     * @param timeoutSeconds the number of seconds to wait for the response.
+     * @return the request with the future and request ID bundled within it.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser, int timeoutSeconds) {
+        if(!isConnected()) return disconnectedRequest();
+        Request<T> request = request(resultParser, timeoutSeconds);
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        server.route(id, packet, destination);
+        return request;
+    }
+
+    @Override
+    public <T extends ResponsePacket<Object>> boolean retrieveResponse(long requestId, T response) {
+        return response(requestId, response);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Returns the number of packets waiting to be handled by this instance.
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return inbox.size();
+    }
+
+    /**
+     * Closes the connection.
+     * This never tries to reconnect after closing, use either {@link #closeAndReconnect()} or run {@link #reconnect()} afterward.
+     */
+    @Override
+    public void close() {
+        boolean wasConnected = connected;
+        connected = false;
+        stopTask();
+        inbox.stop();
+        if(wasConnected) server.unassign(this);
+        if(!reconnect) stopExecutor();
+    }
+
+    /**
+     * Reconnects the connection after {@link #secondsBetweenReconnections}, retrying until it succeeds or reconnecting is disabled.
+     */
+    @Override
+    public void reconnect() {
+        if(connected || !reconnect || isStopped()) return;
+        Runnable reconnectRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if(connected || !reconnect) return;
+                try {
+                    connect();
+                    if(onReconnect != null) onReconnect.run();
+                } catch (IOException e) {
+                    getScheduledExecutor().schedule(this, secondsBetweenReconnections, TimeUnit.SECONDS);
+                }
+            }
+        };
+        getScheduledExecutor().schedule(reconnectRunnable, secondsBetweenReconnections, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void closeAndReconnect() {
+        close();
+        if(reconnect) reconnect();
+    }
+
+    @Override
+    public void setOnReconnect(Runnable onReconnect) {
+        this.onReconnect = onReconnect;
+    }
+
+    /**
+     * Disables reconnecting, this fully shutdown the executor tied to this connection.
+     */
+    @Override
+    public void disableReconnect() {
+        reconnect = false;
+        if(!connected) stopExecutor();
+    }
+
+    public void setSecondsBetweenReconnections(int secondsBetweenReconnections) {
+        if(secondsBetweenReconnections <= 0) return;
+        this.secondsBetweenReconnections = secondsBetweenReconnections;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.lahuca.lane.connection.local;
+
+import com.google.gson.Gson;
+import com.lahuca.lane.connection.InputPacket;
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.metrics.MetricsSink;
+import com.lahuca.lane.connection.request.RequestHandler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A bounded queue of packets with a single thread that dispatches them to the input of a local connection.
+ * Every direction of a local link has its own mailbox, comparable to the read thread of a socket.
+ */
+class LocalMailbox {
+
+    private record Transfer(Packet packet, String from, long sentAt, int bytes) {
+    }
+
+    private final String name;
+    private final BlockingQueue<Transfer> queue;
+    private final long offerTimeoutMillis;
+    private final Gson serializeCheck;
+    private final RequestHandler receiver;
+    private volatile Consumer<InputPacket> input;
+    private volatile Thread dispatchThread = null;
+
+    /**
+     * Constructs a new mailbox, this does not start dispatching yet.
+     * @param name the name of the dispatch thread
+     * @param capacity the maximum number of packets that can be queued
+     * @param offerTimeoutMillis the number of milliseconds a sender waits for space before the packet is dropped
+     * @param serializeCheck the Gson instance to round-trip every packet with, null to pass packets as is
+     * @param receiver the connection that receives the packets, its metrics sink records them
+     */
+    LocalMailbox(String name, int capacity, long offerTimeoutMillis, Gson serializeCheck, RequestHandler receiver) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.serializeCheck = serializeCheck;
+        this.receiver = receiver;
+    }
+
+    /**
+     * Starts the dispatch thread with the given input.
+     * @param input the consumer that handles the incoming packets
+     */
+    synchronized void start(Consumer<InputPacket> input) {
+        this.input = input;
+        if(dispatchThread != null) return;
+        dispatchThread = new Thread(this::dispatch, name);
+        dispatchThread.setDaemon(true);
+        dispatchThread.start();
+    }
+
+    /**
+     * Stops the dispatch thread, any packets that are still queued are discarded.
+     */
+    synchronized void stop() {
+        if(dispatchThread != null) dispatchThread.interrupt();
+        dispatchThread = null;
+        queue.clear();
+    }
+
+    boolean isRunning() {
+        return dispatchThread != null;
+    }
+
+    /**
+     * Queues the packet to be dispatched.
+     * When the queue is full, this waits at most the offer timeout; after that the packet is dropped,
+     * just like a packet that is lost on a broken socket. Requests will then time out as usual.
+     * @param packet the packet
+     * @param from the ID of the sender, null meaning the controller
+     * @param to the ID of the receiver, null meaning the controller
+     * @param senderMetrics the metrics sink of the sender
+     * @return true if the packet has been queued
+     */
+    boolean offer(Packet packet, String from, String to, MetricsSink senderMetrics) {
+        if(!isRunning()) return false;
+        int bytes = 0;
+        if(serializeCheck != null) {
+            String json = serializeCheck.toJson(packet);
+            bytes = json.length();
+            packet = serializeCheck.fromJson(json, packet.getClass());
+        }
+        try {
+            if(!queue.offer(new Transfer(packet, from, System.currentTimeMillis(), bytes), offerTimeoutMillis, TimeUnit.MILLISECONDS)) return false;
+            senderMetrics.packetSent(packet.getPacketId(), to, bytes);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of packets waiting to be dispatched.
+     * @return the queue depth
+     */
+    int size() {
+        return queue.size();
+    }
+
+    private void dispatch() {
+        Thread current = Thread.currentThread();
+        while(dispatchThread == current) {
+            Transfer transfer;
+            try {
+                transfer = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long receivedAt = System.currentTimeMillis();
+            receiver.getMetricsSink().packetReceived(transfer.packet().getPacketId(), transfer.from(), transfer.bytes(), receivedAt - transfer.sentAt());
+            try {
+                input.accept(new InputPacket(transfer.packet(), transfer.from(), receivedAt, transfer.sentAt()));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.lahuca.lane.connection.local;
+
+import com.google.gson.Gson;
+import com.lahuca.lane.connection.Connection;
+import com.lahuca.lane.connection.InputPacket;
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.Request;
+import com.lahuca.lane.connection.request.RequestHandler;
+import com.lahuca.lane.connection.request.RequestPacket;
+import com.lahuca.lane.connection.request.ResponsePacket;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The controller side of an in-process connection.
+ * Instances within the same JVM connect to this using a {@link LocalClientConnection}.
+ * Packets are passed directly as objects through bounded queues, there is no serialization involved,
+ * unless the serialize check is enabled: then every packet is round-tripped through Gson to catch packets that would not survive a socket.
+ * Every connected client has its own dispatch thread towards the controller, just like every socket client has its own read thread.
+ */
+public class LocalServerConnection extends RequestHandler implements Connection {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 1000;
+
+    private record Client(LocalClientConnection connection, LocalMailbox mailbox) {
+    }
+
+    private final int capacity;
+    private final long offerTimeoutMillis;
+    private final Gson serializeCheck;
+    private final ConcurrentHashMap<String, Client> clients = new ConcurrentHashMap<>();
+    private volatile Consumer<InputPacket> input = null;
+    private volatile boolean started = false;
+    /**
+     * This consumer is called when a client disconnects.
+     * It is provided with the ID of the client.
+     */
+    private Consumer<String> onClientRemove = null;
+
+    public LocalServerConnection() {
+        this(DEFAULT_CAPACITY, DEFAULT_OFFER_TIMEOUT_MILLIS, null);
+    }
+
+    /**
+     * Constructs the controller side of an in-process connection.
+     * @param capacity the maximum number of queued packets per direction per client
+     * @param offerTimeoutMillis the number of milliseconds a sender waits for space in a full queue before the packet is dropped
+     * @param serializeCheck the Gson instance to round-trip every packet with, null to disable the serialize check
+     */
+    public LocalServerConnection(int capacity, long offerTimeoutMillis, Gson serializeCheck) {
+        if(capacity <= 0) capacity = DEFAULT_CAPACITY;
+        if(offerTimeoutMillis < 0) offerTimeoutMillis = DEFAULT_OFFER_TIMEOUT_MILLIS;
+        this.capacity = capacity;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.serializeCheck = serializeCheck;
+    }
+
+    @Override
+    public void initialise(Consumer<InputPacket> input) throws IOException {
+        this.input = input;
+        started = true;
+    }
+
+    /**
+     * Assigns the client to this connection, the equivalent of a socket accepting a client and retrieving its ID.
+     * @param client the client to assign
+     * @throws IOException when the connection has not been initialised or the ID is already taken
+     */
+    void assign(LocalClientConnection client) throws IOException {
+        if(!isConnected()) throw new IOException("Local connection is not initialised");
+        LocalMailbox mailbox = new LocalMailbox("Lane-Local-" + client.getId(), capacity, offerTimeoutMillis, serializeCheck, this);
+        if(clients.putIfAbsent(client.getId(), new Client(client, mailbox)) != null) {
+            throw new IOException("Client with ID " + client.getId() + " is already connected");
+        }
+        mailbox.start(input);
+    }
+
+    /**
+     * Removes the client from this connection, if it is still assigned.
+     * @param client the client to remove
+     */
+    void unassign(LocalClientConnection client) {
+        Client value = clients.get(client.getId());
+        if(value == null || value.connection() != client || !clients.remove(client.getId(), value)) return;
+        value.mailbox().stop();
+        if(onClientRemove != null) onClientRemove.accept(client.getId());
+    }
+
+    /**
+     * Routes a packet sent by a client, either to the controller or to a different client.
+     * @param from the ID of the client that sent the packet
+     * @param packet the packet
+     * @param destination the destination of the packet, null meaning the controller
+     */
+    void route(String from, Packet packet, String destination) {
+        if(destination != null) {
+            // This packet should not reach the controller, but a different client.
+            sendPacket(packet, destination);
+            return;
+        }
+        Client client = clients.get(from);
+        if(client != null) client.mailbox().offer(packet, from, null, client.connection().getMetricsSink());
+    }
+
+    /**
+     * Returns the number of packets waiting to be handled by the controller for the given client.
+     * @param client the ID of the client
+     * @return the queue depth, 0 if the client is not connected
+     */
+    public int getQueueDepth(String client) {
+        Client value = clients.get(client);
+        return value == null ? 0 : value.mailbox().size();
+    }
+
+    /**
+     * Send a packet over the connection identified by the given destination.
+     * @param packet The packet to send.
+     * @param destination The destination of the packet, null meaning the controller.
+     */
+    @Override
+    public void sendPacket(Packet packet, String destination) {
+        if(destination == null || !isConnected()) return;
+        Client client = clients.get(destination);
+        if(client != null) client.connection().deliver(packet, null);
+    }
+
+    /**
+     * Sends a request packet to the given client, and it handles the response.
+     * A request ID is generated that is being used to construct the request packet.
+     * The future in the request retrieves the response, by default it timeouts after the default timeout.
+     * Any generic results are cast by default.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @return the request with the future and request ID bundled within it. Null if there is no client with the given destination found.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination) {
+        Client client = getClient(destination);
+        if(client == null) return null;
+        Request<T> request = request();
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        client.connection().deliver(packet, null);
+        return request;
+    }
+
+    /**
+     * Sends a request packet to the given client, and it handles the response.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param timeoutSeconds the number of seconds to wait for the response.
+     * @return the request with the future and request ID bundled within it. Null if there is no client with the given destination found.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, int timeoutSeconds) {
+        Client client = getClient(destination);
+        if(client == null) return null;
+        Request<T> request = request(timeoutSeconds);
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        client.connection().deliver(packet, null);
+        return request;
+    }
+
+    /**
+     * Sends a request packet to the given client, and it handles the response.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param resultParser the generic-to-specific result parser.
+     * @return the request with the future and request ID bundled within it. Null if there is no client with the given destination found.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser) {
+        Client client = getClient(destination);
+        if(client == null) return null;
+        Request<T> request = request(resultParser);
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        client.connection().deliver(packet, null);
+        return request;
+    }
+
+    /**
+     * Sends a request packet to the given client, and it handles the response.
+     * @param packetConstruction the function that created a packet based upon the request ID.
+     * @param resultParser the generic-to-specific result parser.
+     * @param timeoutSeconds the number of seconds to wait for the response.
+     * @return the request with the future and request ID bundled within it. Null if there is no client with the given destination found.
+     * @param <T> the type of the expected result.
+     */
+    @Override
+    public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser, int timeoutSeconds) {
+        Client client = getClient(destination);
+        if(client == null) return null;
+        Request<T> request = request(resultParser, timeoutSeconds);
+        request.setDestination(destination);
+        RequestPacket packet = packetConstruction.apply(request.getRequestId());
+        request.setPacketType(packet.getPacketId());
+        client.connection().deliver(packet, null);
+        return request;
+    }
+
+    private Client getClient(String destination) {
+        if(!isConnected() || destination == null) return null;
+        Client client = clients.get(destination);
+        if(client == null || !client.connection().isConnected()) return null;
+        return client;
+    }
+
+    @Override
+    public <T extends ResponsePacket<Object>> boolean retrieveResponse(long requestId, T response) {
+        return response(requestId, response);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return started && !isStopped();
+    }
+
+    /**
+     * Closes this connection, every connected client is closed as if its socket was closed and tries to reconnect when allowed.
+     */
+    @Override
+    public void close() {
+        started = false;
+        stopExecutor();
+        Set<Client> values = new HashSet<>(clients.values());
+        values.forEach(client -> {
+            unassign(client.connection());
+            client.connection().closeAndReconnect();
+        });
+    }
+
+    public void setOnClientRemove(Consumer<String> onClientRemove) {
+        this.onClientRemove = onClientRemove;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.lahuca.lane.connection.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link JmxMetricsSink}.
+ * Packet statistics are keyed by packet ID, request statistics by destination.
+ */
+public interface ConnectionMetricsMXBean {
+
+    Map<String, Long> getPacketsSent();
+
+    Map<String, Long> getBytesSent();
+
+    Map<String, Long> getPacketsReceived();
+
+    Map<String, Long> getBytesReceived();
+
+    Map<String, Double> getTransitMeanMillis();
+
+    Map<String, Long> getTransitP99Millis();
+
+    Map<String, Long> getRequestsCompleted();
+
+    Map<String, Long> getRequestsTimedOut();
+
+    Map<String, Double> getRequestTimeoutRate();
+
+    Map<String, Double> getRoundTripMeanMillis();
+
+    Map<String, Long> getRoundTripP50Millis();
+
+    Map<String, Long> getRoundTripP99Millis();
+
+    Map<String, Long> getRoundTripMaxMillis();
+
+    Map<String, Integer> getInFlightRequests();
+
+    void reset();
+
+}
@@ -0,0 +1,187 @@
+package com.lahuca.lane.connection.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The default {@link MetricsSink}: it aggregates the telemetry in memory and exposes it as an MXBean
+ * under {@code com.lahuca.lane:type=Connection,name=<name>}.
+ */
+public class JmxMetricsSink implements MetricsSink, ConnectionMetricsMXBean {
+
+    private static class PacketStats {
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LatencyHistogram transit = new LatencyHistogram();
+    }
+
+    private static class RequestStats {
+        private final LongAdder timedOut = new LongAdder();
+        private final LatencyHistogram roundTrip = new LatencyHistogram();
+    }
+
+    private final ObjectName objectName;
+    private final ConcurrentHashMap<String, PacketStats> packets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, RequestStats> requests = new ConcurrentHashMap<>();
+    private volatile Supplier<Map<String, Integer>> inFlight = Collections::emptyMap;
+
+    /**
+     * Creates the sink and registers it to the platform MBean server.
+     * When an MBean with the same name already exists, it is replaced.
+     * @param name the name of the connection, for example the ID of the instance
+     */
+    public JmxMetricsSink(String name) {
+        ObjectName objectName = null;
+        try {
+            objectName = new ObjectName("com.lahuca.lane", new Hashtable<>(Map.of("type", "Connection", "name", ObjectName.quote(name))));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        this.objectName = objectName;
+    }
+
+    /**
+     * Unregisters this sink from the platform MBean server.
+     */
+    public void unregister() {
+        if(objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ignored) {
+        }
+    }
+
+    private static String name(String connection) {
+        return connection == null ? CONTROLLER : connection;
+    }
+
+    @Override
+    public void packetSent(String packetType, String destination, int bytes) {
+        PacketStats stats = packets.computeIfAbsent(packetType, k -> new PacketStats());
+        stats.sent.increment();
+        stats.bytesSent.add(bytes);
+    }
+
+    @Override
+    public void packetReceived(String packetType, String source, int bytes, long transitMillis) {
+        PacketStats stats = packets.computeIfAbsent(packetType, k -> new PacketStats());
+        stats.received.increment();
+        stats.bytesReceived.add(bytes);
+        stats.transit.record(transitMillis);
+    }
+
+    @Override
+    public void requestCompleted(String destination, long roundTripMillis) {
+        requests.computeIfAbsent(name(destination), k -> new RequestStats()).roundTrip.record(roundTripMillis);
+    }
+
+    @Override
+    public void requestTimedOut(String destination, long waitedMillis) {
+        requests.computeIfAbsent(name(destination), k -> new RequestStats()).timedOut.increment();
+    }
+
+    @Override
+    public void bindInFlightRequests(Supplier<Map<String, Integer>> inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    private static <S, V> Map<String, V> collect(Map<String, S> map, Function<S, V> value) {
+        TreeMap<String, V> result = new TreeMap<>();
+        map.forEach((key, stats) -> result.put(key, value.apply(stats)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getPacketsSent() {
+        return collect(packets, stats -> stats.sent.sum());
+    }
+
+    @Override
+    public Map<String, Long> getBytesSent() {
+        return collect(packets, stats -> stats.bytesSent.sum());
+    }
+
+    @Override
+    public Map<String, Long> getPacketsReceived() {
+        return collect(packets, stats -> stats.received.sum());
+    }
+
+    @Override
+    public Map<String, Long> getBytesReceived() {
+        return collect(packets, stats -> stats.bytesReceived.sum());
+    }
+
+    @Override
+    public Map<String, Double> getTransitMeanMillis() {
+        return collect(packets, stats -> stats.transit.getMean());
+    }
+
+    @Override
+    public Map<String, Long> getTransitP99Millis() {
+        return collect(packets, stats -> stats.transit.getQuantile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getRequestsCompleted() {
+        return collect(requests, stats -> stats.roundTrip.getCount());
+    }
+
+    @Override
+    public Map<String, Long> getRequestsTimedOut() {
+        return collect(requests, stats -> stats.timedOut.sum());
+    }
+
+    @Override
+    public Map<String, Double> getRequestTimeoutRate() {
+        return collect(requests, stats -> {
+            long timedOut = stats.timedOut.sum();
+            long total = timedOut + stats.roundTrip.getCount();
+            return total == 0 ? 0 : (double) timedOut / total;
+        });
+    }
+
+    @Override
+    public Map<String, Double> getRoundTripMeanMillis() {
+        return collect(requests, stats -> stats.roundTrip.getMean());
+    }
+
+    @Override
+    public Map<String, Long> getRoundTripP50Millis() {
+        return collect(requests, stats -> stats.roundTrip.getQuantile(0.5));
+    }
+
+    @Override
+    public Map<String, Long> getRoundTripP99Millis() {
+        return collect(requests, stats -> stats.roundTrip.getQuantile(0.99));
+    }
+
+    @Override
+    public Map<String, Long> getRoundTripMaxMillis() {
+        return collect(requests, stats -> stats.roundTrip.getMax());
+    }
+
+    @Override
+    public Map<String, Integer> getInFlightRequests() {
+        return new TreeMap<>(inFlight.get());
+    }
+
+    @Override
+    public void reset() {
+        packets.clear();
+        requests.clear();
+    }
+
+}
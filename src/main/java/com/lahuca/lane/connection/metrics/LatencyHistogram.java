@@ -0,0 +1,71 @@
+package com.lahuca.lane.connection.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of millisecond latencies with fixed, roughly exponential buckets.
+ * Quantiles are estimated by the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, Long.MAX_VALUE};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records the given value, negative values (caused by clock differences) are recorded as 0.
+     * @param millis the value in milliseconds
+     */
+    public void record(long millis) {
+        if(millis < 0) millis = 0;
+        int index = 0;
+        while(millis > BOUNDS[index]) index++;
+        buckets.incrementAndGet(index);
+        count.increment();
+        sum.add(millis);
+        max.accumulate(millis);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates the given quantile.
+     * @param quantile the quantile, between 0 and 1
+     * @return the upper bound of the bucket the quantile falls in, capped by the maximum recorded value
+     */
+    public long getQuantile(double quantile) {
+        long total = count.sum();
+        if(total == 0) return 0;
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for(int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if(seen >= rank) return Math.min(BOUNDS[i], getMax());
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for(int i = 0; i < BOUNDS.length; i++) buckets.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+}
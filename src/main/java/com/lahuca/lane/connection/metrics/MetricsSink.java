@@ -0,0 +1,66 @@
+package com.lahuca.lane.connection.metrics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Receives the telemetry of a connection: the packets that go over it and the requests that are made with it.
+ * All methods are called on the threads of the connection, so implementations should be cheap and thread-safe.
+ * By default, every event is ignored; see {@link JmxMetricsSink} for the default implementation that aggregates them.
+ */
+public interface MetricsSink {
+
+    /**
+     * The sink that ignores everything.
+     */
+    MetricsSink NONE = new MetricsSink() {
+    };
+
+    /**
+     * The name used for the controller as source or destination.
+     */
+    String CONTROLLER = "controller";
+
+    /**
+     * Called when a packet has been sent.
+     * @param packetType the packet ID of the packet
+     * @param destination the destination of the packet, null meaning the controller
+     * @param bytes the number of bytes written, 0 when the packet has not been serialized
+     */
+    default void packetSent(String packetType, String destination, int bytes) {
+    }
+
+    /**
+     * Called when a packet has been received, before it is handled.
+     * @param packetType the packet ID of the packet
+     * @param source the sender of the packet, null meaning the controller
+     * @param bytes the number of bytes read, 0 when the packet has not been serialized
+     * @param transitMillis the number of milliseconds between it being sent and received
+     */
+    default void packetReceived(String packetType, String source, int bytes, long transitMillis) {
+    }
+
+    /**
+     * Called when a response to a request has been received.
+     * @param destination the destination of the request, null meaning the controller
+     * @param roundTripMillis the number of milliseconds between scheduling the request and retrieving its response
+     */
+    default void requestCompleted(String destination, long roundTripMillis) {
+    }
+
+    /**
+     * Called when a request has timed out.
+     * @param destination the destination of the request, null meaning the controller
+     * @param waitedMillis the number of milliseconds the request has waited for its response
+     */
+    default void requestTimedOut(String destination, long waitedMillis) {
+    }
+
+    /**
+     * Binds the gauge of the requests that are waiting for their response, grouped by destination.
+     * @param inFlight the supplier of the number of in-flight requests per destination
+     */
+    default void bindInFlightRequests(Supplier<Map<String, Integer>> inFlight) {
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.lahuca.lane.connection.packet;
+
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.RequestPacket;
+import com.lahuca.lane.connection.request.ResponseError;
+import com.lahuca.lane.connection.request.ResponsePacket;
+import com.lahuca.lane.records.GameRecord;
+import com.lahuca.lane.records.InstanceRecord;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * The packets to resynchronize the complete state of an instance with the controller at once, after the instance has reconnected.
+ * The controller applies the request atomically and answers with the corrections the instance has to apply.
+ */
+public class InstanceResyncPacket {
+
+    /**
+     * Packet with the complete state of the instance.
+     * The players are contained in the player sets of the instance record and game records.
+     * Only from the instance.
+     * @param requestId the request ID
+     * @param generation the generation of the resynchronization, which increases with every resynchronization of the instance;
+     *                   the controller ignores resynchronizations that are older than the one it has applied
+     * @param record the instance record
+     * @param games the records of all games on the instance
+     */
+    public record Request(long requestId, long generation, InstanceRecord record, ArrayList<GameRecord> games) implements RequestPacket {
+
+        public static final String packetId = "instanceResync.request";
+
+        static {
+            Packet.registerPacket(packetId, Request.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public long getRequestId() {
+            return requestId;
+        }
+
+    }
+
+    /**
+     * The corrections that the instance has to apply after the resynchronization.
+     * @param rejectedGames the IDs of the games that the controller did not accept, these are to be removed from the instance
+     * @param clearedPlayers the UUIDs of the players that the controller still had on the instance or one of its games, but that the instance did not have;
+     *                       the controller has removed them from the instance or game
+     */
+    public record Corrections(ArrayList<Long> rejectedGames, ArrayList<UUID> clearedPlayers) {
+
+    }
+
+    /**
+     * Packet with the corrections to the resynchronized state.
+     * Only from the controller.
+     * @param requestId the request ID
+     * @param error the error of the resynchronization
+     * @param corrections the corrections to apply
+     */
+    public record Response(long requestId, ResponseError error, Corrections corrections) implements ResponsePacket<Corrections> {
+
+        public static final String packetId = "instanceResync.response";
+
+        static {
+            Packet.registerPacket(packetId, Response.class);
+        }
+
+        public Response(long requestId, ResponseError error) {
+            this(requestId, error, null);
+        }
+
+        public Response(long requestId, Corrections corrections) {
+            this(requestId, null, corrections);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public long getRequestId() {
+            return requestId;
+        }
+
+        @Override
+        public ResponseError getError() {
+            return error;
+        }
+
+        @Override
+        public Corrections getData() {
+            return corrections;
+        }
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.lahuca.lane.connection.packet.connection;
+
+import com.lahuca.lane.connection.Packet;
+
+/**
+ * Packet that only carries the acknowledgement of the received frames of a session.
+ * It is sent when nothing else has been sent for a while, or when many received frames have not been acknowledged yet.
+ */
+public record ConnectionAckPacket() implements Packet, ConnectionPacket {
+
+    public static final String packetId = "connectionAck";
+
+    static {
+        Packet.registerPacket(packetId, ConnectionAckPacket.class);
+    }
+
+    @Override
+    public String getPacketId() {
+        return packetId;
+    }
+
+}
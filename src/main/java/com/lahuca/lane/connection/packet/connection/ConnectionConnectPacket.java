@@ -17,7 +17,14 @@ package com.lahuca.lane.connection.packet.connection;
 
 import com.lahuca.lane.connection.Packet;
 
-public record ConnectionConnectPacket(String clientId) implements Packet, ConnectionPacket {
+/**
+ * The first packet sent by a client, announcing its ID.
+ * When it holds a session token of a previous connection, it asks to resume that session.
+ * @param clientId the ID of the client
+ * @param sessionToken the token of the session to resume, null for a new session
+ * @param lastReceived the highest sequence number the client has received within the session to resume
+ */
+public record ConnectionConnectPacket(String clientId, String sessionToken, long lastReceived) implements Packet, ConnectionPacket {
 
 	public static final String packetId = "connectionConnect";
 
@@ -25,10 +32,13 @@ public record ConnectionConnectPacket(String clientId) implements Packet, Connec
 		Packet.registerPacket(packetId, ConnectionConnectPacket.class);
 	}
 
+	public ConnectionConnectPacket(String clientId) {
+		this(clientId, null, 0);
+	}
+
 	@Override
 	public String getPacketId() {
 		return packetId;
 	}
 
-
 }
@@ -0,0 +1,25 @@
+package com.lahuca.lane.connection.packet.connection;
+
+import com.lahuca.lane.connection.Packet;
+
+/**
+ * Sent by the controller in response to {@link ConnectionConnectPacket}, it announces the session of the connection.
+ * When the session is resumed, both sides resend their frames after the sequence number the other side has received.
+ * @param sessionToken the token of the session
+ * @param lastReceived the highest sequence number the controller has received within the session
+ * @param resumed whether the requested session has been resumed, otherwise a new session has been started
+ */
+public record ConnectionSessionPacket(String sessionToken, long lastReceived, boolean resumed) implements Packet, ConnectionPacket {
+
+    public static final String packetId = "connectionSession";
+
+    static {
+        Packet.registerPacket(packetId, ConnectionSessionPacket.class);
+    }
+
+    @Override
+    public String getPacketId() {
+        return packetId;
+    }
+
+}
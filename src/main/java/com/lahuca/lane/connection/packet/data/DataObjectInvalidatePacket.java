@@ -0,0 +1,25 @@
+package com.lahuca.lane.connection.packet.data;
+
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.data.DataObjectId;
+
+/**
+ * A packet that tells an instance that a data object it has cached has been changed, so that it is read again.
+ * It is only sent to the instances that have read the data object with a cache duration, see {@link DataObjectReadPacket#cacheDuration()}.
+ * When the ID of the data object ID is null, all data objects of its relational ID have been changed.
+ * @param id the id of the changed data object
+ */
+public record DataObjectInvalidatePacket(DataObjectId id) implements Packet {
+
+    public static final String packetId = "dataObjectInvalidate";
+
+    static {
+        Packet.registerPacket(packetId, DataObjectInvalidatePacket.class);
+    }
+
+    @Override
+    public String getPacketId() {
+        return packetId;
+    }
+
+}
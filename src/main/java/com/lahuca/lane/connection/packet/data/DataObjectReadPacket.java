@@ -25,8 +25,9 @@ import com.lahuca.lane.data.PermissionKey;
  * @param requestId the request id to give the response to
  * @param id the id of the requested data object
  * @param permissionKey the individual permission key
+ * @param cacheDuration the number of milliseconds the result is cached, during which changes are sent with a {@link DataObjectInvalidatePacket}; 0 if it is not cached
  */
-public record DataObjectReadPacket(long requestId, DataObjectId id, PermissionKey permissionKey) implements RequestPacket {
+public record DataObjectReadPacket(long requestId, DataObjectId id, PermissionKey permissionKey, long cacheDuration) implements RequestPacket {
 
 	public static final String packetId = "dataObjectRead";
 
@@ -34,6 +35,10 @@ public record DataObjectReadPacket(long requestId, DataObjectId id, PermissionKe
 		Packet.registerPacket(packetId, DataObjectReadPacket.class);
 	}
 
+	public DataObjectReadPacket(long requestId, DataObjectId id, PermissionKey permissionKey) {
+		this(requestId, id, permissionKey, 0);
+	}
+
 	@Override
 	public String getPacketId() {
 		return packetId;
@@ -0,0 +1,40 @@
+package com.lahuca.lane.connection.packet.data;
+
+import com.google.gson.JsonElement;
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.RequestPacket;
+import com.lahuca.lane.data.DataMutation;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.PermissionKey;
+
+/**
+ * A packet that tells the controller to update a data object, the update is executed by the controller in a single request.
+ * Either the mutation or the name of an updater that has been registered on the controller is given.
+ * The response contains the data object after the update, or null when it did not exist.
+ * @param requestId the request id to give the response to
+ * @param id the id of the data object to update
+ * @param permissionKey the individual permission key
+ * @param mutation the mutation to apply, null if the updater is used
+ * @param updater the name of the registered updater to run, null if the mutation is used
+ * @param argument the argument given to the updater, can be null
+ */
+public record DataObjectUpdatePacket(long requestId, DataObjectId id, PermissionKey permissionKey, DataMutation mutation,
+                                     String updater, JsonElement argument) implements RequestPacket {
+
+	public static final String packetId = "dataObjectUpdate";
+
+	static {
+		Packet.registerPacket(packetId, DataObjectUpdatePacket.class);
+	}
+
+	@Override
+	public String getPacketId() {
+		return packetId;
+	}
+
+	@Override
+	public long getRequestId() {
+		return requestId;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.lahuca.lane.connection.packet.data;
+
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.packet.replicated.ReplicatedSubscribePacket;
+import com.lahuca.lane.connection.packet.replicated.ReplicatedUnsubscribePacket;
+import com.lahuca.lane.connection.packet.replicated.ReplicatedUpdatePacket;
+import com.lahuca.lane.data.watch.DataObjectChange;
+import com.lahuca.lane.data.watch.DataWatchKey;
+
+/**
+ * The packets to watch data objects that are changed through the controller.
+ * An instance subscribes to a watch key with Subscribe and stops with Unsubscribe,
+ * after which the controller sends a Change for every coalesced change of the watched data objects.
+ */
+public class DataObjectWatchPacket {
+
+    public record Subscribe(DataWatchKey key) implements Packet, ReplicatedSubscribePacket<DataWatchKey> {
+
+        public static final String packetId = "dataObjectWatch.subscribe";
+
+        static {
+            Packet.registerPacket(packetId, Subscribe.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public DataWatchKey getReplicationId() {
+            return key;
+        }
+
+    }
+
+    public record Unsubscribe(DataWatchKey key) implements Packet, ReplicatedUnsubscribePacket<DataWatchKey> {
+
+        public static final String packetId = "dataObjectWatch.unsubscribe";
+
+        static {
+            Packet.registerPacket(packetId, Unsubscribe.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public DataWatchKey getReplicationId() {
+            return key;
+        }
+
+    }
+
+    public record Change(DataWatchKey key, DataObjectChange value) implements Packet, ReplicatedUpdatePacket<DataWatchKey, DataObjectChange> {
+
+        public static final String packetId = "dataObjectWatch.change";
+
+        static {
+            Packet.registerPacket(packetId, Change.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public DataWatchKey getReplicationId() {
+            return key;
+        }
+
+    }
+
+}
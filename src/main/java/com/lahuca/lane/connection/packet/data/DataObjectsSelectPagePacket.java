@@ -0,0 +1,32 @@
+package com.lahuca.lane.connection.packet.data;
+
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.RequestPacket;
+import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.selector.DataSelector;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Selects a page of data objects from the data manager based on the given selector.
+ * @param permissionKey the permission key to use while reading
+ * @param selector the selector to use, its continuation determines the page
+ */
+public record DataObjectsSelectPagePacket(long requestId, @NotNull PermissionKey permissionKey, @NotNull DataSelector selector) implements RequestPacket {
+
+    public static final String packetId = "dataObjectsSelectPage";
+
+    static {
+        Packet.registerPacket(packetId, DataObjectsSelectPagePacket.class);
+    }
+
+    @Override
+    public String getPacketId() {
+        return packetId;
+    }
+
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.lahuca.lane.connection.packet.data;
+
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.RequestPacket;
+import com.lahuca.lane.connection.request.ResponseError;
+import com.lahuca.lane.connection.request.ResponsePacket;
+import com.lahuca.lane.data.leaderboard.LeaderboardEntry;
+
+import java.util.ArrayList;
+
+/**
+ * The packets to query the leaderboards that are held by the controller.
+ * Top retrieves the best entries, Rank retrieves the entry of a relational ID and Around retrieves the entries around it.
+ * All of them are answered with a Response, which contains no entries when the relational ID is not ranked.
+ * When the leaderboard is unknown, the response has the error {@link ResponseError#INVALID_ID}.
+ */
+public class LeaderboardPacket {
+
+    public record Top(long requestId, String leaderboard, int count) implements RequestPacket {
+
+        public static final String packetId = "leaderboardPacket.top";
+
+        static {
+            Packet.registerPacket(packetId, Top.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public long getRequestId() {
+            return requestId;
+        }
+
+    }
+
+    public record Rank(long requestId, String leaderboard, String relationalId) implements RequestPacket {
+
+        public static final String packetId = "leaderboardPacket.rank";
+
+        static {
+            Packet.registerPacket(packetId, Rank.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public long getRequestId() {
+            return requestId;
+        }
+
+    }
+
+    public record Around(long requestId, String leaderboard, String relationalId, int radius) implements RequestPacket {
+
+        public static final String packetId = "leaderboardPacket.around";
+
+        static {
+            Packet.registerPacket(packetId, Around.class);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public long getRequestId() {
+            return requestId;
+        }
+
+    }
+
+    public record Response(long requestId, ResponseError error, ArrayList<LeaderboardEntry> data) implements ResponsePacket<ArrayList<LeaderboardEntry>> {
+
+        public static final String packetId = "leaderboardPacket.response";
+
+        static {
+            Packet.registerPacket(packetId, Response.class);
+        }
+
+        public Response(long requestId, ArrayList<LeaderboardEntry> data) {
+            this(requestId, null, data);
+        }
+
+        public Response(long requestId, ResponseError error) {
+            this(requestId, error, null);
+        }
+
+        @Override
+        public String getPacketId() {
+            return packetId;
+        }
+
+        @Override
+        public long getRequestId() {
+            return requestId;
+        }
+
+        @Override
+        public ResponseError getError() {
+            return error;
+        }
+
+        @Override
+        public ArrayList<LeaderboardEntry> getData() {
+            return data;
+        }
+
+    }
+
+}
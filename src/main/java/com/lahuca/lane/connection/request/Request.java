@@ -31,13 +31,16 @@ import java.util.function.Function;
  */
 public class Request<T> {
 
-    private static final int DEFAULT_TIMEOUT_SECONDS = 10;
+    public static final int DEFAULT_TIMEOUT_SECONDS = 10;
 
     private final long requestId;
     private final long scheduledAt;
     private final Function<Object, T> resultParser;
     private CompletableFuture<T> futureResult;
-    private int timeoutSeconds;
+    private long timeoutMillis;
+    private volatile boolean adaptiveTimeout;
+    private String destination;
+    private String packetType;
 
     /**
      * This constructor creates an already successfully completed request.
@@ -79,7 +82,7 @@ public class Request<T> {
         this.resultParser = (result) -> (T) result;
         this.futureResult = futureResult;
         if (timeoutSeconds <= 0) timeoutSeconds = 1;
-        this.timeoutSeconds = timeoutSeconds;
+        this.timeoutMillis = timeoutSeconds * 1000L;
     }
 
     public Request(long requestId, Function<Object, T> resultParser, CompletableFuture<T> futureResult) {
@@ -100,7 +103,7 @@ public class Request<T> {
         this.resultParser = resultParser;
         this.futureResult = futureResult;
         if (timeoutSeconds <= 0) timeoutSeconds = 1;
-        this.timeoutSeconds = timeoutSeconds;
+        this.timeoutMillis = timeoutSeconds * 1000L;
     }
 
     /**
@@ -192,12 +195,12 @@ public class Request<T> {
     }
 
     /**
-     * Gets the number of seconds this request will time out after it has been scheduled.
+     * Gets the number of seconds this request will time out after it has been scheduled, rounded up.
      *
      * @return The timeout seconds.
      */
     public int getTimeoutSeconds() {
-        return timeoutSeconds;
+        return (int) ((timeoutMillis + 999) / 1000);
     }
 
     /**
@@ -208,7 +211,85 @@ public class Request<T> {
      */
     public void setTimeoutSeconds(int timeoutSeconds) {
         if (timeoutSeconds <= 0) return;
-        this.timeoutSeconds = timeoutSeconds;
+        setTimeoutMillis(timeoutSeconds * 1000L);
+    }
+
+    /**
+     * Gets the number of milliseconds this request will time out after it has been scheduled.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Sets the number of milliseconds this request will time out after it has been scheduled.
+     * This disables the adaptive timeout.
+     *
+     * @param timeoutMillis The timeout in milliseconds.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis <= 0) return;
+        this.timeoutMillis = timeoutMillis;
+        this.adaptiveTimeout = false;
+    }
+
+    /**
+     * Returns whether the timeout of this request follows the measured round-trip time of its destination and packet type,
+     * instead of its fixed timeout. This is disabled by default, as the handling of writes and storage queries legitimately takes long.
+     * Hedged requests and keep alives use it, so that an unresponsive destination is noticed after a few round trips.
+     *
+     * @return True when the timeout is adaptive.
+     */
+    public boolean isAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+    /**
+     * Sets whether the timeout of this request follows the measured round-trip time of its destination and packet type.
+     * Only requests whose handling time is predictable should opt in to this.
+     *
+     * @param adaptiveTimeout True when the timeout is adaptive.
+     */
+    public void setAdaptiveTimeout(boolean adaptiveTimeout) {
+        this.adaptiveTimeout = adaptiveTimeout;
+    }
+
+    /**
+     * Gets the destination this request has been sent to, null meaning the controller.
+     *
+     * @return The destination.
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Sets the destination this request has been sent to, null meaning the controller.
+     *
+     * @param destination The destination.
+     */
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    /**
+     * Gets the packet ID of the request packet that has been sent, by which its round-trip time is measured.
+     *
+     * @return The packet ID, or null when it is unknown.
+     */
+    public String getPacketType() {
+        return packetType;
+    }
+
+    /**
+     * Sets the packet ID of the request packet that has been sent, by which its round-trip time is measured.
+     *
+     * @param packetType The packet ID.
+     */
+    public void setPacketType(String packetType) {
+        this.packetType = packetType;
     }
 
     /**
@@ -217,8 +298,17 @@ public class Request<T> {
      * @return True when the request is timed out, false otherwise.
      */
     public boolean isTimedOut() {
-        long timeOutTime = getScheduledAt() + getTimeoutSeconds() * 1000L;
-        return System.currentTimeMillis() >= timeOutTime;
+        return isTimedOut(timeoutMillis);
+    }
+
+    /**
+     * Returns whether this request is timed out for the given timeout.
+     *
+     * @param timeoutMillis The timeout in milliseconds.
+     * @return True when the request is timed out, false otherwise.
+     */
+    public boolean isTimedOut(long timeoutMillis) {
+        return System.currentTimeMillis() >= getScheduledAt() + timeoutMillis;
     }
 
 }
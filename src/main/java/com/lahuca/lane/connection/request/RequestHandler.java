@@ -15,7 +15,13 @@
  */
 package com.lahuca.lane.connection.request;
 
+import com.lahuca.lane.connection.metrics.MetricsSink;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -28,6 +34,11 @@ public class RequestHandler {
     private int computeTimeoutSeconds;
     private ScheduledFuture<?> scheduledComputeTimeout; // TODO Maybe AtomicReference?
     private final ConcurrentHashMap<Long, Request<?>> requests = new ConcurrentHashMap<>();
+    private final AtomicLong lastRequestId = new AtomicLong();
+    private volatile MetricsSink metrics = MetricsSink.NONE;
+    private final ConcurrentHashMap<String, RttEstimator> rttEstimators = new ConcurrentHashMap<>();
+    private long minimumAdaptiveTimeoutMillis = 3000;
+    private long maximumAdaptiveTimeoutMillis = Request.DEFAULT_TIMEOUT_SECONDS * 1000L;
 
     public RequestHandler() {
         this(1);
@@ -48,6 +59,70 @@ public class RequestHandler {
         return scheduledExecutor;
     }
 
+    /**
+     * Returns the sink that receives the telemetry of this connection.
+     * @return the metrics sink
+     */
+    public MetricsSink getMetricsSink() {
+        return metrics;
+    }
+
+    /**
+     * Sets the sink that receives the telemetry of this connection, and binds the in-flight requests gauge to it.
+     * @param metrics the metrics sink, {@link MetricsSink#NONE} to disable telemetry
+     */
+    public void setMetricsSink(MetricsSink metrics) {
+        Objects.requireNonNull(metrics, "metrics cannot be null");
+        this.metrics = metrics;
+        metrics.bindInFlightRequests(this::getInFlightRequests);
+    }
+
+    /**
+     * Returns the number of requests that are waiting for their response, grouped by their destination.
+     * @return the number of in-flight requests per destination
+     */
+    public Map<String, Integer> getInFlightRequests() {
+        HashMap<String, Integer> inFlight = new HashMap<>();
+        requests.values().forEach(request -> inFlight.merge(request.getDestination() == null ? MetricsSink.CONTROLLER : request.getDestination(), 1, Integer::sum));
+        return inFlight;
+    }
+
+    /**
+     * Returns the round-trip time estimator of the given destination and packet type, it is fed by the completed requests.
+     * Every packet type is measured on its own, as a read of a cached record is answered much faster than a query.
+     * @param destination the destination, null meaning the controller
+     * @param packetType the packet ID of the request packet, null when it is unknown
+     * @return the estimator
+     */
+    public RttEstimator getRttEstimator(String destination, String packetType) {
+        String key = (destination == null ? MetricsSink.CONTROLLER : destination) + "/" + packetType;
+        return rttEstimators.computeIfAbsent(key, k -> new RttEstimator(minimumAdaptiveTimeoutMillis, maximumAdaptiveTimeoutMillis));
+    }
+
+    /**
+     * Returns the delay after which an idempotent request to the given destination is sent again when it has not been answered yet.
+     * @param destination the destination, null meaning the controller
+     * @param packetType the packet ID of the request packet
+     * @return the delay in milliseconds, -1 when requests should not be hedged
+     */
+    public long getHedgeDelayMillis(String destination, String packetType) {
+        if(packetType == null) return -1;
+        return getRttEstimator(destination, packetType).getHedgeDelayMillis();
+    }
+
+    /**
+     * Sets the bounds of the adaptive timeout of the requests that use it, like hedged requests and keep alives, see {@link Request#setAdaptiveTimeout(boolean)}.
+     * The lower bound protects requests whose handling takes longer than the transport round trip.
+     * This only applies to destinations and packet types that have not been measured yet.
+     * @param minimumMillis the minimum timeout in milliseconds
+     * @param maximumMillis the maximum timeout in milliseconds, used as long as there are no measurements
+     */
+    public void setAdaptiveTimeoutBounds(long minimumMillis, long maximumMillis) {
+        if(minimumMillis <= 0 || maximumMillis < minimumMillis) return;
+        this.minimumAdaptiveTimeoutMillis = minimumMillis;
+        this.maximumAdaptiveTimeoutMillis = maximumMillis;
+    }
+
     /**
      * Gets the number of seconds of how often the requests are checked for their timeouts.
      * @return The number of seconds.
@@ -128,9 +203,12 @@ public class RequestHandler {
      */
     private void removeTimedOutRequests() {
         requests.forEach((id, request) -> {
-            if(request.isTimedOut()) {
+            long timeoutMillis = request.isAdaptiveTimeout() ? getRttEstimator(request.getDestination(), request.getPacketType()).getTimeoutMillis() : request.getTimeoutMillis();
+            if(request.isTimedOut(timeoutMillis)) {
                 request.getFutureResult().cancel(true);
-                requests.remove(id, request);
+                if(requests.remove(id, request)) {
+                    metrics.requestTimedOut(request.getDestination(), System.currentTimeMillis() - request.getScheduledAt());
+                }
             }
         });
     }
@@ -146,12 +224,25 @@ public class RequestHandler {
     protected boolean response(long requestId, ResponsePacket<Object> response) {
         Request<?> request = requests.remove(requestId);
         if(request == null) return false;
+        long roundTrip = System.currentTimeMillis() - request.getScheduledAt();
+        if(request.getPacketType() != null) getRttEstimator(request.getDestination(), request.getPacketType()).sample(roundTrip);
+        metrics.requestCompleted(request.getDestination(), roundTrip);
         return request.parsedComplete(response);
     }
 
+    /**
+     * Returns a new request ID, which is the current time in milliseconds unless that has already been used.
+     * Following IDs within the same millisecond are counted up, so that requests are not limited to one per millisecond.
+     * As the IDs stay close to the current time, late responses to requests of a previous run do not match a new request.
+     * @return the request ID
+     */
+    private long nextRequestId() {
+        return lastRequestId.updateAndGet(previous -> Math.max(previous + 1, System.currentTimeMillis()));
+    }
+
     /**
      * Schedules a new request in this request handler.
-     * Its response is to be waited for, by default, 3 seconds.
+     * Its response is to be waited for the default of {@value Request#DEFAULT_TIMEOUT_SECONDS} seconds.
      * This method does not send the request itself over the connection.
      * Any generic results are cast by default.
      * @return the request with the future and request ID bundled within it.
@@ -163,7 +254,7 @@ public class RequestHandler {
         long id;
         Request<T> request;
         do {
-            id = System.currentTimeMillis();
+            id = nextRequestId();
             request = new Request<>(id, future);
         } while(requests.putIfAbsent(id, request) != null);
         requests.put(request.getRequestId(), request);
@@ -184,7 +275,7 @@ public class RequestHandler {
         long id;
         Request<T> request;
         do {
-            id = System.currentTimeMillis();
+            id = nextRequestId();
             request = new Request<>(id, future, timeoutSeconds);
         } while(requests.putIfAbsent(id, request) != null);
         requests.replace(request.getRequestId(), request);
@@ -193,7 +284,7 @@ public class RequestHandler {
 
     /**
      * Schedules a new request in this request handler.
-     * Its response is to be waited for, by default 1 second.
+     * Its response is to be waited for the default of {@value Request#DEFAULT_TIMEOUT_SECONDS} seconds.
      * This method does not send the request itself over the connection.
      * Any generic results are cast by default.
      * @param resultParser the generic to specific result parser.
@@ -205,7 +296,7 @@ public class RequestHandler {
         long id;
         Request<T> request;
         do {
-            id = System.currentTimeMillis();
+            id = nextRequestId();
             request = new Request<>(id, resultParser, future);
         } while(requests.putIfAbsent(id, request) != null);
         requests.replace(request.getRequestId(), request);
@@ -227,7 +318,7 @@ public class RequestHandler {
         long id;
         Request<T> request;
         do {
-            id = System.currentTimeMillis();
+            id = nextRequestId();
             request = new Request<>(id, resultParser, future, timeoutSeconds);
         } while(requests.putIfAbsent(id, request) != null);
         requests.replace(request.getRequestId(), request);
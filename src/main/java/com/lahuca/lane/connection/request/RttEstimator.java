@@ -0,0 +1,87 @@
+package com.lahuca.lane.connection.request;
+
+/**
+ * Estimates the round-trip time of a connection, the same way TCP does (RFC 6298).
+ * It keeps a smoothed round-trip time and its variation, from which adaptive timeouts and hedge delays are derived.
+ * It is fed by the completed requests of one packet type to one destination.
+ */
+public class RttEstimator {
+
+    private static final double ALPHA = 1 / 8d;
+    private static final double BETA = 1 / 4d;
+    /**
+     * The lowest hedge delay, below this the duplicate requests would cost more than the latency they save.
+     */
+    public static final long MINIMUM_HEDGE_DELAY_MILLIS = 50;
+    /**
+     * The number of samples needed before requests are hedged, so that a few fast first responses do not cause hedging.
+     */
+    public static final int MINIMUM_HEDGE_SAMPLES = 8;
+
+    private final long minimumTimeoutMillis;
+    private final long maximumTimeoutMillis;
+    private double smoothed = -1;
+    private double variation = 0;
+    private long samples = 0;
+
+    /**
+     * Constructs a new estimator.
+     * @param minimumTimeoutMillis the lowest timeout this estimator gives
+     * @param maximumTimeoutMillis the highest timeout this estimator gives, also used when there are no samples yet
+     */
+    public RttEstimator(long minimumTimeoutMillis, long maximumTimeoutMillis) {
+        this.minimumTimeoutMillis = minimumTimeoutMillis;
+        this.maximumTimeoutMillis = Math.max(minimumTimeoutMillis, maximumTimeoutMillis);
+    }
+
+    /**
+     * Adds a measured round-trip time.
+     * @param rttMillis the round-trip time in milliseconds
+     */
+    public synchronized void sample(long rttMillis) {
+        if(rttMillis < 0) return;
+        if(smoothed < 0) {
+            smoothed = rttMillis;
+            variation = rttMillis / 2d;
+        } else {
+            variation = (1 - BETA) * variation + BETA * Math.abs(smoothed - rttMillis);
+            smoothed = (1 - ALPHA) * smoothed + ALPHA * rttMillis;
+        }
+        samples++;
+    }
+
+    public synchronized boolean hasSamples() {
+        return samples > 0;
+    }
+
+    public synchronized double getSmoothedMillis() {
+        return Math.max(smoothed, 0);
+    }
+
+    public synchronized double getVariationMillis() {
+        return variation;
+    }
+
+    /**
+     * Returns the timeout to use for a request without an explicit timeout: the smoothed round-trip time plus four times its variation,
+     * bounded by the minimum and maximum timeout.
+     * @return the timeout in milliseconds
+     */
+    public synchronized long getTimeoutMillis() {
+        if(samples == 0) return maximumTimeoutMillis;
+        long timeout = (long) Math.ceil(smoothed + 4 * variation);
+        return Math.min(maximumTimeoutMillis, Math.max(minimumTimeoutMillis, timeout));
+    }
+
+    /**
+     * Returns the delay after which an idempotent request should be sent again when no response has been received yet.
+     * That is the smoothed round-trip time plus two times its variation, roughly the 95th percentile, but at least {@value #MINIMUM_HEDGE_DELAY_MILLIS} milliseconds.
+     * @return the delay in milliseconds, or -1 when there are not enough samples yet
+     */
+    public synchronized long getHedgeDelayMillis() {
+        if(samples < MINIMUM_HEDGE_SAMPLES) return -1;
+        long delay = (long) Math.ceil(smoothed + 2 * variation);
+        return Math.min(getTimeoutMillis() / 2, Math.max(delay, MINIMUM_HEDGE_DELAY_MILLIS));
+    }
+
+}
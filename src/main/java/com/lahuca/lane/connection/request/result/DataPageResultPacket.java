@@ -0,0 +1,59 @@
+package com.lahuca.lane.connection.request.result;
+
+import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.request.ResponseError;
+import com.lahuca.lane.connection.request.ResponsePacket;
+import com.lahuca.lane.data.selector.DataPage;
+
+/**
+ * Explicitly sends the result to be a {@link DataPage}, so that its data objects are not parsed to generic types.
+ * @param requestId the request id of the original request.
+ * @param error the error.
+ * @param data the data.
+ */
+public record DataPageResultPacket(long requestId, ResponseError error, DataPage data) implements ResponsePacket<DataPage> {
+
+    public static final String packetId = "dataPageResult";
+
+    static {
+        Packet.registerPacket(packetId, DataPageResultPacket.class);
+    }
+
+    /**
+     * Constructor for a result that is successful.
+     * @param requestId the request ID
+     * @param data the data
+     */
+    public DataPageResultPacket(long requestId, DataPage data) {
+        this(requestId, null, data);
+    }
+
+    /**
+     * Constructor for a result that is unsuccessful.
+     * @param requestId the request ID
+     * @param error the error
+     */
+    public DataPageResultPacket(long requestId, ResponseError error) {
+        this(requestId, error, null);
+    }
+
+    @Override
+    public String getPacketId() {
+        return packetId;
+    }
+
+    @Override
+    public long getRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public ResponseError getError() {
+        return error;
+    }
+
+    @Override
+    public DataPage getData() {
+        return data;
+    }
+}
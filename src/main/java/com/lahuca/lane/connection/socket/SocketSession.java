@@ -0,0 +1,168 @@
+package com.lahuca.lane.connection.socket;
+
+import com.lahuca.lane.connection.ConnectionTransfer;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * The state of one side of a resumable socket session.
+ * Every packet that is not a connection packet is given a sequence number and kept in a bounded replay buffer,
+ * until the other side acknowledges it by piggybacking its highest received sequence number on its own transfers.
+ * When a side has nothing to send, it acknowledges explicitly, see {@link #isAcknowledgementDue()}.
+ * After a reconnect, the session can be resumed by resending the frames that the other side has not received yet.
+ * All methods are synchronized, so that the sequence order equals the order in which frames are written;
+ * synchronize on the session to combine multiple operations atomically.
+ */
+public class SocketSession {
+
+    public static final int DEFAULT_REPLAY_CAPACITY = 4096;
+    public static final long ACKNOWLEDGEMENT_DELAY_MILLIS = 1000;
+
+    private final String token;
+    private final int replayCapacity;
+    private final ArrayDeque<ConnectionTransfer> replayBuffer = new ArrayDeque<>();
+    private long lastSent = 0;
+    private long lastReceived = 0;
+    private long dropped = 0; // The highest sequence number that has been dropped from the buffer without acknowledgement
+    private long lastAcknowledged = 0; // The highest received sequence number that has been sent to the other side
+    private long lastWritten = System.currentTimeMillis();
+    private Consumer<ConnectionTransfer> writer = null; // The writer of the socket that currently carries this session
+
+    public SocketSession(String token, int replayCapacity) {
+        if(replayCapacity <= 0) replayCapacity = DEFAULT_REPLAY_CAPACITY;
+        this.token = token;
+        this.replayCapacity = replayCapacity;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public synchronized long getLastReceived() {
+        return lastReceived;
+    }
+
+    /**
+     * Attaches the writer of the socket that carries this session from now on.
+     * @param writer the writer
+     */
+    public synchronized void attach(Consumer<ConnectionTransfer> writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Detaches the given writer, if it is still attached; frames sent afterward are only buffered.
+     * @param writer the writer
+     */
+    public synchronized void detach(Consumer<ConnectionTransfer> writer) {
+        if(this.writer == writer) this.writer = null;
+    }
+
+    public synchronized boolean isAttached() {
+        return writer != null;
+    }
+
+    /**
+     * Sequences the given transfer, buffers it for replay and passes it to the attached writer, if any.
+     * When the buffer is full, the oldest unacknowledged frame is dropped, which makes resuming from before it impossible.
+     * @param transfer the transfer without sequence number
+     */
+    public synchronized void send(ConnectionTransfer transfer) {
+        ConnectionTransfer sequenced = new ConnectionTransfer(transfer.typeId(), transfer.data(), transfer.from(),
+                transfer.to(), transfer.sentAt(), ++lastSent, lastReceived);
+        if(replayBuffer.size() >= replayCapacity) dropped = replayBuffer.removeFirst().sequence();
+        replayBuffer.addLast(sequenced);
+        if(writer != null) {
+            writer.accept(sequenced);
+            written();
+        }
+    }
+
+    /**
+     * Writes an unsequenced transfer, with the current acknowledgement attached.
+     * @param transfer the transfer without sequence number
+     * @param writer the writer
+     */
+    public synchronized void sendUnsequenced(ConnectionTransfer transfer, Consumer<ConnectionTransfer> writer) {
+        writer.accept(new ConnectionTransfer(transfer.typeId(), transfer.data(), transfer.from(),
+                transfer.to(), transfer.sentAt(), 0, lastReceived));
+        written();
+    }
+
+    /**
+     * Registers that the current acknowledgement has been written to the other side.
+     */
+    private void written() {
+        lastAcknowledged = lastReceived;
+        lastWritten = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks whether an explicit acknowledgement has to be sent, as the other side keeps the unacknowledged frames in its replay buffer.
+     * This is the case when received frames have not been acknowledged and nothing has been written for {@link #ACKNOWLEDGEMENT_DELAY_MILLIS},
+     * or when half of the replay capacity has been received without acknowledging it.
+     * @return true if an acknowledgement should be sent
+     */
+    public synchronized boolean isAcknowledgementDue() {
+        if(writer == null || lastReceived <= lastAcknowledged) return false;
+        return lastReceived - lastAcknowledged >= replayCapacity / 2
+                || System.currentTimeMillis() - lastWritten >= ACKNOWLEDGEMENT_DELAY_MILLIS;
+    }
+
+    /**
+     * Registers a received transfer: it processes its acknowledgement and checks whether it is a duplicate.
+     * @param transfer the received transfer
+     * @return true if the transfer should be handled, false if it has been received before
+     */
+    public synchronized boolean receive(ConnectionTransfer transfer) {
+        acknowledge(transfer.acknowledged());
+        if(!transfer.isSequenced()) return true;
+        if(transfer.sequence() <= lastReceived) return false;
+        lastReceived = transfer.sequence();
+        return true;
+    }
+
+    /**
+     * Removes all frames up to and including the given sequence number from the replay buffer.
+     * @param sequence the highest sequence number received by the other side
+     */
+    public synchronized void acknowledge(long sequence) {
+        while(!replayBuffer.isEmpty() && replayBuffer.peekFirst().sequence() <= sequence) {
+            replayBuffer.removeFirst();
+        }
+    }
+
+    /**
+     * Checks whether all frames after the given sequence number are still available.
+     * @param sequence the highest sequence number received by the other side
+     * @return true if the session can be resumed from this sequence number
+     */
+    public synchronized boolean canResume(long sequence) {
+        return sequence >= dropped && sequence <= lastSent;
+    }
+
+    /**
+     * Attaches the given writer and resends all frames after the given sequence number to it.
+     * @param sequence the highest sequence number received by the other side
+     * @param writer the writer
+     * @return false if frames after the given sequence number have been dropped, nothing has been attached nor resent then
+     */
+    public synchronized boolean resume(long sequence, Consumer<ConnectionTransfer> writer) {
+        if(!canResume(sequence)) return false;
+        acknowledge(sequence);
+        this.writer = writer;
+        replayBuffer.forEach(transfer -> writer.accept(transfer.resend(lastReceived)));
+        if(!replayBuffer.isEmpty()) written();
+        return true;
+    }
+
+    /**
+     * Returns the number of frames that have not been acknowledged yet.
+     * @return the number of buffered frames
+     */
+    public synchronized int getReplaySize() {
+        return replayBuffer.size();
+    }
+
+}
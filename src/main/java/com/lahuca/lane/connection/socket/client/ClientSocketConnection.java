@@ -23,6 +23,7 @@ import com.lahuca.lane.connection.Packet;
 import com.lahuca.lane.connection.RawPacket;
 import com.lahuca.lane.connection.packet.connection.*;
 import com.lahuca.lane.connection.request.*;
+import com.lahuca.lane.connection.socket.SocketSession;
 
 import javax.net.ssl.SSLSocketFactory;
 import java.io.BufferedReader;
@@ -74,6 +75,17 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
     private int secondsBetweenKeepAliveChecks;
     private ScheduledFuture<?> scheduledKeepAlive;
     private int numberKeepAliveFails;
+    private ScheduledFuture<?> scheduledAcknowledgement;
+
+    // Session
+    /**
+     * The session of this connection, it is kept when the connection is closed with {@link #closeAndReconnect()},
+     * so that it can be resumed when reconnecting.
+     */
+    private volatile SocketSession session = null;
+    private final Consumer<ConnectionTransfer> writer = this::write;
+    private int replayCapacity = SocketSession.DEFAULT_REPLAY_CAPACITY;
+    private volatile boolean reconnecting = false;
 
     public ClientSocketConnection(String id, String ip, int port, Gson gson, boolean useSSL) {
         this(id, ip, port, gson, useSSL, null, null, true, 60, 3, 60);
@@ -115,8 +127,13 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
         readThread = new Thread(this::listenForInput);
         readThread.start();
         startTask();
-        sendPacket(new ConnectionConnectPacket(id), null);
+        SocketSession current = session;
+        ConnectionConnectPacket connectPacket = current == null ? new ConnectionConnectPacket(id)
+                : new ConnectionConnectPacket(id, current.getToken(), current.getLastReceived());
+        write(new ConnectionTransfer(connectPacket.getPacketId(), gson.toJson(connectPacket), id, null, System.currentTimeMillis()));
         scheduledKeepAlive = getScheduledExecutor().scheduleAtFixedRate(this::checkKeepAlive, secondsBetweenKeepAliveChecks, secondsBetweenKeepAliveChecks, TimeUnit.SECONDS);
+        scheduledAcknowledgement = getScheduledExecutor().scheduleAtFixedRate(this::checkAcknowledgement,
+                SocketSession.ACKNOWLEDGEMENT_DELAY_MILLIS, SocketSession.ACKNOWLEDGEMENT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -148,6 +165,10 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
     private void readInput(String line) {
         ConnectionTransfer transfer = gson.fromJson(line, ConnectionTransfer.class);
         if(!transfer.to().equals(id)) return; // Odd, not meant for this client. Strange
+        getMetricsSink().packetReceived(transfer.typeId(), transfer.from(), line.length(), System.currentTimeMillis() - transfer.sentAt());
+        SocketSession current = session;
+        if(current != null && !current.receive(transfer)) return; // Already received before the session was resumed
+        checkAcknowledgement();
         Packet.getPacket(transfer.typeId()).ifPresentOrElse(packetClass -> {
             // Known packet type received.
             Packet packet = gson.fromJson(transfer.data(), packetClass);
@@ -173,11 +194,76 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
         switch (cPacket) {
             case ConnectionKeepAlivePacket packet -> sendPacket(ConnectionKeepAliveResultPacket.ok(packet), inputPacket.from());
             case ConnectionKeepAliveResultPacket packet -> retrieveResponse(packet.getRequestId(), packet.toObjectResponsePacket());
-            case ConnectionClosePacket ignored -> closeAndReconnect();
+            case ConnectionSessionPacket packet -> startSession(packet);
+            case ConnectionAckPacket ignored -> {} // The acknowledgement has been processed by the session
+            case ConnectionClosePacket ignored -> {
+                // The controller has ended the session, it cannot be resumed.
+                endSession();
+                closeAndReconnect();
+            }
             default -> {} // Unknown connection packet, probably older version TODO Send message?
         }
     }
 
+    /**
+     * Starts or resumes the session announced by the controller.
+     * When the session is resumed, the frames the controller has not received are resent and in-flight requests are kept.
+     * Otherwise, the previous session is lost: its in-flight requests are cancelled and the reconnect handler is run.
+     * @param packet the session packet
+     */
+    private void startSession(ConnectionSessionPacket packet) {
+        SocketSession current = session;
+        if(packet.resumed() && current != null && current.getToken().equals(packet.sessionToken())) {
+            if(current.resume(packet.lastReceived(), writer)) {
+                reconnecting = false;
+                return;
+            }
+            // We cannot provide all frames the controller is missing, start over.
+            write(new ConnectionTransfer(ConnectionClosePacket.packetId, gson.toJson(new ConnectionClosePacket()), id, null, System.currentTimeMillis()));
+            endSession();
+            closeAndReconnect();
+            return;
+        }
+        SocketSession newSession = new SocketSession(packet.sessionToken(), replayCapacity);
+        newSession.attach(writer);
+        session = newSession;
+        if(current != null) {
+            // Requests of the previous session will never be answered.
+            stopTask();
+            startTask();
+        }
+        if(reconnecting) {
+            reconnecting = false;
+            if(onReconnect != null) getScheduledExecutor().execute(onReconnect);
+        }
+    }
+
+    /**
+     * Sends an explicit acknowledgement when the session has received frames that it could not acknowledge with other packets.
+     */
+    private void checkAcknowledgement() {
+        SocketSession current = session;
+        if(current != null && current.isAcknowledgementDue()) sendPacket(new ConnectionAckPacket(), null);
+    }
+
+    /**
+     * Ends the current session, so that the next connect starts a new session.
+     */
+    private void endSession() {
+        SocketSession current = session;
+        session = null;
+        if(current != null) current.detach(writer);
+    }
+
+    /**
+     * Returns whether packets can be sent: either when it is connected, or when there is a session to resume.
+     * In the latter case, the packets are buffered until the session has been resumed.
+     * @return true if packets can be sent
+     */
+    private boolean canSend() {
+        return isConnected() || (session != null && reconnect);
+    }
+
     /**
      * Send a packet over the connection identified by the given destination.
      * @param packet The packet to send.
@@ -185,16 +271,35 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
      */
     @Override
     public void sendPacket(Packet packet, String destination) {
-        if(!isConnected()) return;
+        if(!canSend()) return;
         // TODO Maybe add function to make it async?
         if(destination != null && destination.equals(id)) {
             // TODO Sending to itself?
             return;
         }
+        send(packet, destination);
+    }
+
+    private void send(Packet packet, String destination) {
         String packetString = gson.toJson(packet);
         ConnectionTransfer outputPacket = new ConnectionTransfer(packet.getPacketId(), packetString, id,
                 destination, System.currentTimeMillis());
-        out.println(gson.toJson(outputPacket));
+        SocketSession current = session;
+        if(current == null) {
+            write(outputPacket);
+        } else if(packet instanceof ConnectionPacket) {
+            if(current.isAttached()) current.sendUnsequenced(outputPacket, writer);
+        } else {
+            current.send(outputPacket);
+        }
+    }
+
+    private void write(ConnectionTransfer transfer) {
+        PrintWriter output = out;
+        if(output == null || !isConnected()) return;
+        String line = gson.toJson(transfer);
+        output.println(line);
+        getMetricsSink().packetSent(transfer.typeId(), transfer.to(), line.length());
     }
 
     private static <T> Request<T> disconnectedRequest() {
@@ -213,15 +318,12 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
      */
     @Override
     public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination) {
-        if(id == null || !isConnected()) return disconnectedRequest();
+        if(id == null || !canSend()) return disconnectedRequest();
         Request<T> request = request();
+        request.setDestination(destination);
         RequestPacket packet = packetConstruction.apply(request.getRequestId());
-
-        String packetString = gson.toJson(packet);
-
-        ConnectionTransfer outputPacket = new ConnectionTransfer(packet.getPacketId(), packetString, id,
-                destination, System.currentTimeMillis());
-        out.println(gson.toJson(outputPacket));
+        request.setPacketType(packet.getPacketId());
+        send(packet, destination);
         return request;
     }
 
@@ -238,15 +340,12 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
      */
     @Override
     public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, int timeoutSeconds) {
-        if(id == null || !isConnected()) return disconnectedRequest();
+        if(id == null || !canSend()) return disconnectedRequest();
         Request<T> request = request(timeoutSeconds);
+        request.setDestination(destination);
         RequestPacket packet = packetConstruction.apply(request.getRequestId());
-
-        String packetString = gson.toJson(packet);
-
-        ConnectionTransfer outputPacket = new ConnectionTransfer(packet.getPacketId(), packetString, id,
-                destination, System.currentTimeMillis());
-        out.println(gson.toJson(outputPacket));
+        request.setPacketType(packet.getPacketId());
+        send(packet, destination);
         return request;
     }
 
@@ -263,15 +362,12 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
      */
     @Override
     public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser) {
-        if(id == null || !isConnected()) return disconnectedRequest();
+        if(id == null || !canSend()) return disconnectedRequest();
         Request<T> request = request(resultParser);
+        request.setDestination(destination);
         RequestPacket packet = packetConstruction.apply(request.getRequestId());
-
-        String packetString = gson.toJson(packet);
-
-        ConnectionTransfer outputPacket = new ConnectionTransfer(packet.getPacketId(), packetString, id,
-                destination, System.currentTimeMillis());
-        out.println(gson.toJson(outputPacket));
+        request.setPacketType(packet.getPacketId());
+        send(packet, destination);
         return request;
     }
 
@@ -289,15 +385,12 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
      */
     @Override
     public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser, int timeoutSeconds) {
-        if(id == null || !isConnected()) return disconnectedRequest();
+        if(id == null || !canSend()) return disconnectedRequest();
         Request<T> request = request(resultParser, timeoutSeconds);
+        request.setDestination(destination);
         RequestPacket packet = packetConstruction.apply(request.getRequestId());
-
-        String packetString = gson.toJson(packet);
-
-        ConnectionTransfer outputPacket = new ConnectionTransfer(packet.getPacketId(), packetString, id,
-                destination, System.currentTimeMillis());
-        out.println(gson.toJson(outputPacket));
+        request.setPacketType(packet.getPacketId());
+        send(packet, destination);
         return request;
     }
 
@@ -327,15 +420,33 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
 
     /**
      * Closes the connection by sending a close packet and closing the connection.
+     * This ends the session, so that in-flight requests are cancelled.
      * This never tries to reconnect after closing, use either {@link #closeAndReconnect()} or run {@link #reconnect()} afterward.
      * The close packet is only sent when the connection is properly started before.
      */
     @Override
     public void close() {
-        if(isConnected()) sendPacket(new ConnectionClosePacket(), null);
+        close(false);
+    }
+
+    /**
+     * Closes the connection.
+     * @param resumable whether the session is kept, so that it can be resumed including the in-flight requests.
+     *                  Otherwise, a close packet is sent and the session is ended.
+     */
+    private void close(boolean resumable) {
+        if(!resumable && isConnected()) sendPacket(new ConnectionClosePacket(), null);
         if(scheduledKeepAlive != null) scheduledKeepAlive.cancel(true);
         scheduledKeepAlive = null;
-        stopTask();
+        if(scheduledAcknowledgement != null) scheduledAcknowledgement.cancel(false);
+        scheduledAcknowledgement = null;
+        SocketSession current = session;
+        if(resumable && current != null) {
+            current.detach(writer);
+        } else {
+            endSession();
+            stopTask();
+        }
         if(!reconnect) stopExecutor();
         if(readThread != null && readThread.isAlive()) readThread.interrupt();
         readThread = null;
@@ -357,6 +468,8 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
     /**
      * Reconnects the connection.
      * This will only reconnect {@link #reconnect} when is true, the reconnect will only start after the {@link #secondsBetweenReconnections}.
+     * When there is a session to resume, the first attempt is made after one second instead.
+     * The reconnect handler is only run when the session could not be resumed.
      */
     @Override
     public void reconnect() {
@@ -369,26 +482,27 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
                     return;
                 }
                 try {
+                    reconnecting = true;
                     connect();
-                    if(onReconnect != null) onReconnect.run();
                 } catch (IOException e) {
-                    // We could not properly connect, fully restore.
-                    close();
+                    // We could not properly connect, fully restore. Keep the session, as we might resume it later on.
+                    close(true);
                     if(reconnect) getScheduledExecutor().schedule(this, secondsBetweenReconnections, TimeUnit.SECONDS);
                 }
             }
         };
-        getScheduledExecutor().schedule(reconnectRunnable, secondsBetweenReconnections, TimeUnit.SECONDS);
+        getScheduledExecutor().schedule(reconnectRunnable, session != null ? 1 : secondsBetweenReconnections, TimeUnit.SECONDS);
     }
 
     /**
      * Closes the connection upon which it is being reconnected.
      * This is useful for when the connection has gone down and a reconnect is preferred.
+     * The session is kept, so that it is resumed when the controller still has it.
      * This will only reconnect {@link #reconnect} when is true, the reconnect will only start after the {@link #secondsBetweenReconnections}.
      */
     @Override
     public void closeAndReconnect() {
-        close();
+        close(true);
         if(reconnect) reconnect();
     }
 
@@ -411,7 +525,9 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
     }
 
     private void checkKeepAlive() {
-        sendRequestPacket(id -> new ConnectionKeepAlivePacket(id, System.currentTimeMillis()), null).getFutureResult().whenComplete((result, exception) -> {
+        Request<Void> request = sendRequestPacket(id -> new ConnectionKeepAlivePacket(id, System.currentTimeMillis()), null);
+        request.setAdaptiveTimeout(true); // Keep alives are answered on the read thread, so their round trip is predictable
+        request.getFutureResult().whenComplete((result, exception) -> {
             if(exception != null) {
                 numberKeepAliveFails++;
                 if(numberKeepAliveFails > maximumKeepAliveFails) {
@@ -437,6 +553,11 @@ public class ClientSocketConnection extends RequestHandler implements ReconnectC
         }
     }
 
+    public void setReplayCapacity(int replayCapacity) {
+        if(replayCapacity <= 0) return;
+        this.replayCapacity = replayCapacity;
+    }
+
     public void setSecondsBetweenReconnections(int secondsBetweenReconnections) {
         if(secondsBetweenReconnections <= 0) return;
         this.secondsBetweenReconnections = secondsBetweenReconnections;
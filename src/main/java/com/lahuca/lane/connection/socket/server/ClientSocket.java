@@ -20,8 +20,9 @@ import com.lahuca.lane.connection.ConnectionTransfer;
 import com.lahuca.lane.connection.InputPacket;
 import com.lahuca.lane.connection.Packet;
 import com.lahuca.lane.connection.RawPacket;
-import com.lahuca.lane.connection.packet.InstanceUpdatePlayerPacket;
 import com.lahuca.lane.connection.packet.connection.*;
+import com.lahuca.lane.connection.request.Request;
+import com.lahuca.lane.connection.socket.SocketSession;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -43,10 +44,18 @@ public class ClientSocket {
 	private final Consumer<InputPacket> input;
 	private final Gson gson;
 	private String id = null;
-	private final BiFunction<String, ClientSocket, Boolean> assignId;
+	private final BiFunction<ConnectionConnectPacket, ClientSocket, Boolean> assignId;
 	private boolean started = false;
 	private Thread readThread = null;
 
+	// Session
+	private volatile SocketSession session = null;
+	private final Consumer<ConnectionTransfer> writer = this::write;
+	/**
+	 * Whether the session has been ended by the client, so that it should not be kept for resumption.
+	 */
+	private volatile boolean sessionEnded = false;
+
 	/**
 	 * This consumer is called when the connection is closed with the instance as parameter.
 	 */
@@ -56,14 +65,15 @@ public class ClientSocket {
 	private int maximumKeepAliveFails;
 	private ScheduledFuture<?> scheduledKeepAlive;
 	private int numberKeepAliveFails;
+	private ScheduledFuture<?> scheduledAcknowledgement;
 
 	public ClientSocket(ServerSocketConnection connection, Socket socket, Consumer<InputPacket> input,
-						Gson gson, BiFunction<String, ClientSocket, Boolean> assignId, Consumer<ClientSocket> onClose) throws IOException {
+						Gson gson, BiFunction<ConnectionConnectPacket, ClientSocket, Boolean> assignId, Consumer<ClientSocket> onClose) throws IOException {
         this(connection, socket, input, gson, assignId, onClose, 3, 60);
 	}
 
 	public ClientSocket(ServerSocketConnection connection, Socket socket, Consumer<InputPacket> input,
-						Gson gson, BiFunction<String, ClientSocket, Boolean> assignId, Consumer<ClientSocket> onClose, int maximumKeepAliveFails, int secondsBetweenKeepAliveChecks) throws IOException {
+						Gson gson, BiFunction<ConnectionConnectPacket, ClientSocket, Boolean> assignId, Consumer<ClientSocket> onClose, int maximumKeepAliveFails, int secondsBetweenKeepAliveChecks) throws IOException {
 		this.connection = connection;
 		started = true;
 		out = new PrintWriter(socket.getOutputStream(), true);
@@ -79,6 +89,8 @@ public class ClientSocket {
 		this.maximumKeepAliveFails = maximumKeepAliveFails;
 		if(secondsBetweenKeepAliveChecks <= 0) secondsBetweenKeepAliveChecks = 60;
 		scheduledKeepAlive = connection.getScheduledExecutor().scheduleAtFixedRate(this::checkKeepAlive, secondsBetweenKeepAliveChecks, secondsBetweenKeepAliveChecks, TimeUnit.SECONDS);
+		scheduledAcknowledgement = connection.getScheduledExecutor().scheduleAtFixedRate(this::checkAcknowledgement,
+				SocketSession.ACKNOWLEDGEMENT_DELAY_MILLIS, SocketSession.ACKNOWLEDGEMENT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
 	}
 
 	private void listenForInput() {
@@ -103,6 +115,10 @@ public class ClientSocket {
 
 	private void readInput(String line) {
 		ConnectionTransfer transfer = gson.fromJson(line, ConnectionTransfer.class);
+		connection.getMetricsSink().packetReceived(transfer.typeId(), transfer.from(), line.length(), System.currentTimeMillis() - transfer.sentAt());
+		SocketSession current = session;
+		if(current != null && !current.receive(transfer)) return; // Already received before the session was resumed
+		checkAcknowledgement();
 		Packet.getPacket(transfer.typeId()).ifPresentOrElse(packetClass -> {
 			// Known packet type received.
 			Packet packet = gson.fromJson(transfer.data(), packetClass);
@@ -138,7 +154,7 @@ public class ClientSocket {
 		// TODO Use switch states for this! JAVA 21: 1.20.5 MC and above
 		if(iPacket instanceof ConnectionConnectPacket packet) {
 			id = packet.clientId();
-			boolean success = assignId.apply(id, this);
+			boolean success = assignId.apply(packet, this);
 			if(!success) {
 				close();
 			}
@@ -148,7 +164,8 @@ public class ClientSocket {
 		} else if(iPacket instanceof ConnectionKeepAliveResultPacket packet) {
 			connection.retrieveResponse(packet.getRequestId(), packet.toObjectResponsePacket());
 		} else if(iPacket instanceof ConnectionClosePacket packet) {
-			// We are expecting a close, close immediately.
+			// We are expecting a close, close immediately. The client does not want to resume the session.
+			sessionEnded = true;
 			close();
 		}
 	}
@@ -158,18 +175,51 @@ public class ClientSocket {
 	 * @param packet the packet to send.
 	 */
 	public void sendPacket(Packet packet) {
-		if(id == null || !isConnected()) return; // TODO Wait for id announcement first
+		if(id == null) return; // TODO Wait for id announcement first
 		String packetString = gson.toJson(packet);
 		ConnectionTransfer outputPacket = new ConnectionTransfer(packet.getPacketId(), packetString, null,
 				id, System.currentTimeMillis());
-		out.println(gson.toJson(outputPacket));
+		SocketSession current = session;
+		if(current == null) {
+			write(outputPacket);
+		} else if(packet instanceof ConnectionPacket) {
+			current.sendUnsequenced(outputPacket, writer);
+		} else {
+			current.send(outputPacket);
+		}
+	}
+
+	/**
+	 * Writes the transfer to the socket.
+	 * @param transfer the transfer
+	 */
+	void write(ConnectionTransfer transfer) {
+		if(!isConnected()) return;
+		String line = gson.toJson(transfer);
+		out.println(line);
+		connection.getMetricsSink().packetSent(transfer.typeId(), transfer.to(), line.length());
 	}
 
 	public void close() {
+		close(true);
+	}
+
+	/**
+	 * Closes this socket without announcing it to the client, as its session has been resumed on a new socket.
+	 */
+	void replace() {
+		close(false);
+	}
+
+	private void close(boolean announce) {
 		if(scheduledKeepAlive != null) scheduledKeepAlive.cancel(true);
 		scheduledKeepAlive = null;
+		if(scheduledAcknowledgement != null) scheduledAcknowledgement.cancel(false);
+		scheduledAcknowledgement = null;
 		if(readThread != null && readThread.isAlive()) readThread.interrupt();
-		if(isConnected()) sendPacket(new ConnectionClosePacket());
+		if(announce && isConnected()) sendPacket(new ConnectionClosePacket());
+		SocketSession current = session;
+		if(current != null) current.detach(writer);
         try {
 			if(in != null) in.close();
 			if(out != null) out.close();
@@ -181,8 +231,18 @@ public class ClientSocket {
 		}
 	}
 
+	/**
+	 * Sends an explicit acknowledgement when the session has received frames that it could not acknowledge with other packets.
+	 */
+	private void checkAcknowledgement() {
+		SocketSession current = session;
+		if(current != null && current.isAcknowledgementDue()) sendPacket(new ConnectionAckPacket());
+	}
+
 	private void checkKeepAlive() {
-		connection.<Void>sendRequestPacket(requestId -> new ConnectionKeepAlivePacket(requestId, System.currentTimeMillis()), id).getFutureResult().whenComplete((result, exception) -> {
+		Request<Void> request = connection.sendRequestPacket(requestId -> new ConnectionKeepAlivePacket(requestId, System.currentTimeMillis()), id);
+		request.setAdaptiveTimeout(true); // Keep alives are answered on the read thread, so their round trip is predictable
+		request.getFutureResult().whenComplete((result, exception) -> {
 			if(exception != null) {
 				numberKeepAliveFails++;
 				if(numberKeepAliveFails > maximumKeepAliveFails) {
@@ -215,4 +275,16 @@ public class ClientSocket {
 		return Optional.ofNullable(id);
 	}
 
+	Consumer<ConnectionTransfer> getWriter() {
+		return writer;
+	}
+
+	void setSession(SocketSession session) {
+		this.session = session;
+	}
+
+	boolean isSessionEnded() {
+		return sessionEnded;
+	}
+
 }
@@ -17,9 +17,14 @@ package com.lahuca.lane.connection.socket.server;
 
 import com.google.gson.Gson;
 import com.lahuca.lane.connection.Connection;
+import com.lahuca.lane.connection.ConnectionTransfer;
 import com.lahuca.lane.connection.InputPacket;
 import com.lahuca.lane.connection.Packet;
+import com.lahuca.lane.connection.packet.connection.ConnectionConnectPacket;
+import com.lahuca.lane.connection.packet.connection.ConnectionPacket;
+import com.lahuca.lane.connection.packet.connection.ConnectionSessionPacket;
 import com.lahuca.lane.connection.request.*;
+import com.lahuca.lane.connection.socket.SocketSession;
 
 import javax.net.ssl.SSLServerSocketFactory;
 import java.io.IOException;
@@ -27,6 +32,10 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -40,15 +49,11 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 	private final boolean useSSL;
 	private final HashMap<String, ClientSocket> clients = new HashMap<>();
 	private final HashSet<ClientSocket> unassignedClients = new HashSet<>();
-	private final BiFunction<String, ClientSocket, Boolean> assignId = (id, client) -> {
-		if(!unassignedClients.contains(client)) return false;
-		if(clients.containsKey(id)) {
-			return false;
-		}
-		clients.put(id, client);
-		unassignedClients.remove(client);
-		return true;
-	};
+	private final ConcurrentHashMap<String, SocketSession> sessions = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, ScheduledFuture<?>> sessionExpiries = new ConcurrentHashMap<>();
+	private int sessionGraceSeconds = 30;
+	private int replayCapacity = SocketSession.DEFAULT_REPLAY_CAPACITY;
+	private final BiFunction<ConnectionConnectPacket, ClientSocket, Boolean> assignId = this::assignClient;
 	// TODO Maybe do consumer to abstract funcgtion.
 	/**
 	 * This consumer is called when a client disconnects.
@@ -82,8 +87,19 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 
 	private void listenForClients() {
 		Consumer<ClientSocket> onClose = (client) -> {
-			client.getId().ifPresentOrElse(clients::remove, () -> unassignedClients.remove(client));
-			onClientRemove.accept(client.getId().orElse(null));
+			synchronized(sessions) {
+				unassignedClients.remove(client);
+				String id = client.getId().orElse(null);
+				if(id != null && !clients.remove(id, client)) return; // Not assigned, or its session is resumed by a different socket
+				SocketSession session = id == null ? null : sessions.get(id);
+				if(session != null && !client.isSessionEnded() && isConnected()) {
+					// Keep the session for a while, so that the client can resume it.
+					sessionExpiries.put(id, getScheduledExecutor().schedule(() -> expireSession(id, session), sessionGraceSeconds, TimeUnit.SECONDS));
+					return;
+				}
+				if(session != null) sessions.remove(id, session);
+			}
+			if(onClientRemove != null) onClientRemove.accept(client.getId().orElse(null));
 		};
 		while(isConnected() && started) {
 			try {
@@ -96,8 +112,64 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 		}
 	}
 
+	/**
+	 * Assigns the ID announced by the client to it.
+	 * When the client asks to resume its session and the session is still available, the session is resumed on this client.
+	 * @param packet the connect packet of the client
+	 * @param client the client
+	 * @return whether the client has been assigned
+	 */
+	private boolean assignClient(ConnectionConnectPacket packet, ClientSocket client) {
+		synchronized(sessions) {
+			if(!unassignedClients.contains(client)) return false;
+			String id = packet.clientId();
+			SocketSession session = sessions.get(id);
+			boolean resume = session != null && session.getToken().equals(packet.sessionToken())
+					&& session.canResume(packet.lastReceived());
+			ClientSocket current = clients.get(id);
+			if(current != null && !resume) {
+				return false;
+			}
+			if(!resume) {
+				if(session != null) expireSession(id, session); // The old session cannot be resumed, it is gone
+				session = new SocketSession(UUID.randomUUID().toString(), replayCapacity);
+				sessions.put(id, session);
+			}
+			ScheduledFuture<?> expiry = sessionExpiries.remove(id);
+			if(expiry != null) expiry.cancel(false);
+			clients.put(id, client);
+			unassignedClients.remove(client);
+			// The old socket has not noticed the disconnect yet, the session is taken over by the new one.
+			if(current != null) current.replace();
+			client.setSession(session);
+			synchronized(session) {
+				session.sendUnsequenced(new ConnectionTransfer(ConnectionSessionPacket.packetId,
+						gson.toJson(new ConnectionSessionPacket(session.getToken(), session.getLastReceived(), resume)),
+						null, id, System.currentTimeMillis()), client.getWriter());
+				if(resume) session.resume(packet.lastReceived(), client.getWriter());
+				else session.attach(client.getWriter());
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Removes the session of the given client when it has not been resumed, the client is then removed for good.
+	 * @param id the ID of the client
+	 * @param session the session to expire
+	 */
+	private void expireSession(String id, SocketSession session) {
+		synchronized(sessions) {
+			if(!sessions.remove(id, session)) return;
+			sessionExpiries.remove(id);
+			if(clients.containsKey(id)) return;
+		}
+		if(onClientRemove != null) onClientRemove.accept(id);
+	}
+
 	/**
 	 * Send a packet over the connection identified by the given destination.
+	 * When the client has temporarily disconnected, but its session can still be resumed, the packet is buffered until it is resumed.
 	 * @param packet The packet to send.
 	 * @param destination The destination of the packet, null meaning the controller.
 	 */
@@ -106,8 +178,37 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 		if(destination == null || !isConnected()) {
 			return;
 		}
+		send(packet, destination);
+	}
+
+	/**
+	 * Sends the packet to the client or its session.
+	 * @param packet the packet
+	 * @param destination the ID of the client
+	 * @return whether the packet has been sent or buffered
+	 */
+	private boolean send(Packet packet, String destination) {
 		ClientSocket client = clients.get(destination);
-		if(client != null) client.sendPacket(packet);
+		if(client != null) {
+			client.sendPacket(packet);
+			return true;
+		}
+		SocketSession session = sessions.get(destination);
+		if(session == null || packet instanceof ConnectionPacket) return false;
+		session.send(new ConnectionTransfer(packet.getPacketId(), gson.toJson(packet), null, destination, System.currentTimeMillis()));
+		return true;
+	}
+
+	/**
+	 * Returns whether the given client is connected, or whether its session can still be resumed.
+	 * @param destination the ID of the client
+	 * @return true if packets can be sent to the client
+	 */
+	private boolean isReachable(String destination) {
+		if(destination == null) return false;
+		ClientSocket client = clients.get(destination);
+		if(client != null) return client.isConnected();
+		return sessions.containsKey(destination);
 	}
 
 	/**
@@ -123,11 +224,12 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 	@Override
 	public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination) {
 		if(!isConnected()) return null; // TODO Return differently
-		ClientSocket client = clients.get(destination);
-		if(client == null) return null;
+		if(!isReachable(destination)) return null;
 		Request<T> request = request();
+		request.setDestination(destination);
 		RequestPacket packet = packetConstruction.apply(request.getRequestId());
-		client.sendPacket(packet);
+		request.setPacketType(packet.getPacketId());
+		send(packet, destination);
 		return request;
 	}
 
@@ -145,11 +247,12 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 	@Override
 	public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, int timeoutSeconds) {
 		if(!isConnected()) return null; // TODO Return differently
-		ClientSocket client = clients.get(destination);
-		if(client == null) return null;
+		if(!isReachable(destination)) return null;
 		Request<T> request = request(timeoutSeconds);
+		request.setDestination(destination);
 		RequestPacket packet = packetConstruction.apply(request.getRequestId());
-		client.sendPacket(packet);
+		request.setPacketType(packet.getPacketId());
+		send(packet, destination);
 		return request;
 	}
 
@@ -167,11 +270,12 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 	@Override
 	public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser) {
 		if(!isConnected()) return null; // TODO Return differently
-		ClientSocket client = clients.get(destination);
-		if(client == null) return null;
+		if(!isReachable(destination)) return null;
 		Request<T> request = request(resultParser);
+		request.setDestination(destination);
 		RequestPacket packet = packetConstruction.apply(request.getRequestId());
-		client.sendPacket(packet);
+		request.setPacketType(packet.getPacketId());
+		send(packet, destination);
 		return request;
 	}
 
@@ -191,11 +295,12 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 	@Override
 	public <T> Request<T> sendRequestPacket(Function<Long, RequestPacket> packetConstruction, String destination, Function<Object, T> resultParser, int timeoutSeconds) {
 		if(!isConnected()) return null; // TODO Return differently
-		ClientSocket client = clients.get(destination);
-		if(client == null || !client.isConnected()) return null; // TODO Handle if client is closed!
+		if(!isReachable(destination)) return null;
 		Request<T> request = request(resultParser, timeoutSeconds);
+		request.setDestination(destination);
 		RequestPacket packet = packetConstruction.apply(request.getRequestId());
-		client.sendPacket(packet);
+		request.setPacketType(packet.getPacketId());
+		send(packet, destination);
 		return request;
 	}
 
@@ -214,6 +319,9 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 		if (listenThread != null && listenThread.isAlive()) listenThread.interrupt();
 		stopExecutor();
 		listenThread = null;
+		sessionExpiries.values().forEach(expiry -> expiry.cancel(false));
+		sessionExpiries.clear();
+		sessions.clear();
 		new HashSet<>(clients.values()).forEach(ClientSocket::close);
 		new HashSet<>(unassignedClients).forEach(ClientSocket::close);
 		clients.clear();
@@ -231,4 +339,23 @@ public class ServerSocketConnection extends RequestHandler implements Connection
 		this.onClientRemove = onClientRemove;
 	}
 
+	/**
+	 * Sets the number of seconds a session is kept after its client has disconnected, so that it can be resumed.
+	 * Only after this period the client is removed.
+	 * @param sessionGraceSeconds the number of seconds
+	 */
+	public void setSessionGraceSeconds(int sessionGraceSeconds) {
+		if(sessionGraceSeconds <= 0) return;
+		this.sessionGraceSeconds = sessionGraceSeconds;
+	}
+
+	/**
+	 * Sets the maximum number of unacknowledged packets kept per session for new sessions.
+	 * @param replayCapacity the capacity of the replay buffer
+	 */
+	public void setReplayCapacity(int replayCapacity) {
+		if(replayCapacity <= 0) return;
+		this.replayCapacity = replayCapacity;
+	}
+
 }
@@ -0,0 +1,202 @@
+package com.lahuca.lane.data;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.typeadapters.RuntimeTypeAdapterFactory;
+import com.lahuca.lane.utilities.GsonUtilities;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+
+/**
+ * A mutation of the value of a data object, that can be executed by the data manager without sending the whole value back and forth.
+ * Mutations can only be applied to data objects whose value is JSON, so not to {@link DataObjectType#STRING} and {@link DataObjectType#BLOB}.
+ * The paths are JSON paths, see {@link JsonPath} for the supported syntax.
+ */
+public sealed interface DataMutation {
+
+    RuntimeTypeAdapterFactory<DataMutation> FACTORY = GsonUtilities.getSealedRuntimeTypeAdapterFactory(DataMutation.class);
+
+    /**
+     * Applies this mutation to the given JSON value.
+     *
+     * @param value the value, this might be modified in place
+     * @return the mutated value
+     * @throws IllegalArgumentException when the mutation cannot be applied to the value
+     */
+    JsonElement apply(JsonElement value);
+
+    /**
+     * Applies this mutation to the value of the given data object.
+     * This does not update the data object in the data storage system.
+     *
+     * @param object the data object to mutate
+     * @throws IllegalArgumentException when the mutation cannot be applied to the data object
+     */
+    default void apply(DataObject object) {
+        DataObjectType type = object.getType().orElseThrow(() -> new IllegalArgumentException("Data object has no type"));
+        if (!isApplicable(type)) throw new IllegalArgumentException("Data object of type " + type + " cannot be mutated");
+        JsonElement value;
+        try {
+            value = JsonParser.parseString(object.getValue().orElseThrow(() -> new IllegalArgumentException("Data object has no value")));
+        } catch (JsonSyntaxException e) {
+            throw new IllegalArgumentException("Data object does not contain JSON", e);
+        }
+        object.setValue(type, apply(value));
+    }
+
+    /**
+     * Returns whether mutations can be applied to data objects of the given type.
+     *
+     * @param type the type
+     * @return true if the value of the type is JSON
+     */
+    static boolean isApplicable(DataObjectType type) {
+        return type != DataObjectType.STRING && type != DataObjectType.BLOB;
+    }
+
+    /**
+     * Applies a JSON merge patch (RFC 7396) to the value.
+     * Members that are null in the patch are removed, other members are merged recursively.
+     *
+     * @param patch the merge patch
+     */
+    record MergePatch(JsonElement patch) implements DataMutation {
+
+        @Override
+        public JsonElement apply(JsonElement value) {
+            return GsonUtilities.mergePatch(value, patch);
+        }
+
+    }
+
+    static MergePatch MergePatch(JsonElement patch) {
+        return new MergePatch(patch);
+    }
+
+    /**
+     * Sets the element at the path to the given value.
+     * The parent of the element must exist, otherwise nothing is changed.
+     *
+     * @param path  the JSON path
+     * @param value the value to set
+     */
+    record Set(String path, JsonElement value) implements DataMutation {
+
+        public Set {
+            JsonPath.compile(path);
+        }
+
+        @Override
+        public JsonElement apply(JsonElement current) {
+            return JsonPath.compile(path).set(current, value);
+        }
+
+    }
+
+    static Set Set(String path, JsonElement value) {
+        return new Set(path, value);
+    }
+
+    /**
+     * Adds the delta to the number at the path.
+     * When there is no element at the path yet, it is set to the delta.
+     *
+     * @param path  the JSON path
+     * @param delta the number to add, can be negative
+     */
+    record Increment(String path, Number delta) implements DataMutation {
+
+        public Increment {
+            JsonPath.compile(path);
+        }
+
+        @Override
+        public JsonElement apply(JsonElement value) {
+            JsonPath compiled = JsonPath.compile(path);
+            JsonElement current = compiled.get(value);
+            BigDecimal result = new BigDecimal(delta.toString());
+            if (current != null) {
+                if (!(current instanceof JsonPrimitive primitive) || !primitive.isNumber()) {
+                    throw new IllegalArgumentException("Element at " + path + " is not a number");
+                }
+                result = result.add(primitive.getAsBigDecimal());
+            }
+            return compiled.set(value, new JsonPrimitive(result));
+        }
+
+    }
+
+    static Increment Increment(String path, Number delta) {
+        return new Increment(path, delta);
+    }
+
+    /**
+     * Appends the value to the array at the path.
+     * Like MySQL's {@code JSON_ARRAY_APPEND}, an element that is not an array is wrapped into an array first,
+     * and nothing is changed when there is no element at the path.
+     *
+     * @param path  the JSON path
+     * @param value the value to append
+     */
+    record ArrayAppend(String path, JsonElement value) implements DataMutation {
+
+        public ArrayAppend {
+            JsonPath.compile(path);
+        }
+
+        @Override
+        public JsonElement apply(JsonElement current) {
+            JsonPath compiled = JsonPath.compile(path);
+            JsonElement element = compiled.get(current);
+            if (element == null) return current;
+            if (element instanceof JsonArray array) {
+                array.add(value);
+                return current;
+            }
+            JsonArray array = new JsonArray();
+            array.add(element);
+            array.add(value);
+            return compiled.set(current, array);
+        }
+
+    }
+
+    static ArrayAppend ArrayAppend(String path, JsonElement value) {
+        return new ArrayAppend(path, value);
+    }
+
+    /**
+     * Removes all elements equal to the value from the array at the path.
+     * Nothing is changed when the element at the path is not an array.
+     *
+     * @param path  the JSON path
+     * @param value the value to remove
+     */
+    record ArrayRemove(String path, JsonElement value) implements DataMutation {
+
+        public ArrayRemove {
+            JsonPath.compile(path);
+        }
+
+        @Override
+        public JsonElement apply(JsonElement current) {
+            if (JsonPath.compile(path).get(current) instanceof JsonArray array) {
+                Iterator<JsonElement> iterator = array.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().equals(value)) iterator.remove();
+                }
+            }
+            return current;
+        }
+
+    }
+
+    static ArrayRemove ArrayRemove(String path, JsonElement value) {
+        return new ArrayRemove(path, value);
+    }
+
+}
@@ -35,8 +35,25 @@ public class DataObject {
     private Long lastUpdated;
     private Long removalTime;
     private Integer version;
+    private Long revision;
     private DataObjectType type;
     private String value;
+    // The last access decisions, as the same permission key is mostly checked over and over again
+    private transient volatile AccessDecision lastReadAccess, lastWriteAccess;
+
+    /**
+     * An access decision of a permission for a permission key.
+     * @param permission the read or write permission of the data object
+     * @param key the checked permission key
+     * @param access whether the permission key has access
+     */
+    private record AccessDecision(PermissionKey permission, PermissionKey key, boolean access) {
+
+        private boolean isFor(PermissionKey permission, PermissionKey key) {
+            return this.permission == permission && (this.key == key || this.key.equals(key));
+        }
+
+    }
 
     public DataObject(DataObjectId id) {
         this.id = id;
@@ -49,16 +66,18 @@ public class DataObject {
      * @param writePermission the write permission
      * @param removalTime the time of removal: 0 = upon controller stop, -1 = never
      * @param version the version of the data
+     * @param revision the revision of the stored data object
      * @param type the type of the value
      * @param value the value
      */
-    private DataObject(DataObjectId id, PermissionKey readPermission, PermissionKey writePermission, Long lastUpdated, Long removalTime, Integer version, DataObjectType type, String value) {
+    private DataObject(DataObjectId id, PermissionKey readPermission, PermissionKey writePermission, Long lastUpdated, Long removalTime, Integer version, Long revision, DataObjectType type, String value) {
         this.id = id;
         this.readPermission = readPermission;
         this.writePermission = writePermission;
         this.lastUpdated = lastUpdated;
         this.removalTime = removalTime;
         this.version = version;
+        this.revision = revision;
         this.type = type;
         this.value = value;
     }
@@ -189,23 +208,25 @@ public class DataObject {
      */
     public DataObject shallowCopy(DataObjectId newId, boolean hasReadPermission, boolean hasWritePermission) {
         DataObjectId id = newId != null ? newId : this.id;
+        // The revision belongs to the stored data object, a copy at another ID has its own
+        Long revision = newId != null ? null : this.revision;
         if(!hasReadPermission && !hasWritePermission) {
             // Nothing, only ID
-            return new DataObject(id, null, null, null, null, null, null, null);
+            return new DataObject(id, null, null, null, null, null, null, null, null);
         }
         if(hasReadPermission && !hasWritePermission) {
             // Everything besides write permission
-            return new DataObject(id, readPermission, null, lastUpdated, removalTime, version, type, value);
+            return new DataObject(id, readPermission, null, lastUpdated, removalTime, version, revision, type, value);
         }
         // Always write permission
         if(!hasReadPermission) {
             // Only ID and write permission
-            return new DataObject(id, null, writePermission, null, null, null, null, null);
+            return new DataObject(id, null, writePermission, null, null, null, null, null, null);
         }
         // Got everything, if ID is the same, return this
         if(newId == null) return this;
         // Return all data, but with different ID
-        return new DataObject(id, readPermission, writePermission, lastUpdated, removalTime, version, type, value);
+        return new DataObject(id, readPermission, writePermission, lastUpdated, removalTime, version, revision, type, value);
     }
 
     public DataObjectId getId() {
@@ -223,7 +244,13 @@ public class DataObject {
      * @return true if it has access, false otherwise; or the default value
      */
     public boolean hasReadAccess(PermissionKey permissionKey, boolean defaultValue) {
-        return getReadPermission().map(key -> key.checkAccess(permissionKey)).orElse(defaultValue);
+        PermissionKey permission = readPermission;
+        if(permission == null) return defaultValue;
+        AccessDecision last = lastReadAccess;
+        if(last != null && last.isFor(permission, permissionKey)) return last.access();
+        boolean access = permission.checkAccess(permissionKey);
+        lastReadAccess = new AccessDecision(permission, permissionKey, access);
+        return access;
     }
 
     public Optional<PermissionKey> getWritePermission() {
@@ -237,7 +264,13 @@ public class DataObject {
      * @return true if it has access, false otherwise; or the default value
      */
     public boolean hasWriteAccess(PermissionKey permissionKey, boolean defaultValue) {
-        return getWritePermission().map(key -> key.checkAccess(permissionKey)).orElse(defaultValue);
+        PermissionKey permission = writePermission;
+        if(permission == null) return defaultValue;
+        AccessDecision last = lastWriteAccess;
+        if(last != null && last.isFor(permission, permissionKey)) return last.access();
+        boolean access = permission.checkAccess(permissionKey);
+        lastWriteAccess = new AccessDecision(permission, permissionKey, access);
+        return access;
     }
 
     public Optional<Long> getLastUpdated() {
@@ -263,10 +296,25 @@ public class DataObject {
         return removalTime == 0 && lastUpdated != null && lastUpdated < startTime;
     }
 
+    /**
+     * Returns the version of the data, which is chosen by the plugin that owns the data object.
+     * This allows plugins to recognize data that has been written in an older format.
+     * @return the optional of the version
+     */
     public Optional<Integer> getVersion() {
         return Optional.ofNullable(version);
     }
 
+    /**
+     * Returns the revision of the stored data object, which is increased by the data manager on every write.
+     * Unlike the version, it cannot be chosen by the writer; it is used to detect concurrent modifications.
+     * @return the optional of the revision, empty when the data object has not been read from or written to a data manager
+     * @see com.lahuca.lane.data.manager.DataManager#compareAndSetDataObject(PermissionKey, DataObject, Long)
+     */
+    public Optional<Long> getRevision() {
+        return Optional.ofNullable(revision);
+    }
+
     public Optional<DataObjectType> getType() {
         return Optional.ofNullable(type);
     }
@@ -457,6 +505,15 @@ public class DataObject {
         this.version = version;
     }
 
+    /**
+     * Sets the revision of the stored data object, this is only to be done by data managers.
+     * The revision is ignored when the data object is written.
+     * @param revision the revision
+     */
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     /**
      * Sets the value with the given type and object.
      * The object is saved by using {@link Object#toString()}.
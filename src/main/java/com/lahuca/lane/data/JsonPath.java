@@ -0,0 +1,160 @@
+package com.lahuca.lane.data;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled JSON path, as used by the data managers to point at a value within a data object.
+ * Only the subset of the JSON path syntax that is shared by the data managers is supported:
+ * <ul>
+ *     <li>{@code $}: the value itself</li>
+ *     <li>{@code .key} or {@code ."key"}: a member of an object</li>
+ *     <li>{@code ["key"]} or {@code ['key']}: a member of an object</li>
+ *     <li>{@code [index]}: an element of an array</li>
+ * </ul>
+ * For example: {@code $.stats.kills} or {@code $.friends[0]}.
+ */
+public final class JsonPath {
+
+    private static final JsonPath ROOT = new JsonPath("$", new Object[0]);
+
+    private final String path;
+    private final Object[] steps; // Either a String for a member or an Integer for an index
+
+    private JsonPath(String path, Object[] steps) {
+        this.path = path;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles the given JSON path.
+     * A null path is seen as the value itself.
+     *
+     * @param path the JSON path
+     * @return the compiled JSON path
+     * @throws IllegalArgumentException when the path is not properly formatted
+     */
+    public static JsonPath compile(String path) {
+        if (path == null || path.equals("$")) return ROOT;
+        if (!path.startsWith("$")) throw new IllegalArgumentException("JSON path must start with $: " + path);
+        List<Object> steps = new ArrayList<>();
+        int i = 1;
+        int length = path.length();
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                i++;
+                if (i < length && path.charAt(i) == '"') {
+                    int end = path.indexOf('"', i + 1);
+                    if (end < 0) throw new IllegalArgumentException("Unterminated key in JSON path: " + path);
+                    steps.add(path.substring(i + 1, end));
+                    i = end + 1;
+                } else {
+                    int start = i;
+                    while (i < length && (Character.isLetterOrDigit(path.charAt(i)) || path.charAt(i) == '_' || path.charAt(i) == '$')) i++;
+                    if (start == i) throw new IllegalArgumentException("Empty key in JSON path: " + path);
+                    steps.add(path.substring(start, i));
+                }
+            } else if (c == '[') {
+                int end = path.indexOf(']', i);
+                if (end < 0) throw new IllegalArgumentException("Unterminated index in JSON path: " + path);
+                String content = path.substring(i + 1, end).trim();
+                if (content.length() >= 2 && (content.charAt(0) == '"' || content.charAt(0) == '\'')
+                        && content.charAt(content.length() - 1) == content.charAt(0)) {
+                    steps.add(content.substring(1, content.length() - 1));
+                } else {
+                    try {
+                        int index = Integer.parseInt(content);
+                        if (index < 0) throw new IllegalArgumentException("Negative index in JSON path: " + path);
+                        steps.add(index);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid index in JSON path: " + path);
+                    }
+                }
+                i = end + 1;
+            } else {
+                throw new IllegalArgumentException("Unexpected character '" + c + "' in JSON path: " + path);
+            }
+        }
+        StringBuilder normalized = new StringBuilder("$");
+        for (Object step : steps) {
+            if (step instanceof Integer index) normalized.append('[').append(index).append(']');
+            else if (((String) step).matches("[A-Za-z_$][A-Za-z0-9_$]*")) normalized.append('.').append(step);
+            else normalized.append(".\"").append(((String) step).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return new JsonPath(normalized.toString(), steps.toArray());
+    }
+
+    /**
+     * Returns whether this path points at the value itself.
+     *
+     * @return true if this is the root path
+     */
+    public boolean isRoot() {
+        return steps.length == 0;
+    }
+
+    /**
+     * Retrieves the element this path points at.
+     *
+     * @param root the root element
+     * @return the element, or null when it does not exist
+     */
+    public JsonElement get(JsonElement root) {
+        JsonElement current = root;
+        for (Object step : steps) {
+            current = step(current, step);
+            if (current == null) return null;
+        }
+        return current;
+    }
+
+    /**
+     * Sets the element this path points at.
+     * Like MySQL's {@code JSON_SET}, the parent of the element must exist, otherwise nothing is changed.
+     * An index beyond the end of an array appends the element.
+     *
+     * @param root  the root element
+     * @param value the value to set
+     * @return the new root element, which is the given root unless this is the root path
+     */
+    public JsonElement set(JsonElement root, JsonElement value) {
+        if (isRoot()) return value;
+        JsonElement parent = root;
+        for (int i = 0; i < steps.length - 1; i++) {
+            parent = step(parent, steps[i]);
+            if (parent == null) return root;
+        }
+        Object last = steps[steps.length - 1];
+        if (last instanceof String key && parent instanceof JsonObject object) {
+            object.add(key, value);
+        } else if (last instanceof Integer index && parent instanceof JsonArray array) {
+            if (index < array.size()) array.set(index, value);
+            else array.add(value);
+        }
+        return root;
+    }
+
+    private static JsonElement step(JsonElement current, Object step) {
+        if (step instanceof String key) {
+            return current instanceof JsonObject object ? object.get(key) : null;
+        }
+        int index = (Integer) step;
+        return current instanceof JsonArray array && index < array.size() ? array.get(index) : null;
+    }
+
+    /**
+     * Returns the normalized form of this path, which is understood by MySQL.
+     *
+     * @return the path
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
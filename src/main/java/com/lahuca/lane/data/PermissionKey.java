@@ -1,5 +1,8 @@
 package com.lahuca.lane.data;
 
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * A permission key that is built up from a name and identifier.
  * Permissions are assigned by using a key, which remains to be set per plugin. This key has the following format "n-i", where:
@@ -10,6 +13,7 @@ package com.lahuca.lane.data;
  * </ul>
  * Special keys are the one of the controller "#-#" and for everyone "*-*".
  * For permission keys that allow anyone with the same "name" part, the key is solely "n".
+ * Access checks do not build strings or use regular expressions, as they are done for every data object that is read or written.
  * @param name the name
  * @param identifier the identifier
  */
@@ -18,6 +22,35 @@ public record PermissionKey(String name, String identifier) {
     public static final PermissionKey CONTROLLER = new PermissionKey("#", "#");
     public static final PermissionKey EVERYONE = new PermissionKey("*", "*");
 
+    static final int INTERNED_SIZE = 1024;
+    private static final ConcurrentHashMap<String, PermissionKey> interned = new ConcurrentHashMap<>();
+
+    /**
+     * The kind of permission key, which determines how it matches other keys.
+     */
+    private enum Kind {
+        /**
+         * Not correctly formatted, it never matches.
+         */
+        INVALID,
+        /**
+         * Matches every correctly formatted key.
+         */
+        EVERYONE,
+        /**
+         * Matches only the controller key.
+         */
+        CONTROLLER,
+        /**
+         * Matches every key with the same name.
+         */
+        NAME,
+        /**
+         * Matches only the exact same key.
+         */
+        INDIVIDUAL
+    }
+
     /**
      * Creates a permission key record from a permission key.
      * Beware that the input string needs to be correctly formatted for it to be interpreted correctly.
@@ -27,6 +60,18 @@ public record PermissionKey(String name, String identifier) {
     public static PermissionKey fromString(String permissionKey) {
         if(permissionKey.equals("#-#")) return CONTROLLER;
         if(permissionKey.equals("*-*")) return EVERYONE;
+        // The same keys are parsed over and over again when reading data objects, so they are only parsed once
+        PermissionKey key = interned.get(permissionKey);
+        if(key != null) return key;
+        key = parse(permissionKey);
+        if(key.kind() != Kind.INVALID && interned.size() < INTERNED_SIZE) {
+            PermissionKey current = interned.putIfAbsent(permissionKey, key);
+            if(current != null) return current;
+        }
+        return key;
+    }
+
+    private static PermissionKey parse(String permissionKey) {
         if(permissionKey.contains("-")) {
             String[] parts = permissionKey.split("-");
             return new PermissionKey(parts[0], parts[1]);
@@ -48,7 +93,33 @@ public record PermissionKey(String name, String identifier) {
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         PermissionKey that = (PermissionKey) o;
-        return this.toString().equals(that.toString());
+        return Objects.equals(name, that.name) && Objects.equals(identifier, that.identifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, identifier);
+    }
+
+    private static boolean isAlphanumeric(String value) {
+        if(value.isEmpty()) return false;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if((c < 'a' || c > 'z') && (c < 'A' || c > 'Z') && (c < '0' || c > '9')) return false;
+        }
+        return true;
+    }
+
+    private Kind kind() {
+        if(name == null || name.isEmpty() || name.length() > 32) return Kind.INVALID;
+        if(identifier != null && name.length() == 1 && identifier.length() == 1) {
+            if(name.equals("*") && identifier.equals("*")) return Kind.EVERYONE;
+            if(name.equals("#") && identifier.equals("#")) return Kind.CONTROLLER;
+        }
+        if(!isAlphanumeric(name)) return Kind.INVALID;
+        if(identifier == null) return Kind.NAME;
+        if(identifier.length() != 6 || !isAlphanumeric(identifier)) return Kind.INVALID;
+        return Kind.INDIVIDUAL;
     }
 
     /**
@@ -56,14 +127,7 @@ public record PermissionKey(String name, String identifier) {
      * @return true when it is correctly formatted.
      */
     public boolean isFormattedCorrectly() {
-        if(name == null) return false;
-        if(name.isEmpty() || name.length() > 32) return false;
-        if((identifier != null && name.equals("*") && identifier.equals("*")) || (identifier != null &&name.equals("#") && identifier.equals("#"))) return true;
-        if(!name.matches("[a-zA-Z0-9]+")) return false;
-        if(identifier == null) return true;
-        if(identifier.length() != 6) return false;
-        if(!identifier.matches("[a-zA-Z0-9]+")) return false;
-        return true;
+        return kind() != Kind.INVALID;
     }
 
     /**
@@ -71,7 +135,7 @@ public record PermissionKey(String name, String identifier) {
      * @return true if it is
      */
     public boolean isController() {
-        return equals(CONTROLLER);
+        return kind() == Kind.CONTROLLER;
     }
 
     /**
@@ -79,7 +143,7 @@ public record PermissionKey(String name, String identifier) {
      * @return true if it is
      */
     public boolean isEveryone() {
-        return equals(EVERYONE);
+        return kind() == Kind.EVERYONE;
     }
 
     /**
@@ -87,7 +151,7 @@ public record PermissionKey(String name, String identifier) {
      * @return true if it is
      */
     public boolean isNameKey() {
-        return isFormattedCorrectly() && identifier == null;
+        return kind() == Kind.NAME;
     }
 
     /**
@@ -95,7 +159,7 @@ public record PermissionKey(String name, String identifier) {
      * @return true if it is
      */
     public boolean isIndividual() {
-        return isFormattedCorrectly() && identifier != null && !isController() && !isEveryone();
+        return kind() == Kind.INDIVIDUAL;
     }
 
     /**
@@ -104,11 +168,16 @@ public record PermissionKey(String name, String identifier) {
      * @return true if the provided key has access
      */
     public boolean checkAccess(PermissionKey key) {
-        if(!isFormattedCorrectly() || !key.isFormattedCorrectly()) return false;
-        if(isEveryone()) return true;
-        if(isController() && key.isController()) return true;
-        if(isNameKey() && name.equals(key.name)) return true;
-        return toString().equals(key.toString());
+        Kind keyKind = key.kind();
+        if(keyKind == Kind.INVALID) return false;
+        return switch(kind()) {
+            case INVALID -> false;
+            case EVERYONE -> true;
+            case CONTROLLER -> keyKind == Kind.CONTROLLER;
+            // A name key also grants access to itself
+            case NAME -> name.equals(key.name);
+            case INDIVIDUAL -> equals(key);
+        };
     }
 
 }
@@ -0,0 +1,44 @@
+package com.lahuca.lane.data.leaderboard;
+
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.JsonPath;
+import com.lahuca.lane.data.selector.DataOrderType;
+
+import java.util.Objects;
+
+/**
+ * The definition of a leaderboard, which ranks the data objects with the same ID over all relational IDs of a relational type.
+ * The score of a data object is the number at the path within its value, data objects without a number at the path are not ranked.
+ * For example, the leaderboard with type {@code players}, ID {@code stats} and path {@code $.kills} ranks players by their kills.
+ *
+ * @param name  the unique name of the leaderboard
+ * @param type  the relational type of the ranked data objects
+ * @param id    the ID of the ranked data objects
+ * @param path  the JSON path of the score within the value, see {@link JsonPath}
+ * @param order the order of the scores, descending ranks the highest score first
+ */
+public record Leaderboard(String name, String type, String id, String path, DataOrderType order) {
+
+    public Leaderboard {
+        Objects.requireNonNull(name, "name cannot be null");
+        Objects.requireNonNull(type, "type cannot be null");
+        Objects.requireNonNull(id, "id cannot be null");
+        JsonPath.compile(path);
+        order = Objects.requireNonNullElse(order, DataOrderType.DESCENDING);
+    }
+
+    public Leaderboard(String name, String type, String id, String path) {
+        this(name, type, id, path, DataOrderType.DESCENDING);
+    }
+
+    /**
+     * Returns whether the given data object is ranked by this leaderboard.
+     *
+     * @param dataObjectId the data object ID
+     * @return true if the relational type and ID match
+     */
+    public boolean matches(DataObjectId dataObjectId) {
+        return dataObjectId != null && dataObjectId.isRelational() && type.equals(dataObjectId.relationalId().type()) && id.equals(dataObjectId.id());
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.lahuca.lane.data.leaderboard;
+
+/**
+ * An entry of a leaderboard.
+ * Entries with the same score are ranked by their relational ID, so every entry has a unique rank.
+ *
+ * @param relationalId the relational ID of the ranked data object, for example the player's UUID
+ * @param score        the score
+ * @param rank         the rank, starting at 1
+ */
+public record LeaderboardEntry(String relationalId, double score, long rank) {
+}
@@ -0,0 +1,137 @@
+package com.lahuca.lane.data.manager;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically removes the data objects of a {@link DataManager} that are to be removed, see {@link DataManager#removeExpiredDataObjects(int)}.
+ * Every sweep removes data objects in batches, and stops after the maximum number of batches, so that the storage is not overloaded.
+ * When a sweep did not remove everything, the next sweep continues where it left off.
+ */
+public class DataExpirySweeper {
+
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    private final DataManager dataManager;
+    private final ScheduledExecutorService executor;
+    private volatile long interval = 60_000;
+    private volatile int batchSize = 500;
+    private volatile int maxBatches = 10;
+    private volatile boolean running;
+
+    public DataExpirySweeper(DataManager dataManager) {
+        this.dataManager = dataManager;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lane-Expiry-Sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the time between the end of a sweep and the start of the next one.
+     *
+     * @param interval the interval in milliseconds
+     */
+    public void setInterval(long interval) {
+        if (interval <= 0) throw new IllegalArgumentException("Interval must be positive");
+        this.interval = interval;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Sets the maximum number of data objects that are removed at once.
+     *
+     * @param batchSize the batch size
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of batches per sweep.
+     * Together with the batch size and the interval, this limits the rate at which data objects are removed.
+     *
+     * @param maxBatches the maximum number of batches
+     */
+    public void setMaxBatches(int maxBatches) {
+        if (maxBatches <= 0) throw new IllegalArgumentException("Maximum number of batches must be positive");
+        this.maxBatches = maxBatches;
+    }
+
+    public int getMaxBatches() {
+        return maxBatches;
+    }
+
+    /**
+     * Starts sweeping, the first sweep is done after the interval.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        schedule();
+    }
+
+    /**
+     * Stops sweeping, a sweep that is currently running finishes its batch.
+     * This waits for that batch, so that the data manager can be shut down afterwards.
+     */
+    public synchronized void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.schedule(this::run, interval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // We have been stopped
+        }
+    }
+
+    private void run() {
+        try {
+            sweep();
+        } catch (CompletionException e) {
+            e.printStackTrace(); // TODO Probably log?
+        } finally {
+            if (running) schedule();
+        }
+    }
+
+    /**
+     * Removes the data objects that are to be removed, in batches up to the maximum number of batches.
+     *
+     * @return the number of removed data objects
+     * @throws CompletionException when the data manager could not remove the data objects
+     */
+    public int sweep() {
+        int removed = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            // A stopped sweeper only finishes the current batch
+            if (batch > 0 && executor.isShutdown()) break;
+            int count = dataManager.removeExpiredDataObjects(batchSize).join();
+            removed += count;
+            if (count < batchSize) break;
+        }
+        return removed;
+    }
+
+}
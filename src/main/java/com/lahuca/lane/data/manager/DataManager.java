@@ -1,19 +1,37 @@
 package com.lahuca.lane.data.manager;
 
+import com.google.gson.JsonElement;
+import com.lahuca.lane.data.DataMutation;
 import com.lahuca.lane.data.DataObject;
 import com.lahuca.lane.data.DataObjectId;
 import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.RelationalId;
+import com.lahuca.lane.data.selector.DataContinuation;
+import com.lahuca.lane.data.selector.DataOrder;
+import com.lahuca.lane.data.selector.DataPage;
 import com.lahuca.lane.data.selector.DataSelector;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public interface DataManager {
 
+    /**
+     * The number of times {@link #updateDataObject(PermissionKey, DataObjectId, Function)} tries to update a data object
+     * that is concurrently being modified.
+     */
+    int UPDATE_ATTEMPTS = 16;
+
     /**
      * Shutdown the data manager.
      */
@@ -34,10 +52,30 @@ public interface DataManager {
      */
     CompletableFuture<Optional<DataObject>> readDataObject(PermissionKey permissionKey, DataObjectId id);
 
+    /**
+     * Retrieves the data objects at the given ids with the given permission key.
+     * This works like {@link #readDataObject(PermissionKey, DataObjectId)}, but data managers can read them all at once.
+     * The data objects that do not exist are not present in the returned map.
+     *
+     * @param permissionKey the permission key to use while reading
+     * @param ids           the ids of the data objects to request
+     * @return a completable future with the map of the found data objects by their ID
+     */
+    default CompletableFuture<HashMap<DataObjectId, DataObject>> readDataObjects(PermissionKey permissionKey, Collection<DataObjectId> ids) {
+        HashMap<DataObjectId, DataObject> objects = new HashMap<>();
+        CompletableFuture<?>[] futures = ids.stream().distinct().map(id -> readDataObject(permissionKey, id).thenAccept(object -> object.ifPresent(value -> {
+            synchronized (objects) {
+                objects.put(id, value);
+            }
+        }))).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures).thenApply(none -> objects);
+    }
+
     /**
      * Writes the data object at the given id with the given permission key.
      * When no data object exists at the given id, it is created.
      * Otherwise, the data object is updated.
+     * The revision of the stored data object is increased by one, or set to one when it is created; the revision of the given object is set to it.
      * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
      *
      * @param permissionKey the permission key to use while writing
@@ -56,12 +94,29 @@ public interface DataManager {
      */
     CompletableFuture<Void> removeDataObject(PermissionKey permissionKey, DataObjectId id);
 
+    /**
+     * Writes the data object at the given id with the given permission key, but only when the stored revision matches the expected revision.
+     * When the expected revision is null, the data object is only written when no data object exists at the given id yet.
+     * The revision is increased by the data manager on every write, see {@link DataObject#getRevision()}; the version of the data object is written as given.
+     * When written, the revision of the stored and the given data object is set to the expected revision plus one; or to one when it is newly created.
+     * The comparison and the write happen atomically, no other write can happen in between.
+     * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
+     *
+     * @param permissionKey   the permission key to use while writing
+     * @param object          the data object to write
+     * @param expectedRevision the revision the stored data object is expected to have, null if it is expected to not exist
+     * @return a completable future with the status as boolean: true if it has been written, false if the revision did not match
+     */
+    CompletableFuture<Boolean> compareAndSetDataObject(PermissionKey permissionKey, DataObject object, Long expectedRevision);
+
     /**
      * Updates the data object at the given id with the given permission key.
      * First the data object is read from the given id, then is accepted in the consumer.
      * The function can modify the values within the given data object.
-     * After the consumer has been run, the updated data object is written back.
+     * After the consumer has been run, the updated data object is written back using {@link #compareAndSetDataObject(PermissionKey, DataObject, Long)}.
      * It is only written if the updater has returned true.
+     * When the data object has been modified in the meantime, it is read again and the updater is run again; so the updater might be called multiple times.
+     * When this did not succeed after {@link #UPDATE_ATTEMPTS} attempts, a {@link java.util.ConcurrentModificationException} is thrown in the {@link CompletableFuture}.
      * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
      *
      * @param permissionKey the permission key to use while reading and writing
@@ -71,14 +126,117 @@ public interface DataManager {
      * false when the data object did not exist.
      */
     default CompletableFuture<Boolean> updateDataObject(PermissionKey permissionKey, DataObjectId id, Function<DataObject, Boolean> updater) {
+        return updateDataObject(permissionKey, id, updater, UPDATE_ATTEMPTS);
+    }
+
+    private CompletableFuture<Boolean> updateDataObject(PermissionKey permissionKey, DataObjectId id, Function<DataObject, Boolean> updater, int attempts) {
         return readDataObject(permissionKey, id).thenCompose(dataObjectOptional -> {
             if (dataObjectOptional.isEmpty()) return CompletableFuture.completedFuture(false);
             DataObject dataObject = dataObjectOptional.get();
+            Optional<Long> expectedRevision = dataObject.getRevision();
             boolean write = updater.apply(dataObject);
-            return write ? writeDataObject(permissionKey, dataObject).thenApply(v -> true) : CompletableFuture.completedFuture(true);
+            if (!write) return CompletableFuture.completedFuture(true);
+            // Without read access we do not know the revision, so we cannot compare it.
+            if (expectedRevision.isEmpty()) return writeDataObject(permissionKey, dataObject).thenApply(v -> true);
+            return compareAndSetDataObject(permissionKey, dataObject, expectedRevision.get()).thenCompose(set -> {
+                if (set) return CompletableFuture.completedFuture(true);
+                if (attempts <= 1) {
+                    return CompletableFuture.failedFuture(new ConcurrentModificationException("Data object " + id + " kept being modified while updating"));
+                }
+                return updateDataObject(permissionKey, id, updater, attempts - 1);
+            });
+        });
+    }
+
+    /**
+     * Mutates the value of the data object at the given id with the given permission key.
+     * Unlike {@link #updateDataObject(PermissionKey, DataObjectId, Function)}, the mutation is executed by the data manager itself,
+     * so that the value does not need to be read and written as a whole.
+     * The revision of the data object is increased by one, its version is kept.
+     * When the permission key does not grant writing, a {@link PermissionFailedException} is thrown in the {@link CompletableFuture}.
+     * When the mutation cannot be applied to the value, an {@link IllegalArgumentException} is thrown in the {@link CompletableFuture}.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to mutate
+     * @param mutation      the mutation to apply
+     * @return a completable future with the status as boolean: true if mutated successfully, false when the data object did not exist.
+     */
+    default CompletableFuture<Boolean> mutateDataObject(PermissionKey permissionKey, DataObjectId id, DataMutation mutation) {
+        return updateDataObject(permissionKey, id, dataObject -> {
+            mutation.apply(dataObject);
+            return true;
         });
     }
 
+    /**
+     * Applies the JSON merge patch (RFC 7396) to the value of the data object at the given id.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to patch
+     * @param patch         the merge patch
+     * @return a completable future with the status as boolean: true if patched successfully, false when the data object did not exist.
+     * @see #mutateDataObject(PermissionKey, DataObjectId, DataMutation)
+     */
+    default CompletableFuture<Boolean> patchDataObject(PermissionKey permissionKey, DataObjectId id, JsonElement patch) {
+        return mutateDataObject(permissionKey, id, DataMutation.MergePatch(patch));
+    }
+
+    /**
+     * Sets the element at the JSON path within the value of the data object at the given id.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to modify
+     * @param path          the JSON path, its parent must exist
+     * @param value         the value to set
+     * @return a completable future with the status as boolean: true if set successfully, false when the data object did not exist.
+     * @see #mutateDataObject(PermissionKey, DataObjectId, DataMutation)
+     */
+    default CompletableFuture<Boolean> setPath(PermissionKey permissionKey, DataObjectId id, String path, JsonElement value) {
+        return mutateDataObject(permissionKey, id, DataMutation.Set(path, value));
+    }
+
+    /**
+     * Adds the delta to the number at the JSON path within the value of the data object at the given id.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to modify
+     * @param path          the JSON path, its parent must exist
+     * @param delta         the number to add, can be negative
+     * @return a completable future with the status as boolean: true if incremented successfully, false when the data object did not exist.
+     * @see #mutateDataObject(PermissionKey, DataObjectId, DataMutation)
+     */
+    default CompletableFuture<Boolean> incrementPath(PermissionKey permissionKey, DataObjectId id, String path, Number delta) {
+        return mutateDataObject(permissionKey, id, DataMutation.Increment(path, delta));
+    }
+
+    /**
+     * Appends the value to the array at the JSON path within the value of the data object at the given id.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to modify
+     * @param path          the JSON path of the array
+     * @param value         the value to append
+     * @return a completable future with the status as boolean: true if appended successfully, false when the data object did not exist.
+     * @see #mutateDataObject(PermissionKey, DataObjectId, DataMutation)
+     */
+    default CompletableFuture<Boolean> arrayAppend(PermissionKey permissionKey, DataObjectId id, String path, JsonElement value) {
+        return mutateDataObject(permissionKey, id, DataMutation.ArrayAppend(path, value));
+    }
+
+    /**
+     * Removes all elements equal to the value from the array at the JSON path within the value of the data object at the given id.
+     *
+     * @param permissionKey the permission key to use while writing
+     * @param id            the id of the data object to modify
+     * @param path          the JSON path of the array
+     * @param value         the value to remove
+     * @return a completable future with the status as boolean: true if removed successfully, false when the data object did not exist.
+     * @see #mutateDataObject(PermissionKey, DataObjectId, DataMutation)
+     */
+    default CompletableFuture<Boolean> arrayRemove(PermissionKey permissionKey, DataObjectId id, String path, JsonElement value) {
+        return mutateDataObject(permissionKey, id, DataMutation.ArrayRemove(path, value));
+    }
+
     /**
      * Retrieves a list of data object IDs whose key has the same prefix from the provided ID (case sensitive).
      * Example for the input with id = "myPrefix" with relationalId = ("players", "Laurenshup"), it will return:
@@ -142,6 +300,89 @@ public interface DataManager {
         });
     }
 
+    /**
+     * Removes all data objects of the given relational ID at once, except for the data objects with the given IDs.
+     * Data objects that the permission key is not allowed to write are left untouched.
+     * By default, this lists the data objects and removes them one by one; data managers should do this in bulk.
+     *
+     * @param permissionKey the permission key to use while removing
+     * @param relationalId  the relational ID
+     * @param exceptIds     the IDs of the data objects to keep
+     * @return a {@link CompletableFuture} with the number of removed data objects
+     */
+    @SuppressWarnings("removal")
+    default CompletableFuture<Integer> removeRelational(PermissionKey permissionKey, RelationalId relationalId, Collection<String> exceptIds) {
+        Objects.requireNonNull(relationalId, "relationalId cannot be null");
+        return listDataObjectIds(new DataObjectId(relationalId, null)).thenCompose(ids -> {
+            AtomicInteger removed = new AtomicInteger();
+            CompletableFuture<?>[] futures = ids.stream().filter(id -> !exceptIds.contains(id.id()))
+                    .map(id -> removeDataObject(permissionKey, id).handle((none, ex) -> {
+                        Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                        if (cause == null) removed.incrementAndGet();
+                        else if (!(cause instanceof PermissionFailedException)) throw new CompletionException(cause);
+                        return null;
+                    })).toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(futures).thenApply(none -> removed.get());
+        });
+    }
+
+    /**
+     * Copies all data objects of a relational ID to another relational ID of the same type at once, except for the data objects with the given IDs.
+     * Data objects that already exist at the target are overwritten.
+     * Data objects that the permission key is not allowed to write, either at the source or the target, are left untouched.
+     * By default, this lists the data objects and copies them one by one; data managers should do this in bulk.
+     *
+     * @param permissionKey the permission key to use while copying
+     * @param from          the relational ID to copy from
+     * @param toId          the relational ID (without the type) to copy to
+     * @param exceptIds     the IDs of the data objects not to copy
+     * @return a {@link CompletableFuture} with the void type to signify success: it has been copied
+     */
+    @SuppressWarnings("removal")
+    default CompletableFuture<Void> copyRelational(PermissionKey permissionKey, RelationalId from, String toId, Collection<String> exceptIds) {
+        Objects.requireNonNull(from, "from cannot be null");
+        Objects.requireNonNull(toId, "toId cannot be null");
+        if (from.id().equals(toId)) return CompletableFuture.completedFuture(null);
+        RelationalId to = new RelationalId(from.type(), toId);
+        return listDataObjectIds(new DataObjectId(from, null)).thenCompose(ids -> {
+            CompletableFuture<?>[] futures = ids.stream().filter(id -> !exceptIds.contains(id.id()))
+                    .map(id -> readDataObject(permissionKey, id).thenCompose(source -> {
+                        if (source.isEmpty() || !source.get().isWriteable()) return CompletableFuture.completedFuture(null);
+                        return writeDataObject(permissionKey, source.get().shallowCopy(new DataObjectId(to, id.id()), true, true));
+                    }).exceptionally(ex -> {
+                        Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                        if (!(cause instanceof PermissionFailedException)) throw new CompletionException(cause);
+                        return null;
+                    })).toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(futures);
+        });
+    }
+
+    /**
+     * Removes data objects whose removal time has passed, or that were only to be kept until the previous shutdown.
+     * At most the given number of data objects are removed, so that a sweep does not put too much load on the storage at once.
+     * Data objects that are to be removed are also removed lazily when they are read, so this only reclaims their storage.
+     * By default, nothing is removed.
+     *
+     * @param limit the maximum number of data objects to remove
+     * @return a {@link CompletableFuture} with the number of removed data objects
+     */
+    default CompletableFuture<Integer> removeExpiredDataObjects(int limit) {
+        return CompletableFuture.completedFuture(0);
+    }
+
+    /**
+     * Sets the listener that is told about every data object that this data manager removes by itself, as it was to be removed:
+     * both when it is removed by {@link #removeExpiredDataObjects(int)} and when it is removed lazily while it is read.
+     * Removals that are requested, such as {@link #removeDataObject(PermissionKey, DataObjectId)}, are not told, as the caller knows about them.
+     * The listener is not called while holding locks of the data manager.
+     * By default, nothing is removed by the data manager itself, so the listener is never called.
+     *
+     * @param listener the listener with the ID of the removed data object, null to remove the listener
+     */
+    default void setExpiryListener(Consumer<DataObjectId> listener) {
+    }
+
     /**
      * Selects data objects from the data manager based on the given selector.
      * @param permissionKey the permission key to use while reading
@@ -150,4 +391,33 @@ public interface DataManager {
      */
     CompletableFuture<ArrayList<DataObject>> selectDataObjects(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector);
 
+    /**
+     * Selects a page of data objects from the data manager based on the given selector.
+     * The page contains at most {@link DataSelector#limit()} data objects, and the continuation to retrieve the next page with.
+     * The next page is selected by passing the continuation to {@link DataSelector#continueAfter(String)},
+     * which continues after the last data object of this page instead of skipping an offset.
+     * When the continuation is not valid, an {@link IllegalArgumentException} is thrown in the {@link CompletableFuture}.
+     *
+     * @param permissionKey the permission key to use while reading
+     * @param selector      the selector to use
+     * @return a {@link CompletableFuture} with the page of found data objects
+     */
+    default CompletableFuture<DataPage> selectDataObjectsPage(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        Long limit = selector.limit();
+        if (limit == null) return selectDataObjects(permissionKey, selector).thenApply(objects -> new DataPage(objects, null));
+        return selectDataObjects(permissionKey, selector.limit(limit + 1)).thenApply(objects -> {
+            if (objects.size() <= limit || limit <= 0) return new DataPage(objects, null);
+            ArrayList<DataObject> page = new ArrayList<>(objects.subList(0, limit.intValue()));
+            DataObject last = page.get(page.size() - 1);
+            ArrayList<Object> values = new ArrayList<>();
+            if (selector.order() != null) {
+                for (DataOrder order : selector.order()) {
+                    values.add(DataContinuation.extractValue(order, last));
+                }
+            }
+            String relationalId = last.getId().isRelational() ? last.getId().relationalId().id() : null;
+            return new DataPage(page, new DataContinuation(values, relationalId, last.getId().id()).encode());
+        });
+    }
+
 }
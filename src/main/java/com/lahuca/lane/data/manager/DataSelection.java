@@ -0,0 +1,208 @@
+package com.lahuca.lane.data.manager;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.lahuca.lane.data.DataObject;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.JsonPath;
+import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.selector.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * The in-memory evaluation of a {@link DataSelector}, for data managers that cannot let the storage evaluate it.
+ * The data manager offers the stored data objects that match the ID operations of the selector,
+ * after which this applies the filters, the order, the continuation, the offset and the limit.
+ * <p>
+ * The filters and order paths are compiled once, and the value of every offered data object is parsed once.
+ * When there is a limit, only the best data objects up to the offset plus the limit are kept in a heap,
+ * instead of keeping and sorting all offered data objects.
+ * Offering is thread-safe, so that the data manager can read and offer its data objects in parallel.
+ */
+class DataSelection {
+
+    /**
+     * A data object that has been selected, together with its order values.
+     *
+     * @param object       the data object as the permission key is allowed to see it
+     * @param relationalId the relational ID, null for the singular table
+     * @param values       the order values, extracted from the stored data object
+     */
+    record SelectedObject(DataObject object, String relationalId, Object[] values) {}
+
+    private final PermissionKey permissionKey;
+    private final DataOrder[] order;
+    private final JsonPath[] orderPaths;
+    private final CompiledDataFilter filter;
+    private final CompiledDataFilter versionFilter;
+    private final DataContinuation continuation;
+    private final Comparator<SelectedObject> comparator;
+    private final SelectedObject after;
+    private final long skip;
+    private final long capacity; // The maximum number of kept data objects, -1 for no maximum
+    private final ArrayList<SelectedObject> selected = new ArrayList<>();
+    private final PriorityQueue<SelectedObject> heap; // The worst kept data object at the head, null without a maximum
+
+    /**
+     * Starts the selection.
+     *
+     * @param permissionKey the permission key to use while reading
+     * @param selector      the selector to use
+     * @param limit         the maximum number of data objects to select, null for no limit
+     * @throws IllegalArgumentException when the continuation or a path of the selector is not valid
+     */
+    DataSelection(PermissionKey permissionKey, DataSelector selector, Long limit) {
+        this.permissionKey = permissionKey;
+        order = selector.order() == null ? new DataOrder[0] : selector.order();
+        orderPaths = new JsonPath[order.length];
+        for (int i = 0; i < order.length; i++) {
+            orderPaths[i] = JsonPath.compile(order[i].path());
+        }
+        filter = selector.filter() == null ? null : CompiledDataFilter.compile(selector.filter());
+        versionFilter = selector.versionFilter() == null ? null : CompiledDataFilter.compileVersion(selector.versionFilter());
+        continuation = selector.continuation() == null ? null : DataContinuation.decode(selector.continuation());
+        if (continuation != null && continuation.values().size() != order.length) {
+            throw new IllegalArgumentException("Continuation token does not match the order");
+        }
+        comparator = buildComparator(order);
+        after = continuation == null ? null
+                : new SelectedObject(new DataObject(new DataObjectId(null, continuation.id())), continuation.relationalId(), continuation.values().toArray());
+        skip = continuation == null && selector.offset() != null ? Math.max(0, selector.offset()) : 0;
+        capacity = limit == null || limit < 0 || limit > Integer.MAX_VALUE - skip ? -1 : skip + limit;
+        heap = capacity < 0 ? null : new PriorityQueue<>((int) Math.max(1, Math.min(capacity, 1024)), comparator.reversed());
+    }
+
+    /**
+     * Builds the comparator that orders the selected objects according to the given orders.
+     * Ties are broken by the relational ID and ID, in the direction of the last order.
+     *
+     * @param order the orders
+     * @return the comparator
+     */
+    private static Comparator<SelectedObject> buildComparator(DataOrder[] order) {
+        Comparator<SelectedObject> comparator = (o1, o2) -> 0;
+        boolean descending = false;
+        for (int i = 0; i < order.length; i++) {
+            int index = i;
+            descending = order[i].type() == DataOrderType.DESCENDING;
+            Comparator<SelectedObject> current = (o1, o2) -> DataContinuation.compareValues(o1.values()[index], o2.values()[index]);
+            comparator = comparator.thenComparing(descending ? current.reversed() : current);
+        }
+        Comparator<SelectedObject> tiebreaker = Comparator.comparing(SelectedObject::relationalId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(selected -> selected.object().getId().id());
+        return comparator.thenComparing(descending ? tiebreaker.reversed() : tiebreaker);
+    }
+
+    /**
+     * Returns a predicate that accepts the IDs (or relational IDs) that match the given operation.
+     *
+     * @param id        the ID of the selector, null or empty matches every ID
+     * @param operation the operation
+     * @return the predicate
+     */
+    static Predicate<String> acceptId(String id, DataIdOperation operation) {
+        if (id == null || id.isEmpty()) return name -> true;
+        return switch (operation) {
+            case EXACT -> name -> name.equals(id);
+            case PREFIX -> name -> name.startsWith(id);
+            default -> name -> true;
+        };
+    }
+
+    /**
+     * Offers a stored data object, which matches the ID operations of the selector and is not to be removed.
+     * This can be called from multiple threads at once.
+     *
+     * @param id     the ID of the data object
+     * @param stored the stored data object
+     */
+    void offer(DataObjectId id, DataObject stored) {
+        // We got a value, so we are legit
+        if (stored.getValue().isEmpty()) return;
+        if (versionFilter != null) {
+            // We need to filter on version
+            if (stored.getVersion().isEmpty() || !versionFilter.test(new JsonPrimitive(stored.getVersion().get()))) {
+                // We do not have a version, or we do not match the filter.
+                return;
+            }
+        }
+        JsonElement value = DataContinuation.parseValue(stored.getValue().get());
+        if (filter != null && !filter.test(value)) {
+            // We got a filter but it does not match the object.
+            return;
+        }
+        Object[] values = new Object[order.length];
+        for (int i = 0; i < order.length; i++) {
+            values[i] = DataContinuation.extractValue(orderPaths[i], order[i].cast(), value);
+        }
+        SelectedObject candidate = new SelectedObject(stored, id.isRelational() ? id.relationalId().id() : null, values);
+        if (after != null && comparator.compare(candidate, after) <= 0) return;
+        synchronized (this) {
+            if (capacity == 0 || (heap != null && heap.size() >= capacity && comparator.compare(candidate, heap.peek()) >= 0)) {
+                // It would not make it into the result
+                return;
+            }
+        }
+        boolean readAccess = stored.hasReadAccess(permissionKey, true);
+        boolean writeAccess = stored.hasWriteAccess(permissionKey, false);
+        SelectedObject copy = new SelectedObject(stored.shallowCopy(id, readAccess, writeAccess), candidate.relationalId(), values);
+        synchronized (this) {
+            if (heap == null) {
+                selected.add(copy);
+                return;
+            }
+            heap.add(copy);
+            if (heap.size() > capacity) heap.poll();
+        }
+    }
+
+    /**
+     * Finishes the selection by ordering the kept data objects, and applying the offset and the limit.
+     * The offset is only applied without a continuation.
+     *
+     * @return the selected data objects
+     */
+    synchronized List<SelectedObject> finish() {
+        ArrayList<SelectedObject> sorted = heap == null ? selected : new ArrayList<>(heap);
+        sorted.sort(comparator);
+        if (skip >= sorted.size()) return new ArrayList<>();
+        List<SelectedObject> result = sorted.subList((int) skip, sorted.size());
+        if (capacity >= 0 && result.size() > capacity - skip) result = result.subList(0, (int) (capacity - skip));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Converts the selected data objects into the data objects.
+     *
+     * @param selected the selected data objects
+     * @return the data objects
+     */
+    static ArrayList<DataObject> toObjects(List<SelectedObject> selected) {
+        return selected.stream().map(SelectedObject::object).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Converts the selected data objects into a page.
+     *
+     * @param selected the selected data objects, with at most one more than the limit
+     * @param limit    the limit of the page, null for no limit
+     * @return the page, with a continuation if there were more selected data objects than the limit
+     */
+    static DataPage toPage(List<SelectedObject> selected, Long limit) {
+        ArrayList<DataObject> objects = new ArrayList<>();
+        for (int i = 0; i < selected.size() && (limit == null || i < limit); i++) {
+            objects.add(selected.get(i).object());
+        }
+        if (limit == null || selected.size() <= limit || objects.isEmpty()) return new DataPage(objects, null);
+        SelectedObject last = selected.get(objects.size() - 1);
+        return new DataPage(objects, new DataContinuation(Arrays.asList(last.values()), last.relationalId(), last.object().getId().id()).encode());
+    }
+
+}
@@ -3,18 +3,27 @@ package com.lahuca.lane.data.manager;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.lahuca.lane.data.DataMutation;
 import com.lahuca.lane.data.DataObject;
 import com.lahuca.lane.data.DataObjectId;
 import com.lahuca.lane.data.DataObjectType;
 import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.RelationalId;
 import com.lahuca.lane.data.selector.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -42,24 +51,139 @@ import java.util.stream.Stream;
  *     </ul>
  * </ul>
  * The JSON files themselves are the data objects.
+ * <p>
+ * Files are never written in place: a data object is written to a temporary file next to it, which is synced and then atomically moved over the file.
+ * The folder is synced after the move as well, so that the move itself survives a crash where the file system supports syncing folders.
+ * A crash therefore leaves either the old or the new data object, never a partially written one.
+ * Temporary files that are left behind by a crash are deleted when the data manager is created.
+ * The permission, removal time and revision of the data objects are kept in memory after they have been seen once,
+ * so that writes do not need to read the file to check the permission.
+ * Writes are not written to disk immediately, but by a background flusher after the flush delay.
+ * Successive writes to the same data object within the delay are coalesced into a single write to disk.
+ * The returned futures complete once the data object has been written to disk; reads see pending writes immediately.
+ * A pending write that is superseded by the removal of its data object is never written, its future completes normally,
+ * as the write happened before the removal, just as when it had been written to disk before being removed.
+ * <p>
+ * Data objects with a removal time are kept in an expiry index, so that {@link #removeExpiredDataObjects(int)} finds them without scanning the files.
+ * <p>
+ * Selecting data objects reads the candidate files in parallel on a fork join pool when there are many of them,
+ * see {@link DataSelection} for how they are filtered and ordered.
  */
 public class FileDataManager implements DataManager {
 
-    // TODO Make method that runs through all data objects in the system to remove any that are supposed to be gone due to removalTime. This should spare data.
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int PARALLEL_SCAN_THRESHOLD = 64;
 
     private final Gson gson;
     private final File dataFolder;
     private final long startTime = System.currentTimeMillis();
-    private final HashSet<DataObjectId> removeOnStop = new HashSet<>(); // TODO Maybe too much RAM usage?
+    private final Object[] locks = new Object[64];
+    private final ConcurrentHashMap<DataObjectId, Metadata> metadata = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Expiry> expiries = new ConcurrentSkipListSet<>(); // The data objects with a removal time, by removal time
+    private final ArrayDeque<File> indexQueue = new ArrayDeque<>(); // The folders and files that still have to be added to the expiry index
+    private boolean indexStarted;
+    private boolean expiriesIndexed;
+    private final ConcurrentHashMap<DataObjectId, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final ForkJoinPool scanPool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    private long flushDelay = 10;
+    private volatile Consumer<DataObjectId> expiryListener;
 
     public FileDataManager(Gson gson, File dataFolder) throws FileNotFoundException {
         this.gson = gson;
         this.dataFolder = dataFolder;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
         if (!dataFolder.exists()) {
             if (!dataFolder.mkdirs()) {
                 throw new FileNotFoundException("Unable to create data folder, could not find file");
             }
         }
+        deleteTempFiles();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lane-File-Flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the time a write waits before it is written to disk, during which successive writes to the same data object are coalesced.
+     *
+     * @param flushDelay the delay in milliseconds, 0 writes as soon as possible
+     */
+    public void setFlushDelay(long flushDelay) {
+        if (flushDelay < 0) throw new IllegalArgumentException("Flush delay cannot be negative");
+        this.flushDelay = flushDelay;
+    }
+
+    public long getFlushDelay() {
+        return flushDelay;
+    }
+
+    /**
+     * The metadata of a stored data object that is needed to check permissions, removal and revisions without reading the file.
+     *
+     * @param writePermission the write permission
+     * @param lastUpdated     the last updated time
+     * @param removalTime     the removal time
+     * @param revision        the revision
+     */
+    private record Metadata(PermissionKey writePermission, Long lastUpdated, Long removalTime, long revision) {
+
+        private static Metadata of(DataObject object) {
+            return new Metadata(object.getWritePermission().orElse(null), object.getLastUpdated().orElse(null),
+                    object.getRemovalTime().orElse(null), object.getRevision().orElse(0L));
+        }
+
+        private boolean hasWriteAccess(PermissionKey permissionKey) {
+            return writePermission != null && writePermission.checkAccess(permissionKey);
+        }
+
+        /**
+         * @see DataObject#shouldRemove(long)
+         */
+        private boolean shouldRemove(long startTime) {
+            if (removalTime == null) return false;
+            if (removalTime > 0 && System.currentTimeMillis() >= removalTime) return true;
+            return removalTime == 0 && lastUpdated != null && lastUpdated < startTime;
+        }
+
+    }
+
+    /**
+     * An entry in the expiry index, which orders the data objects with a removal time by their removal time.
+     *
+     * @param removalTime the removal time
+     * @param key         the key to order data objects with the same removal time
+     * @param id          the data object ID
+     */
+    private record Expiry(long removalTime, String key, DataObjectId id) implements Comparable<Expiry> {
+
+        private Expiry(long removalTime, DataObjectId id) {
+            this(removalTime, id.toString(), id);
+        }
+
+        @Override
+        public int compareTo(Expiry other) {
+            int compare = Long.compare(removalTime, other.removalTime);
+            return compare != 0 ? compare : key.compareTo(other.key);
+        }
+
+    }
+
+    /**
+     * A write of a data object that has not been written to disk yet.
+     * Later writes replace the JSON, the futures of all coalesced writes complete once it has been written.
+     */
+    private static final class PendingWrite {
+
+        private String json;
+        private final ArrayList<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        private PendingWrite(String json) {
+            this.json = json;
+        }
+
     }
 
     private File buildFilePath(DataObjectId id) {
@@ -70,103 +194,569 @@ public class FileDataManager implements DataManager {
         return new File(file, id.id() + ".json");
     }
 
+    /**
+     * Gets the lock that guards the file of the given data object ID.
+     * Multiple IDs share the same lock, as there are only a fixed number of locks.
+     *
+     * @param id the data object ID
+     * @return the lock
+     */
+    private Object getLock(DataObjectId id) {
+        return locks[Math.floorMod(id.hashCode(), locks.length)];
+    }
+
+    /**
+     * Sets the metadata of the data object and keeps the expiry index up to date.
+     * This must be called while holding the lock of the ID.
+     *
+     * @param id      the data object ID
+     * @param updated the new metadata, or null when the data object has been removed
+     */
+    private void setMetadata(DataObjectId id, Metadata updated) {
+        Metadata previous = updated == null ? metadata.remove(id) : metadata.put(id, updated);
+        Long previousTime = previous == null ? null : previous.removalTime();
+        Long updatedTime = updated == null ? null : updated.removalTime();
+        if (Objects.equals(previousTime, updatedTime)) return;
+        if (previousTime != null && previousTime > 0) expiries.remove(new Expiry(previousTime, id));
+        if (updatedTime != null && updatedTime > 0) expiries.add(new Expiry(updatedTime, id));
+    }
+
+    /**
+     * Reads the stored data object, which is the pending write if there is one.
+     * This must be called while holding the lock of the ID.
+     *
+     * @param id   the data object ID
+     * @param file the file of the data object
+     * @return the stored data object, or null if it does not exist
+     * @throws IOException when the file could not be read
+     */
+    private DataObject readStored(DataObjectId id, File file) throws IOException {
+        PendingWrite write = pending.get(id);
+        if (write != null) return gson.fromJson(write.json, DataObject.class);
+        if (!file.exists()) return null;
+        DataObject stored;
+        try (FileReader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+            stored = gson.fromJson(reader, DataObject.class);
+        }
+        if (stored == null) return null;
+        // Files written before revisions existed are at revision zero
+        if (stored.getRevision().isEmpty()) stored.setRevision(0L);
+        setMetadata(id, Metadata.of(stored));
+        return stored;
+    }
+
+    /**
+     * Reads the metadata of the file, without keeping it.
+     *
+     * @param file the file of the data object
+     * @return the metadata, or null if it does not exist
+     * @throws IOException when the file could not be read
+     */
+    private Metadata readMetadata(File file) throws IOException {
+        if (!file.exists()) return null;
+        DataObject stored;
+        try (FileReader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+            stored = gson.fromJson(reader, DataObject.class);
+        }
+        return stored == null ? null : Metadata.of(stored);
+    }
+
+    /**
+     * Retrieves the metadata of the stored data object, only reading the file when it has not been seen before.
+     * This must be called while holding the lock of the ID.
+     *
+     * @param id   the data object ID
+     * @param file the file of the data object
+     * @return the metadata, or null if it does not exist
+     * @throws IOException when the file could not be read
+     */
+    private Metadata getMetadata(DataObjectId id, File file) throws IOException {
+        Metadata current = metadata.get(id);
+        if (current != null) return current;
+        readStored(id, file);
+        return metadata.get(id);
+    }
+
+    /**
+     * Queues the write of the data object, which coalesces with a pending write of the same data object.
+     * This must be called while holding the lock of the ID.
+     *
+     * @param object the data object to write
+     * @return the future that completes once the data object has been written to disk
+     */
+    private CompletableFuture<Void> queueWrite(DataObject object) {
+        DataObjectId id = object.getId();
+        String json = gson.toJson(object);
+        setMetadata(id, Metadata.of(object));
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        PendingWrite write = pending.get(id);
+        if (write != null) {
+            write.json = json;
+            write.futures.add(future);
+            return future;
+        }
+        write = new PendingWrite(json);
+        write.futures.add(future);
+        pending.put(id, write);
+        try {
+            flusher.schedule(() -> flush(id), flushDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // We are shutting down, write it now
+            flush(id);
+        }
+        return future;
+    }
+
+    /**
+     * Writes the pending write of the data object to disk, if there is one.
+     *
+     * @param id the data object ID
+     */
+    private void flush(DataObjectId id) {
+        PendingWrite write;
+        IOException failure = null;
+        synchronized (getLock(id)) {
+            write = pending.remove(id);
+            if (write == null) return;
+            try {
+                writeFile(buildFilePath(id), write.json);
+            } catch (IOException e) {
+                // The metadata might not match the file anymore
+                setMetadata(id, null);
+                failure = e;
+            }
+        }
+        // Complete outside the lock, so that dependent actions do not run while holding it
+        for (CompletableFuture<Void> future : write.futures) {
+            if (failure == null) future.complete(null);
+            else future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Writes all pending writes to disk.
+     */
+    public void flush() {
+        for (DataObjectId id : pending.keySet()) {
+            flush(id);
+        }
+    }
+
+    /**
+     * Writes the JSON to a temporary file, syncs it and moves it atomically over the given file, after which the folder is synced.
+     *
+     * @param file the file
+     * @param json the contents
+     * @throws IOException when the file could not be written
+     */
+    private static void writeFile(File file, String json) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) throw new IOException("Could not create parent directory");
+        File temp = new File(parent, file.getName() + TEMP_EXTENSION);
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(json.getBytes(StandardCharsets.UTF_8));
+            output.getChannel().force(true);
+        } catch (SecurityException e) {
+            throw new IOException(e);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncFolder(parent);
+    }
+
+    /**
+     * Syncs the given folder, so that the files that have been moved into it are durable.
+     * Not all platforms allow opening a folder, on those this is skipped.
+     *
+     * @param folder the folder
+     */
+    private static void syncFolder(File folder) {
+        try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | SecurityException e) {
+            // The folder cannot be opened or synced on this platform
+        }
+    }
+
+    /**
+     * Deletes the temporary files that have been left behind by writes that were interrupted by a crash.
+     * Their data object has either not been moved over or has been fully moved, so they are never needed.
+     */
+    private void deleteTempFiles() {
+        try (Stream<Path> paths = Files.walk(dataFolder.toPath())) {
+            paths.filter(path -> isTempFile(path.toFile())).forEach(path -> path.toFile().delete());
+        } catch (IOException | UncheckedIOException | SecurityException e) {
+            // Left over temporary files are ignored by reads, so they can be deleted another time
+        }
+    }
+
+    private static boolean isTempFile(File file) {
+        return file.getName().endsWith(TEMP_EXTENSION);
+    }
+
     @Override
     public void shutdown() {
-        removeOnStop.forEach(id -> removeDataObject(PermissionKey.CONTROLLER, id));
+        ArrayList<CompletableFuture<Void>> superseded = new ArrayList<>();
+        // Remove all data objects that were only to be kept until the shutdown, without going through the permission checks
+        for (Map.Entry<DataObjectId, Metadata> entry : metadata.entrySet()) {
+            Long removalTime = entry.getValue().removalTime();
+            if (removalTime == null || removalTime != 0) continue;
+            synchronized (getLock(entry.getKey())) {
+                delete(entry.getKey(), buildFilePath(entry.getKey()), superseded);
+            }
+        }
+        superseded.forEach(future -> future.complete(null));
+        flush();
+        flusher.shutdown();
+        scanPool.shutdown();
     }
 
     @Override
     public CompletableFuture<Optional<DataObject>> readDataObject(PermissionKey permissionKey, DataObjectId id) {
-        File file = buildFilePath(id);
-        if (!file.exists()) return CompletableFuture.completedFuture(Optional.empty());
-        try (FileReader reader = new FileReader(file)) {
-            DataObject object = gson.fromJson(reader, DataObject.class);
-            // First check if this object is to be removed
-            if (object.shouldRemove(startTime)) {
-                return removeDataObject(PermissionKey.CONTROLLER, id).thenApply(status -> Optional.empty());
+        DataObject object;
+        synchronized (getLock(id)) {
+            try {
+                object = readStored(id, buildFilePath(id));
+            } catch (IOException | JsonIOException | JsonSyntaxException e) {
+                return CompletableFuture.failedFuture(e);
             }
-            // Object should not be removed, check read access
-            boolean readAccess = object.hasReadAccess(permissionKey, true);
-            boolean writeAccess = object.hasWriteAccess(permissionKey, false);
-            object = object.shallowCopy(null, readAccess, writeAccess);
-            return CompletableFuture.completedFuture(Optional.of(object));
-        } catch (IOException | JsonIOException | JsonSyntaxException e) {
-            return CompletableFuture.failedFuture(e);
         }
+        if (object == null) return CompletableFuture.completedFuture(Optional.empty());
+        // First check if this object is to be removed
+        if (object.shouldRemove(startTime)) {
+            deleteExpired(id);
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        // Object should not be removed, check read access
+        boolean readAccess = object.hasReadAccess(permissionKey, true);
+        boolean writeAccess = object.hasWriteAccess(permissionKey, false);
+        object = object.shallowCopy(null, readAccess, writeAccess);
+        return CompletableFuture.completedFuture(Optional.of(object));
     }
 
     @Override
     public CompletableFuture<Void> writeDataObject(PermissionKey permissionKey, DataObject object) {
-        // Check if given object is even valid.
+        synchronized (getLock(object.getId())) {
+            // Check if given object is even valid.
+            if (!object.isWriteable())
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Object is not writeable"));
+            if (!object.hasWriteAccess(permissionKey, false))
+                return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing given object"));
+            // Check if we have write access on the saved object, if it exists.
+            Metadata current;
+            try {
+                current = getMetadata(object.getId(), buildFilePath(object.getId()));
+                if (current != null && !current.hasWriteAccess(permissionKey))
+                    return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+            } catch (IOException | JsonIOException | JsonSyntaxException | SecurityException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            // We can overwrite, update last update and revision first
+            object.setLastUpdated(System.currentTimeMillis());
+            object.setRevision(current == null ? 1 : current.revision() + 1);
+            return queueWrite(object);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSetDataObject(PermissionKey permissionKey, DataObject object, Long expectedRevision) {
         if (!object.isWriteable())
             return CompletableFuture.failedFuture(new IllegalArgumentException("Object is not writeable"));
-        if (!object.hasWriteAccess(permissionKey, false))
-            return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing given object"));
-        File file = buildFilePath(object.getId());
-        // Check if it already exists
-        if (!file.exists()) {
-            // It does not exist, create it first.
+        synchronized (getLock(object.getId())) {
             try {
-                if (!file.getParentFile().exists()) {
-                    if (!file.getParentFile().mkdirs())
-                        return CompletableFuture.failedFuture(new SecurityException("Could not create parent directory"));
+                Metadata current = getMetadata(object.getId(), buildFilePath(object.getId()));
+                if (expectedRevision == null) {
+                    if (current != null) return CompletableFuture.completedFuture(false);
+                } else {
+                    if (current == null) return CompletableFuture.completedFuture(false);
+                    if (!current.hasWriteAccess(permissionKey))
+                        return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+                    if (expectedRevision != current.revision())
+                        return CompletableFuture.completedFuture(false);
                 }
-                if (!file.createNewFile())
-                    return CompletableFuture.failedFuture(new SecurityException("Could not create file"));
-            } catch (IOException | SecurityException e) {
+            } catch (IOException | JsonIOException | JsonSyntaxException | SecurityException e) {
                 return CompletableFuture.failedFuture(e);
             }
-        } else {
-            // It exists, check if we have write access on it.
-            try (FileReader reader = new FileReader(file)) {
-                DataObject current = gson.fromJson(reader, DataObject.class);
-                boolean writeAccess = current.hasWriteAccess(permissionKey, false);
-                if (!writeAccess)
+            // Still holding the lock, so the write increases the revision to the expected revision plus one
+            return writeDataObject(permissionKey, object).thenApply(v -> true);
+        }
+    }
+
+    /**
+     * Mutates the data object while holding the lock of its file, so no compare and set is needed.
+     */
+    @Override
+    public CompletableFuture<Boolean> mutateDataObject(PermissionKey permissionKey, DataObjectId id, DataMutation mutation) {
+        synchronized (getLock(id)) {
+            DataObject object;
+            try {
+                object = readStored(id, buildFilePath(id));
+            } catch (IOException | JsonIOException | JsonSyntaxException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (object == null) return CompletableFuture.completedFuture(false);
+            if (!object.shouldRemove(startTime)) {
+                if (!object.hasWriteAccess(permissionKey, false))
                     return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+                try {
+                    mutation.apply(object);
+                } catch (IllegalArgumentException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                return writeDataObject(permissionKey, object).thenApply(v -> true);
+            }
+        }
+        // The object is to be removed, which is done outside the lock so that the expiry listener is not called while holding it
+        deleteExpired(id);
+        return CompletableFuture.completedFuture(false);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeDataObject(PermissionKey permissionKey, DataObjectId id) {
+        ArrayList<CompletableFuture<Void>> superseded = new ArrayList<>();
+        synchronized (getLock(id)) {
+            File file = buildFilePath(id);
+            try {
+                Metadata current = getMetadata(id, file);
+                if (current == null) return CompletableFuture.completedFuture(null);
+                if (!current.hasWriteAccess(permissionKey))
+                    return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow removing saved object"));
             } catch (IOException | JsonIOException | JsonSyntaxException | SecurityException e) {
                 return CompletableFuture.failedFuture(e);
             }
+            if (!delete(id, file, superseded)) return CompletableFuture.failedFuture(new SecurityException("Could not delete file"));
         }
-        // We can overwrite, update last update first
-        object.setLastUpdated(System.currentTimeMillis());
-        try (FileWriter writer = new FileWriter(file)) {
-            gson.toJson(object, writer);
-            // It is completed, if removed upon stop, add to list
-            object.getRemovalTime().ifPresent(removalTime -> {
-                if (removalTime == 0) {
-                    removeOnStop.add(object.getId());
-                } else {
-                    removeOnStop.remove(object.getId());
+        superseded.forEach(future -> future.complete(null));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Deletes the file of the data object, together with its metadata and pending write.
+     * This must be called while holding the lock of the ID.
+     *
+     * The futures of the pending write have been superseded by the removal, they are added to the given list
+     * so that they can be completed normally after releasing the lock: the write is ordered before the removal, so it did not fail.
+     *
+     * @param id         the data object ID
+     * @param file       the file of the data object
+     * @param superseded the list to add the futures of the pending write to
+     * @return true if it has been deleted, false if the file could not be deleted
+     */
+    private boolean delete(DataObjectId id, File file, List<CompletableFuture<Void>> superseded) {
+        if (file.exists() && !file.delete()) return false;
+        setMetadata(id, null);
+        PendingWrite write = pending.remove(id);
+        // Remove the parent directory for if this is empty
+        if (Optional.ofNullable(file.getParentFile().listFiles()).map(files -> files.length == 0).orElse(false)) {
+            file.getParentFile().delete();
+        }
+        if (write != null) superseded.addAll(write.futures);
+        return true;
+    }
+
+    /**
+     * Lists the files of the data objects in the folder of the given relational ID.
+     *
+     * @param relationalId the relational ID
+     * @return the files, empty when there are none
+     */
+    private File[] listRelationalFiles(RelationalId relationalId) {
+        if (relationalId.type() == null || relationalId.type().isEmpty() || relationalId.type().length() > 64 || !relationalId.type().matches("[a-zA-Z]+")) {
+            throw new IllegalArgumentException("Relational ID type is not properly formatted");
+        }
+        flush();
+        File[] files = new File(dataFolder, "relational" + File.separator + relationalId.type() + File.separator + relationalId.id()).listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private static String getId(File file) {
+        String name = file.getName();
+        return name.endsWith(".json") ? name.substring(0, name.length() - ".json".length()) : null;
+    }
+
+    /**
+     * Removes the files of the relational ID one by one, only reading the files whose metadata is not known.
+     */
+    @Override
+    public CompletableFuture<Integer> removeRelational(PermissionKey permissionKey, RelationalId relationalId, Collection<String> exceptIds) {
+        File[] files;
+        try {
+            files = listRelationalFiles(relationalId);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        ArrayList<CompletableFuture<Void>> superseded = new ArrayList<>();
+        int removed = 0;
+        for (File file : files) {
+            String name = getId(file);
+            if (name == null || exceptIds.contains(name)) continue;
+            DataObjectId id = new DataObjectId(relationalId, name);
+            synchronized (getLock(id)) {
+                try {
+                    Metadata current = getMetadata(id, file);
+                    if (current == null || !current.hasWriteAccess(permissionKey)) continue;
+                } catch (IOException | JsonIOException | JsonSyntaxException | SecurityException e) {
+                    superseded.forEach(future -> future.complete(null));
+                    return CompletableFuture.failedFuture(e);
                 }
-            });
-            return CompletableFuture.completedFuture(null);
-        } catch (IOException e) {
+                if (delete(id, file, superseded)) removed++;
+            }
+        }
+        superseded.forEach(future -> future.complete(null));
+        return CompletableFuture.completedFuture(removed);
+    }
+
+    /**
+     * Copies the files of the relational ID one by one, without listing the data objects up front.
+     */
+    @Override
+    public CompletableFuture<Void> copyRelational(PermissionKey permissionKey, RelationalId from, String toId, Collection<String> exceptIds) {
+        File[] files;
+        try {
+            files = listRelationalFiles(from);
+        } catch (IllegalArgumentException e) {
             return CompletableFuture.failedFuture(e);
         }
+        if (from.id().equals(toId)) return CompletableFuture.completedFuture(null);
+        RelationalId to = new RelationalId(from.type(), toId);
+        ArrayList<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (File file : files) {
+            String name = getId(file);
+            if (name == null || exceptIds.contains(name)) continue;
+            DataObjectId sourceId = new DataObjectId(from, name);
+            DataObject source;
+            synchronized (getLock(sourceId)) {
+                try {
+                    source = readStored(sourceId, file);
+                } catch (IOException | JsonIOException | JsonSyntaxException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                if (source == null || source.shouldRemove(startTime) || !source.hasWriteAccess(permissionKey, false)) continue;
+            }
+            DataObjectId targetId = new DataObjectId(to, name);
+            writes.add(writeDataObject(permissionKey, source.shallowCopy(targetId, true, true)).exceptionally(ex -> {
+                // Targets that cannot be written are left untouched
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                if (!(cause instanceof PermissionFailedException)) throw new CompletionException(cause);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0]));
     }
 
+    /**
+     * Removes the expired data objects through the expiry index, which only contains the data objects whose metadata is known.
+     * Until all files have been seen, every call also indexes at most the given number of unseen files,
+     * which removes the data objects that were only to be kept until the previous shutdown.
+     * Only the metadata of data objects with a removal time is kept while indexing.
+     * Data objects that could not be deleted stay in the expiry index, so that they are tried again the next time.
+     */
     @Override
-    public CompletableFuture<Void> removeDataObject(PermissionKey permissionKey, DataObjectId id) {
-        File file = buildFilePath(id);
-        if (!file.exists()) return CompletableFuture.completedFuture(null);
-        try (FileReader reader = new FileReader(file)) {
-            DataObject object = gson.fromJson(reader, DataObject.class);
-            boolean writeAccess = object.hasWriteAccess(permissionKey, false);
-            if (!writeAccess)
-                return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow removing saved object"));
-            else {
-                // Remove
-                if (file.delete()) {
-                    // Remove the parent directory for if this is empty
-                    if (Optional.ofNullable(file.getParentFile().listFiles()).map(files -> files.length == 0).orElse(false)) {
-                        file.getParentFile().delete();
+    public CompletableFuture<Integer> removeExpiredDataObjects(int limit) {
+        ArrayList<CompletableFuture<Void>> superseded = new ArrayList<>();
+        ArrayList<DataObjectId> removedIds = new ArrayList<>();
+        int removed = 0;
+        synchronized (indexQueue) {
+            if (!expiriesIndexed) {
+                if (!indexStarted) {
+                    indexStarted = true;
+                    indexQueue.add(new File(dataFolder, "singular"));
+                    File[] types = new File(dataFolder, "relational").listFiles();
+                    if (types != null) indexQueue.addAll(Arrays.asList(types));
+                }
+                int scanned = 0;
+                while (scanned < limit && removed < limit && !indexQueue.isEmpty()) {
+                    File file = indexQueue.poll();
+                    if (file.isDirectory()) {
+                        File[] files = file.listFiles();
+                        if (files != null) indexQueue.addAll(Arrays.asList(files));
+                        continue;
+                    }
+                    if (isTempFile(file) || !file.getName().endsWith(".json")) continue;
+                    File folder = file.getParentFile();
+                    boolean singular = folder.getParentFile().equals(dataFolder);
+                    DataObjectId id = new DataObjectId(singular ? null : new RelationalId(folder.getParentFile().getName(), folder.getName()), getId(file));
+                    synchronized (getLock(id)) {
+                        Metadata current = metadata.get(id);
+                        if (current == null) {
+                            scanned++;
+                            try {
+                                current = readMetadata(file);
+                            } catch (IOException | JsonIOException | JsonSyntaxException | SecurityException e) {
+                                // Skip files that cannot be read, they fail when they are read as well
+                                continue;
+                            }
+                            if (current == null || current.removalTime() == null) continue;
+                            setMetadata(id, current);
+                        }
+                        if (current.shouldRemove(startTime) && delete(id, file, superseded)) {
+                            removedIds.add(id);
+                            removed++;
+                        }
                     }
-                    return CompletableFuture.completedFuture(null);
-                } else return CompletableFuture.failedFuture(new SecurityException("Could not delete file"));
+                }
+                expiriesIndexed = indexQueue.isEmpty();
             }
-        } catch (IOException | JsonIOException | JsonSyntaxException | SecurityException e) {
-            return CompletableFuture.failedFuture(e);
         }
+        long now = System.currentTimeMillis();
+        ArrayList<Expiry> failed = new ArrayList<>();
+        while (removed < limit && !expiries.isEmpty()) {
+            Expiry expiry = expiries.first();
+            if (expiry.removalTime() > now) break;
+            if (!expiries.remove(expiry)) continue;
+            synchronized (getLock(expiry.id())) {
+                Metadata current = metadata.get(expiry.id());
+                if (current == null || !current.shouldRemove(startTime)) continue;
+                if (delete(expiry.id(), buildFilePath(expiry.id()), superseded)) {
+                    removedIds.add(expiry.id());
+                    removed++;
+                } else {
+                    failed.add(expiry);
+                }
+            }
+        }
+        // Put the data objects that could not be deleted back, after the loop as they would be tried again immediately otherwise
+        for (Expiry expiry : failed) {
+            synchronized (getLock(expiry.id())) {
+                Metadata current = metadata.get(expiry.id());
+                if (current != null && current.removalTime() != null && current.removalTime() == expiry.removalTime()) expiries.add(expiry);
+            }
+        }
+        superseded.forEach(future -> future.complete(null));
+        removedIds.forEach(this::expired);
+        return CompletableFuture.completedFuture(removed);
+    }
+
+    /**
+     * Deletes the data object when it is still to be removed, and tells the expiry listener about it.
+     * This must not be called while holding the lock of the ID.
+     * When the file could not be deleted, the data object is left for {@link #removeExpiredDataObjects(int)}.
+     *
+     * @param id the data object ID
+     */
+    private void deleteExpired(DataObjectId id) {
+        ArrayList<CompletableFuture<Void>> superseded = new ArrayList<>();
+        boolean removed;
+        synchronized (getLock(id)) {
+            Metadata current = metadata.get(id);
+            removed = current != null && current.shouldRemove(startTime) && delete(id, buildFilePath(id), superseded);
+        }
+        superseded.forEach(future -> future.complete(null));
+        if (removed) expired(id);
+    }
+
+    private void expired(DataObjectId id) {
+        Consumer<DataObjectId> listener = expiryListener;
+        // Singular IDs from selectors might carry the relational ID of the selector
+        if (listener != null) listener.accept(id.isRelational() ? id : new DataObjectId(null, id.id()));
+    }
+
+    @Override
+    public void setExpiryListener(Consumer<DataObjectId> listener) {
+        expiryListener = listener;
     }
 
     @Override
@@ -175,6 +765,7 @@ public class FileDataManager implements DataManager {
         if (prefix.isRelational() && (prefix.relationalId().type() == null || prefix.relationalId().type().isEmpty() || prefix.relationalId().type().length() > 64 || !prefix.relationalId().type().matches("[a-zA-Z]+"))) {
             throw new IllegalArgumentException("Relational ID type is not properly formatted");
         }
+        flush();
         File[] folders;
         if (prefix.isRelational())
             folders = new File(dataFolder, "relational" + File.separator + prefix.relationalId().type()).listFiles();
@@ -187,6 +778,7 @@ public class FileDataManager implements DataManager {
             File[] files = folder.listFiles();
             if(files == null) continue;
             for (File file : files) {
+                if (isTempFile(file)) continue;
                 String nameExtension = file.getName();
                 String name = nameExtension;
                 if (nameExtension.contains(".")) {
@@ -200,132 +792,99 @@ public class FileDataManager implements DataManager {
         return CompletableFuture.completedFuture(ids);
     }
 
-    @Override
-    public CompletableFuture<ArrayList<DataObject>> selectDataObjects(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+    /**
+     * Selects the data objects that match the selector, in the order of the selector.
+     * The continuation, offset and limit of the selector are applied.
+     *
+     * @param permissionKey the permission key to use while reading
+     * @param selector      the selector to use
+     * @param limit         the maximum number of data objects to return, null for no limit
+     * @return the selected data objects
+     */
+    private CompletableFuture<List<DataSelection.SelectedObject>> select(PermissionKey permissionKey, DataSelector selector, Long limit) {
         DataObjectId id = selector.id();
+        DataSelection selection;
+        try {
+            selection = new DataSelection(permissionKey, selector, limit);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        flush();
         ArrayList<File> folders = new ArrayList<>();
-        if(id.isRelational()) {
-            if(id.relationalId().id() != null && !id.relationalId().id().isEmpty()) {
-                File[] relationalFolders = new File(dataFolder, "relational" + File.separator + selector.id().relationalId().type()).listFiles();
-                if(relationalFolders == null) return CompletableFuture.completedFuture(new ArrayList<>());
-                Function<String, Boolean> acceptFile = switch (selector.relationalIdOperation()) {
-                    case EXACT -> name -> name.equals(id.relationalId().id());
-                    case PREFIX -> name -> name.startsWith(id.relationalId().id());
-                    default -> name -> true;
-                };
-                for (File relationalFolder : relationalFolders) {
-                    if(acceptFile.apply(relationalFolder.getName())) folders.add(relationalFolder);
-                }
+        if (id.isRelational()) {
+            File[] relationalFolders = new File(dataFolder, "relational" + File.separator + id.relationalId().type()).listFiles();
+            if (relationalFolders == null) return CompletableFuture.completedFuture(new ArrayList<>());
+            Predicate<String> acceptFolder = DataSelection.acceptId(id.relationalId().id(), selector.relationalIdOperation());
+            for (File relationalFolder : relationalFolders) {
+                if (acceptFolder.test(relationalFolder.getName())) folders.add(relationalFolder);
             }
         } else {
             folders.add(new File(dataFolder, "singular"));
         }
-        if(folders.isEmpty()) return CompletableFuture.completedFuture(new ArrayList<>());
-        ArrayList<DataObjectId> ids = new ArrayList<>();
+        Predicate<String> acceptFile = DataSelection.acceptId(id.id(), selector.idOperation());
+        ArrayList<File> candidates = new ArrayList<>();
         for (File folder : folders) {
             File[] files = folder.listFiles();
-            if(files == null) continue;
+            if (files == null) continue;
             for (File file : files) {
-                String nameExtension = file.getName();
-                String name = nameExtension;
-                if (nameExtension.contains(".")) {
-                    name = name.substring(0, nameExtension.lastIndexOf("."));
-                }
-                Function<String, Boolean> acceptFile = switch (selector.idOperation()) {
-                    case EXACT -> current -> current.equals(id.relationalId().id());
-                    case PREFIX -> current -> current.startsWith(id.relationalId().id());
-                    default -> current -> true;
-                };
-                if(acceptFile.apply(name)) ids.add(new DataObjectId(id.relationalId(), name));
+                if (isTempFile(file)) continue;
+                String name = file.getName();
+                if (name.contains(".")) name = name.substring(0, name.lastIndexOf("."));
+                if (acceptFile.test(name)) candidates.add(file);
             }
         }
-        // We got the IDs, now read, filter and sort
-        ArrayList<CompletableFuture<?>> futures = new ArrayList<>();
-        HashMap<DataObject, Object> unsorted = new HashMap<>(); // Value is the value
-        for (DataObjectId dataObjectId : ids) {
-            futures.add(readDataObject(permissionKey, dataObjectId).thenAccept(opt -> opt.ifPresent(dataObject -> {
-                if(dataObject.getValue().isPresent()) {
-                    // We got a value, so we are legit
-                    if(selector.versionFilter() != null) {
-                        // We need to filter on version
-                        if(dataObject.getVersion().isEmpty() || !selector.versionFilter().filter(null, dataObject.getVersion().get())) {
-                            // We do not have a version, or we do not match the filter.
-                            return;
-                        }
-                    }
-                    if(selector.filter() != null) {
-                        if(!selector.filter().filter(null, dataObject)) {
-                            // We got a filter but it does not match the object.
-                            return;
-                        }
-                    }
-                    unsorted.put(dataObject, dataObject.getValue().get());
-                }
-            })));
-        }
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(val -> {
-            // We got the unsorted data objects, try to sort them
-            Comparator<Map.Entry<DataObject, Object>> comparator = null;
-            for (DataOrder dataOrder : selector.order()) {
-                Comparator<Map.Entry<DataObject, Object>> current = (o1, o2) -> {
-                    Object value1 = o1.getValue();
-                    Object value2 = o2.getValue();
-                    if (dataOrder.path() != null) {
-                        throw new UnsupportedOperationException("JSONPath is not supported for file data manager due to the need of a JSONPath library.");
-                    }
-                    int multiplier = dataOrder.type() != null && dataOrder.type() == DataOrderType.DESCENDING ? -1 : 1;
-                    DataObjectType cast = dataOrder.cast();
-                    if (cast == null) cast = DataObjectType.DOUBLE;
-                    int comparison = switch (cast) {
-                        case INTEGER, LONG, FLOAT, DOUBLE -> {
-                            Number casted1 = null;
-                            try {
-                                casted1 = (Number) value1;
-                            } catch (Exception e) {
-                                casted1 = 0;
-                            }
-                            Number casted2 = null;
-                            try {
-                                casted2 = (Number) value2;
-                            } catch (Exception e) {
-                                casted2 = 0;
-                            }
-                            yield Double.compare(casted1.doubleValue(), casted2.doubleValue());
-                        }
-                        case BOOLEAN -> {
-                            Boolean casted1 = null;
-                            try {
-                                casted1 = (Boolean) value1;
-                            } catch (Exception e) {
-                                casted1 = false;
-                            }
-                            Boolean casted2 = null;
-                            try {
-                                casted2 = (Boolean) value2;
-                            } catch (Exception e) {
-                                casted2 = false;
-                            }
-                            yield Boolean.compare(casted1, casted2);
-                        }
-                        default -> {
-                            String casted1 = value1.toString();
-                            String casted2 = value2.toString();
-                            yield casted1.compareTo(casted2);
-                        }
-                    };
-                    return multiplier * comparison;
-                };
-                if (comparator == null) comparator = current;
-                else comparator = comparator.thenComparing(current);
+        try {
+            if (candidates.size() < PARALLEL_SCAN_THRESHOLD) {
+                candidates.forEach(file -> scan(file, id, selection));
+            } else {
+                // Parallel streams run within the pool they are started from
+                scanPool.submit(() -> candidates.parallelStream().forEach(file -> scan(file, id, selection))).join();
             }
-            // Run stream
-            Stream<Map.Entry<DataObject, Object>> stream = unsorted.entrySet().stream();
-            if(comparator != null) stream = stream.sorted(comparator);
-            if(selector.limit() != null) stream = stream.limit(selector.limit());
-            if(selector.offset() != null) stream = stream.skip(selector.offset());
-            return stream.map(Map.Entry::getKey).collect(Collectors.toCollection(ArrayList::new));
-        });
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        } catch (JsonIOException | JsonSyntaxException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(selection.finish());
     }
 
+    /**
+     * Reads the data object of the given file and offers it to the selection.
+     *
+     * @param file      the file of the data object
+     * @param id        the ID of the selector
+     * @param selection the selection
+     * @throws UncheckedIOException when the file could not be read
+     */
+    private void scan(File file, DataObjectId id, DataSelection selection) {
+        String name = file.getName();
+        if (name.contains(".")) name = name.substring(0, name.lastIndexOf("."));
+        DataObjectId dataObjectId = new DataObjectId(id.isRelational() ? new RelationalId(id.relationalId().type(), file.getParentFile().getName()) : id.relationalId(), name);
+        DataObject stored;
+        synchronized (getLock(dataObjectId)) {
+            try {
+                stored = readStored(dataObjectId, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (stored == null) return;
+        if (stored.shouldRemove(startTime)) {
+            deleteExpired(dataObjectId);
+            return;
+        }
+        selection.offer(dataObjectId, stored);
+    }
+
+    @Override
+    public CompletableFuture<ArrayList<DataObject>> selectDataObjects(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        return select(permissionKey, selector, selector.limit()).thenApply(DataSelection::toObjects);
+    }
+
+    @Override
+    public CompletableFuture<DataPage> selectDataObjectsPage(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        Long limit = selector.limit();
+        return select(permissionKey, selector, limit == null ? null : limit + 1).thenApply(selected -> DataSelection.toPage(selected, limit));
+    }
 
 }
@@ -0,0 +1,1007 @@
+package com.lahuca.lane.data.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.lahuca.lane.data.DataMutation;
+import com.lahuca.lane.data.DataObject;
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.PermissionKey;
+import com.lahuca.lane.data.RelationalId;
+import com.lahuca.lane.data.selector.DataIdOperation;
+import com.lahuca.lane.data.selector.DataPage;
+import com.lahuca.lane.data.selector.DataSelector;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Data Manager that stores the data objects in a log on the file system:
+ * <ul>
+ *     <li>/data</li>
+ *     <ul>
+ *         <li>/MANIFEST: the segments that make up the log</li>
+ *         <li>/0000000000000001.log</li>
+ *         <li>/0000000000000002.log</li>
+ *     </ul>
+ * </ul>
+ * Every write appends a record with the whole data object to the active segment, every removal appends a tombstone.
+ * The location of the latest record of every data object is kept in an in-memory index,
+ * together with the metadata that is needed to check permissions, revisions and removal without reading the record.
+ * Segments that are full are sealed and read through a memory mapping.
+ * <p>
+ * Writes are acknowledged once they are synced to disk. Syncing is batched:
+ * all writes that are appended within the commit interval are synced at once (group commit).
+ * When a large part of the sealed segments has been overwritten or removed, the live records are compacted into new segments.
+ * Every record carries a sequence number, so that the latest record of a data object wins when the log is recovered,
+ * regardless of the segment it is in. Recovery drops a partially written record at the end of a segment.
+ */
+public class LogDataManager implements DataManager {
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String SEGMENT_EXTENSION = ".log";
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_LENGTH = 8; // Length and checksum
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final Gson gson;
+    private final File dataFolder;
+    private final long startTime = System.currentTimeMillis();
+    private final Object[] locks = new Object[64];
+
+    private final ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock(); // Guards the deletion of compacted segments
+    private final Object appendLock = new Object();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong segmentIds = new AtomicLong();
+    private Segment active;
+    private volatile Consumer<DataObjectId> expiryListener;
+
+    private long segmentSize = 64L * 1024 * 1024;
+    private long commitInterval = 2;
+    private double compactionRatio = 0.5;
+
+    private final Object commitLock = new Object();
+    private ArrayList<CompletableFuture<Void>> commits = new ArrayList<>();
+    private final Thread committer;
+    private final ExecutorService compactor;
+    private volatile boolean compacting;
+    private volatile boolean running = true;
+
+    public LogDataManager(Gson gson, File dataFolder) throws IOException {
+        this.gson = gson;
+        this.dataFolder = dataFolder;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+        if (!dataFolder.exists()) {
+            if (!dataFolder.mkdirs()) {
+                throw new FileNotFoundException("Unable to create data folder, could not find file");
+            }
+        }
+        recover();
+        committer = new Thread(this::runCommitter, "Lane-Log-Commit");
+        committer.setDaemon(true);
+        committer.start();
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lane-Log-Compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the size after which the active segment is sealed and a new one is started.
+     *
+     * @param segmentSize the size in bytes, at most {@link Integer#MAX_VALUE} as sealed segments are memory mapped
+     */
+    public void setSegmentSize(long segmentSize) {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) throw new IllegalArgumentException("Segment size must be positive and fit in a memory mapping");
+        this.segmentSize = segmentSize;
+    }
+
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the time that is waited for more writes, before the writes are synced to disk at once.
+     * A higher interval syncs less often under load, at the cost of the latency of every write.
+     *
+     * @param commitInterval the interval in milliseconds, 0 syncs as soon as possible
+     */
+    public void setCommitInterval(long commitInterval) {
+        if (commitInterval < 0) throw new IllegalArgumentException("Commit interval cannot be negative");
+        this.commitInterval = commitInterval;
+    }
+
+    public long getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * Sets the fraction of the sealed segments that has to be overwritten or removed, before they are compacted.
+     *
+     * @param compactionRatio the ratio between 0 and 1
+     */
+    public void setCompactionRatio(double compactionRatio) {
+        if (compactionRatio <= 0 || compactionRatio >= 1) throw new IllegalArgumentException("Compaction ratio must be between 0 and 1");
+        this.compactionRatio = compactionRatio;
+    }
+
+    public double getCompactionRatio() {
+        return compactionRatio;
+    }
+
+    // Keys
+
+    /**
+     * Builds the key of the data object ID within the index.
+     * The keys are ordered, so that the data objects of a relational type and relational ID are next to each other.
+     *
+     * @param id the data object ID
+     * @return the key
+     */
+    private static String toKey(DataObjectId id) {
+        if (id.isRelational()) return toTypeKey(id.relationalId().type()) + id.relationalId().id() + '\0' + id.id();
+        return "S\0" + id.id();
+    }
+
+    private static String toTypeKey(String type) {
+        if (type.isEmpty() || type.length() > 64 || !type.matches("[a-zA-Z]+")) {
+            throw new IllegalArgumentException("Relational ID type is not properly formatted");
+        }
+        return "R" + type + '\0';
+    }
+
+    private static DataObjectId fromKey(String key) {
+        if (key.charAt(0) == 'S') return new DataObjectId(null, key.substring(2));
+        int first = key.indexOf('\0');
+        int second = key.indexOf('\0', first + 1);
+        return new DataObjectId(new RelationalId(key.substring(1, first), key.substring(first + 1, second)), key.substring(second + 1));
+    }
+
+    private Object getLock(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
+    // Storage
+
+    /**
+     * A segment file of the log.
+     * The active segment and segments that are being compacted into are written to; sealed segments are immutable and memory mapped.
+     */
+    private static final class Segment {
+
+        private final long id;
+        private final File file;
+        private final FileChannel channel;
+        private final AtomicLong live = new AtomicLong(); // The bytes of the records that are still in the index
+        private volatile long size;
+        private volatile MappedByteBuffer mapping;
+
+        private Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            size = channel.size();
+        }
+
+        private long append(ByteBuffer record) throws IOException {
+            long position = size;
+            long written = 0;
+            while (record.hasRemaining()) {
+                written += channel.write(record, position + written);
+            }
+            size = position + written;
+            return position;
+        }
+
+        private ByteBuffer read(long offset, int length) throws IOException {
+            MappedByteBuffer mapping = this.mapping;
+            byte[] bytes = new byte[length];
+            if (mapping != null) {
+                mapping.get((int) offset, bytes);
+                return ByteBuffer.wrap(bytes);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Unexpected end of segment " + file.getName());
+            }
+            return buffer.flip();
+        }
+
+        private void seal() throws IOException {
+            channel.force(false);
+            if (size > 0) mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        private void delete() throws IOException {
+            mapping = null;
+            channel.close();
+            Files.deleteIfExists(file.toPath());
+        }
+
+    }
+
+    /**
+     * The location and metadata of the latest record of a data object.
+     *
+     * @param segment         the segment of the record
+     * @param recordOffset    the offset of the record within the segment
+     * @param recordLength    the length of the whole record
+     * @param valueOffset     the offset of the serialized data object within the segment
+     * @param valueLength     the length of the serialized data object
+     * @param sequence        the sequence number of the record
+     * @param writePermission the write permission of the data object
+     * @param removalTime     the removal time of the data object
+     * @param lastUpdated     the last updated time of the data object
+     * @param revision        the revision of the data object
+     */
+    private record Entry(Segment segment, long recordOffset, int recordLength, long valueOffset, int valueLength, long sequence,
+                         PermissionKey writePermission, Long removalTime, Long lastUpdated, long revision) {
+
+        private Entry moveTo(Segment target, long position) {
+            return new Entry(target, position, recordLength, position + (valueOffset - recordOffset), valueLength, sequence,
+                    writePermission, removalTime, lastUpdated, revision);
+        }
+
+        private boolean hasWriteAccess(PermissionKey permissionKey) {
+            return writePermission != null && writePermission.checkAccess(permissionKey);
+        }
+
+        private boolean shouldRemove(long startTime) {
+            if (removalTime == null) return false;
+            if (removalTime > 0 && System.currentTimeMillis() >= removalTime) return true;
+            return removalTime == 0 && lastUpdated != null && lastUpdated < startTime;
+        }
+
+    }
+
+    /**
+     * Encodes a record: its length, the checksum of the body, and the body.
+     * The body contains the sequence number, the operation, the key and for a put the metadata and the serialized data object.
+     *
+     * @return the record, ready to be written
+     */
+    private static ByteBuffer encode(long sequence, byte operation, String key, DataObject object, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] permission = object == null ? null : object.getWritePermission().map(p -> p.toString().getBytes(StandardCharsets.UTF_8)).orElse(null);
+        int bodyLength = 8 + 1 + 4 + keyBytes.length;
+        if (operation == PUT) bodyLength += 8 + 8 + 8 + 4 + (permission == null ? 0 : permission.length) + 4 + value.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + bodyLength);
+        buffer.putInt(bodyLength).putInt(0);
+        buffer.putLong(sequence).put(operation).putInt(keyBytes.length).put(keyBytes);
+        if (operation == PUT) {
+            buffer.putLong(object.getRemovalTime().orElse(NONE));
+            buffer.putLong(object.getLastUpdated().orElse(NONE));
+            buffer.putLong(object.getRevision().orElse(0L));
+            buffer.putInt(permission == null ? -1 : permission.length);
+            if (permission != null) buffer.put(permission);
+            buffer.putInt(value.length).put(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_LENGTH, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * A decoded record.
+     *
+     * @param key      the key
+     * @param sequence the sequence number
+     * @param entry    the entry of a put, null for a tombstone
+     */
+    private record Record(String key, long sequence, Entry entry) {}
+
+    /**
+     * Decodes the body of a record.
+     *
+     * @param segment the segment of the record
+     * @param offset  the offset of the record
+     * @param body    the body
+     * @return the record
+     */
+    private static Record decode(Segment segment, long offset, ByteBuffer body) {
+        int recordLength = HEADER_LENGTH + body.remaining();
+        long sequence = body.getLong();
+        byte operation = body.get();
+        byte[] keyBytes = new byte[body.getInt()];
+        body.get(keyBytes);
+        String key = new String(keyBytes, StandardCharsets.UTF_8);
+        if (operation == DELETE) return new Record(key, sequence, null);
+        long removalTime = body.getLong();
+        long lastUpdated = body.getLong();
+        long revision = body.getLong();
+        int permissionLength = body.getInt();
+        PermissionKey permission = null;
+        if (permissionLength >= 0) {
+            byte[] permissionBytes = new byte[permissionLength];
+            body.get(permissionBytes);
+            permission = PermissionKey.fromString(new String(permissionBytes, StandardCharsets.UTF_8));
+        }
+        int valueLength = body.getInt();
+        long valueOffset = offset + HEADER_LENGTH + body.position();
+        return new Record(key, sequence, new Entry(segment, offset, recordLength, valueOffset, valueLength, sequence, permission,
+                removalTime == NONE ? null : removalTime, lastUpdated == NONE ? null : lastUpdated, revision));
+    }
+
+    private File segmentFile(long id) {
+        return new File(dataFolder, String.format("%016d", id) + SEGMENT_EXTENSION);
+    }
+
+    /**
+     * Writes the manifest with the current segments, by atomically replacing it.
+     */
+    private void writeManifest() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (long id : new TreeSet<>(segments.keySet())) {
+            builder.append(id).append('\n');
+        }
+        Path manifest = new File(dataFolder, MANIFEST).toPath();
+        Path temporary = new File(dataFolder, MANIFEST + ".tmp").toPath();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Recovers the index from the segments in the manifest.
+     * Segments that are not in the manifest are left overs of compaction, and are deleted.
+     * Afterward, a new active segment is started.
+     */
+    private void recover() throws IOException {
+        File manifest = new File(dataFolder, MANIFEST);
+        TreeSet<Long> ids = new TreeSet<>();
+        File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+        if (manifest.exists()) {
+            for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) ids.add(Long.parseLong(line.trim()));
+            }
+        } else if (files != null) {
+            for (File file : files) {
+                ids.add(Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_EXTENSION.length())));
+            }
+        }
+        if (files != null) {
+            for (File file : files) {
+                long id = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_EXTENSION.length()));
+                segmentIds.accumulateAndGet(id, Math::max);
+                if (!ids.contains(id)) Files.deleteIfExists(file.toPath());
+            }
+        }
+        HashMap<String, Long> removed = new HashMap<>(); // The sequence numbers of the tombstones
+        for (long id : ids) {
+            Segment segment = new Segment(id, segmentFile(id));
+            segments.put(id, segment);
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (position + HEADER_LENGTH <= segment.size) {
+                header.clear();
+                segment.channel.read(header, position);
+                int bodyLength = header.getInt(0);
+                if (bodyLength < 13 || position + HEADER_LENGTH + bodyLength > segment.size) break;
+                ByteBuffer body = segment.read(position + HEADER_LENGTH, bodyLength);
+                CRC32 crc = new CRC32();
+                crc.update(body.array(), 0, bodyLength);
+                if ((int) crc.getValue() != header.getInt(4)) break;
+                Record record;
+                try {
+                    record = decode(segment, position, body);
+                } catch (RuntimeException e) {
+                    break;
+                }
+                sequence.accumulateAndGet(record.sequence(), Math::max);
+                Entry current = index.get(record.key());
+                long currentSequence = Math.max(current == null ? -1 : current.sequence(), removed.getOrDefault(record.key(), -1L));
+                if (record.sequence() > currentSequence) {
+                    if (record.entry() == null) {
+                        index.remove(record.key());
+                        removed.put(record.key(), record.sequence());
+                    } else {
+                        index.put(record.key(), record.entry());
+                    }
+                }
+                position += HEADER_LENGTH + bodyLength;
+            }
+            if (position < segment.size) {
+                // The rest of the segment has not been written completely
+                segment.channel.truncate(position);
+                segment.size = position;
+            }
+            segment.seal();
+        }
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            // Their records are left out when compacting, the tombstone is not needed as all sealed segments are compacted at once
+            if (entry.getValue().shouldRemove(startTime)) {
+                index.remove(entry.getKey());
+            } else {
+                entry.getValue().segment().live.addAndGet(entry.getValue().recordLength());
+            }
+        }
+        long id = segmentIds.incrementAndGet();
+        active = new Segment(id, segmentFile(id));
+        segments.put(id, active);
+        writeManifest();
+    }
+
+    /**
+     * Appends the record to the active segment, starting a new active segment when it is full.
+     * The record is not synced yet, see {@link #commit()}.
+     *
+     * @param record the record
+     * @return the segment and position the record has been appended at
+     */
+    private Map.Entry<Segment, Long> append(ByteBuffer record) throws IOException {
+        synchronized (appendLock) {
+            if (active.size > 0 && active.size + record.remaining() > segmentSize) {
+                active.seal();
+                long id = segmentIds.incrementAndGet();
+                Segment segment = new Segment(id, segmentFile(id));
+                segments.put(id, segment);
+                writeManifest();
+                active = segment;
+                scheduleCompaction();
+            }
+            return Map.entry(active, active.append(record));
+        }
+    }
+
+    /**
+     * Writes the data object as the latest record of the key with the next revision, the caller must hold the lock of the key.
+     *
+     * @return a {@link CompletableFuture} that is completed once the record is synced
+     */
+    private CompletableFuture<Void> put(String key, DataObject object) {
+        try {
+            Entry current = index.get(key);
+            object.setRevision(current == null ? 1 : current.revision() + 1);
+            byte[] value = gson.toJson(object).getBytes(StandardCharsets.UTF_8);
+            long recordSequence = sequence.incrementAndGet();
+            ByteBuffer record = encode(recordSequence, PUT, key, object, value);
+            int recordLength = record.remaining();
+            Map.Entry<Segment, Long> location = append(record);
+            Entry entry = new Entry(location.getKey(), location.getValue(), recordLength, location.getValue() + recordLength - value.length, value.length,
+                    recordSequence, object.getWritePermission().orElse(null), object.getRemovalTime().orElse(null),
+                    object.getLastUpdated().orElse(null), object.getRevision().get());
+            location.getKey().live.addAndGet(recordLength);
+            Entry previous = index.put(key, entry);
+            if (previous != null) previous.segment().live.addAndGet(-previous.recordLength());
+            return commit();
+        } catch (IOException | JsonParseException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Removes the key by writing a tombstone, the caller must hold the lock of the key.
+     *
+     * @return a {@link CompletableFuture} that is completed once the tombstone is synced
+     */
+    private CompletableFuture<Void> delete(String key) {
+        try {
+            append(encode(sequence.incrementAndGet(), DELETE, key, null, null));
+            Entry previous = index.remove(key);
+            if (previous != null) previous.segment().live.addAndGet(-previous.recordLength());
+            return commit();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Reads the data object of the entry.
+     *
+     * @return the stored data object, or null if the key has been compacted away while reading
+     */
+    private DataObject read(String key) throws IOException {
+        segmentLock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            if (entry == null) return null;
+            ByteBuffer value = entry.segment().read(entry.valueOffset(), entry.valueLength());
+            return gson.fromJson(new String(value.array(), StandardCharsets.UTF_8), DataObject.class);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    // Group commit
+
+    /**
+     * Waits until the records that have been appended so far are synced.
+     *
+     * @return a {@link CompletableFuture} that is completed once they are synced
+     */
+    private CompletableFuture<Void> commit() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (commitLock) {
+            commits.add(future);
+            commitLock.notifyAll();
+        }
+        return future;
+    }
+
+    private void runCommitter() {
+        while (true) {
+            ArrayList<CompletableFuture<Void>> batch;
+            try {
+                synchronized (commitLock) {
+                    while (commits.isEmpty() && running) commitLock.wait();
+                    if (commits.isEmpty()) return;
+                }
+                if (commitInterval > 0 && running) Thread.sleep(commitInterval);
+            } catch (InterruptedException e) {
+                if (running) continue;
+            }
+            synchronized (commitLock) {
+                batch = commits;
+                commits = new ArrayList<>();
+            }
+            try {
+                // Sealed segments have been synced when they were sealed
+                Segment segment;
+                synchronized (appendLock) {
+                    segment = active;
+                }
+                segment.channel.force(false);
+                batch.forEach(future -> future.complete(null));
+            } catch (IOException e) {
+                batch.forEach(future -> future.completeExceptionally(e));
+            }
+        }
+    }
+
+    // Compaction
+
+    private void scheduleCompaction() {
+        if (compacting) return;
+        long size = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            if (segment == active) continue;
+            size += segment.size;
+            live += segment.live.get();
+        }
+        if (size - live >= segmentSize / 2 && size - live >= compactionRatio * size) {
+            compacting = true;
+            compactor.execute(() -> {
+                try {
+                    compactSealed();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    compacting = false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Compacts the sealed segments into new segments that only contain their live records.
+     *
+     * @return a {@link CompletableFuture} with the void type to signify success: it has been compacted
+     */
+    public CompletableFuture<Void> compact() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                compactSealed();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, compactor);
+    }
+
+    private void compactSealed() throws IOException {
+        Set<Segment> compacted = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (appendLock) {
+            for (Segment segment : segments.values()) {
+                if (segment != active) compacted.add(segment);
+            }
+        }
+        if (compacted.isEmpty()) return;
+        ArrayList<Segment> outputs = new ArrayList<>();
+        Segment output = null;
+        for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            if (!compacted.contains(entry.segment())) continue;
+            if (output == null || (output.size > 0 && output.size + entry.recordLength() > segmentSize)) {
+                if (output != null) output.seal();
+                long id = segmentIds.incrementAndGet();
+                output = new Segment(id, segmentFile(id));
+                outputs.add(output);
+            }
+            // The record keeps its sequence number, so a newer record of the data object still wins when recovering
+            long position = output.append(entry.segment().read(entry.recordOffset(), entry.recordLength()));
+            Entry moved = entry.moveTo(output, position);
+            if (index.replace(mapEntry.getKey(), entry, moved)) output.live.addAndGet(entry.recordLength());
+        }
+        if (output != null) output.seal();
+        synchronized (appendLock) {
+            for (Segment segment : outputs) segments.put(segment.id, segment);
+            for (Segment segment : compacted) segments.remove(segment.id);
+            writeManifest();
+        }
+        segmentLock.writeLock().lock();
+        try {
+            for (Segment segment : compacted) segment.delete();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // Data manager
+
+    @Override
+    public void shutdown() {
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            Long removalTime = entry.getValue().removalTime();
+            if (removalTime != null && removalTime == 0) {
+                synchronized (getLock(entry.getKey())) {
+                    delete(entry.getKey());
+                }
+            }
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+        running = false;
+        synchronized (commitLock) {
+            commitLock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException ignored) {
+        }
+        synchronized (appendLock) {
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.channel.force(false);
+                    segment.channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<DataObject>> readDataObject(PermissionKey permissionKey, DataObjectId id) {
+        String key;
+        try {
+            key = toKey(id);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Entry entry = index.get(key);
+        if (entry == null) return CompletableFuture.completedFuture(Optional.empty());
+        if (entry.shouldRemove(startTime)) {
+            return deleteExpired(key).thenApply(status -> Optional.empty());
+        }
+        try {
+            DataObject object = read(key);
+            if (object == null) return CompletableFuture.completedFuture(Optional.empty());
+            boolean readAccess = object.hasReadAccess(permissionKey, true);
+            boolean writeAccess = object.hasWriteAccess(permissionKey, false);
+            return CompletableFuture.completedFuture(Optional.of(object.shallowCopy(null, readAccess, writeAccess)));
+        } catch (IOException | JsonParseException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> writeDataObject(PermissionKey permissionKey, DataObject object) {
+        // Check if given object is even valid.
+        if (!object.isWriteable())
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Object is not writeable"));
+        if (!object.hasWriteAccess(permissionKey, false))
+            return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing given object"));
+        String key;
+        try {
+            key = toKey(object.getId());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        synchronized (getLock(key)) {
+            Entry current = index.get(key);
+            if (current != null && !current.hasWriteAccess(permissionKey))
+                return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+            object.setLastUpdated(System.currentTimeMillis());
+            return put(key, object);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSetDataObject(PermissionKey permissionKey, DataObject object, Long expectedRevision) {
+        if (!object.isWriteable())
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Object is not writeable"));
+        if (!object.hasWriteAccess(permissionKey, false))
+            return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing given object"));
+        String key;
+        try {
+            key = toKey(object.getId());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        synchronized (getLock(key)) {
+            Entry current = index.get(key);
+            if (expectedRevision == null) {
+                if (current != null) return CompletableFuture.completedFuture(false);
+            } else {
+                if (current == null) return CompletableFuture.completedFuture(false);
+                if (!current.hasWriteAccess(permissionKey))
+                    return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+                if (expectedRevision != current.revision()) return CompletableFuture.completedFuture(false);
+            }
+            object.setLastUpdated(System.currentTimeMillis());
+            return put(key, object).thenApply(v -> true);
+        }
+    }
+
+    /**
+     * Mutates the data object while holding the lock of its key, so no compare and set is needed.
+     */
+    @Override
+    public CompletableFuture<Boolean> mutateDataObject(PermissionKey permissionKey, DataObjectId id, DataMutation mutation) {
+        String key;
+        try {
+            key = toKey(id);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        synchronized (getLock(key)) {
+            Entry current = index.get(key);
+            if (current == null) return CompletableFuture.completedFuture(false);
+            if (!current.shouldRemove(startTime)) {
+                if (!current.hasWriteAccess(permissionKey))
+                    return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+                DataObject object;
+                try {
+                    object = read(key);
+                    if (object == null) return CompletableFuture.completedFuture(false);
+                    mutation.apply(object);
+                } catch (IOException | JsonParseException | IllegalArgumentException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                object.setLastUpdated(System.currentTimeMillis());
+                return put(key, object).thenApply(v -> true);
+            }
+        }
+        // The object is to be removed, which is done outside the lock so that the expiry listener is not called while holding it
+        return deleteExpired(key).thenApply(v -> false);
+    }
+
+    /**
+     * Removes the data objects of the relational ID by going through its range of the in-memory index.
+     * The tombstones are synced together.
+     */
+    @Override
+    public CompletableFuture<Integer> removeRelational(PermissionKey permissionKey, RelationalId relationalId, Collection<String> exceptIds) {
+        NavigableMap<String, Entry> keys;
+        try {
+            keys = range(toTypeKey(relationalId.type()) + relationalId.id() + '\0');
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Relational ID is not properly formatted", e));
+        }
+        ArrayList<CompletableFuture<Void>> deletes = new ArrayList<>();
+        for (String key : keys.keySet()) {
+            if (exceptIds.contains(fromKey(key).id())) continue;
+            synchronized (getLock(key)) {
+                Entry current = index.get(key);
+                if (current != null && current.hasWriteAccess(permissionKey)) deletes.add(delete(key));
+            }
+        }
+        int removed = deletes.size();
+        return CompletableFuture.allOf(deletes.toArray(new CompletableFuture[0])).thenApply(v -> removed);
+    }
+
+    /**
+     * Copies the data objects of the relational ID by going through its range of the in-memory index.
+     * The records are appended and synced together.
+     */
+    @Override
+    public CompletableFuture<Void> copyRelational(PermissionKey permissionKey, RelationalId from, String toId, Collection<String> exceptIds) {
+        NavigableMap<String, Entry> keys;
+        try {
+            keys = range(toTypeKey(from.type()) + from.id() + '\0');
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Relational ID is not properly formatted", e));
+        }
+        if (from.id().equals(toId)) return CompletableFuture.completedFuture(null);
+        RelationalId to = new RelationalId(from.type(), toId);
+        ArrayList<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (Map.Entry<String, Entry> mapEntry : keys.entrySet()) {
+            String name = fromKey(mapEntry.getKey()).id();
+            if (exceptIds.contains(name) || mapEntry.getValue().shouldRemove(startTime) || !mapEntry.getValue().hasWriteAccess(permissionKey)) continue;
+            DataObject source;
+            synchronized (getLock(mapEntry.getKey())) {
+                try {
+                    source = read(mapEntry.getKey());
+                } catch (IOException | JsonParseException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            if (source == null) continue;
+            writes.add(writeDataObject(permissionKey, source.shallowCopy(new DataObjectId(to, name), true, true)).exceptionally(ex -> {
+                // Targets that cannot be written are left untouched
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                if (!(cause instanceof PermissionFailedException)) throw new CompletionException(cause);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Removes the expired data objects by going through the in-memory index, so no records are read.
+     * The tombstones are synced together.
+     */
+    @Override
+    public CompletableFuture<Integer> removeExpiredDataObjects(int limit) {
+        ArrayList<CompletableFuture<Void>> deletes = new ArrayList<>();
+        ArrayList<DataObjectId> removedIds = new ArrayList<>();
+        for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+            if (deletes.size() >= limit) break;
+            if (!mapEntry.getValue().shouldRemove(startTime)) continue;
+            synchronized (getLock(mapEntry.getKey())) {
+                Entry current = index.get(mapEntry.getKey());
+                if (current != null && current.shouldRemove(startTime)) {
+                    deletes.add(delete(mapEntry.getKey()));
+                    removedIds.add(fromKey(mapEntry.getKey()));
+                }
+            }
+        }
+        int removed = deletes.size();
+        return CompletableFuture.allOf(deletes.toArray(new CompletableFuture[0])).thenApply(v -> {
+            removedIds.forEach(this::expired);
+            return removed;
+        });
+    }
+
+    /**
+     * Deletes the data object of the key when it is still to be removed, and tells the expiry listener about it once the tombstone has been synced.
+     * This must not be called while holding the lock of the key.
+     *
+     * @param key the key
+     * @return the future that completes once the tombstone has been synced, or immediately when it was not to be removed anymore
+     */
+    private CompletableFuture<Void> deleteExpired(String key) {
+        CompletableFuture<Void> deletion;
+        synchronized (getLock(key)) {
+            Entry current = index.get(key);
+            if (current == null || !current.shouldRemove(startTime)) return CompletableFuture.completedFuture(null);
+            deletion = delete(key);
+        }
+        return deletion.thenRun(() -> expired(fromKey(key)));
+    }
+
+    private void expired(DataObjectId id) {
+        Consumer<DataObjectId> listener = expiryListener;
+        if (listener != null) listener.accept(id);
+    }
+
+    @Override
+    public void setExpiryListener(Consumer<DataObjectId> listener) {
+        expiryListener = listener;
+    }
+
+    @Override
+    public CompletableFuture<Void> removeDataObject(PermissionKey permissionKey, DataObjectId id) {
+        String key;
+        try {
+            key = toKey(id);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        synchronized (getLock(key)) {
+            Entry current = index.get(key);
+            if (current == null) return CompletableFuture.completedFuture(null);
+            if (!current.hasWriteAccess(permissionKey))
+                return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow removing saved object"));
+            return delete(key);
+        }
+    }
+
+    /**
+     * Returns the part of the index whose keys start with the given prefix.
+     *
+     * @param prefix the prefix of the keys
+     * @return the part of the index
+     */
+    private NavigableMap<String, Entry> range(String prefix) {
+        return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    @Override
+    public CompletableFuture<ArrayList<DataObjectId>> listDataObjectIds(DataObjectId prefix) {
+        Objects.requireNonNull(prefix, "prefix cannot be null");
+        String keyPrefix = prefix.id() == null ? "" : prefix.id();
+        String rangePrefix;
+        if (!prefix.isRelational()) rangePrefix = "S\0";
+        else if (prefix.relationalId().id().isEmpty()) rangePrefix = toTypeKey(prefix.relationalId().type());
+        else rangePrefix = toTypeKey(prefix.relationalId().type()) + prefix.relationalId().id() + '\0';
+        ArrayList<DataObjectId> ids = new ArrayList<>();
+        for (String key : range(rangePrefix).keySet()) {
+            DataObjectId id = fromKey(key);
+            if (!id.id().startsWith(keyPrefix)) continue;
+            ids.add(prefix.isRelational() ? id : new DataObjectId(prefix.relationalId(), id.id()));
+        }
+        return CompletableFuture.completedFuture(ids);
+    }
+
+    private CompletableFuture<List<DataSelection.SelectedObject>> select(PermissionKey permissionKey, DataSelector selector, Long limit) {
+        DataObjectId id = selector.id();
+        DataSelection selection;
+        NavigableMap<String, Entry> keys;
+        try {
+            selection = new DataSelection(permissionKey, selector, limit);
+            if (!id.isRelational()) {
+                keys = range("S\0");
+            } else {
+                String relationalId = id.relationalId().id();
+                keys = switch (relationalId.isEmpty() ? DataIdOperation.ANY : selector.relationalIdOperation()) {
+                    case EXACT -> range(toTypeKey(id.relationalId().type()) + relationalId + '\0');
+                    case PREFIX -> range(toTypeKey(id.relationalId().type()) + relationalId);
+                    default -> range(toTypeKey(id.relationalId().type()));
+                };
+            }
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Predicate<String> acceptRelationalId = id.isRelational() ? DataSelection.acceptId(id.relationalId().id(), selector.relationalIdOperation()) : name -> true;
+        Predicate<String> acceptId = DataSelection.acceptId(id.id(), selector.idOperation());
+        for (Map.Entry<String, Entry> mapEntry : keys.entrySet()) {
+            DataObjectId dataObjectId = fromKey(mapEntry.getKey());
+            if (!acceptId.test(dataObjectId.id())) continue;
+            if (id.isRelational() && !acceptRelationalId.test(dataObjectId.relationalId().id())) continue;
+            if (!id.isRelational()) dataObjectId = new DataObjectId(id.relationalId(), dataObjectId.id());
+            if (mapEntry.getValue().shouldRemove(startTime)) {
+                deleteExpired(mapEntry.getKey());
+                continue;
+            }
+            DataObject stored;
+            try {
+                stored = read(mapEntry.getKey());
+            } catch (IOException | JsonParseException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (stored != null) selection.offer(dataObjectId, stored);
+        }
+        return CompletableFuture.completedFuture(selection.finish());
+    }
+
+    @Override
+    public CompletableFuture<ArrayList<DataObject>> selectDataObjects(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        return select(permissionKey, selector, selector.limit()).thenApply(DataSelection::toObjects);
+    }
+
+    @Override
+    public CompletableFuture<DataPage> selectDataObjectsPage(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        Long limit = selector.limit();
+        return select(permissionKey, selector, limit == null ? null : limit + 1).thenApply(selected -> DataSelection.toPage(selected, limit));
+    }
+
+}
@@ -1,11 +1,15 @@
 package com.lahuca.lane.data.manager;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.internal.LazilyParsedNumber;
 import com.lahuca.lane.data.*;
+import com.lahuca.lane.data.selector.DataContinuation;
 import com.lahuca.lane.data.selector.DataFilter;
 import com.lahuca.lane.data.selector.DataIdOperation;
 import com.lahuca.lane.data.selector.DataOrder;
+import com.lahuca.lane.data.selector.DataOrderType;
+import com.lahuca.lane.data.selector.DataPage;
 import com.lahuca.lane.data.selector.DataSelector;
 import org.jetbrains.annotations.NotNull;
 
@@ -13,9 +17,13 @@ import javax.sql.DataSource;
 import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 /**
  * Data Manager that uses MySQL databases:
@@ -35,10 +43,19 @@ import java.util.concurrent.CompletableFuture;
  *     <li>Last updated (last_updated)</li>
  *     <li>Removal time (removal_time)</li>
  *     <li>Version (version)</li>
+ *     <li>Revision (revision)</li>
  *     <li>Type (type)</li>
  *     <li>Value (value)</li>
  * </ul>
  * The respective relational tables also have an added relational ID (relational_id).
+ * The revision is increased by every write, so that compare and set writes only need to compare it within the update statement.
+ * Tables that have been created before the revision existed get the column the first time a connection is made.
+ * The removal time is indexed, so that expired data objects are removed in batches without scanning the tables, see {@link #removeExpiredDataObjects(int)}.
+ * <p>
+ * JSON paths that are used in selectors can be indexed, see {@link #declareIndex(String, String, DataObjectType)}.
+ * These are stored as virtual generated columns with a secondary index, named ix_[kind]_[hash] and with the indexed path as comment.
+ * Selectors that filter or order on an indexed path use the column instead of extracting the value from the JSON.
+ * Paths can also be indexed automatically once they have been used often enough, see {@link #setAutoIndexThreshold(int)}.
  */
 public class MySQLDataManager implements DataManager {
 
@@ -46,7 +63,18 @@ public class MySQLDataManager implements DataManager {
     private final DataSource dataSource;
     private final String prefix;
     private final long startTime = System.currentTimeMillis();
-    private final HashSet<DataObjectId> removeOnStop = new HashSet<>(); // TODO Maybe too much RAM usage?
+    private final Set<String> expiryIndexedTables = ConcurrentHashMap.newKeySet();
+    private volatile boolean revisionColumns = false;
+    private volatile Consumer<DataObjectId> expiryListener;
+    private static final String EXPIRED_CLAUSE = "((removal_time > 0 AND removal_time <= ?) OR (removal_time = 0 AND last_updated < ?))";
+
+    private static final String INDEX_NUMERIC = "numeric";
+    private static final String INDEX_TEXT = "text";
+    private final ConcurrentHashMap<String, Map<String, String>> indexes = new ConcurrentHashMap<>(); // Table name -> index key -> column
+    private final ConcurrentHashMap<String, LongAdder> indexUsage = new ConcurrentHashMap<>(); // Table name + index key -> usage
+    private final Set<String> pendingIndexes = ConcurrentHashMap.newKeySet();
+    private volatile int autoIndexThreshold = 0;
+    private ExecutorService indexExecutor;
 
     public MySQLDataManager(Gson gson, DataSource dataSource, String prefix) {
         this.gson = gson;
@@ -56,7 +84,19 @@ public class MySQLDataManager implements DataManager {
 
     @Override
     public void shutdown() {
-        removeOnStop.forEach(id -> removeDataObject(PermissionKey.CONTROLLER, id));
+        synchronized(this) {
+            if(indexExecutor != null) indexExecutor.shutdownNow();
+        }
+        // Remove all data objects that were only to be kept until the shutdown at once
+        try(Connection connection = dataSource.getConnection()) {
+            for(String tableName : getTableNames(connection)) {
+                try(PreparedStatement statement = connection.prepareStatement("DELETE FROM " + tableName + " WHERE removal_time = 0")) {
+                    statement.executeUpdate();
+                }
+            }
+        } catch(SQLException e) {
+            e.printStackTrace(); // TODO Probably log?
+        }
         if(dataSource instanceof Closeable closeable) {
             try {
                 closeable.close();
@@ -67,6 +107,39 @@ public class MySQLDataManager implements DataManager {
         }
     }
 
+    /**
+     * Gets a connection from the data source.
+     * The first time, the revision column is added to the tables that have been created before it existed.
+     *
+     * @return the connection
+     * @throws SQLException when no connection could be made or the tables could not be altered
+     */
+    private Connection getConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        if(!revisionColumns) {
+            try {
+                addRevisionColumns(connection);
+            } catch(SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+        return connection;
+    }
+
+    private synchronized void addRevisionColumns(Connection connection) throws SQLException {
+        if(revisionColumns) return;
+        for(String tableName : getTableNames(connection)) {
+            try(PreparedStatement statement = connection.prepareStatement("ALTER TABLE " + tableName + " ADD COLUMN revision BIGINT NOT NULL DEFAULT 0 AFTER version")) {
+                statement.executeUpdate();
+            } catch(SQLException e) {
+                // The column already exists, which is fine.
+                if(e.getErrorCode() != 1060) throw e;
+            }
+        }
+        revisionColumns = true;
+    }
+
     private String getTableName(DataObjectId id) {
         if(id == null || (id.isRelational() && (id.relationalId().type() == null || id.relationalId().type().isEmpty() || id.relationalId().type().length() > 64
                 || !id.relationalId().type().matches("[a-zA-Z]+")))) return null;
@@ -83,6 +156,7 @@ public class MySQLDataManager implements DataManager {
         Timestamp lastUpdated = resultSet.getTimestamp("last_updated");
         long removalTime = resultSet.getLong("removal_time");
         int version = resultSet.getInt("version");
+        long revision = resultSet.getLong("revision");
         String typeString = resultSet.getString("type");
         if(readPermission == null || writePermission == null || typeString == null) {
             return empty();
@@ -98,8 +172,9 @@ public class MySQLDataManager implements DataManager {
             DataObject object = new DataObject(id, PermissionKey.fromString(readPermission),
                     PermissionKey.fromString(writePermission), removalTime, version, type, value);
             object.setLastUpdated(lastUpdated == null ? null : lastUpdated.getTime());
+            object.setRevision(revision);
             if(object.shouldRemove(startTime)) {
-                return removeDataObject(PermissionKey.CONTROLLER, id).thenApply(status -> Optional.empty());
+                return deleteExpired(id).thenApply(status -> Optional.empty());
             }
             boolean readAccess = object.hasReadAccess(permissionKey, true);
             boolean writeAccess = object.hasWriteAccess(permissionKey, false);
@@ -110,11 +185,447 @@ public class MySQLDataManager implements DataManager {
         }
     }
 
+    /**
+     * Creates the table for the given ID.
+     *
+     * @param id        the ID of a data object that is to be stored in the table
+     * @param tableName the name of the table
+     * @throws SQLException when the table could not be created
+     */
+    private void createTable(DataObjectId id, String tableName) throws SQLException {
+        try(Connection connection = getConnection()) {
+            PreparedStatement statement;
+            if(id.isRelational()) {
+                statement = connection.prepareStatement("CREATE TABLE " + tableName + """
+                         (
+                            relational_id VARCHAR(128) NOT NULL,
+                            id VARCHAR(128) NOT NULL,
+                            read_permission VARCHAR(39) NOT NULL,
+                            write_permission VARCHAR(39) NOT NULL,
+                            last_updated TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                            removal_time BIGINT DEFAULT -1,
+                            version INT NOT NULL DEFAULT 0,
+                            revision BIGINT NOT NULL DEFAULT 0,
+                            `type` VARCHAR(32) NOT NULL,
+                            `value` JSON NOT NULL,
+                            PRIMARY KEY (relational_id, id),
+                            INDEX removal_time (removal_time)
+                        );""");
+            } else {
+                statement = connection.prepareStatement("CREATE TABLE " + tableName + """
+                         (
+                            id VARCHAR(128) NOT NULL PRIMARY KEY,
+                            read_permission VARCHAR(39) NOT NULL,
+                            write_permission VARCHAR(39) NOT NULL,
+                            last_updated TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                            removal_time BIGINT DEFAULT -1,
+                            version INT NOT NULL DEFAULT 0,
+                            revision BIGINT NOT NULL DEFAULT 0,
+                            `type` VARCHAR(32) NOT NULL,
+                            `value` JSON NOT NULL,
+                            INDEX removal_time (removal_time)
+                        );""");
+            }
+            statement.executeUpdate();
+        }
+        expiryIndexedTables.add(tableName);
+    }
+
+    /**
+     * Retrieves the names of all tables of this data manager, the singular table and the relational tables.
+     *
+     * @param connection the connection to use
+     * @return the table names
+     * @throws SQLException when the tables could not be retrieved
+     */
+    private List<String> getTableNames(Connection connection) throws SQLException {
+        String escapedPrefix = prefix.replace("\\", "\\\\").replace("_", "\\_").replace("%", "\\%");
+        ArrayList<String> tableNames = new ArrayList<>();
+        try(PreparedStatement statement = connection.prepareStatement("SELECT TABLE_NAME FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND (TABLE_NAME = ? OR TABLE_NAME LIKE ?)")) {
+            statement.setString(1, prefix + "_singular");
+            statement.setString(2, escapedPrefix + "\\_relational\\_%");
+            try(ResultSet resultSet = statement.executeQuery()) {
+                while(resultSet.next()) {
+                    tableNames.add(resultSet.getString("TABLE_NAME"));
+                }
+            }
+        }
+        return tableNames;
+    }
+
+    /**
+     * Builds the clause that only accepts the rows that the permission key is allowed to write, see {@link PermissionKey#checkAccess(PermissionKey)}.
+     *
+     * @param permissionKey the permission key
+     * @param parameters    the list to add the parameters of the clause to
+     * @return the clause
+     */
+    private static String buildWriteAccessClause(PermissionKey permissionKey, List<Object> parameters) {
+        if(!permissionKey.isFormattedCorrectly()) return "FALSE";
+        // Everyone may write, the key itself may write, or any key with the name of a name only key may write.
+        parameters.add(permissionKey.toString());
+        parameters.add(permissionKey.name());
+        return "write_permission IN ('*-*', ?, ?)";
+    }
+
+    private static String buildExceptClause(Collection<String> exceptIds, List<Object> parameters) {
+        if(exceptIds == null || exceptIds.isEmpty()) return "";
+        StringJoiner clause = new StringJoiner(", ", " AND id NOT IN (", ")");
+        for(String exceptId : exceptIds) {
+            clause.add("?");
+            parameters.add(exceptId);
+        }
+        return clause.toString();
+    }
+
+    /**
+     * Removes the data objects with a single DELETE statement.
+     */
+    @Override
+    public CompletableFuture<Integer> removeRelational(PermissionKey permissionKey, RelationalId relationalId, Collection<String> exceptIds) {
+        String tableName = relationalId == null || relationalId.id() == null ? null : getTableName(new DataObjectId(relationalId, ""));
+        if(tableName == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Relational ID is not properly formatted"));
+        ArrayList<Object> parameters = new ArrayList<>();
+        parameters.add(relationalId.id());
+        String query = "DELETE FROM " + tableName + " WHERE relational_id = ? AND " + buildWriteAccessClause(permissionKey, parameters) + buildExceptClause(exceptIds, parameters);
+        try(Connection connection = getConnection();
+            PreparedStatement statement = connection.prepareStatement(query)) {
+            for(int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            return CompletableFuture.completedFuture(statement.executeUpdate());
+        } catch(SQLException e) {
+            if(e.getErrorCode() == 1051 || e.getErrorCode() == 1146) {
+                return CompletableFuture.completedFuture(0);
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Copies the data objects with a single INSERT ... SELECT statement.
+     * Existing data objects at the target are only overwritten when the permission key is allowed to write them,
+     * the write permission is updated last so that the other columns are checked against the old write permission.
+     */
+    @Override
+    public CompletableFuture<Void> copyRelational(PermissionKey permissionKey, RelationalId from, String toId, Collection<String> exceptIds) {
+        String tableName = from == null || from.id() == null || toId == null ? null : getTableName(new DataObjectId(from, ""));
+        if(tableName == null || toId.isEmpty() || toId.length() > 128) return CompletableFuture.failedFuture(new IllegalArgumentException("Relational ID is not properly formatted"));
+        if(from.id().equals(toId)) return CompletableFuture.completedFuture(null);
+        ArrayList<Object> parameters = new ArrayList<>();
+        parameters.add(toId);
+        parameters.add(from.id());
+        String sourceClause = buildWriteAccessClause(permissionKey, parameters) + buildExceptClause(exceptIds, parameters);
+        StringJoiner update = new StringJoiner(", ");
+        update.add("revision = IF(" + buildWriteAccessClause(permissionKey, parameters) + ", revision + 1, revision)");
+        for(String column : List.of("read_permission", "last_updated", "removal_time", "version", "`type`", "`value`", "write_permission")) {
+            update.add(column + " = IF(" + buildWriteAccessClause(permissionKey, parameters) + ", source_" + column.replace("`", "") + ", " + column + ")");
+        }
+        String query = "INSERT INTO " + tableName + " (relational_id, id, read_permission, write_permission, last_updated, removal_time, version, revision, `type`, `value`) "
+                + "SELECT * FROM (SELECT ? AS source_relational_id, id AS source_id, read_permission AS source_read_permission, write_permission AS source_write_permission, "
+                + "CURRENT_TIMESTAMP AS source_last_updated, removal_time AS source_removal_time, version AS source_version, 1 AS source_revision, `type` AS source_type, `value` AS source_value "
+                + "FROM " + tableName + " WHERE relational_id = ? AND " + sourceClause + ") AS source "
+                + "ON DUPLICATE KEY UPDATE " + update;
+        try(Connection connection = getConnection();
+            PreparedStatement statement = connection.prepareStatement(query)) {
+            for(int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            statement.executeUpdate();
+            return CompletableFuture.completedFuture(null);
+        } catch(SQLException e) {
+            if(e.getErrorCode() == 1051 || e.getErrorCode() == 1146) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Removes the expired data objects in batches per table, using the index on the removal time.
+     * Tables that have been created before the index existed get the index the first time.
+     * The expired rows are selected and locked first, so that the expiry listener can be told which data objects have been removed.
+     */
+    @Override
+    public CompletableFuture<Integer> removeExpiredDataObjects(int limit) {
+        int removed = 0;
+        ArrayList<DataObjectId> removedIds = new ArrayList<>();
+        try(Connection connection = getConnection()) {
+            for(String tableName : getTableNames(connection)) {
+                if(removed >= limit) break;
+                if(!expiryIndexedTables.contains(tableName)) {
+                    try(PreparedStatement statement = connection.prepareStatement("ALTER TABLE " + tableName + " ADD INDEX removal_time (removal_time)")) {
+                        statement.executeUpdate();
+                    } catch(SQLException e) {
+                        // The index already exists, which is fine.
+                        if(e.getErrorCode() != 1061) throw e;
+                    }
+                    expiryIndexedTables.add(tableName);
+                }
+                boolean relational = !tableName.equals(prefix + "_singular");
+                String relationalType = relational ? tableName.substring((prefix + "_relational_").length()) : null;
+                ArrayList<DataObjectId> ids = new ArrayList<>();
+                connection.setAutoCommit(false);
+                try(PreparedStatement select = connection.prepareStatement("SELECT " + (relational ? "relational_id, " : "") + "id FROM " + tableName
+                        + " WHERE " + EXPIRED_CLAUSE + " LIMIT ? FOR UPDATE")) {
+                    select.setLong(1, System.currentTimeMillis());
+                    select.setTimestamp(2, new Timestamp(startTime));
+                    select.setInt(3, limit - removed);
+                    try(ResultSet resultSet = select.executeQuery()) {
+                        while(resultSet.next()) {
+                            RelationalId relationalId = relational ? new RelationalId(relationalType, resultSet.getString("relational_id")) : null;
+                            ids.add(new DataObjectId(relationalId, resultSet.getString("id")));
+                        }
+                    }
+                    if(!ids.isEmpty()) {
+                        try(PreparedStatement delete = connection.prepareStatement("DELETE FROM " + tableName + " WHERE " + (relational ? "relational_id = ? AND id = ?" : "id = ?"))) {
+                            for(DataObjectId id : ids) {
+                                if(relational) {
+                                    delete.setString(1, id.relationalId().id());
+                                    delete.setString(2, id.id());
+                                } else {
+                                    delete.setString(1, id.id());
+                                }
+                                delete.addBatch();
+                            }
+                            delete.executeBatch();
+                        }
+                    }
+                    connection.commit();
+                } catch(SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                removed += ids.size();
+                removedIds.addAll(ids);
+            }
+        } catch(SQLException e) {
+            removedIds.forEach(this::expired);
+            return CompletableFuture.failedFuture(e);
+        }
+        removedIds.forEach(this::expired);
+        return CompletableFuture.completedFuture(removed);
+    }
+
+    /**
+     * Deletes the data object when it is still to be removed, and tells the expiry listener about it.
+     *
+     * @param id the data object ID
+     * @return the future that completes once it has been deleted, or immediately when it was not to be removed anymore
+     */
+    private CompletableFuture<Void> deleteExpired(DataObjectId id) {
+        String tableName = getTableName(id);
+        String where = id.isRelational() ? "relational_id = ? AND id = ?" : "id = ?";
+        try(Connection connection = getConnection();
+            PreparedStatement statement = connection.prepareStatement("DELETE FROM " + tableName + " WHERE " + where + " AND " + EXPIRED_CLAUSE)) {
+            int index = 1;
+            if(id.isRelational()) statement.setString(index++, id.relationalId().id());
+            statement.setString(index++, id.id());
+            statement.setLong(index++, System.currentTimeMillis());
+            statement.setTimestamp(index, new Timestamp(startTime));
+            if(statement.executeUpdate() > 0) expired(id);
+            return CompletableFuture.completedFuture(null);
+        } catch(SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void expired(DataObjectId id) {
+        Consumer<DataObjectId> listener = expiryListener;
+        if(listener != null) listener.accept(id);
+    }
+
+    @Override
+    public void setExpiryListener(Consumer<DataObjectId> listener) {
+        expiryListener = listener;
+    }
+
+    /**
+     * Returns the index key of the given kind and JSON path, which is also stored as comment on the generated column.
+     *
+     * @param kind the kind of index, {@link #INDEX_NUMERIC} or {@link #INDEX_TEXT}
+     * @param path the JSON path
+     * @return the index key, or null when the path cannot be indexed
+     */
+    private static String getIndexKey(String kind, String path) {
+        try {
+            return kind + " " + JsonPath.compile(path);
+        } catch(IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String getIndexColumnName(String indexKey) {
+        CRC32 crc = new CRC32();
+        crc.update(indexKey.getBytes(StandardCharsets.UTF_8));
+        return "ix_" + indexKey.substring(0, indexKey.indexOf(' ')) + "_" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Retrieves the indexed paths of the given table, they are loaded from the database the first time.
+     *
+     * @param connection the connection to use when loading
+     * @param tableName  the table name
+     * @return the map of index keys to column names
+     */
+    private Map<String, String> getIndexes(Connection connection, String tableName) {
+        Map<String, String> tableIndexes = indexes.get(tableName);
+        if(tableIndexes != null) return tableIndexes;
+        Map<String, String> loaded = new ConcurrentHashMap<>();
+        try(PreparedStatement statement = connection.prepareStatement("SELECT COLUMN_NAME, COLUMN_COMMENT FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME LIKE 'ix\\_%'")) {
+            statement.setString(1, tableName);
+            try(ResultSet resultSet = statement.executeQuery()) {
+                while(resultSet.next()) {
+                    String comment = resultSet.getString("COLUMN_COMMENT");
+                    if(comment != null && !comment.isEmpty()) loaded.put(comment, resultSet.getString("COLUMN_NAME"));
+                }
+            }
+        } catch(SQLException e) {
+            return Map.of(); // Try again next time
+        }
+        tableIndexes = indexes.putIfAbsent(tableName, loaded);
+        return tableIndexes == null ? loaded : tableIndexes;
+    }
+
+    /**
+     * Returns the generated column for the given path, and keeps track of the usage of the path.
+     * When the path is not indexed and has been used often enough, the index is created in the background.
+     *
+     * @param tableName the table name
+     * @param indexes   the indexed paths of the table
+     * @param kind      the kind of index
+     * @param path      the JSON path
+     * @return the column name, or null when the path is not indexed
+     */
+    private String getIndexColumn(String tableName, Map<String, String> indexes, String kind, String path) {
+        String indexKey = getIndexKey(kind, path);
+        if(indexKey == null) return null;
+        LongAdder usage = indexUsage.computeIfAbsent(tableName + " " + indexKey, k -> new LongAdder());
+        usage.increment();
+        String column = indexes.get(indexKey);
+        if(column == null && autoIndexThreshold > 0 && usage.sum() >= autoIndexThreshold && pendingIndexes.add(tableName + " " + indexKey)) {
+            getIndexExecutor().execute(() -> {
+                try {
+                    createIndex(tableName, indexKey);
+                } catch(SQLException e) {
+                    e.printStackTrace(); // TODO Probably log?
+                } finally {
+                    pendingIndexes.remove(tableName + " " + indexKey);
+                }
+            });
+        }
+        return column;
+    }
+
+    private synchronized ExecutorService getIndexExecutor() {
+        if(indexExecutor == null) {
+            indexExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Lane-MySQL-Index");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return indexExecutor;
+    }
+
+    /**
+     * Creates the generated column and its index for the given index key, if it does not exist yet.
+     *
+     * @param tableName the table name
+     * @param indexKey  the index key
+     * @throws SQLException when the column or index could not be created
+     */
+    private void createIndex(String tableName, String indexKey) throws SQLException {
+        String column = getIndexColumnName(indexKey);
+        String kind = indexKey.substring(0, indexKey.indexOf(' '));
+        String path = indexKey.substring(indexKey.indexOf(' ') + 1).replace("'", "''");
+        String definition = kind.equals(INDEX_NUMERIC)
+                ? "DOUBLE GENERATED ALWAYS AS (JSON_VALUE(`value`, '" + path + "' RETURNING DOUBLE)) VIRTUAL"
+                : "VARCHAR(512) GENERATED ALWAYS AS (JSON_VALUE(`value`, '" + path + "')) VIRTUAL";
+        try(Connection connection = getConnection();
+            PreparedStatement statement = connection.prepareStatement("ALTER TABLE " + tableName + " ADD COLUMN " + column + " " + definition
+                    + " COMMENT '" + indexKey.replace("'", "''") + "', ADD INDEX " + column + " (" + column + ")")) {
+            statement.executeUpdate();
+        } catch(SQLException e) {
+            // The column or index already exists, which is fine.
+            if(e.getErrorCode() != 1060 && e.getErrorCode() != 1061) throw e;
+        }
+        indexes.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>()).put(indexKey, column);
+    }
+
+    /**
+     * Declares that the given JSON path of the data objects of the given relational type is indexed.
+     * The index is created when it does not exist yet, this might take a while for large tables.
+     * After it has been created, selectors that filter or order on this path use the index.
+     * The cast determines for which orders the index is used: numerical casts and booleans are stored as numbers, and no cast as text.
+     * Numerical filters always use the numerical index.
+     *
+     * @param relationalType the type of the relational table, or null for the singular table
+     * @param path           the JSON path to index
+     * @param cast           the type that the path is cast to in orders, null for no cast
+     * @return a {@link CompletableFuture} with the void type to signify success: the index exists
+     */
+    public CompletableFuture<Void> declareIndex(String relationalType, String path, DataObjectType cast) {
+        DataObjectId tableId = new DataObjectId(relationalType == null ? null : new RelationalId(relationalType, null), null);
+        String tableName = getTableName(tableId);
+        if(tableName == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Relational type is not properly formatted"));
+        String kind = switch (cast == null ? DataObjectType.STRING : cast) {
+            case INTEGER, LONG, FLOAT, DOUBLE, BOOLEAN -> INDEX_NUMERIC;
+            case DATE, TIME, TIMESTAMP -> null;
+            default -> INDEX_TEXT;
+        };
+        if(kind == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Cast " + cast + " cannot be indexed"));
+        String indexKey = getIndexKey(kind, path);
+        if(indexKey == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Path is not properly formatted"));
+        return CompletableFuture.runAsync(() -> {
+            try {
+                try {
+                    createIndex(tableName, indexKey);
+                } catch(SQLException e) {
+                    if(e.getErrorCode() != 1146) throw e;
+                    // Unknown table, create and retry!
+                    createTable(tableId, tableName);
+                    createIndex(tableName, indexKey);
+                }
+            } catch(SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, getIndexExecutor());
+    }
+
+    /**
+     * Sets the number of times a JSON path has to be used in selectors before it is indexed automatically.
+     * Zero, which is the default, disables automatic indexing.
+     *
+     * @param autoIndexThreshold the threshold
+     */
+    public void setAutoIndexThreshold(int autoIndexThreshold) {
+        this.autoIndexThreshold = Math.max(0, autoIndexThreshold);
+    }
+
+    public int getAutoIndexThreshold() {
+        return autoIndexThreshold;
+    }
+
+    /**
+     * Returns how often each JSON path has been used in selectors since startup, indexed or not.
+     * The keys are formatted as: [table name] [kind] [path].
+     *
+     * @return the usage per path
+     */
+    public Map<String, Long> getIndexUsage() {
+        HashMap<String, Long> usage = new HashMap<>();
+        indexUsage.forEach((key, adder) -> usage.put(key, adder.sum()));
+        return usage;
+    }
+
     private CompletableFuture<Optional<DataObject>> readDataObject(PermissionKey permissionKey, DataObjectId id, boolean madeTable) {
         String tableName = getTableName(id);
         if(tableName == null || id.id() == null || id.id().isEmpty() || id.id().length() > 128)
             return CompletableFuture.failedFuture(new IllegalArgumentException("ID is not properly formatted"));
-        try(Connection connection = dataSource.getConnection()) {
+        try(Connection connection = getConnection()) {
             // Build select query
             PreparedStatement statement;
             if(id.isRelational()) {
@@ -135,37 +646,8 @@ public class MySQLDataManager implements DataManager {
         } catch(SQLException e) {
             if((e.getErrorCode() == 1051 || e.getErrorCode() == 1146) && !madeTable) {
                 // Unknown table, create and retry!
-                try(Connection connection = dataSource.getConnection()) {
-                    connection.setAutoCommit(false);
-                    PreparedStatement statement;
-                    if(id.isRelational()) {
-                        statement = connection.prepareStatement("CREATE TABLE " + tableName + """
-                                 (
-                                    relational_id VARCHAR(128) NOT NULL,
-                                    id VARCHAR(128) NOT NULL,
-                                    read_permission VARCHAR(39) NOT NULL,
-                                    write_permission VARCHAR(39) NOT NULL,
-                                    last_updated TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                                    removal_time BIGINT DEFAULT -1,
-                                    version INT NOT NULL DEFAULT 0,
-                                    `type` VARCHAR(32) NOT NULL,
-                                    `value` JSON NOT NULL,
-                                    PRIMARY KEY (relational_id, id)
-                                );""");
-                    } else {
-                        statement = connection.prepareStatement("CREATE TABLE " + tableName + """
-                                 (
-                                    id VARCHAR(128) NOT NULL PRIMARY KEY,
-                                    read_permission VARCHAR(39) NOT NULL,
-                                    write_permission VARCHAR(39) NOT NULL,
-                                    last_updated TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                                    removal_time BIGINT DEFAULT -1,
-                                    version INT NOT NULL DEFAULT 0,
-                                    `type` VARCHAR(32) NOT NULL,
-                                    `value` JSON NOT NULL
-                                );""");
-                    }
-                    statement.executeUpdate();
+                try {
+                    createTable(id, tableName);
                     return readDataObject(permissionKey, id, true);
                 } catch(SQLException ex2) {
                     return CompletableFuture.failedFuture(ex2);
@@ -180,6 +662,67 @@ public class MySQLDataManager implements DataManager {
         return readDataObject(permissionKey, id, false);
     }
 
+    /**
+     * Reads the data objects with a single SELECT ... IN statement per table and ID,
+     * so that for example the same data object of many players is read at once.
+     */
+    @Override
+    public CompletableFuture<HashMap<DataObjectId, DataObject>> readDataObjects(PermissionKey permissionKey, Collection<DataObjectId> ids) {
+        // Table name -> ID -> relational IDs, the ID is the selected value for singular data objects
+        HashMap<String, HashMap<String, LinkedHashSet<String>>> groups = new HashMap<>();
+        HashMap<String, String> types = new HashMap<>();
+        for(DataObjectId id : ids) {
+            String tableName = getTableName(id);
+            if(tableName == null || id.id() == null || id.id().isEmpty() || id.id().length() > 128)
+                return CompletableFuture.failedFuture(new IllegalArgumentException("ID is not properly formatted"));
+            if(id.isRelational()) types.put(tableName, id.relationalId().type());
+            groups.computeIfAbsent(tableName, table -> new HashMap<>())
+                    .computeIfAbsent(id.isRelational() ? id.id() : "", group -> new LinkedHashSet<>())
+                    .add(id.isRelational() ? id.relationalId().id() : id.id());
+        }
+        HashMap<DataObjectId, DataObject> objects = new HashMap<>();
+        ArrayList<CompletableFuture<Void>> futures = new ArrayList<>();
+        try(Connection connection = getConnection()) {
+            for(Map.Entry<String, HashMap<String, LinkedHashSet<String>>> table : groups.entrySet()) {
+                String type = types.get(table.getKey());
+                for(Map.Entry<String, LinkedHashSet<String>> group : table.getValue().entrySet()) {
+                    String column = type == null ? "id" : "relational_id";
+                    StringJoiner in = new StringJoiner(", ", "(", ")");
+                    group.getValue().forEach(value -> in.add("?"));
+                    String query = "SELECT * FROM " + table.getKey() + " WHERE " + (type == null ? "" : "id = ? AND ") + column + " IN " + in;
+                    try(PreparedStatement statement = connection.prepareStatement(query)) {
+                        int index = 1;
+                        if(type != null) statement.setString(index++, group.getKey());
+                        for(String value : group.getValue()) {
+                            statement.setString(index++, value);
+                        }
+                        try(ResultSet resultSet = statement.executeQuery()) {
+                            while(resultSet.next()) {
+                                // Give the ID as it was requested, the collation might have matched it with another case
+                                String value = resultSet.getString(column);
+                                String requested = group.getValue().contains(value) ? value
+                                        : group.getValue().stream().filter(value::equalsIgnoreCase).findFirst().orElse(value);
+                                DataObjectId id = type == null ? new DataObjectId(null, requested)
+                                        : new DataObjectId(new RelationalId(type, requested), group.getKey());
+                                futures.add(resultSetToDataObject(permissionKey, id, resultSet).thenAccept(object -> object.ifPresent(found -> {
+                                    synchronized(objects) {
+                                        objects.put(id, found);
+                                    }
+                                })));
+                            }
+                        }
+                    } catch(SQLException e) {
+                        // Unknown table, so none of its data objects exist.
+                        if(e.getErrorCode() != 1051 && e.getErrorCode() != 1146) throw e;
+                    }
+                }
+            }
+        } catch(SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(none -> objects);
+    }
+
     /**
      * This method is used to handle the writeDataObject.
      * The additional boolean value determines whether it should be tried to create the table whenever it does not exist yet.
@@ -201,22 +744,24 @@ public class MySQLDataManager implements DataManager {
         String tableName = getTableName(id);
         if(tableName == null || id == null || id.id() == null || id.id().isEmpty() || id.id().length() > 128)
             return CompletableFuture.failedFuture(new IllegalArgumentException("ID is not properly formatted"));
-        try(Connection connection = dataSource.getConnection()) {
+        try(Connection connection = getConnection()) {
             // First fetch the permission if it already exists. Make sure to lock it.
             connection.setAutoCommit(false);
             PreparedStatement select;
             if(id.isRelational()) {
-                select = connection.prepareStatement("SELECT write_permission FROM " + tableName + " WHERE relational_id = ? AND id = ? FOR UPDATE");
+                select = connection.prepareStatement("SELECT write_permission, revision FROM " + tableName + " WHERE relational_id = ? AND id = ? FOR UPDATE");
                 select.setString(1, id.relationalId().id());
                 select.setString(2, id.id());
             } else {
-                select = connection.prepareStatement("SELECT write_permission FROM " + tableName + " WHERE id = ? FOR UPDATE");
+                select = connection.prepareStatement("SELECT write_permission, revision FROM " + tableName + " WHERE id = ? FOR UPDATE");
                 select.setString(1, id.id());
             }
             boolean alreadyPresent = false;
+            long revision = 0;
             try(ResultSet resultSet = select.executeQuery()) {
                 if(resultSet.next()) {
                     alreadyPresent = true;
+                    revision = resultSet.getLong("revision");
                     String writePermissionString = resultSet.getString("write_permission");
                     // Odd, we found a match, but we did not get a permission.
                     if(writePermissionString == null) {
@@ -235,7 +780,7 @@ public class MySQLDataManager implements DataManager {
             PreparedStatement update;
             if(alreadyPresent) {
                 if(id.isRelational()) {
-                    update = connection.prepareStatement("UPDATE " + tableName + " SET read_permission = ?, write_permission = ?, last_updated = ?, removal_time = ?, version = ?, `type` = ?, `value` = ? WHERE relational_id = ? AND id = ?");
+                    update = connection.prepareStatement("UPDATE " + tableName + " SET read_permission = ?, write_permission = ?, last_updated = ?, removal_time = ?, version = ?, revision = revision + 1, `type` = ?, `value` = ? WHERE relational_id = ? AND id = ?");
                     update.setString(1, object.getReadPermission().orElse(PermissionKey.EVERYONE).toString());
                     update.setString(2, object.getWritePermission().orElse(PermissionKey.EVERYONE).toString());
                     update.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
@@ -251,7 +796,7 @@ public class MySQLDataManager implements DataManager {
                     update.setString(8, id.relationalId().id());
                     update.setString(9, id.id());
                 } else {
-                    update = connection.prepareStatement("UPDATE " + tableName + " SET read_permission = ?, write_permission = ?, last_updated = ?, removal_time = ?, version = ?, `type` = ?, `value` = ? WHERE id = ?");
+                    update = connection.prepareStatement("UPDATE " + tableName + " SET read_permission = ?, write_permission = ?, last_updated = ?, removal_time = ?, version = ?, revision = revision + 1, `type` = ?, `value` = ? WHERE id = ?");
                     update.setString(1, object.getReadPermission().orElse(PermissionKey.EVERYONE).toString());
                     update.setString(2, object.getWritePermission().orElse(PermissionKey.EVERYONE).toString());
                     update.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
@@ -268,7 +813,7 @@ public class MySQLDataManager implements DataManager {
                 }
             } else {
                 if(id.isRelational()) {
-                    update = connection.prepareStatement("INSERT INTO " + tableName + " (relational_id, id, read_permission, write_permission, last_updated, removal_time, version, `type`, `value`) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                    update = connection.prepareStatement("INSERT INTO " + tableName + " (relational_id, id, read_permission, write_permission, last_updated, removal_time, version, revision, `type`, `value`) VALUES (?, ?, ?, ?, ?, ?, ?, 1, ?, ?)");
                     update.setString(1, id.relationalId().id());
                     update.setString(2, id.id());
                     update.setString(3, object.getReadPermission().orElse(PermissionKey.EVERYONE).toString());
@@ -284,7 +829,7 @@ public class MySQLDataManager implements DataManager {
                     }
                     update.setString(9, value);
                 } else {
-                    update = connection.prepareStatement("INSERT INTO " + tableName + " (id, read_permission, write_permission, last_updated, removal_time, version, `type`, `value`) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                    update = connection.prepareStatement("INSERT INTO " + tableName + " (id, read_permission, write_permission, last_updated, removal_time, version, revision, `type`, `value`) VALUES (?, ?, ?, ?, ?, ?, 1, ?, ?)");
                     update.setString(1, id.id());
                     update.setString(2, object.getReadPermission().orElse(PermissionKey.EVERYONE).toString());
                     update.setString(3, object.getWritePermission().orElse(PermissionKey.EVERYONE).toString());
@@ -302,48 +847,14 @@ public class MySQLDataManager implements DataManager {
             }
             update.executeUpdate();
             connection.setAutoCommit(true);
-            object.getRemovalTime().ifPresent(removalTime -> {
-                if(removalTime == 0) {
-                    removeOnStop.add(object.getId());
-                } else {
-                    removeOnStop.remove(object.getId());
-                }
-            });
+            // The row has been locked, so the revision has been increased from the one that has been selected
+            object.setRevision(revision + 1);
             return CompletableFuture.completedFuture(null);
         } catch(SQLException e) {
             if((e.getErrorCode() == 1051 || e.getErrorCode() == 1146) && !madeTable) {
                 // Unknown table, create and retry!
-                try(Connection connection = dataSource.getConnection()) {
-                    connection.setAutoCommit(false);
-                    PreparedStatement statement;
-                    if(id.isRelational()) {
-                        statement = connection.prepareStatement("CREATE TABLE " + tableName + """
-                                 (
-                                    relational_id VARCHAR(128) NOT NULL,
-                                    id VARCHAR(128) NOT NULL,
-                                    read_permission VARCHAR(39) NOT NULL,
-                                    write_permission VARCHAR(39) NOT NULL,
-                                    last_updated TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                                    removal_time BIGINT DEFAULT -1,
-                                    version INT NOT NULL DEFAULT 0,
-                                    `type` VARCHAR(32) NOT NULL,
-                                    `value` JSON NOT NULL,
-                                    PRIMARY KEY (relational_id, id)
-                                );""");
-                    } else {
-                        statement = connection.prepareStatement("CREATE TABLE " + tableName + """
-                                 (
-                                    id VARCHAR(128) NOT NULL PRIMARY KEY,
-                                    read_permission VARCHAR(39) NOT NULL,
-                                    write_permission VARCHAR(39) NOT NULL,
-                                    last_updated TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                                    removal_time BIGINT DEFAULT -1,
-                                    version INT NOT NULL DEFAULT 0,
-                                    `type` VARCHAR(32) NOT NULL,
-                                    `value` JSON NOT NULL
-                                );""");
-                    }
-                    statement.executeUpdate();
+                try {
+                    createTable(id, tableName);
                     return writeDataObject(permissionKey, object, true);
                 } catch(SQLException ex2) {
                     return CompletableFuture.failedFuture(ex2);
@@ -358,11 +869,305 @@ public class MySQLDataManager implements DataManager {
         return writeDataObject(permissionKey, object, false);
     }
 
+    /**
+     * This method is used to handle the compareAndSetDataObject.
+     * Instead of locking the row, the revision is compared within the update statement itself.
+     * So the row is only locked for the duration of that single statement.
+     * The additional boolean value determines whether it should be tried to create the table whenever it does not exist yet.
+     *
+     * @param permissionKey   the permission key to use while writing
+     * @param object          the object to write
+     * @param expectedRevision the revision the stored object is expected to have, null if it is expected to not exist
+     * @param madeTable        whether the table has been made
+     * @return the status
+     * @see #compareAndSetDataObject(PermissionKey, DataObject, Long)
+     */
+    private CompletableFuture<Boolean> compareAndSetDataObject(PermissionKey permissionKey, DataObject object, Long expectedRevision, boolean madeTable) {
+        if(!object.isWriteable())
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Object is not writeable"));
+        if(!object.hasWriteAccess(permissionKey, false))
+            return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing given object"));
+        DataObjectId id = object.getId();
+        String tableName = getTableName(id);
+        if(tableName == null || id == null || id.id() == null || id.id().isEmpty() || id.id().length() > 128)
+            return CompletableFuture.failedFuture(new IllegalArgumentException("ID is not properly formatted"));
+        int version = object.getVersion().orElse(0);
+        String value = object.getValue().orElse(null);
+        DataObjectType type = object.getType().orElse(DataObjectType.BLOB);
+        if(value != null && (type == DataObjectType.STRING || type == DataObjectType.BLOB)) {
+            value = gson.toJson(value);
+        }
+        try(Connection connection = getConnection()) {
+            PreparedStatement update;
+            if(expectedRevision == null) {
+                // It should not exist yet, the primary key makes sure that only one insert succeeds.
+                if(id.isRelational()) {
+                    update = connection.prepareStatement("INSERT INTO " + tableName + " (relational_id, id, read_permission, write_permission, last_updated, removal_time, version, revision, `type`, `value`) VALUES (?, ?, ?, ?, ?, ?, ?, 1, ?, ?)");
+                    update.setString(1, id.relationalId().id());
+                    update.setString(2, id.id());
+                } else {
+                    update = connection.prepareStatement("INSERT INTO " + tableName + " (id, read_permission, write_permission, last_updated, removal_time, version, revision, `type`, `value`) VALUES (?, ?, ?, ?, ?, ?, 1, ?, ?)");
+                    update.setString(1, id.id());
+                }
+                int index = id.isRelational() ? 3 : 2;
+                update.setString(index, object.getReadPermission().orElse(PermissionKey.EVERYONE).toString());
+                update.setString(index + 1, object.getWritePermission().orElse(PermissionKey.EVERYONE).toString());
+                update.setTimestamp(index + 2, new Timestamp(System.currentTimeMillis()));
+                update.setLong(index + 3, object.getRemovalTime().orElse(-1L));
+                update.setInt(index + 4, version);
+                update.setString(index + 5, type.toString());
+                update.setString(index + 6, value);
+                try {
+                    update.executeUpdate();
+                } catch(SQLIntegrityConstraintViolationException e) {
+                    return CompletableFuture.completedFuture(false);
+                }
+            } else {
+                // Check the permission without locking, the update only succeeds if the permission is still the same.
+                PreparedStatement select;
+                if(id.isRelational()) {
+                    select = connection.prepareStatement("SELECT write_permission FROM " + tableName + " WHERE relational_id = ? AND id = ?");
+                    select.setString(1, id.relationalId().id());
+                    select.setString(2, id.id());
+                } else {
+                    select = connection.prepareStatement("SELECT write_permission FROM " + tableName + " WHERE id = ?");
+                    select.setString(1, id.id());
+                }
+                String writePermissionString;
+                try(ResultSet resultSet = select.executeQuery()) {
+                    if(!resultSet.next()) return CompletableFuture.completedFuture(false);
+                    writePermissionString = resultSet.getString("write_permission");
+                }
+                // Odd, we found a match, but we did not get a permission.
+                if(writePermissionString == null) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Write permission is null"));
+                }
+                if(!PermissionKey.fromString(writePermissionString).checkAccess(permissionKey)) {
+                    return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+                }
+                String where = id.isRelational() ? "relational_id = ? AND id = ?" : "id = ?";
+                update = connection.prepareStatement("UPDATE " + tableName + " SET read_permission = ?, write_permission = ?, last_updated = ?, removal_time = ?, version = ?, revision = revision + 1, `type` = ?, `value` = ? WHERE "
+                        + where + " AND revision = ? AND write_permission = ?");
+                update.setString(1, object.getReadPermission().orElse(PermissionKey.EVERYONE).toString());
+                update.setString(2, object.getWritePermission().orElse(PermissionKey.EVERYONE).toString());
+                update.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                update.setLong(4, object.getRemovalTime().orElse(-1L));
+                update.setInt(5, version);
+                update.setString(6, type.toString());
+                update.setString(7, value);
+                int index = 8;
+                if(id.isRelational()) update.setString(index++, id.relationalId().id());
+                update.setString(index++, id.id());
+                update.setLong(index++, expectedRevision);
+                update.setString(index, writePermissionString);
+                if(update.executeUpdate() == 0) {
+                    // The revision or permission has been changed in the meantime.
+                    return CompletableFuture.completedFuture(false);
+                }
+            }
+            object.setRevision(expectedRevision == null ? 1 : expectedRevision + 1);
+            return CompletableFuture.completedFuture(true);
+        } catch(SQLException e) {
+            if((e.getErrorCode() == 1051 || e.getErrorCode() == 1146) && expectedRevision != null) {
+                // Unknown table, so the object cannot have the expected revision.
+                return CompletableFuture.completedFuture(false);
+            }
+            if((e.getErrorCode() == 1051 || e.getErrorCode() == 1146) && !madeTable) {
+                // Unknown table, create and retry!
+                try {
+                    createTable(id, tableName);
+                    return compareAndSetDataObject(permissionKey, object, null, true);
+                } catch(SQLException ex2) {
+                    return CompletableFuture.failedFuture(ex2);
+                }
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSetDataObject(PermissionKey permissionKey, DataObject object, Long expectedRevision) {
+        return compareAndSetDataObject(permissionKey, object, expectedRevision, false);
+    }
+
+    /**
+     * Builds the SQL expression that computes the mutated value from the current value.
+     *
+     * @param mutation   the mutation
+     * @param parameters the list to add the parameters of the expression to
+     * @return the expression
+     * @throws IllegalArgumentException when a path is not properly formatted
+     */
+    private static String buildMutationExpression(DataMutation mutation, List<Object> parameters) {
+        switch (mutation) {
+            case DataMutation.MergePatch(JsonElement patch) -> {
+                parameters.add(patch.toString());
+                return "JSON_MERGE_PATCH(`value`, CAST(? AS JSON))";
+            }
+            case DataMutation.Set(String path, JsonElement value) -> {
+                parameters.add(JsonPath.compile(path).toString());
+                parameters.add(value.toString());
+                return "JSON_SET(`value`, ?, CAST(? AS JSON))";
+            }
+            case DataMutation.Increment(String path, Number delta) -> {
+                String compiled = JsonPath.compile(path).toString();
+                BigDecimal decimal = new BigDecimal(delta.toString());
+                parameters.add(compiled);
+                // Fractional deltas make the number a double, like the JSON text of the result would be parsed.
+                if (decimal.stripTrailingZeros().scale() > 0) {
+                    parameters.add(compiled);
+                    parameters.add(decimal.doubleValue());
+                    return "JSON_SET(`value`, ?, CAST(COALESCE(JSON_EXTRACT(`value`, ?), 0) AS DOUBLE) + ?)";
+                }
+                // Integral deltas keep the number's type, so that fractions of the current number are not truncated.
+                // Every branch is cast to JSON, otherwise the CASE would convert all of them to the same SQL type.
+                long integral = decimal.longValueExact();
+                Collections.addAll(parameters, compiled, compiled, integral, compiled, integral, compiled, integral);
+                return "JSON_SET(`value`, ?, CASE JSON_TYPE(JSON_EXTRACT(`value`, ?)) "
+                        + "WHEN 'DOUBLE' THEN CAST(CAST(JSON_EXTRACT(`value`, ?) AS DOUBLE) + ? AS JSON) "
+                        + "WHEN 'DECIMAL' THEN CAST(CAST(JSON_EXTRACT(`value`, ?) AS DECIMAL(65,30)) + ? AS JSON) "
+                        + "ELSE CAST(CAST(COALESCE(JSON_EXTRACT(`value`, ?), 0) AS SIGNED) + ? AS JSON) END)";
+            }
+            case DataMutation.ArrayAppend(String path, JsonElement value) -> {
+                parameters.add(JsonPath.compile(path).toString());
+                parameters.add(value.toString());
+                return "JSON_ARRAY_APPEND(`value`, ?, CAST(? AS JSON))";
+            }
+            case DataMutation.ArrayRemove(String path, JsonElement value) -> {
+                String compiled = JsonPath.compile(path).toString();
+                parameters.add(compiled);
+                parameters.add(compiled);
+                parameters.add(compiled);
+                parameters.add(value.toString());
+                // JSON_ARRAYAGG does not keep the order of the rows, unless it aggregates over a window that is ordered on the position.
+                return "IF(JSON_TYPE(JSON_EXTRACT(`value`, ?)) = 'ARRAY', JSON_SET(`value`, ?, COALESCE("
+                        + "(SELECT JSON_ARRAYAGG(elements.element) OVER (ORDER BY elements.position ROWS BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING) "
+                        + "FROM JSON_TABLE(JSON_EXTRACT(`value`, ?), '$[*]' COLUMNS (position FOR ORDINALITY, element JSON PATH '$')) AS elements "
+                        + "WHERE elements.element <> CAST(? AS JSON) LIMIT 1), JSON_ARRAY())), `value`)";
+            }
+        }
+    }
+
+    /**
+     * Builds the SQL condition that the current value must satisfy for the mutation to be applicable.
+     * This mirrors the checks of {@link DataMutation#apply(JsonElement)} that MySQL would not do itself.
+     *
+     * @param mutation   the mutation
+     * @param parameters the list to add the parameters of the condition to
+     * @return the condition, or null when the mutation is always applicable
+     */
+    private static String buildMutationCondition(DataMutation mutation, List<Object> parameters) {
+        if(mutation instanceof DataMutation.Increment(String path, Number delta)) {
+            String compiled = JsonPath.compile(path).toString();
+            parameters.add(compiled);
+            parameters.add(compiled);
+            // A missing element counts as zero, anything other than a number cannot be incremented.
+            return "(JSON_EXTRACT(`value`, ?) IS NULL OR JSON_TYPE(JSON_EXTRACT(`value`, ?)) IN ('INTEGER', 'UNSIGNED INTEGER', 'DOUBLE', 'DECIMAL'))";
+        }
+        return null;
+    }
+
+    /**
+     * Mutates the data object within a single update statement, so that the value is never sent back and forth.
+     * The permission is checked without locking, the update only succeeds when the permission is still the same.
+     * Mutations that can only be applied to certain values, like increments of numbers, also have their condition checked within the update.
+     */
+    @Override
+    public CompletableFuture<Boolean> mutateDataObject(PermissionKey permissionKey, DataObjectId id, DataMutation mutation) {
+        String tableName = getTableName(id);
+        if(tableName == null || id.id() == null || id.id().isEmpty() || id.id().length() > 128)
+            return CompletableFuture.failedFuture(new IllegalArgumentException("ID is not properly formatted"));
+        ArrayList<Object> parameters = new ArrayList<>();
+        ArrayList<Object> conditionParameters = new ArrayList<>();
+        String expression;
+        String condition;
+        try {
+            expression = buildMutationExpression(mutation, parameters);
+            condition = buildMutationCondition(mutation, conditionParameters);
+        } catch(IllegalArgumentException | ArithmeticException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try(Connection connection = getConnection()) {
+            PreparedStatement select;
+            if(id.isRelational()) {
+                select = connection.prepareStatement("SELECT write_permission, `type` FROM " + tableName + " WHERE relational_id = ? AND id = ?");
+                select.setString(1, id.relationalId().id());
+                select.setString(2, id.id());
+            } else {
+                select = connection.prepareStatement("SELECT write_permission, `type` FROM " + tableName + " WHERE id = ?");
+                select.setString(1, id.id());
+            }
+            String writePermissionString;
+            String typeString;
+            try(ResultSet resultSet = select.executeQuery()) {
+                if(!resultSet.next()) return CompletableFuture.completedFuture(false);
+                writePermissionString = resultSet.getString("write_permission");
+                typeString = resultSet.getString("type");
+            }
+            // Odd, we found a match, but we did not get a permission.
+            if(writePermissionString == null || typeString == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Write permission or type is null"));
+            }
+            if(!PermissionKey.fromString(writePermissionString).checkAccess(permissionKey)) {
+                return CompletableFuture.failedFuture(new PermissionFailedException("Permission key does not allow writing saved object"));
+            }
+            DataObjectType type = DataObjectType.valueOf(typeString);
+            if(!DataMutation.isApplicable(type)) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Data object of type " + type + " cannot be mutated"));
+            }
+            String where = id.isRelational() ? "relational_id = ? AND id = ?" : "id = ?";
+            PreparedStatement update = connection.prepareStatement("UPDATE " + tableName + " SET `value` = " + expression
+                    + ", revision = revision + 1, last_updated = ? WHERE " + where + " AND write_permission = ?" + (condition == null ? "" : " AND " + condition));
+            int index = 1;
+            for(Object parameter : parameters) {
+                update.setObject(index++, parameter);
+            }
+            update.setTimestamp(index++, new Timestamp(System.currentTimeMillis()));
+            if(id.isRelational()) update.setString(index++, id.relationalId().id());
+            update.setString(index++, id.id());
+            update.setString(index++, writePermissionString);
+            for(Object parameter : conditionParameters) {
+                update.setObject(index++, parameter);
+            }
+            if(update.executeUpdate() > 0) return CompletableFuture.completedFuture(true);
+            if(condition == null) return CompletableFuture.completedFuture(false);
+            // Find out whether it did not exist anymore, or whether the mutation was not applicable to the value.
+            PreparedStatement check = connection.prepareStatement("SELECT " + condition + " AS applicable FROM " + tableName + " WHERE " + where);
+            index = 1;
+            for(Object parameter : conditionParameters) {
+                check.setObject(index++, parameter);
+            }
+            if(id.isRelational()) check.setString(index++, id.relationalId().id());
+            check.setString(index, id.id());
+            try(ResultSet resultSet = check.executeQuery()) {
+                if(resultSet.next() && !resultSet.getBoolean("applicable")) {
+                    return CompletableFuture.failedFuture(new IllegalArgumentException("Mutation cannot be applied to the value of " + id));
+                }
+            }
+            return CompletableFuture.completedFuture(false);
+        } catch(SQLException e) {
+            if(e.getErrorCode() == 1051 || e.getErrorCode() == 1146) {
+                return CompletableFuture.completedFuture(false);
+            }
+            // Invalid JSON text or path in the mutation.
+            if(e.getErrorCode() == 3140 || e.getErrorCode() == 3143) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Mutation cannot be applied: " + e.getMessage(), e));
+            }
+            // The incremented number does not fit anymore.
+            if(e.getErrorCode() == 1690) {
+                return CompletableFuture.failedFuture(new ArithmeticException("Mutation cannot be applied: " + e.getMessage()));
+            }
+            return CompletableFuture.failedFuture(e);
+        } catch(IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     @Override
     public CompletableFuture<Void> removeDataObject(PermissionKey permissionKey, DataObjectId id) {
         String tableName = getTableName(id);
         if(tableName == null || id.id() == null || id.id().isEmpty() || id.id().length() > 128) return CompletableFuture.completedFuture(null);
-        try(Connection connection = dataSource.getConnection()) {
+        try(Connection connection = getConnection()) {
             // Build select query
             connection.setAutoCommit(false);
             PreparedStatement select;
@@ -422,7 +1227,7 @@ public class MySQLDataManager implements DataManager {
             return CompletableFuture.completedFuture(new ArrayList<>()); // TODO Throw? OR Failed future?
         }
         boolean idFalse = prefix.id() == null || prefix.id().isEmpty() || prefix.id().length() > 128;
-        try(Connection connection = dataSource.getConnection()) {
+        try(Connection connection = getConnection()) {
             // Build select query
             PreparedStatement statement;
             if(prefix.isRelational()) {
@@ -482,7 +1287,7 @@ public class MySQLDataManager implements DataManager {
             return CompletableFuture.completedFuture(new ArrayList<>()); // TODO Throw? OR Failed future?
         }
         boolean idFalse = prefix.id() == null || prefix.id().isEmpty() || prefix.id().length() > 128;
-        try(Connection connection = dataSource.getConnection()) {
+        try(Connection connection = getConnection()) {
             // Build select query
             PreparedStatement statement;
             if(prefix.isRelational()) {
@@ -553,12 +1358,14 @@ public class MySQLDataManager implements DataManager {
      * @param selection the selection path that is being used whenever path is equal to null.
      * @param filter the filter to access now
      * @param versionFilter whether we are building the query for the version filter
+     * @param tableName the name of the table that is being queried, used to find indexed paths
+     * @param indexes the indexed paths of the table
      * @return the query and its parameters
      */
-    private SelectFilterQuery buildSelectFilterQuery(String selection, DataFilter filter, boolean versionFilter) {
+    private SelectFilterQuery buildSelectFilterQuery(String selection, DataFilter filter, boolean versionFilter, String tableName, Map<String, String> indexes) {
         switch (filter) {
             case DataFilter.Selection(String path, DataFilter child) -> {
-                return buildSelectFilterQuery(path, child, versionFilter);
+                return buildSelectFilterQuery(path, child, versionFilter, tableName, indexes);
             }
             case DataFilter.DataFilterLogical logical -> {
                 switch (logical) {
@@ -566,7 +1373,7 @@ public class MySQLDataManager implements DataManager {
                         StringJoiner query = new StringJoiner(") AND (", "(", ")");
                         ArrayList<Object> parameters = new ArrayList<>();
                         for (DataFilter dataFilter : filters) {
-                            SelectFilterQuery subQuery = buildSelectFilterQuery(selection, dataFilter, versionFilter);
+                            SelectFilterQuery subQuery = buildSelectFilterQuery(selection, dataFilter, versionFilter, tableName, indexes);
                             query.add(subQuery.query());
                             parameters.addAll(subQuery.parameters());
                         }
@@ -576,14 +1383,14 @@ public class MySQLDataManager implements DataManager {
                         StringJoiner query = new StringJoiner(") OR (", "(", ")");
                         ArrayList<Object> parameters = new ArrayList<>();
                         for (DataFilter dataFilter : filters) {
-                            SelectFilterQuery subQuery = buildSelectFilterQuery(selection, dataFilter, versionFilter);
+                            SelectFilterQuery subQuery = buildSelectFilterQuery(selection, dataFilter, versionFilter, tableName, indexes);
                             query.add(subQuery.query());
                             parameters.addAll(subQuery.parameters());
                         }
                         return new SelectFilterQuery(query.toString(), parameters);
                     }
                     case DataFilter.Not(DataFilter child) -> {
-                        SelectFilterQuery subQuery = buildSelectFilterQuery(selection, child, versionFilter);
+                        SelectFilterQuery subQuery = buildSelectFilterQuery(selection, child, versionFilter, tableName, indexes);
                         return new SelectFilterQuery("NOT (" + subQuery.query() + ")", subQuery.parameters());
                     }
                 }
@@ -594,7 +1401,8 @@ public class MySQLDataManager implements DataManager {
                 else if(numerical.path() == null && selection == null) path = "value";
                 else {
                     String jsonPath = numerical.path() == null ? selection : numerical.path();
-                    path = "JSON_VALUE(value, '" + jsonPath + "')";
+                    String column = getIndexColumn(tableName, indexes, INDEX_NUMERIC, jsonPath);
+                    path = column != null ? column : "JSON_VALUE(value, '" + jsonPath + "')";
                 }
                 switch (numerical) {
                     case DataFilter.Equals(var ignored, Number value) -> {
@@ -620,13 +1428,67 @@ public class MySQLDataManager implements DataManager {
         }
     }
 
+    /**
+     * Builds the clause that only accepts rows that come after the given order values.
+     * When all orders are ascending and no value is null, this is a single row-value comparison.
+     * Otherwise, it is expanded so that the direction of each order and missing values (which come first when ascending) are respected.
+     *
+     * @param expressions the order expressions, including the tiebreakers
+     * @param descending  whether each order expression is descending
+     * @param values      the values of the last row for each order expression
+     * @param nullable    the number of order expressions that might be null, the tiebreakers are never null
+     * @param parameters  the list to add the parameters of the clause to
+     * @return the clause
+     */
+    private static String buildContinuationClause(List<String> expressions, List<Boolean> descending, List<Object> values, int nullable, List<Object> parameters) {
+        boolean ascending = !descending.contains(true);
+        if(ascending && !values.contains(null)) {
+            StringJoiner columns = new StringJoiner(", ", "(", ")");
+            StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+            for (int i = 0; i < expressions.size(); i++) {
+                columns.add(expressions.get(i));
+                placeholders.add("?");
+                parameters.add(values.get(i));
+            }
+            return columns + " > " + placeholders;
+        }
+        StringJoiner or = new StringJoiner(") OR (", "(", ")");
+        for (int i = 0; i < expressions.size(); i++) {
+            Object value = values.get(i);
+            String after;
+            if(value == null) {
+                // Missing values come first when ascending, so nothing comes after them when descending.
+                if(descending.get(i)) continue;
+                after = expressions.get(i) + " IS NOT NULL";
+            } else if(descending.get(i)) {
+                after = i < nullable ? "(" + expressions.get(i) + " < ? OR " + expressions.get(i) + " IS NULL)" : expressions.get(i) + " < ?";
+            } else {
+                after = expressions.get(i) + " > ?";
+            }
+            StringJoiner and = new StringJoiner(" AND ");
+            for (int j = 0; j < i; j++) {
+                if(values.get(j) == null) {
+                    and.add(expressions.get(j) + " IS NULL");
+                } else {
+                    and.add(expressions.get(j) + " = ?");
+                    parameters.add(values.get(j));
+                }
+            }
+            if(value != null) parameters.add(value);
+            and.add(after);
+            or.add(and.toString());
+        }
+        return or.length() == 4 ? "FALSE" : or.toString();
+    }
+
     private PreparedStatement buildSelectQuery(@NotNull Connection connection, @NotNull DataSelector selector) throws SQLException {
         DataObjectId id = selector.id();
         String tableName = getTableName(id);
         if(tableName == null) {
             return null;
         }
-        StringBuilder query = new StringBuilder("SELECT * FROM " + tableName);
+        Map<String, String> indexes = getIndexes(connection, tableName);
+        StringBuilder query = new StringBuilder("SELECT *");
         ArrayList<String> where = new ArrayList<>();
         ArrayList<Object> parameters = new ArrayList<>();
         // Build ID operations
@@ -665,63 +1527,89 @@ public class MySQLDataManager implements DataManager {
         // Add version filter and normal filter clauses
         DataFilter versionFilter = selector.versionFilter();
         if(versionFilter != null) {
-            SelectFilterQuery filterQuery = buildSelectFilterQuery(null, versionFilter, true);
+            SelectFilterQuery filterQuery = buildSelectFilterQuery(null, versionFilter, true, tableName, indexes);
             where.add(filterQuery.query());
             parameters.addAll(filterQuery.parameters());
         }
         DataFilter filter = selector.filter();
         if(filter != null) {
-            SelectFilterQuery filterQuery = buildSelectFilterQuery(null, filter, false);
+            SelectFilterQuery filterQuery = buildSelectFilterQuery(null, filter, false, tableName, indexes);
             where.add(filterQuery.query());
             parameters.addAll(filterQuery.parameters());
         }
 
-        // Append the operations to the query
-        if(!where.isEmpty()) {
-            query.append(" WHERE (");
-            boolean first = true;
-            for (String clause : where) {
-                if(!first) query.append(") AND (");
-                query.append(clause);
-                first = false;
-            }
-            query.append(")");
-        }
-
         // Order
-        ArrayList<String> order = new ArrayList<>();
+        ArrayList<String> orderExpressions = new ArrayList<>();
+        ArrayList<Boolean> orderDescending = new ArrayList<>();
         if(selector.order() != null) {
             for (DataOrder dataOrder : selector.order()) {
                 String path = dataOrder.path() == null ? "value" : "JSON_VALUE(value, '" + dataOrder.path() + "')";
-                String cast = switch (dataOrder.cast()) {
+                // Orders without a cast compare numbers, as is the default cast of an order.
+                String cast = switch (dataOrder.cast() == null ? DataObjectType.DOUBLE : dataOrder.cast()) {
                     case INTEGER, LONG, FLOAT, DOUBLE, BOOLEAN -> "DOUBLE";
                     case DATE, TIME, TIMESTAMP -> "TIMESTAMP";
                     default -> null;
                 };
-                String type = switch (dataOrder.type()) {
-                    case ASCENDING -> "ASC";
-                    case DESCENDING -> "DESC";
-                    default -> null;
-                };
-                String clause = cast == null ? path : "CAST(" + path + " AS " + cast + ")";
-                if(type != null) clause += " " + type;
-                order.add(clause);
+                if(dataOrder.path() != null && !"TIMESTAMP".equals(cast)) {
+                    // The generated column already contains the casted value.
+                    String column = getIndexColumn(tableName, indexes, cast == null ? INDEX_TEXT : INDEX_NUMERIC, dataOrder.path());
+                    if(column != null) {
+                        path = column;
+                        cast = null;
+                    }
+                }
+                orderExpressions.add(cast == null ? path : "CAST(" + path + " AS " + cast + ")");
+                orderDescending.add(dataOrder.type() == DataOrderType.DESCENDING);
             }
         }
-        if(!order.isEmpty()) {
-            query.append(" ORDER BY ");
+        // The order values are selected as well, so that the continuation of a page can be made.
+        for (int i = 0; i < orderExpressions.size(); i++) {
+            query.append(", ").append(orderExpressions.get(i)).append(" AS lane_order_").append(i);
+        }
+        query.append(" FROM ").append(tableName);
+        // Break ties by the primary key, in the direction of the last order.
+        boolean tieDescending = !orderDescending.isEmpty() && orderDescending.get(orderDescending.size() - 1);
+        int orderCount = orderExpressions.size();
+        if(id.isRelational()) {
+            orderExpressions.add("relational_id");
+            orderDescending.add(tieDescending);
+        }
+        orderExpressions.add("id");
+        orderDescending.add(tieDescending);
+
+        if(selector.continuation() != null) {
+            DataContinuation continuation = DataContinuation.decode(selector.continuation());
+            if(continuation.values().size() != orderCount) {
+                throw new IllegalArgumentException("Continuation token does not match the order");
+            }
+            ArrayList<Object> values = new ArrayList<>(continuation.values());
+            if(id.isRelational()) values.add(continuation.relationalId());
+            values.add(continuation.id());
+            where.add(buildContinuationClause(orderExpressions, orderDescending, values, orderCount, parameters));
+        }
+
+        // Append the operations to the query
+        if(!where.isEmpty()) {
+            query.append(" WHERE (");
             boolean first = true;
-            for (String clause : order) {
-                if(!first) query.append(", ");
+            for (String clause : where) {
+                if(!first) query.append(") AND (");
                 query.append(clause);
                 first = false;
             }
+            query.append(")");
+        }
+
+        query.append(" ORDER BY ");
+        for (int i = 0; i < orderExpressions.size(); i++) {
+            if(i > 0) query.append(", ");
+            query.append(orderExpressions.get(i)).append(orderDescending.get(i) ? " DESC" : " ASC");
         }
         if(selector.limit() != null) {
             query.append(" LIMIT ");
             query.append(selector.limit());
         }
-        if(selector.offset() != null) {
+        if(selector.offset() != null && selector.continuation() == null) {
             query.append(" OFFSET ");
             query.append(selector.offset());
         }
@@ -738,25 +1626,64 @@ public class MySQLDataManager implements DataManager {
 
     @Override
     public CompletableFuture<ArrayList<DataObject>> selectDataObjects(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        return select(permissionKey, selector, null).thenApply(DataPage::objects);
+    }
+
+    @Override
+    public CompletableFuture<DataPage> selectDataObjectsPage(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector) {
+        Long limit = selector.limit();
+        if(limit == null || limit <= 0) return select(permissionKey, selector, null);
+        return select(permissionKey, selector.limit(limit + 1), limit);
+    }
+
+    /**
+     * Selects the data objects, and optionally determines the continuation after the given number of rows.
+     * The continuation is determined by the rows themselves, so that rows that are not returned due to the permission or expiry do not matter.
+     *
+     * @param permissionKey the permission key
+     * @param selector      the selector, with one more than the page size as its limit when a page is retrieved
+     * @param pageSize      the page size, or null when no page is retrieved
+     * @return the page, whose continuation is null if there is no next page
+     */
+    private CompletableFuture<DataPage> select(@NotNull PermissionKey permissionKey, @NotNull DataSelector selector, Long pageSize) {
         String tableName = getTableName(selector.id());
         if(tableName == null) {
-            return CompletableFuture.completedFuture(new ArrayList<>()); // TODO Throw? OR Failed future?
+            return CompletableFuture.completedFuture(new DataPage(new ArrayList<>(), null)); // TODO Throw? OR Failed future?
         }
-        try(Connection connection = dataSource.getConnection()) {
+        int orderCount = selector.order() == null ? 0 : selector.order().length;
+        try(Connection connection = getConnection()) {
             // Build select query
-            PreparedStatement statement = buildSelectQuery(connection, selector);
+            PreparedStatement statement;
+            try {
+                statement = buildSelectQuery(connection, selector);
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.failedFuture(e);
+            }
             if(statement == null) {
-                return CompletableFuture.completedFuture(new ArrayList<>());
+                return CompletableFuture.completedFuture(new DataPage(new ArrayList<>(), null));
             }
             // Get result of query
             try(ResultSet resultSet = statement.executeQuery()) {
                 ArrayList<CompletableFuture<?>> futures = new ArrayList<>();
                 ArrayList<DataObject> dataObjects = new ArrayList<>();
+                DataContinuation continuation = null;
+                long rows = 0;
                 while(resultSet.next()) {
+                    // The extra row only tells that there is a next page, which continues after the previous row.
+                    if(pageSize != null && rows++ == pageSize) break;
                     String id = resultSet.getString("id");
                     DataObjectId dataObjectId;
                     if(selector.id().isRelational()) dataObjectId = new DataObjectId(new RelationalId(selector.id().relationalId().type(), resultSet.getString("relational_id")), id);
                     else dataObjectId = new DataObjectId(selector.id().relationalId(), id);
+                    if(pageSize != null) {
+                        ArrayList<Object> values = new ArrayList<>(orderCount);
+                        for (int i = 0; i < orderCount; i++) {
+                            Object value = resultSet.getObject("lane_order_" + i);
+                            if(value instanceof Number) values.add(resultSet.getBigDecimal("lane_order_" + i));
+                            else values.add(value == null ? null : resultSet.getString("lane_order_" + i));
+                        }
+                        continuation = new DataContinuation(values, selector.id().isRelational() ? dataObjectId.relationalId().id() : null, id);
+                    }
                     CompletableFuture<Optional<DataObject>> mappedObjectFuture;
                     try {
                         mappedObjectFuture = resultSetToDataObject(permissionKey, dataObjectId, resultSet);
@@ -766,11 +1693,12 @@ public class MySQLDataManager implements DataManager {
                     futures.add(mappedObjectFuture.thenAccept(mappedObjectOpt ->
                             mappedObjectOpt.ifPresent(dataObjects::add)));
                 }
-                return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(val -> dataObjects);
+                String token = pageSize != null && rows > pageSize && continuation != null ? continuation.encode() : null;
+                return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(val -> new DataPage(dataObjects, token));
             }
         } catch(SQLException e) {
             if(e.getErrorCode() == 1051 || e.getErrorCode() == 1146) {
-                return CompletableFuture.completedFuture(new ArrayList<>());
+                return CompletableFuture.completedFuture(new DataPage(new ArrayList<>(), null));
             }
             return CompletableFuture.failedFuture(e);
         }
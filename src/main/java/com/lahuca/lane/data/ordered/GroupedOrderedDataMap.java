@@ -7,6 +7,8 @@
 
 package com.lahuca.lane.data.ordered;
 
+import org.jetbrains.annotations.Unmodifiable;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
@@ -14,6 +16,7 @@ import java.util.function.Predicate;
 public class GroupedOrderedDataMap<T> extends OrderedDataMap<T> {
 
     private List<Predicate<OrderedData<T>>> groups;
+    private List<List<OrderedData<T>>> sortedGroups;
 
     public GroupedOrderedDataMap() {}
 
@@ -26,14 +29,21 @@ public class GroupedOrderedDataMap<T> extends OrderedDataMap<T> {
         this.groups = groups;
     }
 
-    public List<List<OrderedData<T>>> sortedGroups() {
+    /**
+     * Gets the sorted data of each group, the result is cached until this map or its groups are modified.
+     *
+     * @return the sorted data of each group
+     */
+    public @Unmodifiable List<List<OrderedData<T>>> sortedGroups() {
+        if(sortedGroups != null) return sortedGroups;
         List<List<OrderedData<T>>> groupedData;
         if(groups == null) groupedData = List.of(sort());
         else {
             groupedData = new ArrayList<>();
             groups.forEach(group -> groupedData.add(sort(group)));
         }
-        return groupedData;
+        sortedGroups = List.copyOf(groupedData);
+        return sortedGroups;
     }
 
     public List<Predicate<OrderedData<T>>> getGroups() {
@@ -46,6 +56,13 @@ public class GroupedOrderedDataMap<T> extends OrderedDataMap<T> {
 
     public void setGroups(List<Predicate<OrderedData<T>>> groups) {
         this.groups = groups;
+        invalidate();
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        sortedGroups = null;
     }
 
 }
@@ -1,6 +1,10 @@
 package com.lahuca.lane.data.ordered;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.function.Predicate;
 
 /**
@@ -15,6 +19,11 @@ public class OrderedData<T> {
     private double priority;
     private int ordering;
     private Predicate<Collection<OrderedData<T>>> forceInclude;
+    /**
+     * The maps this data has been added to, which are updated when this data changes.
+     * The maps are weakly referenced, so that data which is shared between maps does not keep discarded maps reachable.
+     */
+    private final Set<OrderedDataMap<T>> owners = Collections.newSetFromMap(new WeakHashMap<>());
 
     public OrderedData(String id, T data, double priority, int ordering, Predicate<Collection<OrderedData<T>>> forceInclude) {
         this.id = id;
@@ -33,7 +42,9 @@ public class OrderedData<T> {
     }
 
     public void setId(String id) {
+        String previous = this.id;
         this.id = id;
+        List.copyOf(owners).forEach(owner -> owner.reorder(this, previous));
     }
 
     public T getData() {
@@ -42,6 +53,7 @@ public class OrderedData<T> {
 
     public void setData(T data) {
         this.data = data;
+        owners.forEach(OrderedDataMap::invalidate);
     }
 
     public double getPriority() {
@@ -50,6 +62,7 @@ public class OrderedData<T> {
 
     public void setPriority(double priority) {
         this.priority = priority;
+        List.copyOf(owners).forEach(owner -> owner.reorder(this, id));
     }
 
     public int getOrdering() {
@@ -58,6 +71,7 @@ public class OrderedData<T> {
 
     public void setOrdering(int ordering) {
         this.ordering = ordering;
+        owners.forEach(OrderedDataMap::invalidate);
     }
 
     public Predicate<Collection<OrderedData<T>>> getForceInclude() {
@@ -66,5 +80,14 @@ public class OrderedData<T> {
 
     public void setForceInclude(Predicate<Collection<OrderedData<T>>> forceInclude) {
         this.forceInclude = forceInclude;
+        owners.forEach(OrderedDataMap::invalidate);
+    }
+
+    void addOwner(OrderedDataMap<T> owner) {
+        owners.add(owner);
+    }
+
+    void removeOwner(OrderedDataMap<T> owner) {
+        owners.remove(owner);
     }
 }
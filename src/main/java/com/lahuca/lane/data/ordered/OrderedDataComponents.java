@@ -19,6 +19,8 @@ public class OrderedDataComponents extends GroupedOrderedDataMap<Component> impl
 
     // TODO Use vars within the components
 
+    private Component component;
+
     public OrderedDataComponents() {
         super();
     }
@@ -31,8 +33,25 @@ public class OrderedDataComponents extends GroupedOrderedDataMap<Component> impl
         super(groups);
     }
 
+    /**
+     * Composes the components of all groups, separated by spaces.
+     * The result is cached until this map or its groups are modified.
+     *
+     * @return the composed component
+     */
     @Override
     public @NotNull Component asComponent() {
+        if(component == null) component = buildComponent();
+        return component;
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        component = null;
+    }
+
+    private Component buildComponent() {
         List<List<OrderedData<Component>>> groups = sortedGroups();
 
         Component result = Component.empty();
@@ -24,43 +24,105 @@ import java.util.function.Predicate;
 
 public class OrderedDataMap<T> {
 
+    /**
+     * The key of the data sorted by priority, data with the same priority is sorted by insertion.
+     *
+     * @param priority the priority
+     * @param sequence the insertion sequence
+     */
+    private record Key(double priority, long sequence) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(@NotNull Key other) {
+            int compare = Double.compare(priority, other.priority);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+
+    }
+
     private final Map<String, OrderedData<T>> data = new HashMap<>();
+    private final Map<String, Key> keys = new HashMap<>();
+    private final TreeMap<Key, OrderedData<T>> sortedData = new TreeMap<>();
+    private long sequence;
+    private List<OrderedData<T>> sorted;
 
     private Predicate<OrderedData<T>> shouldInclude = d -> false;
     private Comparator<OrderedData<T>> comparator = Comparator.comparingDouble(OrderedData::getPriority);
 
+    /**
+     * Gets the data with the highest priority and the data that is forced to be included, sorted by ordering.
+     * The result is cached until this map is modified, this expects the force include predicates to only depend on the given data.
+     *
+     * @return the sorted data
+     */
     public @NotNull @Unmodifiable List<OrderedData<T>> sort() {
-        return sort(null);
+        if(sorted == null) sorted = sort(null);
+        return sorted;
     }
 
     public @NotNull @Unmodifiable List<OrderedData<T>> sort(@Nullable Predicate<OrderedData<T>> filter) {
-        Collection<OrderedData<T>> all = getData().values();
-        if(filter != null) all = all.stream().filter(filter).toList();
-        double targetPriority = all.stream().mapToDouble(OrderedData::getPriority).max().orElse(0);
-        Collection<OrderedData<T>> finalAll = all;
+        List<OrderedData<T>> all = filter == null ? List.copyOf(sortedData.values()) : sortedData.values().stream().filter(filter).toList();
+        if(all.isEmpty()) return List.of();
+        // The data is sorted by priority, so the highest priority is the last
+        double targetPriority = all.getLast().getPriority();
 
         return all.stream()
-                .filter(d -> d.getPriority() == targetPriority || d.getForceInclude().test(finalAll))
+                .filter(d -> d.getPriority() == targetPriority || d.getForceInclude().test(all))
                 .sorted(Comparator.comparingInt(OrderedData::getOrdering))
                 .toList();
     }
 
     public OrderedDataMap<T> add(OrderedData<T> data) {
-        this.data.put(data.getId(), data);
+        Key key = new Key(data.getPriority(), sequence++);
+        OrderedData<T> previous = this.data.put(data.getId(), data);
+        if(previous != null) {
+            sortedData.remove(keys.get(data.getId()));
+            if(previous != data) previous.removeOwner(this);
+        }
+        keys.put(data.getId(), key);
+        sortedData.put(key, data);
+        data.addOwner(this);
+        invalidate();
         return this;
     }
 
     public OrderedDataMap<T> remove(String id) {
-        this.data.remove(id);
+        OrderedData<T> removed = this.data.remove(id);
+        if(removed != null) {
+            sortedData.remove(keys.remove(id));
+            removed.removeOwner(this);
+            invalidate();
+        }
         return this;
     }
 
+    /**
+     * Sorts the given data again after its ID or priority has changed, as if it has been added again.
+     *
+     * @param data       the changed data
+     * @param previousId the ID the data has been added with
+     */
+    void reorder(OrderedData<T> data, String previousId) {
+        if(this.data.get(previousId) != data) return;
+        remove(previousId);
+        add(data);
+    }
+
     public OrderedData<T> get(String id) {
         return this.data.get(id);
     }
 
-    public Map<String, OrderedData<T>> getData() {
-        return data;
+    public @Unmodifiable Map<String, OrderedData<T>> getData() {
+        return Collections.unmodifiableMap(data);
+    }
+
+    /**
+     * Invalidates the cached results of this map.
+     * This is done on every modification of this map and of the data that has been added to it,
+     * but has to be done manually when the contained objects themselves are modified or when the force include predicates depend on anything else.
+     */
+    public void invalidate() {
+        sorted = null;
     }
 
     public void setShouldInclude(Predicate<OrderedData<T>> shouldInclude) {
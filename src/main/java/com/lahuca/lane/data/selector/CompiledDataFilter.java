@@ -0,0 +1,187 @@
+package com.lahuca.lane.data.selector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.lahuca.lane.data.JsonPath;
+
+import java.util.function.DoublePredicate;
+
+/**
+ * A {@link DataFilter} that has been compiled into a reusable predicate over the parsed value of a data object.
+ * The JSON paths of the filter are compiled once, so that testing a value does not parse any paths or allocate.
+ * <p>
+ * The evaluation follows the semantics of the MySQL data manager:
+ * a value that is missing or not a number at the path is unknown, which does not match, not even when it is negated.
+ * Booleans are seen as 1 (true) and 0 (false), strings that contain a number are seen as that number.
+ */
+public final class CompiledDataFilter {
+
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int UNKNOWN = 2;
+
+    @FunctionalInterface
+    private interface Node {
+
+        int evaluate(JsonElement value);
+
+    }
+
+    private final Node root;
+
+    private CompiledDataFilter(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles the given filter, whose paths point into the value of the data objects.
+     *
+     * @param filter the filter
+     * @return the compiled filter
+     * @throws IllegalArgumentException when a path of the filter is not properly formatted
+     */
+    public static CompiledDataFilter compile(DataFilter filter) {
+        return new CompiledDataFilter(compile(null, filter, false));
+    }
+
+    /**
+     * Compiles the given filter as a version filter, where the paths are ignored as it always tests the version itself.
+     *
+     * @param filter the filter
+     * @return the compiled filter
+     */
+    public static CompiledDataFilter compileVersion(DataFilter filter) {
+        return new CompiledDataFilter(compile(null, filter, true));
+    }
+
+    /**
+     * Tests the parsed value of a data object.
+     *
+     * @param value the parsed value
+     * @return true if the value passes the filter, false otherwise
+     */
+    public boolean test(JsonElement value) {
+        return root.evaluate(value) == TRUE;
+    }
+
+    private static Node compile(String selection, DataFilter filter, boolean version) {
+        return switch (filter) {
+            case DataFilter.Selection(String path, DataFilter child) -> compile(path, child, version);
+            case DataFilter.And(DataFilter[] filters) -> {
+                Node[] nodes = compileAll(selection, filters, version);
+                yield value -> {
+                    int result = TRUE;
+                    for (Node node : nodes) {
+                        int current = node.evaluate(value);
+                        if (current == FALSE) return FALSE;
+                        if (current == UNKNOWN) result = UNKNOWN;
+                    }
+                    return result;
+                };
+            }
+            case DataFilter.Or(DataFilter[] filters) -> {
+                Node[] nodes = compileAll(selection, filters, version);
+                yield value -> {
+                    int result = FALSE;
+                    for (Node node : nodes) {
+                        int current = node.evaluate(value);
+                        if (current == TRUE) return TRUE;
+                        if (current == UNKNOWN) result = UNKNOWN;
+                    }
+                    return result;
+                };
+            }
+            case DataFilter.Not(DataFilter child) -> {
+                Node node = compile(selection, child, version);
+                yield value -> {
+                    int current = node.evaluate(value);
+                    return current == UNKNOWN ? UNKNOWN : TRUE - current;
+                };
+            }
+            case DataFilter.DataFilterNumerical numerical -> compileNumerical(selection, numerical, version);
+        };
+    }
+
+    private static Node[] compileAll(String selection, DataFilter[] filters, boolean version) {
+        Node[] nodes = new Node[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            nodes[i] = compile(selection, filters[i], version);
+        }
+        return nodes;
+    }
+
+    private static Node compileNumerical(String selection, DataFilter.DataFilterNumerical numerical, boolean version) {
+        JsonPath path = JsonPath.compile(version ? null : numerical.path() == null ? selection : numerical.path());
+        DoublePredicate predicate = switch (numerical) {
+            case DataFilter.Equals(var ignored, Number value) -> {
+                double expected = value.doubleValue();
+                yield number -> number == expected;
+            }
+            case DataFilter.LowerThan(var ignored, Number value) -> {
+                double bound = value.doubleValue();
+                yield number -> number < bound;
+            }
+            case DataFilter.LowerThanEquals(var ignored, Number value) -> {
+                double bound = value.doubleValue();
+                yield number -> number <= bound;
+            }
+            case DataFilter.GreaterThan(var ignored, Number value) -> {
+                double bound = value.doubleValue();
+                yield number -> number > bound;
+            }
+            case DataFilter.GreaterThanEquals(var ignored, Number value) -> {
+                double bound = value.doubleValue();
+                yield number -> number >= bound;
+            }
+            case DataFilter.Between(var ignored, Number lower, Number upper) -> {
+                double lowerBound = lower.doubleValue();
+                double upperBound = upper.doubleValue();
+                yield number -> lowerBound <= number && number <= upperBound;
+            }
+        };
+        if (path.isRoot()) {
+            return value -> {
+                double number = toNumber(value);
+                if (Double.isNaN(number)) return UNKNOWN;
+                return predicate.test(number) ? TRUE : FALSE;
+            };
+        }
+        return value -> {
+            double number = toNumber(path.get(value));
+            if (Double.isNaN(number)) return UNKNOWN;
+            return predicate.test(number) ? TRUE : FALSE;
+        };
+    }
+
+    /**
+     * Converts the element to the number it represents.
+     *
+     * @param element the element
+     * @return the number, or {@link Double#NaN} when it does not represent a number
+     */
+    static double toNumber(JsonElement element) {
+        if (element == null || !element.isJsonPrimitive()) return Double.NaN;
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) return primitive.getAsBoolean() ? 1 : 0;
+        try {
+            return primitive.getAsDouble();
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Resolves the number that a numerical filter compares, as used by {@link DataFilter#filter(String, Object)}.
+     *
+     * @param selection the selected path, used when the path is null
+     * @param path      the path of the filter
+     * @param object    either a number, which is compared directly, or a parsed JSON value
+     * @return the number, or {@link Double#NaN} when there is none
+     */
+    static double resolve(String selection, String path, Object object) {
+        if (object instanceof Number number) return number.doubleValue();
+        if (object instanceof JsonElement element) return toNumber(JsonPath.compile(path == null ? selection : path).get(element));
+        return Double.NaN;
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.lahuca.lane.data.selector;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.lahuca.lane.data.DataObject;
+import com.lahuca.lane.data.DataObjectType;
+import com.lahuca.lane.data.JsonPath;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The position within the ordered data objects of a selector, from where the next page continues.
+ * It consists of the order values of the last seen data object, together with its relational ID and ID to break ties.
+ * It is passed around as an opaque token, see {@link #encode()} and {@link #decode(String)}.
+ * Order values are either a {@link BigDecimal} for numerical casts, a {@link String} otherwise, or null when the value is missing.
+ * Numbers are kept exactly, so that large integral values such as longs above 2^53 continue at the right position.
+ *
+ * @param values       the order values of the last seen data object, in the order of the selector
+ * @param relationalId the relational ID of the last seen data object, null for the singular table
+ * @param id           the ID of the last seen data object
+ */
+public record DataContinuation(List<Object> values, String relationalId, String id) {
+
+    public DataContinuation {
+        values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    /**
+     * Encodes this continuation into an opaque token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        JsonArray array = new JsonArray();
+        for (Object value : values) {
+            if (value instanceof Number number) array.add(toBigDecimal(number));
+            else if (value == null) array.add(JsonNull.INSTANCE);
+            else array.add(value.toString());
+        }
+        array.add(relationalId == null ? JsonNull.INSTANCE : new JsonPrimitive(relationalId));
+        array.add(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(array.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the token that has been created by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the continuation
+     * @throws IllegalArgumentException when the token is not valid
+     */
+    public static DataContinuation decode(String token) {
+        try {
+            JsonArray array = JsonParser.parseString(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)).getAsJsonArray();
+            if (array.size() < 2) throw new IllegalArgumentException("Continuation token is not valid");
+            ArrayList<Object> values = new ArrayList<>();
+            for (int i = 0; i < array.size() - 2; i++) {
+                JsonElement element = array.get(i);
+                if (element.isJsonNull()) values.add(null);
+                else if (element.getAsJsonPrimitive().isNumber()) values.add(element.getAsBigDecimal());
+                else values.add(element.getAsString());
+            }
+            JsonElement relationalId = array.get(array.size() - 2);
+            return new DataContinuation(values, relationalId.isJsonNull() ? null : relationalId.getAsString(), array.get(array.size() - 1).getAsString());
+        } catch (IllegalStateException | UnsupportedOperationException | NumberFormatException | JsonParseException e) {
+            throw new IllegalArgumentException("Continuation token is not valid", e);
+        }
+    }
+
+    /**
+     * Returns whether the cast of the order compares numbers.
+     * Orders without a cast compare numbers, as {@link DataObjectType#DOUBLE} is the default cast of {@link DataOrder}.
+     *
+     * @param cast the cast, or null
+     * @return true if numerical
+     */
+    public static boolean isNumerical(DataObjectType cast) {
+        return switch (cast == null ? DataObjectType.DOUBLE : cast) {
+            case INTEGER, LONG, FLOAT, DOUBLE, BOOLEAN -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Extracts the order value of the given data object for the given order.
+     *
+     * @param order  the order
+     * @param object the data object, its value must be readable
+     * @return the order value: a {@link BigDecimal}, {@link String} or null
+     */
+    public static Object extractValue(DataOrder order, DataObject object) {
+        if (object.getValue().isEmpty()) return null;
+        return extractValue(JsonPath.compile(order.path()), order.cast(), parseValue(object.getValue().get()));
+    }
+
+    /**
+     * Extracts the order value of the given parsed value for the given compiled path and cast.
+     *
+     * @param path  the compiled path of the order
+     * @param cast  the cast of the order
+     * @param value the parsed value, see {@link #parseValue(String)}
+     * @return the order value: a {@link BigDecimal}, {@link String} or null
+     */
+    public static Object extractValue(JsonPath path, DataObjectType cast, JsonElement value) {
+        JsonElement element = path.get(value);
+        if (element == null || element.isJsonNull()) return null;
+        if (!element.isJsonPrimitive()) return isNumerical(cast) ? null : element.toString();
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (!isNumerical(cast)) return primitive.getAsString();
+        if (primitive.isBoolean()) return primitive.getAsBoolean() ? BigDecimal.ONE : BigDecimal.ZERO;
+        try {
+            return primitive.getAsBigDecimal();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the value of a data object, so that paths can be evaluated on it.
+     * Values that are not valid JSON are seen as a string.
+     *
+     * @param value the value
+     * @return the parsed value
+     */
+    public static JsonElement parseValue(String value) {
+        try {
+            return JsonParser.parseString(value);
+        } catch (JsonParseException e) {
+            return new JsonPrimitive(value);
+        }
+    }
+
+    /**
+     * Compares two order values, where missing values come first.
+     * Numbers are compared exactly by their value, other values by their text.
+     *
+     * @param value1 the first order value
+     * @param value2 the second order value
+     * @return the comparison, as in {@link Comparable#compareTo(Object)}
+     */
+    public static int compareValues(Object value1, Object value2) {
+        if (value1 == null || value2 == null) return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        if (value1 instanceof Number number1 && value2 instanceof Number number2) return toBigDecimal(number1).compareTo(toBigDecimal(number2));
+        return value1.toString().compareTo(value2.toString());
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal decimal) return decimal;
+        if (number instanceof Double || number instanceof Float) return BigDecimal.valueOf(number.doubleValue());
+        return new BigDecimal(number.toString());
+    }
+
+}
@@ -10,7 +10,9 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
     /**
      * Tests the object for the given filter.
-     * @param object the object to test
+     * Data managers evaluate filters through {@link CompiledDataFilter}, which compiles the paths once.
+     * @param selection the selected path that is used whenever the path of a filter is null, null for the object itself
+     * @param object the object to test: either a number, which is compared directly, or a parsed JSON value
      * @return true if the object passes the filter, false otherwise
      */
     boolean filter(String selection, Object object);
@@ -27,7 +29,7 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            throw new UnsupportedOperationException("JSONPath is not supported for it on the file manager."); // TODO Support JSONPath for file manager
+            return filter.filter(path, object);
         }
 
     }
@@ -126,8 +128,7 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            // TODO Use selection! Probably we want a function that maps the selection
-            return object instanceof Number number && number.doubleValue() == value.doubleValue();
+            return CompiledDataFilter.resolve(selection, path, object) == value.doubleValue();
         }
 
     }
@@ -208,7 +209,7 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            return object instanceof Number number && number.doubleValue() < value.doubleValue();
+            return CompiledDataFilter.resolve(selection, path, object) < value.doubleValue();
         }
 
     }
@@ -234,7 +235,7 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            return object instanceof Number number && number.doubleValue() <= value.doubleValue();
+            return CompiledDataFilter.resolve(selection, path, object) <= value.doubleValue();
         }
 
     }
@@ -260,7 +261,7 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            return object instanceof Number number && number.doubleValue() > value.doubleValue();
+            return CompiledDataFilter.resolve(selection, path, object) > value.doubleValue();
         }
 
     }
@@ -286,7 +287,7 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            return object instanceof Number number && number.doubleValue() >= value.doubleValue();
+            return CompiledDataFilter.resolve(selection, path, object) >= value.doubleValue();
         }
 
     }
@@ -313,7 +314,8 @@ public sealed interface DataFilter permits DataFilter.Selection, DataFilter.Data
 
         @Override
         public boolean filter(String selection, Object object) {
-            return object instanceof Number number && lower.doubleValue() <= number.doubleValue() && number.doubleValue() <= upper.doubleValue();
+            double number = CompiledDataFilter.resolve(selection, path, object);
+            return lower.doubleValue() <= number && number <= upper.doubleValue();
         }
 
     }
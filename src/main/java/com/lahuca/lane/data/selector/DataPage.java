@@ -0,0 +1,25 @@
+package com.lahuca.lane.data.selector;
+
+import com.lahuca.lane.data.DataObject;
+
+import java.util.ArrayList;
+
+/**
+ * A page of data objects that has been selected using a {@link DataSelector}.
+ * The next page is retrieved by using the continuation in the selector, see {@link DataSelector#continueAfter(String)}.
+ *
+ * @param objects      the data objects in this page
+ * @param continuation the opaque token to retrieve the next page with, null if there are no more data objects
+ */
+public record DataPage(ArrayList<DataObject> objects, String continuation) {
+
+    /**
+     * Returns whether there is a next page.
+     *
+     * @return true if there are more data objects after this page
+     */
+    public boolean hasNext() {
+        return continuation != null;
+    }
+
+}
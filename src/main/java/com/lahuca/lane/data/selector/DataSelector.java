@@ -16,7 +16,10 @@ import java.util.Objects;
  * @param filter the filter, the path defaults to the value
  * @param order the ordering of the data objects
  * @param limit the maximum number of data objects to return
- * @param offset the offset of the data objects to return
+ * @param offset the offset of the data objects to return, this is ignored when a continuation is given
+ * @param continuation the opaque token of the page to continue after, see {@link DataPage#continuation()}.
+ *                     Instead of skipping the offset, the data objects are continued after the position in the order stored in the token.
+ *                     This requires the same order and filters as the selector of the previous page.
  */
 public record DataSelector(
         DataObjectId id,
@@ -26,7 +29,8 @@ public record DataSelector(
         DataFilter filter,
         DataOrder[] order,
         Long limit,
-        Long offset) {
+        Long offset,
+        String continuation) {
 
     // -----------------------------------------------------------------
     // Default values when a component is not supplied by the builder
@@ -39,29 +43,33 @@ public record DataSelector(
     }
 
     public DataSelector versionFilter(DataFilter versionFilter) {
-        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset);
+        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset, continuation);
     }
 
     public DataSelector filter(DataFilter filter) {
-        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset);
+        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset, continuation);
     }
 
     public DataSelector order(DataOrder... order) {
-        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset);
+        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset, continuation);
     }
 
     public DataSelector limit(Long limit) {
-        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, this.order, limit, offset);
+        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, this.order, limit, offset, continuation);
     }
 
     public DataSelector offset(Long offset) {
-        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, this.order, limit, offset);
+        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, this.order, limit, offset, continuation);
     }
 
     public DataSelector limitOffset(Long limit, Long offset) {
         return limit(limit).offset(offset);
     }
 
+    public DataSelector continueAfter(String continuation) {
+        return new DataSelector(id, relationalIdOperation, idOperation, versionFilter, filter, order, limit, offset, continuation);
+    }
+
     public static Builder builder(DataObjectId id) {
         return new Builder(id);
     }
@@ -75,6 +83,7 @@ public record DataSelector(
         private DataOrder[] order;
         private Long limit;
         private Long offset;
+        private String continuation;
 
         public Builder(DataObjectId id) {
             this.id = id;
@@ -126,6 +135,11 @@ public record DataSelector(
             return this;
         }
 
+        public Builder continueAfter(String continuation) {
+            this.continuation = continuation;
+            return this;
+        }
+
         public DataSelector build() {
             return new DataSelector(
                     Objects.requireNonNullElse(this.id, new DataObjectId()),
@@ -135,7 +149,8 @@ public record DataSelector(
                     this.filter,
                     this.order,
                     this.limit,
-                    this.offset
+                    this.offset,
+                    this.continuation
             );
         }
     }
@@ -0,0 +1,37 @@
+package com.lahuca.lane.data.watch;
+
+import com.lahuca.lane.data.DataObject;
+import com.lahuca.lane.data.DataObjectId;
+
+import java.util.Optional;
+
+/**
+ * A change to a watched data object, as seen through the permission key of the watch.
+ * Changes that follow each other quickly are coalesced, so that only the latest state is given.
+ * When the ID of the data object ID is null, the data objects of the relational ID have been changed in bulk:
+ * for example when a profile has been reset, these should be read again when needed.
+ *
+ * @param id     the ID of the changed data object
+ * @param object the data object after the change, null when it has been removed or the relational ID changed in bulk
+ */
+public record DataObjectChange(DataObjectId id, DataObject object) {
+
+    /**
+     * Returns the data object after the change, it contains the new version and value when the permission key is allowed to read them.
+     *
+     * @return an optional with the data object, empty when it has been removed
+     */
+    public Optional<DataObject> getObject() {
+        return Optional.ofNullable(object);
+    }
+
+    /**
+     * Returns whether all data objects of the relational ID have been changed in bulk, instead of a single data object.
+     *
+     * @return true if the relational ID has been changed in bulk
+     */
+    public boolean isRelational() {
+        return id.id() == null;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.lahuca.lane.data.watch;
+
+/**
+ * A registered listener for the changes to the watched data objects.
+ */
+public interface DataWatch {
+
+    /**
+     * Returns what is being watched.
+     *
+     * @return the key
+     */
+    DataWatchKey getKey();
+
+    /**
+     * Stops watching, the listener does not receive changes anymore.
+     */
+    void cancel();
+
+}
@@ -0,0 +1,38 @@
+package com.lahuca.lane.data.watch;
+
+import com.lahuca.lane.data.DataObjectId;
+import com.lahuca.lane.data.PermissionKey;
+
+import java.util.Objects;
+
+/**
+ * What is being watched: either a single data object, or all data objects of a relational ID whose ID starts with a prefix.
+ * The changes are seen through the permission key, so that the watcher only receives what it is allowed to read.
+ *
+ * @param id            the ID of the data object, or the relational ID with the prefix of the IDs when watching a prefix
+ * @param prefix        whether all data objects whose ID starts with the ID are watched, a null ID then matches all IDs
+ * @param permissionKey the permission key to read the changed data objects with
+ */
+public record DataWatchKey(DataObjectId id, boolean prefix, PermissionKey permissionKey) {
+
+    public DataWatchKey {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(permissionKey, "permissionKey cannot be null");
+        if(!prefix && id.id() == null) throw new IllegalArgumentException("Only a prefix can watch a null ID");
+    }
+
+    /**
+     * Returns whether the given data object is watched.
+     * When the ID of the given data object ID is null, it stands for all data objects of its relational ID.
+     *
+     * @param changed the ID of the changed data object
+     * @return true if this watches the data object
+     */
+    public boolean matches(DataObjectId changed) {
+        if(changed == null || !Objects.equals(id.relationalId(), changed.relationalId())) return false;
+        if(changed.id() == null) return true;
+        if(!prefix) return id.id().equals(changed.id());
+        return id.id() == null || changed.id().startsWith(id.id());
+    }
+
+}
@@ -1,7 +1,12 @@
 package com.lahuca.lane.utilities;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
 import com.google.gson.typeadapters.RuntimeTypeAdapterFactory;
 
+import java.util.Map;
+
 public class GsonUtilities {
 
     public static <T> RuntimeTypeAdapterFactory<T> getSealedRuntimeTypeAdapterFactory(Class<T> base) {
@@ -29,4 +34,27 @@ public class GsonUtilities {
         }
     }
 
+    /**
+     * Applies the JSON merge patch (RFC 7396) to the target, like MySQL's {@code JSON_MERGE_PATCH}.
+     * Members of the patch that are null are removed from the target, other members are merged recursively.
+     * A patch that is not an object replaces the target entirely.
+     * The target is modified in place when possible.
+     *
+     * @param target the element to patch, can be null
+     * @param patch  the merge patch
+     * @return the patched element
+     */
+    public static JsonElement mergePatch(JsonElement target, JsonElement patch) {
+        if (!(patch instanceof JsonObject patchObject)) return patch == null ? JsonNull.INSTANCE : patch;
+        JsonObject result = target instanceof JsonObject targetObject ? targetObject : new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : patchObject.entrySet()) {
+            if (entry.getValue().isJsonNull()) {
+                result.remove(entry.getKey());
+            } else {
+                result.add(entry.getKey(), mergePatch(result.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,85 @@
+package com.lahuca.lane.data.ordered;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Microbenchmark of the composed player list names, as they are requested by every viewer.
+ * Every player has a name with a prefix, name and suffix group; each round every viewer requests the name of every player and one player's name changes.
+ * The cached composition is compared against composing the name on every request, which is forced by invalidating before each request.
+ * Both runs have to end with the same names, which also keeps the composed names from being optimized away.
+ * It is excluded from the tests, run it with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class OrderedDataBenchmark {
+
+    private static final int VIEWERS = 100;
+    private static final int ROUNDS = 200;
+    private static final int WARMUP_ROUNDS = 100;
+
+    @Test
+    void cachedCompositionMatchesComposingEveryRequest() {
+        run(names(), WARMUP_ROUNDS, false);
+        run(names(), WARMUP_ROUNDS, true);
+        List<OrderedDataComponents> uncachedNames = names();
+        List<OrderedDataComponents> cachedNames = names();
+        long start = System.nanoTime();
+        Component[] uncached = run(uncachedNames, ROUNDS, false);
+        long uncachedTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        Component[] cached = run(cachedNames, ROUNDS, true);
+        long cachedTime = System.nanoTime() - start;
+
+        assertArrayEquals(uncached, cached);
+
+        long requests = (long) ROUNDS * VIEWERS * VIEWERS;
+        System.out.printf("%d viewers, %d rounds, %d requests%n", VIEWERS, ROUNDS, requests);
+        System.out.printf("composed every request: %.1f ns/op%n", (double) uncachedTime / requests);
+        System.out.printf("cached composition: %.1f ns/op%n", (double) cachedTime / requests);
+    }
+
+    /**
+     * Requests the names for the given rounds.
+     *
+     * @return the names that have been requested last
+     */
+    private static Component[] run(List<OrderedDataComponents> names, int rounds, boolean cached) {
+        Component[] requested = new Component[names.size()];
+        for(int round = 0; round < rounds; round++) {
+            // One player's name changes every round
+            OrderedDataComponents changed = names.get(round % names.size());
+            changed.add(new OrderedData<>("suffix", Component.text("[" + round + "]"), -1, 0));
+            for(int viewer = 0; viewer < VIEWERS; viewer++) {
+                for(int player = 0; player < names.size(); player++) {
+                    OrderedDataComponents name = names.get(player);
+                    if(!cached) name.invalidate();
+                    requested[player] = name.asComponent();
+                }
+            }
+        }
+        return requested;
+    }
+
+    private static List<OrderedDataComponents> names() {
+        List<OrderedDataComponents> names = new ArrayList<>();
+        for(int i = 0; i < VIEWERS; i++) names.add(name(i));
+        return names;
+    }
+
+    private static OrderedDataComponents name(int player) {
+        OrderedDataComponents name = new OrderedDataComponents(d -> d.getPriority() > 0, d -> d.getPriority() == 0, d -> d.getPriority() < 0);
+        name.add(new OrderedData<>("rank", Component.text("[Rank]"), 2, 0));
+        name.add(new OrderedData<>("party", Component.text("[Party]"), 1, 1, l -> true));
+        name.add(new OrderedData<>("name", Component.text("Player" + player), 0, 0));
+        name.add(new OrderedData<>("nickname", Component.text("Nick" + player), 0, 1, l -> false));
+        name.add(new OrderedData<>("suffix", Component.text("[0]"), -1, 0));
+        return name;
+    }
+
+}
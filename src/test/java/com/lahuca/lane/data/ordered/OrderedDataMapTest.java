@@ -0,0 +1,108 @@
+package com.lahuca.lane.data.ordered;
+
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that changes to data that has been added to an {@link OrderedDataMap} are applied to the map.
+ */
+class OrderedDataMapTest {
+
+    @Test
+    void changedPriorityIsSortedAgain() {
+        OrderedData<String> low = new OrderedData<>("low", "Low", 1, 0);
+        OrderedData<String> high = new OrderedData<>("high", "High", 2, 0);
+        OrderedDataMap<String> map = new OrderedDataMap<String>().add(low).add(high);
+        assertEquals(List.of(high), map.sort());
+
+        low.setPriority(3);
+
+        assertEquals(List.of(low), map.sort());
+        assertEquals(List.of(low), map.sort(data -> true));
+    }
+
+    @Test
+    void changedDataIsComposedAgain() {
+        OrderedData<Component> name = new OrderedData<>("name", Component.text("Player"), 0, 0);
+        OrderedDataComponents components = new OrderedDataComponents();
+        components.add(name);
+        components.add(new OrderedData<>("suffix", Component.text("[0]"), 0, 1));
+        Component before = components.asComponent();
+
+        name.setData(Component.text("Nick"));
+
+        OrderedDataComponents expected = new OrderedDataComponents();
+        expected.add(new OrderedData<>("name", Component.text("Nick"), 0, 0));
+        expected.add(new OrderedData<>("suffix", Component.text("[0]"), 0, 1));
+        assertNotEquals(before, components.asComponent());
+        assertEquals(expected.asComponent(), components.asComponent());
+    }
+
+    @Test
+    void changedOrderingIsSortedAgain() {
+        OrderedData<String> first = new OrderedData<>("first", "First", 0, 0);
+        OrderedData<String> second = new OrderedData<>("second", "Second", 0, 1);
+        OrderedDataMap<String> map = new OrderedDataMap<String>().add(first).add(second);
+        assertEquals(List.of(first, second), map.sort());
+
+        first.setOrdering(2);
+
+        assertEquals(List.of(second, first), map.sort());
+    }
+
+    @Test
+    void changedIdIsKeyedAgain() {
+        OrderedData<String> data = new OrderedData<>("old", "Data", 0, 0);
+        OrderedDataMap<String> map = new OrderedDataMap<String>().add(data);
+
+        data.setId("new");
+
+        assertNull(map.get("old"));
+        assertSame(data, map.get("new"));
+        assertEquals(List.of(data), map.sort());
+    }
+
+    @Test
+    void changedPriorityIsSortedAgainInEveryMap() {
+        OrderedData<String> shared = new OrderedData<>("shared", "Shared", 1, 0);
+        OrderedData<String> other = new OrderedData<>("other", "Other", 2, 0);
+        OrderedDataMap<String> first = new OrderedDataMap<String>().add(shared).add(other);
+        OrderedDataMap<String> second = new OrderedDataMap<String>().add(shared).add(other);
+
+        shared.setPriority(3);
+
+        assertEquals(List.of(shared), first.sort());
+        assertEquals(List.of(shared), second.sort());
+    }
+
+    @Test
+    void removedDataDoesNotChangeTheMap() {
+        OrderedData<String> removed = new OrderedData<>("removed", "Removed", 1, 0);
+        OrderedData<String> kept = new OrderedData<>("kept", "Kept", 1, 0);
+        OrderedDataMap<String> map = new OrderedDataMap<String>().add(removed).add(kept);
+        map.remove("removed");
+
+        removed.setPriority(3);
+        removed.setId("kept");
+
+        assertSame(kept, map.get("kept"));
+        assertEquals(List.of(kept), map.sort());
+    }
+
+    @Test
+    void replacedDataDoesNotChangeTheMap() {
+        OrderedData<String> replaced = new OrderedData<>("data", "Replaced", 1, 0);
+        OrderedData<String> data = new OrderedData<>("data", "Data", 1, 0);
+        OrderedDataMap<String> map = new OrderedDataMap<String>().add(replaced).add(data);
+
+        replaced.setPriority(3);
+
+        assertSame(data, map.get("data"));
+        assertEquals(List.of(data), map.sort());
+    }
+
+}